@@ -0,0 +1,13 @@
+#!/usr/bin/env bash
+# Build and run the JMH suite with the GC profiler, writing JSON results to results/<name>.json.
+#   ./run-benchmarks.sh baseline              # whole suite
+#   ./run-benchmarks.sh after-fit-profile Fit # only benchmarks matching the regex "Fit"
+set -euo pipefail
+
+name="${1:-baseline}"
+filter="${2:-}"
+here="$(cd "$(dirname "$0")" && pwd)"
+
+(cd "$here/.." && mvn -B -q -DskipTests install)
+mkdir -p "$here/results"
+java -jar "$here/target/benchmarks.jar" $filter -prof gc -rf json -rff "$here/results/$name.json"
@@ -0,0 +1,42 @@
+package com.tryon.app.config;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token verification as done by JwtAuthenticationFilter on every authenticated request:
+ * a full signature check versus the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilBenchmark {
+
+    // 256-bit test key, base64 like jwt.secret
+    private static final String SECRET = "dGVzdC1zZWNyZXQtZm9yLWJlbmNobWFya3Mtb25seS0wMTIzNDU2Nzg5YWJjZGVm";
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtUtil = new JwtUtil(SECRET, 10_000);
+        token = jwtUtil.generateToken("shopper@example.com", 42L, "USER", TimeUnit.HOURS.toMillis(1));
+    }
+
+    @Benchmark
+    public Jws<Claims> validateToken() {
+        return jwtUtil.validateToken(token);
+    }
+
+    @Benchmark
+    public Claims verifyCached() {
+        return jwtUtil.verify(token);
+    }
+}
@@ -0,0 +1,78 @@
+package com.tryon.app.model;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog-wide fit scan for a single shopper: the BigDecimal entry point versus fixed-point
+ * {@link DressFitProfile} bounds packed into one array, as ScoringSnapshot scans them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DressFitBenchmark {
+
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    private List<Dress> catalog;
+    private BigDecimal bust;
+    private BigDecimal waist;
+    private BigDecimal hips;
+    private short[] packed;
+    private boolean[] hasRanges;
+
+    @Setup
+    public void setUp() {
+        catalog = SyntheticCatalog.dresses(catalogSize, 42L);
+        bust = new BigDecimal("35.50");
+        waist = new BigDecimal("28.00");
+        hips = new BigDecimal("38.50");
+        packed = new short[catalogSize * DressFitProfile.PACKED_SIZE];
+        hasRanges = new boolean[catalogSize];
+        for (int d = 0; d < catalogSize; d++) {
+            DressFitProfile profile = catalog.get(d).getFitProfile();
+            if (profile != null) {
+                profile.packInto(packed, d * DressFitProfile.PACKED_SIZE);
+                hasRanges[d] = true;
+            }
+        }
+    }
+
+    @Benchmark
+    public int fitsSizeScan() {
+        int fits = 0;
+        for (Dress dress : catalog) {
+            if (dress.fitsSize(bust, waist, hips)) {
+                fits++;
+            }
+        }
+        return fits;
+    }
+
+    @Benchmark
+    public int packedFitsScan() {
+        int fits = 0;
+        for (int d = 0; d < hasRanges.length; d++) {
+            if (hasRanges[d] && DressFitProfile.fits(packed, d * DressFitProfile.PACKED_SIZE, 355, 280, 385)) {
+                fits++;
+            }
+        }
+        return fits;
+    }
+
+    @Benchmark
+    public long profileDistanceScan() {
+        long total = 0;
+        for (Dress dress : catalog) {
+            total += dress.getFitProfile().distance(355, 280, 385);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,97 @@
+package com.tryon.app.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic catalog for benchmarks. Values are drawn from the same vocabularies
+ * the recommendation rules use, so every scoring branch is exercised.
+ */
+public final class SyntheticCatalog {
+
+    static final String[] STYLES = {"bodycon", "wrap", "fit-and-flare", "A-line", "empire", "sheath", "slip", "mermaid", "straight"};
+    static final String[] NECKLINES = {"V-neck", "sweetheart", "scoop", "halter", "strapless", "boat-neck", "off-shoulder", "square", "cowl"};
+    static final String[] COLORS = {"black", "red", "navy", "emerald", "gold", "white", "pink", "teal", "burgundy", "silver"};
+    static final String[] TAGS = {"backless", "low-cut", "thigh-high-slit", "cut-outs", "side-slit", "off-shoulder",
+            "lace-details", "form-fitting", "curve-hugging", "waist-emphasizing", "side-slits", "hip-emphasis"};
+
+    static final String[] SLEEVES = {"sleeveless", "cap", "short", "long", "puff", "spaghetti-strap"};
+    static final String[] LENGTHS = {"mini", "knee", "midi", "maxi"};
+    static final String[] PATTERNS = {"solid", "floral", "striped", "polka-dot", "animal-print", "sequined"};
+    static final String[] OCCASIONS = {"party", "cocktail", "evening", "date-night", "wedding-guest", "casual", "work"};
+
+    public static final String[] BODY_TYPES = {"hourglass", "pear", "apple", "rectangle", "inverted_triangle"};
+    public static final String[] SKIN_TONES = {"fair_cool", "fair_warm", "medium_warm", "medium_neutral", "deep_cool"};
+
+    private SyntheticCatalog() {
+    }
+
+    public static List<Dress> dresses(int count, long seed) {
+        Random random = new Random(seed);
+        List<Dress> dresses = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double bust = 30 + random.nextInt(120) / 10.0;
+            double waist = 24 + random.nextInt(120) / 10.0;
+            double hip = 33 + random.nextInt(120) / 10.0;
+
+            List<String> tags = new ArrayList<>();
+            int tagCount = random.nextInt(4);
+            for (int t = 0; t < tagCount; t++) {
+                tags.add(TAGS[random.nextInt(TAGS.length)]);
+            }
+
+            dresses.add(Dress.builder()
+                    .dressId(i + 1)
+                    .dressName("Synthetic dress " + i)
+                    .bustMin(inches(bust))
+                    .bustMax(inches(bust + 2 + random.nextInt(30) / 10.0))
+                    .waistMin(inches(waist))
+                    .waistMax(inches(waist + 2 + random.nextInt(30) / 10.0))
+                    .hipMin(inches(hip))
+                    .hipMax(inches(hip + 2 + random.nextInt(30) / 10.0))
+                    .dressStyle(STYLES[random.nextInt(STYLES.length)])
+                    .neckline(NECKLINES[random.nextInt(NECKLINES.length)])
+                    .primaryColor(COLORS[random.nextInt(COLORS.length)])
+                    .sexinessScore(1 + random.nextInt(10))
+                    .hotnessTags(tags)
+                    .primaryImageUrl("https://example.invalid/dress/" + i + ".jpg")
+                    .build());
+        }
+        return dresses;
+    }
+
+    /**
+     * {@link #dresses} plus the attributes only similarity search reads (sleeves, length,
+     * pattern, secondary colors, occasions, body types, price). Drawn from a separate random
+     * stream, so the base attributes stay identical to {@code dresses(count, seed)}.
+     */
+    public static List<Dress> detailedDresses(int count, long seed) {
+        List<Dress> dresses = dresses(count, seed);
+        Random random = new Random(seed + 1);
+        for (Dress dress : dresses) {
+            dress.setSleeveType(SLEEVES[random.nextInt(SLEEVES.length)]);
+            dress.setDressLength(LENGTHS[random.nextInt(LENGTHS.length)]);
+            dress.setPatternType(PATTERNS[random.nextInt(PATTERNS.length)]);
+            dress.setSecondaryColors(pick(random, COLORS, random.nextInt(3)));
+            dress.setOccasions(pick(random, OCCASIONS, 1 + random.nextInt(3)));
+            dress.setBodyTypeRecommendations(pick(random, BODY_TYPES, 1 + random.nextInt(2)));
+            dress.setPrice(BigDecimal.valueOf(20 + random.nextInt(48000) / 100.0).setScale(2, RoundingMode.HALF_UP));
+        }
+        return dresses;
+    }
+
+    private static List<String> pick(Random random, String[] values, int count) {
+        List<String> picked = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            picked.add(values[random.nextInt(values.length)]);
+        }
+        return picked;
+    }
+
+    private static BigDecimal inches(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+}
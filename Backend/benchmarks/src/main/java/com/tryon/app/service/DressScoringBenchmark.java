@@ -0,0 +1,90 @@
+package com.tryon.app.service;
+
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.SyntheticCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fit, style and sexiness-match scoring over a synthetic catalog, per score and combined,
+ * and the materializer's per-analysis top 10 from a prepared {@link ScoringSnapshot}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DressScoringBenchmark {
+
+    @Param({"1000", "10000"})
+    int catalogSize;
+
+    @Param({"high", "medium"})
+    String sexinessPreference;
+
+    private final DressScorer scorer = new DressScorer();
+    private List<Dress> catalog;
+    private Map<String, Double> measurements;
+    private String bodyType;
+    private String skinTone;
+    private ScoringSnapshot snapshot;
+
+    @Setup
+    public void setUp() {
+        catalog = SyntheticCatalog.dresses(catalogSize, 42L);
+        measurements = Map.of("chest", 35.5, "waist", 28.0, "hips", 38.5);
+        bodyType = SyntheticCatalog.BODY_TYPES[0];
+        skinTone = SyntheticCatalog.SKIN_TONES[0];
+        snapshot = new ScoringSnapshot(scorer, catalog, sexinessPreference);
+    }
+
+    @Benchmark
+    public double fitScores() {
+        double sum = 0;
+        for (Dress dress : catalog) {
+            sum += scorer.fitScore(35.5, 28.0, 38.5, dress);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double styleScores() {
+        double sum = 0;
+        for (Dress dress : catalog) {
+            sum += scorer.styleScore(bodyType, skinTone, dress);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double sexinessMatchScores() {
+        double sum = 0;
+        for (Dress dress : catalog) {
+            sum += scorer.sexinessMatchScore(sexinessPreference, dress);
+        }
+        return sum;
+    }
+
+    // The full per-request loop: score everything and count what clears the threshold
+    @Benchmark
+    public int compatibilityScan() {
+        int recommended = 0;
+        for (Dress dress : catalog) {
+            double score = scorer.compatibilityScore(measurements, bodyType, skinTone, sexinessPreference, dress);
+            if (score >= DressScorer.RECOMMENDATION_THRESHOLD) {
+                recommended++;
+            }
+        }
+        return recommended;
+    }
+
+    // The same scan with style and sexiness match precomputed, keeping the top 10
+    @Benchmark
+    public List<ScoringSnapshot.Scored> snapshotTopN() {
+        return snapshot.topN(355, 280, 385, bodyType, skinTone, 10, DressScorer.RECOMMENDATION_THRESHOLD);
+    }
+}
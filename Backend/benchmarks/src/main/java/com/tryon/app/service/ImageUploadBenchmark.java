@@ -0,0 +1,39 @@
+package com.tryon.app.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-upload bookkeeping in ImageProcessingService: file name generation and validation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ImageUploadBenchmark {
+
+    private ImageProcessingService service;
+    private MockMultipartFile upload;
+
+    @Setup
+    public void setUp() {
+        service = new ImageProcessingService();
+        upload = new MockMultipartFile("image", "body-photo.JPG", "image/jpeg", new byte[256 * 1024]);
+    }
+
+    @Benchmark
+    public String generateFileName() {
+        return service.generateFileName(upload.getOriginalFilename());
+    }
+
+    @Benchmark
+    public MockMultipartFile validateFile() throws IOException {
+        service.validateFile(upload);
+        return upload;
+    }
+}
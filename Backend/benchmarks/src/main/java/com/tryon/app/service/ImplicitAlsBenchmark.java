@@ -0,0 +1,72 @@
+package com.tryon.app.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One implicit-ALS sweep (users then dresses, 32 factors) over a synthetic million-interaction
+ * matrix, on one worker and on every core. A full training run is iterations x this.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImplicitAlsBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int DRESSES = 20_000;
+    private static final int PER_USER = 10;
+
+    // 0 = one worker per core
+    @Param({"1", "0"})
+    public int workers;
+
+    private ImplicitAls.Interactions data;
+    private ImplicitAls.Params params;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setUp() {
+        // Skewed dress popularity, one interaction per (user, dress) pair
+        Random random = new Random(42L);
+        int n = USERS * PER_USER;
+        int[] users = new int[n];
+        int[] dresses = new int[n];
+        float[] strengths = new float[n];
+        int count = 0;
+        for (int u = 0; u < USERS; u++) {
+            int first = count;
+            while (count - first < PER_USER) {
+                int dress = (int) (DRESSES * Math.pow(random.nextDouble(), 2));
+                boolean seen = false;
+                for (int k = first; k < count; k++) {
+                    seen |= dresses[k] == dress;
+                }
+                if (!seen) {
+                    users[count] = u;
+                    dresses[count] = dress;
+                    strengths[count] = 0.5f + random.nextInt(8);
+                    count++;
+                }
+            }
+        }
+        data = ImplicitAls.Interactions.of(USERS, DRESSES, users, dresses, strengths, count);
+        params = new ImplicitAls.Params(32, 1, 0.1f, 10f, 42L);
+        pool = new ForkJoinPool(workers > 0 ? workers : Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ImplicitAls.Factors sweep() {
+        return ImplicitAls.train(data, params, pool);
+    }
+}
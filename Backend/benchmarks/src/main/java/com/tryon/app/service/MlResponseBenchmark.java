@@ -0,0 +1,69 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.model.MlAnalysisResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ML response handling: the streaming parse of the body-analysis payload into the stored
+ * result, against the previous path (parse into a Map, then re-serialize measurements),
+ * and the measurements read done when serving an analysis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MlResponseBenchmark {
+
+    // Shape returned by the Python MediaPipe service
+    static final String ML_RESPONSE_JSON = "{\"success\":true,\"data\":{"
+            + "\"measurements\":{\"height\":65.4,\"chest\":35.6,\"waist\":28.2,\"hips\":38.9,"
+            + "\"shoulders\":15.1,\"inseam\":30.2,\"armLength\":23.4,\"neck\":13.3},"
+            + "\"skinTone\":\"medium_warm\",\"bodyType\":\"hourglass\",\"confidence\":0.87,"
+            + "\"processingTime\":\"1.42s\"},\"cost\":0.0,\"provider\":\"huggingface-mediapipe\"}";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HuggingFaceMediaPipeService mlService;
+    private ImageAnalysisService analysisService;
+    private byte[] responseBytes;
+    private String measurementsJson;
+
+    @Setup
+    public void setUp() {
+        mlService = new HuggingFaceMediaPipeService();
+        ReflectionTestUtils.setField(mlService, "pipelineMetrics", new PipelineMetrics(new SimpleMeterRegistry()));
+        analysisService = new ImageAnalysisService();
+        ReflectionTestUtils.setField(analysisService, "objectMapper", objectMapper);
+
+        responseBytes = ML_RESPONSE_JSON.getBytes(StandardCharsets.UTF_8);
+        measurementsJson = mlService.standardizeAnalysisResult(responseBytes).measurementsJson();
+    }
+
+    @Benchmark
+    public MlAnalysisResult standardizeAnalysisResult() {
+        return mlService.standardizeAnalysisResult(responseBytes);
+    }
+
+    // What the pipeline used to do: response into a Map, then measurements back to a string
+    @Benchmark
+    @SuppressWarnings("unchecked")
+    public String mapThenReserialize() throws Exception {
+        Map<String, Object> response = objectMapper.readValue(responseBytes, Map.class);
+        Map<String, Object> data = (Map<String, Object>) response.get("data");
+        return objectMapper.writeValueAsString(data.get("measurements"));
+    }
+
+    @Benchmark
+    public Map<String, Object> readMeasurements() throws Exception {
+        return analysisService.readMeasurements(measurementsJson);
+    }
+}
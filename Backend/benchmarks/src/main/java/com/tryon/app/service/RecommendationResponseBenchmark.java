@@ -0,0 +1,90 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.DressRecommendation;
+import com.tryon.app.model.SyntheticCatalog;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializing a 50-item recommendation response: entities with their dress attached (what
+ * reflection-based serialization of the entity graph costs) against RecommendationView items
+ * with cached dress fragments.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecommendationResponseBenchmark {
+
+    @Param({"50"})
+    public int items;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private Map<String, Object> entityResponse;
+    private Map<String, Object> fragmentResponse;
+
+    @Setup
+    public void setUp() {
+        DressFragmentCache cache = new DressFragmentCache(null, objectMapper, new TransactionTemplate());
+        List<Dress> dresses = SyntheticCatalog.dresses(items, 42L);
+
+        List<DressRecommendation> entities = new ArrayList<>();
+        List<RecommendationView> views = new ArrayList<>();
+        for (int i = 0; i < items; i++) {
+            Dress dress = dresses.get(i);
+            dress.setDressId(i + 1);
+            dress.setUpdatedAt(LocalDateTime.now());
+            DressRecommendation rec = new DressRecommendation();
+            rec.setRecommendationId((long) i + 1);
+            rec.setAnalysisId("ANALYSIS-benchmark");
+            rec.setUserId(7L);
+            rec.setDressId(dress.getDressId());
+            rec.setCompatibilityScore(BigDecimal.valueOf(60 + i % 40));
+            rec.setFitScore(BigDecimal.valueOf(50 + i % 50));
+            rec.setStyleScore(BigDecimal.valueOf(70));
+            rec.setSexinessMatchScore(BigDecimal.valueOf(80));
+            rec.setRecommendationReason("Flatters an hourglass figure");
+            rec.setCreatedAt(LocalDateTime.now());
+            rec.setDress(dress);
+            entities.add(rec);
+            views.add(new RecommendationView(rec, cache.render(dress)));
+        }
+
+        entityResponse = response(entities);
+        fragmentResponse = response(views);
+    }
+
+    @Benchmark
+    public byte[] entityGraph() throws Exception {
+        return objectMapper.writeValueAsBytes(entityResponse);
+    }
+
+    @Benchmark
+    public byte[] cachedFragments() throws Exception {
+        return objectMapper.writeValueAsBytes(fragmentResponse);
+    }
+
+    private static Map<String, Object> response(List<?> recommendations) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("analysisId", "ANALYSIS-benchmark");
+        result.put("recommendations", recommendations);
+        result.put("totalCount", recommendations.size());
+        return result;
+    }
+}
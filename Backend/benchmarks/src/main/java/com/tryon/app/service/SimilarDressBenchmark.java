@@ -0,0 +1,130 @@
+package com.tryon.app.service;
+
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.SyntheticCatalog;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "More like this" over encoded synthetic dresses: one HNSW k=10 query against the exact
+ * full scan it replaces, and graph build time.
+ *
+ * Recall isn't a JMH metric; run this class's main for build time and recall@10 per size:
+ * {@code java -cp target/benchmarks.jar com.tryon.app.service.SimilarDressBenchmark 10000 100000}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SimilarDressBenchmark {
+
+    private static final int K = 10;
+    private static final int M = 16;
+    private static final int EF_CONSTRUCTION = 100;
+    private static final int EF_SEARCH = 64;
+
+    @Param({"10000", "100000"})
+    public int catalogSize;
+
+    private float[][] vectors;
+    private HnswIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        vectors = encode(catalogSize);
+        index = build(vectors);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Neighbour> hnswQuery() {
+        int id = next++ % catalogSize;
+        return index.search(vectors[id], K, EF_SEARCH, other -> other != id);
+    }
+
+    @Benchmark
+    public List<HnswIndex.Neighbour> exactQuery() {
+        int id = next++ % catalogSize;
+        return index.exactSearch(vectors[id], K, other -> other != id);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public HnswIndex build() {
+        return build(vectors);
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = args.length == 0 ? new int[]{10_000, 100_000} : new int[args.length];
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        int queries = 500;
+
+        System.out.printf("%-10s %10s %12s %12s %12s%n", "dresses", "build ms", "recall@10", "hnsw us", "exact us");
+        for (int size : sizes) {
+            float[][] vectors = encode(size);
+            long start = System.nanoTime();
+            HnswIndex index = build(vectors);
+            long buildMs = (System.nanoTime() - start) / 1_000_000;
+
+            Random random = new Random(7);
+            double recall = 0;
+            long hnswNanos = 0;
+            long exactNanos = 0;
+            for (int q = 0; q < queries; q++) {
+                int id = random.nextInt(size);
+                long t0 = System.nanoTime();
+                List<HnswIndex.Neighbour> approximate = index.search(vectors[id], K, EF_SEARCH, other -> other != id);
+                long t1 = System.nanoTime();
+                List<HnswIndex.Neighbour> exact = index.exactSearch(vectors[id], K, other -> other != id);
+                long t2 = System.nanoTime();
+                hnswNanos += t1 - t0;
+                exactNanos += t2 - t1;
+
+                Set<Integer> truth = new HashSet<>();
+                for (HnswIndex.Neighbour neighbour : exact) {
+                    truth.add(neighbour.id());
+                }
+                int found = 0;
+                for (HnswIndex.Neighbour neighbour : approximate) {
+                    if (truth.contains(neighbour.id())) {
+                        found++;
+                    }
+                }
+                recall += (double) found / truth.size();
+            }
+            System.out.printf("%-10d %10d %12.4f %12d %12d%n", size, buildMs, recall / queries,
+                    hnswNanos / queries / 1000, exactNanos / queries / 1000);
+        }
+    }
+
+    private static float[][] encode(int size) {
+        DressFeatureEncoder encoder = new DressFeatureEncoder();
+        List<Dress> dresses = SyntheticCatalog.detailedDresses(size, 42L);
+        float[][] vectors = new float[size][];
+        for (int i = 0; i < size; i++) {
+            vectors[i] = encoder.encode(dresses.get(i));
+        }
+        return vectors;
+    }
+
+    // Dress ids are vector positions here
+    private static HnswIndex build(float[][] vectors) {
+        HnswIndex index = new HnswIndex(DressFeatureEncoder.DIMENSION, M, EF_CONSTRUCTION, 42L);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, vectors[i]);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,181 @@
+package com.tryon.app.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Open-loop driver: starts user flows at a fixed rate regardless of how fast earlier ones
+ * finish (so a slow backend shows up as latency, not as a lower offered load). One flow is
+ * upload body image, poll analysis status until COMPLETED, generate recommendations, then
+ * read them back. Flows beyond the in-flight cap are counted as dropped.
+ */
+public class FlowDriver {
+    private static final Logger logger = LoggerFactory.getLogger(FlowDriver.class);
+
+    static final String UPLOAD = "POST upload-body-image";
+    static final String STATUS = "GET analysis-status";
+    static final String GENERATE = "POST generate-recommendations";
+    static final String RECOMMENDATIONS = "GET recommendations";
+    static final String FLOW = "flow (end to end)";
+
+    // Smallest valid JPEG header; the backend only checks type and extension
+    private static final byte[] IMAGE = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0, 0, 0x10, 'J', 'F', 'I', 'F', 0};
+
+    private final LoadTestOptions options;
+    private final String baseUrl;
+    private final String token;
+    private final LatencyRecorder recorder;
+    private final HttpClient client;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Semaphore inFlight;
+    private final ExecutorService flows = Executors.newCachedThreadPool();
+    private final AtomicLong userIds = new AtomicLong(1_000_000);
+
+    public FlowDriver(LoadTestOptions options, String baseUrl, String token, LatencyRecorder recorder) {
+        this.options = options;
+        this.baseUrl = baseUrl;
+        this.token = token;
+        this.recorder = recorder;
+        this.inFlight = new Semaphore(options.maxInFlight);
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newCachedThreadPool())
+                .build();
+    }
+
+    /**
+     * Run warm-up then the measured window, blocking until in-flight flows drain
+     */
+    public void run() throws InterruptedException {
+        ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor();
+        long periodNanos = (long) (1_000_000_000L / options.rps);
+        ticker.scheduleAtFixedRate(this::startFlow, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(options.warmup.toMillis());
+        recorder.reset();
+        logger.info("Warm-up done, measuring for {}", options.duration);
+        Thread.sleep(options.duration.toMillis());
+
+        ticker.shutdownNow();
+        flows.shutdown();
+        if (!flows.awaitTermination(options.statusTimeout.toMillis() + 30_000, TimeUnit.MILLISECONDS)) {
+            logger.warn("Some flows were still running at shutdown");
+            flows.shutdownNow();
+        }
+    }
+
+    private void startFlow() {
+        if (!inFlight.tryAcquire()) {
+            recorder.recordDropped(FLOW);
+            return;
+        }
+        try {
+            flows.execute(() -> {
+                try {
+                    runFlow();
+                } finally {
+                    inFlight.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.release();
+        }
+    }
+
+    private void runFlow() {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            JsonNode upload = upload(userIds.incrementAndGet());
+            String analysisId = upload.path("analysisId").asText(null);
+            if (analysisId != null && awaitCompletion(analysisId)) {
+                JsonNode generated = call(GENERATE, post("/api/wardrobe/generate-recommendations/" + analysisId
+                        + "?recommendationLimit=" + options.recommendationLimit));
+                if (generated != null) {
+                    success = call(RECOMMENDATIONS, get("/api/wardrobe/recommendations/" + analysisId)) != null;
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Flow failed: {}", e.getMessage());
+        } finally {
+            recorder.record(FLOW, System.nanoTime() - start, success);
+        }
+    }
+
+    private JsonNode upload(long userId) throws IOException, InterruptedException {
+        String boundary = "----loadtest" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.write(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"image\"; filename=\"body.jpg\"\r\n"
+                + "Content-Type: image/jpeg\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.write(IMAGE);
+        body.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/wardrobe/upload-body-image?userId=" + userId))
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()))
+                .build();
+        JsonNode response = call(UPLOAD, request);
+        if (response == null) {
+            throw new IOException("upload failed");
+        }
+        return response;
+    }
+
+    private boolean awaitCompletion(String analysisId) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + options.statusTimeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            JsonNode status = call(STATUS, get("/api/wardrobe/analysis-status/" + analysisId));
+            String state = status != null ? status.path("status").asText() : "";
+            if ("COMPLETED".equals(state)) {
+                return true;
+            }
+            if ("FAILED".equals(state)) {
+                return false;
+            }
+            Thread.sleep(options.statusPollInterval.toMillis());
+        }
+        return false;
+    }
+
+    // Timed call; returns the parsed body on 2xx, null otherwise
+    private JsonNode call(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            ok = response.statusCode() / 100 == 2;
+            return ok ? objectMapper.readTree(response.body()) : null;
+        } finally {
+            recorder.record(endpoint, System.nanoTime() - start, ok);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
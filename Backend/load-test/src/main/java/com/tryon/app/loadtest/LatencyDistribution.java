@@ -0,0 +1,77 @@
+package com.tryon.app.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated service latency, parsed from a short spec:
+ * <ul>
+ *   <li>{@code fixed:200} - always 200 ms</li>
+ *   <li>{@code uniform:100:400} - uniform between 100 and 400 ms</li>
+ *   <li>{@code lognormal:800:0.4} - log-normal with an 800 ms median and sigma 0.4 (long tail)</li>
+ * </ul>
+ */
+public abstract class LatencyDistribution {
+
+    public abstract long sampleMillis();
+
+    public static LatencyDistribution parse(String spec) {
+        String[] parts = spec.trim().split(":");
+        try {
+            switch (parts[0].toLowerCase()) {
+                case "fixed":
+                    return fixed(Long.parseLong(parts[1]));
+                case "uniform":
+                    return uniform(Long.parseLong(parts[1]), Long.parseLong(parts[2]));
+                case "lognormal":
+                    return logNormal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed latency spec: " + spec, e);
+        }
+    }
+
+    public static LatencyDistribution fixed(long millis) {
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+                return millis;
+            }
+
+            @Override
+            public String toString() {
+                return "fixed " + millis + "ms";
+            }
+        };
+    }
+
+    public static LatencyDistribution uniform(long minMillis, long maxMillis) {
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+                return ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+            }
+
+            @Override
+            public String toString() {
+                return "uniform " + minMillis + ".." + maxMillis + "ms";
+            }
+        };
+    }
+
+    public static LatencyDistribution logNormal(double medianMillis, double sigma) {
+        double mu = Math.log(medianMillis);
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+                return Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+            }
+
+            @Override
+            public String toString() {
+                return "lognormal median " + medianMillis + "ms sigma " + sigma;
+            }
+        };
+    }
+}
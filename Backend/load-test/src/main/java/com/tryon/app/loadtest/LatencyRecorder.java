@@ -0,0 +1,99 @@
+package com.tryon.app.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-endpoint latency samples (kept in full, so percentiles are exact) and error counts.
+ */
+public class LatencyRecorder {
+
+    private final Map<String, Series> series = new ConcurrentHashMap<>();
+    private volatile long windowStartNanos = System.nanoTime();
+
+    public void record(String endpoint, long latencyNanos, boolean success) {
+        series.computeIfAbsent(endpoint, e -> new Series()).add(latencyNanos, success);
+    }
+
+    public void recordDropped(String endpoint) {
+        series.computeIfAbsent(endpoint, e -> new Series()).dropped();
+    }
+
+    /**
+     * Discard everything recorded so far (end of warm-up) and restart the throughput window
+     */
+    public void reset() {
+        series.clear();
+        windowStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Per endpoint: count, errors, dropped, throughput (req/s) and p50/p90/p99/max in ms
+     */
+    public Map<String, Map<String, Object>> summary() {
+        double seconds = (System.nanoTime() - windowStartNanos) / 1e9;
+        Map<String, Map<String, Object>> result = new LinkedHashMap<>();
+        series.keySet().stream().sorted().forEach(endpoint -> result.put(endpoint, series.get(endpoint).summary(seconds)));
+        return result;
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder(String.format("%-28s %8s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "count", "errors", "dropped", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        for (Map.Entry<String, Map<String, Object>> e : summary().entrySet()) {
+            Map<String, Object> s = e.getValue();
+            sb.append(String.format("%-28s %8d %7d %7d %9.2f %9.1f %9.1f %9.1f %9.1f%n",
+                    e.getKey(), s.get("count"), s.get("errors"), s.get("dropped"), s.get("throughput"),
+                    s.get("p50"), s.get("p90"), s.get("p99"), s.get("max")));
+        }
+        return sb.toString();
+    }
+
+    private static final class Series {
+        private long[] samples = new long[1024];
+        private int size;
+        private long errors;
+        private long dropped;
+
+        synchronized void add(long latencyNanos, boolean success) {
+            if (size == samples.length) {
+                samples = Arrays.copyOf(samples, size * 2);
+            }
+            samples[size++] = latencyNanos;
+            if (!success) {
+                errors++;
+            }
+        }
+
+        synchronized void dropped() {
+            dropped++;
+        }
+
+        synchronized Map<String, Object> summary(double seconds) {
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+
+            Map<String, Object> s = new LinkedHashMap<>();
+            s.put("count", (long) size);
+            s.put("errors", errors);
+            s.put("dropped", dropped);
+            s.put("throughput", seconds > 0 ? (size - errors) / seconds : 0.0);
+            s.put("p50", percentileMillis(sorted, 0.50));
+            s.put("p90", percentileMillis(sorted, 0.90));
+            s.put("p99", percentileMillis(sorted, 0.99));
+            s.put("max", sorted.length > 0 ? sorted[sorted.length - 1] / 1e6 : 0.0);
+            return s;
+        }
+
+        // Nearest-rank percentile
+        private static double percentileMillis(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0.0;
+            }
+            int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.tryon.app.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tryon.app.VirtualTryOnBackendApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * End-to-end load test: starts PostgreSQL (a throwaway container unless --jdbc-url is given),
+ * the stub ML services and the backend in-process with local file storage, then drives
+ * upload -> status -> recommendation flows at the target rate and prints per-endpoint
+ * throughput and latency percentiles.
+ */
+public class LoadTestMain {
+    private static final Logger logger = LoggerFactory.getLogger(LoadTestMain.class);
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        logger.info("Load test: {}", options);
+
+        PostgreSQLContainer<?> postgres = null;
+        List<Integer> dressIds = new CopyOnWriteArrayList<>();
+        StubServices stubs = new StubServices(options, dressIds);
+        ConfigurableApplicationContext app = null;
+
+        try {
+            boolean freshDatabase = options.jdbcUrl.isBlank();
+            if (freshDatabase) {
+                postgres = new PostgreSQLContainer<>(DockerImageName.parse(options.postgresImage));
+                postgres.start();
+            }
+            stubs.start();
+
+            app = new SpringApplicationBuilder(VirtualTryOnBackendApplication.class)
+                    .properties(appProperties(options, postgres, stubs.baseUrl()))
+                    .run();
+            String baseUrl = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+
+            DataSource dataSource = app.getBean(DataSource.class);
+            if (freshDatabase) {
+                new ResourceDatabasePopulator(new ClassPathResource("loadtest-schema.sql")).execute(dataSource);
+                dressIds.addAll(seedCatalog(new JdbcTemplate(dataSource), options.catalogSize));
+            } else {
+                dressIds.addAll(new JdbcTemplate(dataSource).queryForList(
+                        "SELECT dress_id FROM wardrobe.dresses ORDER BY dress_id LIMIT ?", Integer.class, options.catalogSize));
+            }
+            if (dressIds.isEmpty()) {
+                throw new IllegalStateException("No dresses available for the recommendation stub");
+            }
+
+            String token = registerUser(baseUrl);
+            LatencyRecorder recorder = new LatencyRecorder();
+            new FlowDriver(options, baseUrl, token, recorder).run();
+
+            System.out.println();
+            System.out.println("Load test results (" + options + ")");
+            System.out.print(recorder.format());
+            if (!options.reportFile.isBlank()) {
+                writeReport(options, recorder, new File(options.reportFile));
+            }
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            stubs.close();
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static Map<String, Object> appProperties(LoadTestOptions options, PostgreSQLContainer<?> postgres, String stubUrl) {
+        byte[] secret = new byte[32];
+        new SecureRandom().nextBytes(secret);
+
+        Map<String, Object> props = new HashMap<>();
+        props.put("server.port", "0");
+        if (postgres != null) {
+            props.put("spring.datasource.url", postgres.getJdbcUrl());
+            props.put("spring.datasource.username", postgres.getUsername());
+            props.put("spring.datasource.password", postgres.getPassword());
+            props.put("spring.jpa.hibernate.ddl-auto", "create");
+            props.put("spring.jpa.properties.hibernate.hbm2ddl.create_namespaces", "true");
+        } else {
+            props.put("spring.datasource.url", options.jdbcUrl);
+            props.put("spring.datasource.username", options.dbUser);
+            props.put("spring.datasource.password", options.dbPassword);
+            props.put("spring.jpa.hibernate.ddl-auto", "none");
+        }
+        props.put("ml.service.provider", "huggingface");
+        props.put("ml.service.huggingface.enabled", "true");
+        props.put("ml.service.huggingface.url", stubUrl);
+        props.put("ai.recommendation.service.url", stubUrl);
+        props.put("jwt.secret", Base64.getEncoder().encodeToString(secret));
+        props.put("jwt.expiration-ms", "86400000");
+        // No GCP settings: uploads use the local file fallback
+        props.put("gcp.project-id", "");
+        props.put("gcp.bucket.name", "");
+        // Every virtual user uploads from localhost; the per-address limit would shed the test itself
+        props.put("uploads.admission.enabled", "false");
+        props.put("logging.level.root", "WARN");
+        props.put("logging.level.com.tryon.app.loadtest", "INFO");
+        return props;
+    }
+
+    private static List<Integer> seedCatalog(JdbcTemplate jdbcTemplate, int size) {
+        return jdbcTemplate.queryForList(
+                "INSERT INTO wardrobe.dresses (dress_name, primary_image_url, sexiness_score, " +
+                "availability_status, currency, view_count, recommendation_count, purchase_count, " +
+                "rating_count, rating_sum, created_at, updated_at) " +
+                "SELECT 'Load test dress ' || g, 'https://example.invalid/dress/' || g || '.jpg', 1 + g % 10, " +
+                "'available', 'USD', 0, 0, 0, 0, 0, now(), now() " +
+                "FROM generate_series(1, ?) g RETURNING dress_id",
+                Integer.class, size);
+    }
+
+    private static String registerUser(String baseUrl) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String body = mapper.writeValueAsString(Map.of(
+                "email", "loadtest+" + System.currentTimeMillis() + "@example.com",
+                "password", "load-test-password"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/auth/register"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        HttpResponse<String> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofString());
+        JsonNode json = mapper.readTree(response.body());
+        String token = json.path("token").asText(null);
+        if (token == null) {
+            throw new IllegalStateException("Could not register load test user: " + response.body());
+        }
+        return token;
+    }
+
+    private static void writeReport(LoadTestOptions options, LatencyRecorder recorder, File file) throws Exception {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("options", options.toString());
+        report.put("endpoints", recorder.summary());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+        logger.info("Report written to {}", file.getAbsolutePath());
+    }
+}
@@ -0,0 +1,103 @@
+package com.tryon.app.loadtest;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options, given as {@code --name=value}. Every option has a default, so a bare
+ * run starts a containerised PostgreSQL and drives 10 flows/s for a minute.
+ */
+public class LoadTestOptions {
+
+    double rps = 10;
+    Duration duration = Duration.ofSeconds(60);
+    Duration warmup = Duration.ofSeconds(10);
+    int maxInFlight = 256;
+    int recommendationLimit = 10;
+    int catalogSize = 500;
+    Duration statusPollInterval = Duration.ofMillis(250);
+    Duration statusTimeout = Duration.ofSeconds(60);
+
+    LatencyDistribution analyzeLatency = LatencyDistribution.parse("lognormal:800:0.4");
+    double analyzeErrorRate = 0.0;
+    LatencyDistribution recommendLatency = LatencyDistribution.parse("lognormal:400:0.5");
+    double recommendErrorRate = 0.0;
+
+    // Leave jdbcUrl empty to start a throwaway PostgreSQL container
+    String jdbcUrl = "";
+    String dbUser = "postgres";
+    String dbPassword = "postgres";
+    String postgresImage = "postgres:15-alpine";
+
+    String reportFile = "";
+
+    public static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = values(args);
+
+        LoadTestOptions o = new LoadTestOptions();
+        o.rps = Double.parseDouble(values.getOrDefault("rps", String.valueOf(o.rps)));
+        o.duration = duration(values.get("duration"), o.duration);
+        o.warmup = duration(values.get("warmup"), o.warmup);
+        o.maxInFlight = Integer.parseInt(values.getOrDefault("max-in-flight", String.valueOf(o.maxInFlight)));
+        o.recommendationLimit = Integer.parseInt(values.getOrDefault("recommendation-limit", String.valueOf(o.recommendationLimit)));
+        o.catalogSize = Integer.parseInt(values.getOrDefault("catalog-size", String.valueOf(o.catalogSize)));
+        o.statusPollInterval = duration(values.get("status-poll"), o.statusPollInterval);
+        o.statusTimeout = duration(values.get("status-timeout"), o.statusTimeout);
+        if (values.containsKey("analyze-latency")) {
+            o.analyzeLatency = LatencyDistribution.parse(values.get("analyze-latency"));
+        }
+        o.analyzeErrorRate = Double.parseDouble(values.getOrDefault("analyze-error-rate", String.valueOf(o.analyzeErrorRate)));
+        if (values.containsKey("recommend-latency")) {
+            o.recommendLatency = LatencyDistribution.parse(values.get("recommend-latency"));
+        }
+        o.recommendErrorRate = Double.parseDouble(values.getOrDefault("recommend-error-rate", String.valueOf(o.recommendErrorRate)));
+        o.jdbcUrl = values.getOrDefault("jdbc-url", o.jdbcUrl);
+        o.dbUser = values.getOrDefault("db-user", o.dbUser);
+        o.dbPassword = values.getOrDefault("db-password", o.dbPassword);
+        o.postgresImage = values.getOrDefault("postgres-image", o.postgresImage);
+        o.reportFile = values.getOrDefault("report", o.reportFile);
+
+        if (o.rps <= 0) {
+            throw new IllegalArgumentException("rps must be positive");
+        }
+        return o;
+    }
+
+    static Map<String, String> values(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            values.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return values;
+    }
+
+    // Accepts 250ms, 30s, 5m or a bare number of seconds
+    static Duration duration(String value, Duration fallback) {
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        String v = value.trim().toLowerCase();
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        if (v.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        if (v.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+        }
+        return Duration.ofSeconds(Long.parseLong(v));
+    }
+
+    @Override
+    public String toString() {
+        return "rps=" + rps + ", duration=" + duration + ", warmup=" + warmup +
+                ", maxInFlight=" + maxInFlight + ", analyze=" + analyzeLatency + " (errors " + analyzeErrorRate + ")" +
+                ", recommend=" + recommendLatency + " (errors " + recommendErrorRate + ")";
+    }
+}
@@ -0,0 +1,128 @@
+package com.tryon.app.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold-start benchmark: launches the backend jar in a fresh JVM several times and measures
+ * time-to-first-request. That is the time from process start until the liveness probe first
+ * answers 200. Runs with the "training" profile, so no database, GCS or ML service is needed.
+ *
+ * Modes:
+ * - baseline: plain JVM
+ * - fast-start: AOT-processed code plus the CDS archive from {@code mvn -Pfast-start package}
+ * - both (default): the two, alternating
+ */
+public class StartupBenchmark {
+    private static final Logger logger = LoggerFactory.getLogger(StartupBenchmark.class);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> values = LoadTestOptions.values(args);
+        Path jar = Paths.get(values.getOrDefault("jar",
+                "../spring-sample-backend/target/spring-sample-backend-0.0.1-SNAPSHOT.jar"));
+        Path archive = Paths.get(values.getOrDefault("archive", jar.resolveSibling("app.jsa").toString()));
+        int runs = Integer.parseInt(values.getOrDefault("runs", "5"));
+        int port = Integer.parseInt(values.getOrDefault("port", "18080"));
+        Duration timeout = LoadTestOptions.duration(values.get("timeout"), Duration.ofSeconds(60));
+        String mode = values.getOrDefault("mode", "both");
+
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalArgumentException("Backend jar not found: " + jar.toAbsolutePath());
+        }
+        boolean baseline = !"fast-start".equals(mode);
+        boolean fastStart = !"baseline".equals(mode);
+        if (fastStart && !Files.isRegularFile(archive)) {
+            throw new IllegalArgumentException("CDS archive not found (build with -Pfast-start): " + archive.toAbsolutePath());
+        }
+
+        Map<String, List<Long>> results = new LinkedHashMap<>();
+        for (int run = 1; run <= runs; run++) {
+            if (baseline) {
+                results.computeIfAbsent("baseline", k -> new ArrayList<>())
+                        .add(timeToFirstRequest(jar, List.of(), port, timeout));
+            }
+            if (fastStart) {
+                results.computeIfAbsent("fast-start", k -> new ArrayList<>())
+                        .add(timeToFirstRequest(jar, List.of(
+                                "-XX:SharedArchiveFile=" + archive.toAbsolutePath(),
+                                "-Dspring.aot.enabled=true"), port, timeout));
+            }
+            logger.info("Run {}/{} done", run, runs);
+        }
+
+        System.out.println();
+        System.out.printf("%-12s %6s %9s %9s %9s%n", "mode", "runs", "min ms", "p50 ms", "max ms");
+        for (Map.Entry<String, List<Long>> e : results.entrySet()) {
+            long[] sorted = e.getValue().stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("%-12s %6d %9d %9d %9d%n", e.getKey(), sorted.length,
+                    sorted[0], sorted[(sorted.length - 1) / 2], sorted[sorted.length - 1]);
+        }
+    }
+
+    private static long timeToFirstRequest(Path jar, List<String> jvmArgs, int port, Duration timeout)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.addAll(Arrays.asList(
+                "-jar", jar.toAbsolutePath().toString(),
+                "--spring.profiles.active=training",
+                "--wardrobe.training-run=false",
+                "--server.port=" + port));
+
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + "/actuator/health/liveness"))
+                .timeout(Duration.ofSeconds(1))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(new File("startup-benchmark.log")))
+                .start();
+        try {
+            long deadline = start + timeout.toNanos();
+            while (System.nanoTime() < deadline) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException("Backend exited with code " + process.exitValue()
+                            + " before answering; see startup-benchmark.log");
+                }
+                try {
+                    if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return (System.nanoTime() - start) / 1_000_000;
+                    }
+                } catch (ConnectException e) {
+                    // Not listening yet
+                } catch (IOException e) {
+                    logger.debug("Probe failed: {}", e.getMessage());
+                }
+                Thread.sleep(5);
+            }
+            throw new IllegalStateException("Backend did not answer within " + timeout);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+}
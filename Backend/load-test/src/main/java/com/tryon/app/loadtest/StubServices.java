@@ -0,0 +1,173 @@
+package com.tryon.app.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * In-process stand-ins for the two Python services (MediaPipe body analysis and dress
+ * recommendation), served by the JDK HTTP server. Each endpoint sleeps for a sample of its
+ * latency distribution and fails with a 500 at its configured error rate; successful
+ * responses have the same shape as the real services.
+ */
+public class StubServices implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(StubServices.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final List<Integer> dressIds;
+
+    public StubServices(LoadTestOptions options, List<Integer> dressIds) throws IOException {
+        this.dressIds = dressIds;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/analyze-body",
+                exchange -> handle(exchange, options.analyzeLatency, options.analyzeErrorRate, this::analyzeBody));
+        server.createContext("/recommend-dresses",
+                exchange -> handle(exchange, options.recommendLatency, options.recommendErrorRate, this::recommendDresses));
+        server.createContext("/health",
+                exchange -> handle(exchange, LatencyDistribution.fixed(0), 0.0, body -> Map.of("status", "healthy")));
+    }
+
+    public void start() {
+        server.start();
+        logger.info("Stub ML services listening on {}", baseUrl());
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, LatencyDistribution latency, double errorRate,
+                        ResponseFactory factory) throws IOException {
+        try {
+            JsonNode body = readBody(exchange);
+            sleep(latency.sampleMillis());
+
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                respond(exchange, 500, Map.of("success", false, "error", "Injected stub failure"));
+                return;
+            }
+            respond(exchange, 200, factory.create(body));
+        } catch (Exception e) {
+            logger.warn("Stub handler failed: {}", e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Shape of the MediaPipe service's /analyze-body response
+    private Map<String, Object> analyzeBody(JsonNode request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Map<String, Object> measurements = new LinkedHashMap<>();
+        measurements.put("height", round(60 + random.nextDouble() * 12));
+        measurements.put("chest", round(31 + random.nextDouble() * 10));
+        measurements.put("waist", round(24 + random.nextDouble() * 10));
+        measurements.put("hips", round(34 + random.nextDouble() * 10));
+        measurements.put("shoulders", round(13 + random.nextDouble() * 4));
+        measurements.put("inseam", round(27 + random.nextDouble() * 6));
+        measurements.put("armLength", round(21 + random.nextDouble() * 4));
+        measurements.put("neck", round(12 + random.nextDouble() * 3));
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("measurements", measurements);
+        data.put("skinTone", pick(random, "fair_cool", "medium_warm", "medium_neutral", "deep_warm"));
+        data.put("bodyType", pick(random, "hourglass", "pear", "apple", "rectangle", "inverted_triangle"));
+        data.put("confidence", round(0.7 + random.nextDouble() * 0.3));
+        data.put("processingTime", "stub");
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        response.put("cost", 0.0);
+        response.put("provider", "load-test-stub");
+        return response;
+    }
+
+    // Shape of the recommendation service's /recommend-dresses response
+    private Map<String, Object> recommendDresses(JsonNode request) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int limit = request.path("limit").asInt(10);
+        List<Map<String, Object>> recommendations = new ArrayList<>();
+        for (int i = 0; i < Math.min(limit, dressIds.size()); i++) {
+            int dressId = dressIds.get(random.nextInt(dressIds.size()));
+            Map<String, Object> rec = new HashMap<>();
+            rec.put("dress_id", dressId);
+            rec.put("dress_name", "Load test dress " + dressId);
+            rec.put("compatibility_score", round(60 + random.nextDouble() * 40));
+            rec.put("fit_score", round(50 + random.nextDouble() * 50));
+            rec.put("style_score", round(40 + random.nextDouble() * 60));
+            rec.put("sexiness_match_score", round(50 + random.nextDouble() * 50));
+            rec.put("sexiness_score", 5 + random.nextInt(6));
+            rec.put("recommendation_reason", "Stub recommendation");
+            rec.put("styling_tips", "Stub styling tips");
+            recommendations.add(rec);
+        }
+
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("success", true);
+        response.put("analysis_id", request.path("analysis_id").asText());
+        response.put("recommendations_count", recommendations.size());
+        response.put("recommendations", recommendations);
+        return response;
+    }
+
+    private JsonNode readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            return bytes.length > 0 ? objectMapper.readTree(bytes) : objectMapper.createObjectNode();
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static String pick(ThreadLocalRandom random, String... values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    @FunctionalInterface
+    private interface ResponseFactory {
+        Object create(JsonNode request);
+    }
+}
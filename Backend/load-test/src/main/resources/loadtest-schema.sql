@@ -0,0 +1,55 @@
+-- Applied after Hibernate has created the tables from the entities (ddl-auto=create).
+-- Adds the pieces the JDBC write paths rely on that entity DDL does not produce;
+-- mirrors the migrations in postgresql/.
+
+-- Dress_recommendations_Upsert.sql: sequence default + conflict key for the bulk upsert
+ALTER TABLE wardrobe.dress_recommendations
+    ALTER COLUMN recommendation_id SET DEFAULT nextval('wardrobe.dress_recommendations_recommendation_id_seq');
+ALTER TABLE wardrobe.dress_recommendations
+    ADD CONSTRAINT uq_recommendations_analysis_dress UNIQUE (analysis_id, dress_id);
+
+-- Dress_interaction_Events.sql: append-only interaction log
+CREATE TABLE IF NOT EXISTS wardrobe.dress_interaction_events (
+    event_id BIGSERIAL PRIMARY KEY,
+    recommendation_id BIGINT NOT NULL,
+    user_id BIGINT,
+    event_type VARCHAR(20) NOT NULL,
+    rating INTEGER CHECK (rating >= 1 AND rating <= 5),
+    feedback TEXT,
+    occurred_at TIMESTAMP NOT NULL,
+    recorded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Dress_recommendations_Updated_At.sql: row versions for the ETags
+ALTER TABLE wardrobe.dress_recommendations
+    ALTER COLUMN updated_at SET DEFAULT CURRENT_TIMESTAMP;
+-- single-quoted body: the script splitter does not understand dollar quoting
+CREATE OR REPLACE FUNCTION wardrobe.touch_updated_at() RETURNS trigger AS
+    'BEGIN NEW.updated_at := clock_timestamp(); RETURN NEW; END;' LANGUAGE plpgsql;
+CREATE TRIGGER trg_recommendations_touch
+    BEFORE UPDATE ON wardrobe.dress_recommendations
+    FOR EACH ROW EXECUTE FUNCTION wardrobe.touch_updated_at();
+
+-- Analysis_Jobs.sql: durable analysis job queue
+CREATE TABLE IF NOT EXISTS wardrobe.analysis_jobs (
+    job_id BIGSERIAL PRIMARY KEY,
+    analysis_id VARCHAR(255) NOT NULL UNIQUE,
+    user_id BIGINT,
+    image_url VARCHAR(500) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    priority INTEGER NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    max_attempts INTEGER NOT NULL,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    leased_by VARCHAR(255),
+    lease_expires_at TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_analysis_jobs_claim
+    ON wardrobe.analysis_jobs (priority DESC, available_at, job_id)
+    WHERE status = 'QUEUED';
+CREATE INDEX IF NOT EXISTS idx_analysis_jobs_lease
+    ON wardrobe.analysis_jobs (lease_expires_at)
+    WHERE status = 'RUNNING';
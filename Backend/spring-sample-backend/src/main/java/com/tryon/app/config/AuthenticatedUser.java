@@ -0,0 +1,42 @@
+package com.tryon.app.config;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Security principal that also carries the database user id, so controllers and services
+ * can identify the caller without looking the user up by email.
+ */
+public class AuthenticatedUser extends User {
+    private final Long userId;
+    private final String role;
+
+    public AuthenticatedUser(Long userId, String email, String password, String role) {
+        super(email, password != null ? password : "", authoritiesFor(role));
+        this.userId = userId;
+        this.role = role;
+    }
+
+    /**
+     * Principal rebuilt from verified token claims (no password)
+     */
+    public static AuthenticatedUser fromClaims(Long userId, String email, String role) {
+        return new AuthenticatedUser(userId, email, "", role);
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    private static Collection<? extends GrantedAuthority> authoritiesFor(String role) {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + (role != null ? role : "USER")));
+    }
+}
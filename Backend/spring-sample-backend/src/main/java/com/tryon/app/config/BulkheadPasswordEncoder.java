@@ -0,0 +1,133 @@
+package com.tryon.app.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt encoder that runs every hash on a dedicated, CPU-sized pool.
+ *
+ * Hashing is CPU-bound, so at most one hash per core runs at a time and a bounded queue
+ * absorbs short bursts; beyond that requests are shed with
+ * {@link PasswordHashingRejectedException} instead of piling up on request threads. The work
+ * factor is either pinned or calibrated at startup so one hash takes roughly the target time on
+ * this hardware; hashes made with a lower cost report {@link #upgradeEncoding} so they are
+ * re-hashed on the next successful login.
+ */
+public class BulkheadPasswordEncoder implements PasswordEncoder {
+    private static final Logger logger = LoggerFactory.getLogger(BulkheadPasswordEncoder.class);
+
+    private static final int MIN_STRENGTH = 10;
+    private static final int MAX_STRENGTH = 14;
+    private static final int CALIBRATION_STRENGTH = 8;
+
+    private final BCryptPasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long waitTimeoutMs;
+    private final int strength;
+
+    public BulkheadPasswordEncoder(int pinnedStrength, long targetHashMs, int threads, int queueCapacity, long waitTimeoutMs) {
+        this.strength = pinnedStrength > 0 ? pinnedStrength : calibrate(targetHashMs);
+        this.delegate = new BCryptPasswordEncoder(strength);
+        this.waitTimeoutMs = waitTimeoutMs;
+
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "password-hash-" + threadCount.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        logger.info("Password hashing: BCrypt strength {} ({}), {} threads, queue {}",
+                strength, pinnedStrength > 0 ? "pinned" : "calibrated for ~" + targetHashMs + "ms", poolSize, queueCapacity);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return run(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return run(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    public int getQueuedHashes() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Called by Spring when the bean is destroyed
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T run(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw new PasswordHashingRejectedException("Too many concurrent sign-ins, please retry shortly", e);
+        }
+
+        try {
+            return future.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new PasswordHashingRejectedException("Password hashing timed out, please retry shortly", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingRejectedException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Password hashing failed", cause);
+        }
+    }
+
+    /**
+     * Pick the highest strength whose hash time stays within the target. Each strength step
+     * doubles the cost, so one measurement at a cheap strength is enough to extrapolate.
+     */
+    private static int calibrate(long targetHashMs) {
+        BCryptPasswordEncoder probe = new BCryptPasswordEncoder(CALIBRATION_STRENGTH);
+        probe.encode("calibration-warmup");
+
+        int samples = 5;
+        long start = System.nanoTime();
+        for (int i = 0; i < samples; i++) {
+            probe.encode("calibration-" + i);
+        }
+        double msPerHash = (System.nanoTime() - start) / 1_000_000.0 / samples;
+
+        int chosen = MIN_STRENGTH;
+        for (int s = MIN_STRENGTH + 1; s <= MAX_STRENGTH; s++) {
+            double estimated = msPerHash * (1L << (s - CALIBRATION_STRENGTH));
+            if (estimated > targetHashMs) {
+                break;
+            }
+            chosen = s;
+        }
+        return chosen;
+    }
+}
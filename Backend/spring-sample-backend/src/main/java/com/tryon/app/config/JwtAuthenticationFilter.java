@@ -1,5 +1,8 @@
 package com.tryon.app.config;
 
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -15,10 +18,12 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtil jwtUtil;
     private final UserDetailsService uds;
+    private final PipelineMetrics pipelineMetrics;
 
-    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService uds) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, UserDetailsService uds, PipelineMetrics pipelineMetrics) {
         this.jwtUtil = jwtUtil;
         this.uds = uds;
+        this.pipelineMetrics = pipelineMetrics;
     }
 
     @Override
@@ -29,12 +34,38 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String auth = req.getHeader("Authorization");
         if (auth != null && auth.startsWith("Bearer ")) {
             String token = auth.substring(7);
-            String username = jwtUtil.getUsername(token);
-            UserDetails ud = uds.loadUserByUsername(username);
-            UsernamePasswordAuthenticationToken authToken =
-                    new UsernamePasswordAuthenticationToken(ud, null, ud.getAuthorities());
-            SecurityContextHolder.getContext().setAuthentication(authToken);
+            try {
+                UserDetails ud = principalFor(verify(token));
+                UsernamePasswordAuthenticationToken authToken =
+                        new UsernamePasswordAuthenticationToken(ud, null, ud.getAuthorities());
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+            } catch (JwtException e) {
+                // Invalid or expired token: continue unauthenticated and let the access rules decide
+                SecurityContextHolder.clearContext();
+            }
         }
         chain.doFilter(req, res);
     }
-}
\ No newline at end of file
+
+    private Claims verify(String token) {
+        Timer.Sample sample = pipelineMetrics.start();
+        String outcome = "invalid";
+        try {
+            Claims claims = jwtUtil.verify(token);
+            outcome = "valid";
+            return claims;
+        } finally {
+            pipelineMetrics.stop(sample, "wardrobe.jwt.validate", "outcome", outcome);
+        }
+    }
+
+    // Role and user id come from the signed claims; only tokens issued before they existed hit the database
+    private UserDetails principalFor(Claims claims) {
+        String role = claims.get(JwtUtil.ROLE_CLAIM, String.class);
+        Number userId = claims.get(JwtUtil.USER_ID_CLAIM, Number.class);
+        if (role == null || userId == null) {
+            return uds.loadUserByUsername(claims.getSubject());
+        }
+        return AuthenticatedUser.fromClaims(userId.longValue(), claims.getSubject(), role);
+    }
+}
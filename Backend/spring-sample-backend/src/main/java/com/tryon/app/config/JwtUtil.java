@@ -1,20 +1,116 @@
 package com.tryon.app.config;
 
 import io.jsonwebtoken.*;
+import io.jsonwebtoken.io.Decoders;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Issues and verifies the API's JWTs.
+ *
+ * The signing key and parser are built once. Verified claims are cached by the SHA-256 of
+ * the token until the token expires, so a client reusing its token pays for signature
+ * verification only once. The cache is bounded: when full, expired entries are purged and
+ * new tokens are simply verified without being cached.
+ */
 @Component
 public class JwtUtil {
-    @Value("${jwt.secret}") private String jwtSecret;
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String ROLE_CLAIM = "role";
+
+    private final Key signingKey;
+    private final JwtParser parser;
+    private final int maxCachedTokens;
+    private final Map<String, CachedClaims> verifiedTokens = new ConcurrentHashMap<>();
+
+    public JwtUtil(@Value("${jwt.secret}") String jwtSecret,
+                   @Value("${jwt.cache.max-entries:10000}") int maxCachedTokens) {
+        // Same base64 secret the tokens have always been signed with
+        this.signingKey = new SecretKeySpec(Decoders.BASE64.decode(jwtSecret), SignatureAlgorithm.HS256.getJcaName());
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.maxCachedTokens = maxCachedTokens;
+    }
+
+    public String generateToken(String email, Long userId, String role, long expiryMillis) {
+        Date now = new Date();
+        JwtBuilder builder = Jwts.builder()
+                .setSubject(email)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + expiryMillis))
+                .claim(ROLE_CLAIM, role);
+        if (userId != null) {
+            builder.claim(USER_ID_CLAIM, userId);
+        }
+        return builder.signWith(signingKey, SignatureAlgorithm.HS256).compact();
+    }
 
     public Jws<Claims> validateToken(String token) {
-        return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token);
+        return parser.parseClaimsJws(token);
+    }
+
+    /**
+     * Verified claims for a token, served from the cache while the token is still valid
+     */
+    public Claims verify(String token) {
+        long now = System.currentTimeMillis();
+        String key = hash(token);
+
+        CachedClaims cached = verifiedTokens.get(key);
+        if (cached != null) {
+            if (cached.expiresAt > now) {
+                return cached.claims;
+            }
+            verifiedTokens.remove(key, cached);
+        }
+
+        Claims claims = validateToken(token).getBody();
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            cache(key, new CachedClaims(claims, expiration.getTime()), now);
+        }
+        return claims;
     }
 
     public String getUsername(String token) {
-        return validateToken(token).getBody().getSubject();
+        return verify(token).getSubject();
+    }
+
+    private void cache(String key, CachedClaims entry, long now) {
+        if (verifiedTokens.size() >= maxCachedTokens) {
+            verifiedTokens.values().removeIf(c -> c.expiresAt <= now);
+            if (verifiedTokens.size() >= maxCachedTokens) {
+                return;
+            }
+        }
+        verifiedTokens.put(key, entry);
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static final class CachedClaims {
+        final Claims claims;
+        final long expiresAt;
+
+        CachedClaims(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package com.tryon.app.config;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The most recent N latencies of one operation, for decisions that need a current percentile
+ * on this node (the Prometheus histograms are cumulative and meant for aggregation elsewhere).
+ *
+ * Samples also expire after a maximum age. A decision that stops the operation from running
+ * (shedding on a high p95) must not keep seeing the latencies that triggered it; once they
+ * age out the window is empty and the caller treats it as no evidence.
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private final long[] recordedAt;
+    private final long maxAgeNanos;
+    private int next;
+    private int size;
+
+    public LatencyWindow(int capacity, long maxAgeMs) {
+        this.samples = new long[capacity];
+        this.recordedAt = new long[capacity];
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        recordedAt[next] = System.nanoTime();
+        next = (next + 1) % samples.length;
+        size = Math.min(size + 1, samples.length);
+    }
+
+    /**
+     * Samples still within the maximum age
+     */
+    public int size() {
+        return current().length;
+    }
+
+    /**
+     * Nearest-rank percentile (0..1) of the current samples in milliseconds, or 0 when there are none
+     */
+    public long percentileMillis(double percentile) {
+        long[] copy = current();
+        if (copy.length == 0) {
+            return 0;
+        }
+        Arrays.sort(copy);
+        int rank = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, rank))] / 1_000_000;
+    }
+
+    private synchronized long[] current() {
+        long now = System.nanoTime();
+        long[] copy = new long[size];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (now - recordedAt[i] <= maxAgeNanos) {
+                copy[count++] = samples[i];
+            }
+        }
+        return Arrays.copyOf(copy, count);
+    }
+}
@@ -0,0 +1,12 @@
+package com.tryon.app.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
+
+/**
+ * Ships the actuator/metrics defaults (exposed endpoints, histograms) with the jar.
+ */
+@Configuration
+@PropertySource("classpath:wardrobe-defaults.properties")
+public class MetricsConfig {
+}
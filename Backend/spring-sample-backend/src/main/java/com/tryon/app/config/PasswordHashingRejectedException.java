@@ -0,0 +1,14 @@
+package com.tryon.app.config;
+
+/**
+ * Thrown when the password hashing bulkhead is saturated and sheds a login or registration.
+ */
+public class PasswordHashingRejectedException extends RuntimeException {
+    public PasswordHashingRejectedException(String message) {
+        super(message);
+    }
+
+    public PasswordHashingRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,125 @@
+package com.tryon.app.config;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Custom Java Flight Recorder events for the upload -> analysis -> recommendation pipeline.
+ *
+ * Each event is a duration event (begin() before the work, commit() after) carrying the
+ * analysisId/userId of the request, so a recording can be filtered down to one slow analysis.
+ * A userId of 0 means the caller did not know it. When no recording is running, commit() is
+ * a no-op.
+ */
+public final class PipelineEvents {
+
+    private static final String CATEGORY = "Wardrobe";
+    private static final String PIPELINE = "Pipeline";
+
+    private PipelineEvents() {
+    }
+
+    @Name("com.tryon.app.ImageUpload")
+    @Label("Image Upload")
+    @Description("Body image stored to GCS or the local fallback")
+    @Category({CATEGORY, PIPELINE})
+    public static class UploadEvent extends Event {
+        @Label("User Id")
+        public long userId;
+
+        @Label("Folder")
+        public String folder;
+
+        @Label("Storage Backend")
+        public String backend;
+
+        @Label("Size")
+        @DataAmount
+        public long bytes;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("com.tryon.app.MlAnalyzeCall")
+    @Label("ML Analyze Call")
+    @Description("HTTP call to the body analysis service")
+    @Category({CATEGORY, PIPELINE})
+    public static class MlCallEvent extends Event {
+        @Label("Analysis Id")
+        public String analysisId;
+
+        @Label("User Id")
+        public long userId;
+
+        @Label("Endpoint")
+        public String endpoint;
+
+        @Label("HTTP Status")
+        @Description("0 when no response was received")
+        public int httpStatus;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("com.tryon.app.StandardizeAnalysis")
+    @Label("Standardize Analysis")
+    @Description("Mapping the ML response to the stored analysis shape")
+    @Category({CATEGORY, PIPELINE})
+    public static class StandardizeEvent extends Event {
+        @Label("Analysis Id")
+        public String analysisId;
+
+        @Label("User Id")
+        public long userId;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("com.tryon.app.PersistAnalysis")
+    @Label("Persist Analysis")
+    @Description("Saving the analysis results to the database")
+    @Category({CATEGORY, PIPELINE})
+    public static class PersistEvent extends Event {
+        @Label("Analysis Id")
+        public String analysisId;
+
+        @Label("User Id")
+        public long userId;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+    @Name("com.tryon.app.GenerateRecommendations")
+    @Label("Generate Recommendations")
+    @Description("Recommendation service call plus saving the returned dresses")
+    @Category({CATEGORY, PIPELINE})
+    public static class RecommendationEvent extends Event {
+        @Label("Analysis Id")
+        public String analysisId;
+
+        @Label("User Id")
+        public long userId;
+
+        @Label("Requested Limit")
+        public int limit;
+
+        @Label("Candidates")
+        @Description("Recommendations returned by the service")
+        public int candidateCount;
+
+        @Label("Pruned")
+        @Description("Candidates dropped before saving (missing dress id)")
+        public int prunedCount;
+
+        @Label("Success")
+        public boolean success;
+    }
+}
@@ -0,0 +1,109 @@
+package com.tryon.app.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Timers and in-flight gauges for the upload -> analysis -> recommendation pipeline.
+ *
+ * Every timer publishes a percentile histogram, so latency quantiles can be aggregated across
+ * instances in Prometheus. In-flight work is exposed as {@code wardrobe.pipeline.inflight}
+ * tagged by stage, and analyses by database status as {@code wardrobe.analyses} (counts across
+ * all nodes, refreshed on a timer by the caller of {@link #setAnalysesByStatus}). Timers that
+ * admission control watches also keep a {@link LatencyWindow} of
+ * their latest samples from the last minute.
+ */
+@Component
+public class PipelineMetrics {
+
+    public static final String STAGE_UPLOAD = "upload";
+    public static final String STAGE_ANALYSIS = "analysis";
+    public static final String STAGE_PERSIST = "persist";
+    public static final String STAGE_RECOMMEND = "recommend";
+
+    public static final String ML_ANALYZE = "wardrobe.ml.analyze";
+
+    private static final int RECENT_SAMPLES = 256;
+    private static final long RECENT_MAX_AGE_MS = 60_000;
+
+    private final MeterRegistry registry;
+    private final Map<String, AtomicInteger> inflight = new ConcurrentHashMap<>();
+    private final Map<String, LatencyWindow> recent = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> analysesByStatus = new ConcurrentHashMap<>();
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (String stage : new String[]{STAGE_UPLOAD, STAGE_ANALYSIS, STAGE_PERSIST, STAGE_RECOMMEND}) {
+            inflightFor(stage);
+        }
+        for (String status : new String[]{"PROCESSING", "COMPLETED", "FAILED"}) {
+            analysesFor(status);
+        }
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Stop a sample against the named timer; tags are key/value pairs
+     */
+    public long stop(Timer.Sample sample, String name, String... tags) {
+        return sample.stop(Timer.builder(name)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    /**
+     * Latest samples of the named timer; callers record into it with what {@link #stop} returned
+     */
+    public LatencyWindow recent(String name) {
+        return recent.computeIfAbsent(name, n -> new LatencyWindow(RECENT_SAMPLES, RECENT_MAX_AGE_MS));
+    }
+
+    /**
+     * Latest body_analysis row counts per status; statuses missing from the map drop to 0
+     */
+    public void setAnalysesByStatus(Map<String, Long> counts) {
+        counts.keySet().forEach(this::analysesFor);
+        analysesByStatus.forEach((status, gauge) -> gauge.set(counts.getOrDefault(status, 0L)));
+    }
+
+    public void enter(String stage) {
+        inflightFor(stage).incrementAndGet();
+    }
+
+    public void exit(String stage) {
+        inflightFor(stage).decrementAndGet();
+    }
+
+    private AtomicLong analysesFor(String status) {
+        return analysesByStatus.computeIfAbsent(status, s -> {
+            AtomicLong count = new AtomicLong();
+            Gauge.builder("wardrobe.analyses", count, AtomicLong::get)
+                    .tag("status", s)
+                    .description("Body analyses per status")
+                    .register(registry);
+            return count;
+        });
+    }
+
+    private AtomicInteger inflightFor(String stage) {
+        return inflight.computeIfAbsent(stage, s -> {
+            AtomicInteger count = new AtomicInteger();
+            Gauge.builder("wardrobe.pipeline.inflight", count, AtomicInteger::get)
+                    .tag("stage", s)
+                    .description("Work currently in progress per pipeline stage")
+                    .register(registry);
+            return count;
+        });
+    }
+}
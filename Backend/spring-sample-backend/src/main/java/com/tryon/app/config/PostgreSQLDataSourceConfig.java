@@ -1,11 +1,20 @@
 package com.tryon.app.config;
 
 import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
 import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
 
 import javax.sql.DataSource;
 
@@ -20,13 +29,13 @@ public class PostgreSQLDataSourceConfig {
     }
 
     @Bean
-    @Primary
     @ConfigurationProperties("spring.datasource.hikari")
-    public DataSource postgresDataSource(DataSourceProperties properties) {
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
         HikariDataSource dataSource = properties
                 .initializeDataSourceBuilder()
                 .type(HikariDataSource.class)
                 .build();
+        dataSource.setPoolName("primary");
 
         // PostgreSQL-specific HikariCP optimizations
         dataSource.setMaximumPoolSize(20);
@@ -36,13 +45,85 @@ public class PostgreSQLDataSourceConfig {
         dataSource.setMaxLifetime(1200000);
         dataSource.setLeakDetectionThreshold(60000);
 
-        // PostgreSQL-specific connection properties
+        addPostgresProperties(dataSource);
+        return dataSource;
+    }
+
+    // spring.datasource.replica.url/username/password; routing stays off while the url is unset
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    // Decided at runtime rather than with @ConditionalOnProperty: AOT processing (the fast-start
+    // build) evaluates conditions at build time, so a url set only at runtime would be ignored.
+    // Without a url the bean is null and the routing below uses the primary for everything.
+    // spring.datasource.replica.hikari is bound by hand, as @ConfigurationProperties can't bind a null bean.
+    @Bean
+    public HikariDataSource replicaDataSource(@Qualifier("replicaDataSourceProperties") DataSourceProperties properties,
+                                              Environment environment) {
+        if (!StringUtils.hasText(properties.getUrl())) {
+            return null;
+        }
+        HikariDataSource dataSource = properties
+                .initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+
+        dataSource.setMaximumPoolSize(20);
+        dataSource.setMinimumIdle(2);
+        dataSource.setConnectionTimeout(20000);
+        dataSource.setIdleTimeout(300000);
+        dataSource.setMaxLifetime(1200000);
+        dataSource.setLeakDetectionThreshold(60000);
+
+        addPostgresProperties(dataSource);
+        Binder.get(environment).bind("spring.datasource.replica.hikari", Bindable.ofInstance(dataSource));
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRouting replicaRouting(@Qualifier("primaryDataSource") DataSource primary,
+                                         @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica,
+                                         @Value("${spring.datasource.replica.max-lag-ms:2000}") long maxLagMs,
+                                         @Value("${spring.datasource.replica.lag-check-interval-ms:500}") long checkIntervalMs) {
+        return new ReplicaRouting(primary, replica.getIfAvailable(), maxLagMs, checkIntervalMs);
+    }
+
+    /**
+     * The application's DataSource: read-only transactions may go to the replica, everything
+     * else goes to the primary. The lazy proxy defers choosing a pool to the first statement,
+     * when the transaction's read-only flag is known. Each pool reports its own hikaricp metrics.
+     */
+    @Bean
+    @Primary
+    public DataSource postgresDataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                         @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica,
+                                         ReplicaRouting routing) {
+        return new LazyConnectionDataSourceProxy(new ReplicaRoutingDataSource(routing, primary, replica.getIfAvailable()));
+    }
+
+    // PostgreSQL-specific connection properties
+    private static void addPostgresProperties(HikariDataSource dataSource) {
         dataSource.addDataSourceProperty("cachePrepStmts", "true");
         dataSource.addDataSourceProperty("prepStmtCacheSize", "250");
         dataSource.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         dataSource.addDataSourceProperty("useServerPrepStmts", "true");
         dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+    }
 
-        return dataSource;
+    @Bean
+    public HibernatePropertiesCustomizer hibernateBatchingCustomizer() {
+        // Group inserts/updates into JDBC batches (rewritten into multi-row statements by the driver)
+        return properties -> {
+            properties.putIfAbsent("hibernate.jdbc.batch_size", 50);
+            properties.putIfAbsent("hibernate.order_inserts", true);
+            properties.putIfAbsent("hibernate.order_updates", true);
+            // Initialize lazy collections for many entities at once (e.g. the dress collection tables)
+            properties.putIfAbsent("hibernate.default_batch_fetch_size", 50);
+        };
     }
 }
\ No newline at end of file
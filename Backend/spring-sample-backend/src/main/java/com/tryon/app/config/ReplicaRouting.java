@@ -0,0 +1,294 @@
+package com.tryon.app.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decides whether a read-only transaction may use the read replica, and tracks how far the
+ * replica has caught up.
+ *
+ * A read goes to the replica only when its transaction is read-only, the replica is within the
+ * lag tolerance, and the thread isn't pinned to the primary. Lag is measured by sampling the
+ * primary's WAL position on a timer and checking which samples the replica has replayed; the
+ * time of the newest replayed sample is how current the replica is. That stays accurate when
+ * the primary is idle, which replay timestamps do not. Only a streaming standby is used: a
+ * database that isn't in recovery never receives the primary's writes, so it is never current.
+ *
+ * Read-your-writes: {@link #recordWrite} notes when a user's write committed, and
+ * {@link #readingFor} pins that user's reads to the primary until the replica has caught up
+ * past it. A write is noted in this node's memory and, so that other nodes honour it too, as
+ * the primary's WAL position in wardrobe.user_write_positions. A node that has no local write
+ * for the user reads that position from the primary (one primary lookup per user-scoped read
+ * while the replica is in use) and compares it with the replica's replay position.
+ */
+public class ReplicaRouting implements MeterBinder, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRouting.class);
+
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+    private static final Scope UNPINNED = () -> { };
+    private static final int SAMPLES = 64;
+
+    // Taken after the commit, so the position is at or past the write's commit record
+    private static final String RECORD_POSITION_SQL =
+            "INSERT INTO wardrobe.user_write_positions (user_id, wal_lsn, updated_at) " +
+            "VALUES (?, pg_current_wal_lsn(), CURRENT_TIMESTAMP) " +
+            "ON CONFLICT (user_id) DO UPDATE SET " +
+            "wal_lsn = GREATEST(wardrobe.user_write_positions.wal_lsn, EXCLUDED.wal_lsn), " +
+            "updated_at = EXCLUDED.updated_at";
+
+    private static final String READ_POSITION_SQL =
+            "SELECT wal_lsn::text FROM wardrobe.user_write_positions WHERE user_id = ?";
+
+    private final JdbcTemplate primary;
+    private final JdbcTemplate replica;
+    private final long maxLagNanos;
+    private final ScheduledExecutorService monitor;
+
+    // Ring of (sampled at, primary WAL position), written only by the monitor thread
+    private final long[] sampledAt = new long[SAMPLES];
+    private final long[] sampledLsn = new long[SAMPLES];
+    private int nextSample;
+    private int sampleCount;
+    private boolean warnedNotStandby;
+
+    private volatile boolean replicaUsable;
+    private volatile long caughtUpAt = Long.MIN_VALUE;
+    private volatile long replayedLsn = -1;
+    private final Map<Long, Long> lastWrites = new ConcurrentHashMap<>();
+    private final AtomicLong primaryRoutes = new AtomicLong();
+    private final AtomicLong replicaRoutes = new AtomicLong();
+
+    /**
+     * @param replicaDataSource null when no replica is configured; everything then uses the primary
+     */
+    public ReplicaRouting(DataSource primaryDataSource, DataSource replicaDataSource, long maxLagMs, long checkIntervalMs) {
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.replica = replicaDataSource != null ? new JdbcTemplate(replicaDataSource) : null;
+        this.maxLagNanos = TimeUnit.MILLISECONDS.toNanos(maxLagMs);
+        if (replica == null) {
+            this.monitor = null;
+            return;
+        }
+        this.monitor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "replica-lag-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+        monitor.scheduleWithFixedDelay(this::checkLag, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Read replica routing enabled: max lag {}ms, checked every {}ms", maxLagMs, checkIntervalMs);
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    public boolean hasReplica() {
+        return replica != null;
+    }
+
+    /**
+     * Route this thread's reads to the primary until the scope closes
+     */
+    public Scope onPrimary() {
+        Boolean previous = PINNED.get();
+        PINNED.set(Boolean.TRUE);
+        return () -> {
+            if (previous == null) {
+                PINNED.remove();
+            } else {
+                PINNED.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Reads on behalf of a user: on the primary while the replica may not have their latest write
+     */
+    public Scope readingFor(Long userId) {
+        return isCurrentFor(userId) ? UNPINNED : onPrimary();
+    }
+
+    /**
+     * Whether replica reads already reflect the user's latest write, made on any node
+     */
+    public boolean isCurrentFor(Long userId) {
+        // While the replica isn't in use every read goes to the primary anyway
+        if (replica == null || userId == null || !replicaUsable) {
+            return true;
+        }
+        Long writtenAt = lastWrites.get(userId);
+        if (writtenAt != null && writtenAt > caughtUpAt) {
+            return false;
+        }
+        return sharedWritePosition(userId) <= replayedLsn;
+    }
+
+    /**
+     * Note that the user just wrote; takes effect when the surrounding transaction commits
+     */
+    public void recordWrite(Long userId) {
+        if (replica == null || userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    noteWrite(userId);
+                }
+            });
+        } else {
+            noteWrite(userId);
+        }
+    }
+
+    private void noteWrite(Long userId) {
+        lastWrites.put(userId, System.nanoTime());
+        try {
+            primary.update(RECORD_POSITION_SQL, userId);
+        } catch (Exception e) {
+            // This node still pins the user; other nodes may serve a stale read until the replica catches up
+            logger.debug("Could not record the write position for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    // The primary WAL position after the user's last write on any node; -1 if none recorded
+    private long sharedWritePosition(Long userId) {
+        try {
+            List<String> positions = primary.queryForList(READ_POSITION_SQL, String.class, userId);
+            return positions.isEmpty() ? -1 : parseLsn(positions.get(0));
+        } catch (Exception e) {
+            logger.debug("Could not read the write position for user {}: {}", userId, e.getMessage());
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Called by the routing data source when a transaction first needs a connection
+     */
+    boolean useReplica() {
+        boolean useReplica = replicaUsable
+                && PINNED.get() == null
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        (useReplica ? replicaRoutes : primaryRoutes).incrementAndGet();
+        return useReplica;
+    }
+
+    public Map<String, Object> getStatus() {
+        return Map.of(
+                "configured", replica != null,
+                "usable", replicaUsable,
+                "lagMs", lagMillis(),
+                "pinnedUsers", lastWrites.size(),
+                "primaryRoutes", primaryRoutes.get(),
+                "replicaRoutes", replicaRoutes.get());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("wardrobe.datasource.routes", primaryRoutes, AtomicLong::get)
+                .tag("target", "primary")
+                .description("Transactions routed to each database pool")
+                .register(registry);
+        FunctionCounter.builder("wardrobe.datasource.routes", replicaRoutes, AtomicLong::get)
+                .tag("target", "replica")
+                .description("Transactions routed to each database pool")
+                .register(registry);
+        if (replica != null) {
+            Gauge.builder("wardrobe.datasource.replica.lag", this, ReplicaRouting::lagMillis)
+                    .baseUnit("milliseconds")
+                    .description("How far the read replica is behind the primary")
+                    .register(registry);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (monitor != null) {
+            monitor.shutdownNow();
+        }
+    }
+
+    private double lagMillis() {
+        long caughtUp = caughtUpAt;
+        return caughtUp == Long.MIN_VALUE ? -1 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - caughtUp);
+    }
+
+    private void checkLag() {
+        try {
+            // Sample the primary first: anything the replica has replayed now is at least this old
+            long now = System.nanoTime();
+            long primaryLsn = parseLsn(primary.queryForObject("SELECT pg_current_wal_lsn()::text", String.class));
+            sampledAt[nextSample] = now;
+            sampledLsn[nextSample] = primaryLsn;
+            nextSample = (nextSample + 1) % SAMPLES;
+            sampleCount = Math.min(sampleCount + 1, SAMPLES);
+
+            Map<String, Object> state = replica.queryForMap(
+                    "SELECT pg_is_in_recovery() AS standby, pg_last_wal_replay_lsn()::text AS replayed");
+            if (!Boolean.TRUE.equals(state.get("standby"))) {
+                // A plain second instance never receives the primary's writes: reading from it would
+                // lose them, and it has no replay position to release read-your-writes pins against
+                if (!warnedNotStandby) {
+                    logger.warn("Read replica is not a streaming standby (pg_is_in_recovery() is false); " +
+                            "not routing reads to it");
+                    warnedNotStandby = true;
+                }
+                updateUsable(false);
+                return;
+            }
+            warnedNotStandby = false;
+            long replayed = parseLsn((String) state.get("replayed"));
+            replayedLsn = replayed;
+            for (int i = 0; i < sampleCount; i++) {
+                if (sampledLsn[i] <= replayed && sampledAt[i] > caughtUpAt) {
+                    caughtUpAt = sampledAt[i];
+                }
+            }
+            updateUsable(caughtUpAt != Long.MIN_VALUE && System.nanoTime() - caughtUpAt <= maxLagNanos);
+
+            long visible = caughtUpAt;
+            lastWrites.values().removeIf(writtenAt -> writtenAt <= visible);
+        } catch (Exception e) {
+            updateUsable(false);
+            logger.debug("Replica lag check failed: {}", e.getMessage());
+        }
+    }
+
+    private void updateUsable(boolean usable) {
+        if (usable != replicaUsable) {
+            if (usable) {
+                logger.info("Read replica within lag tolerance, routing read-only transactions to it");
+            } else {
+                logger.warn("Read replica unavailable or lagging ({}ms), reading from the primary", (long) lagMillis());
+            }
+        }
+        replicaUsable = usable;
+    }
+
+    // "16/B374D848" -> 0x16_B374D848
+    static long parseLsn(String lsn) {
+        if (lsn == null) {
+            return -1;
+        }
+        int slash = lsn.indexOf('/');
+        return (Long.parseLong(lsn.substring(0, slash), 16) << 32) | Long.parseLong(lsn.substring(slash + 1), 16);
+    }
+}
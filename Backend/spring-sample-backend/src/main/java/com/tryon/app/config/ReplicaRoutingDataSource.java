@@ -0,0 +1,38 @@
+package com.tryon.app.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hands out replica connections for read-only transactions when {@link ReplicaRouting} allows
+ * it, primary connections otherwise. Must sit behind a LazyConnectionDataSourceProxy, so the
+ * choice is made at the first statement, after the transaction's read-only flag is set.
+ */
+class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String REPLICA = "replica";
+
+    private final ReplicaRouting routing;
+
+    ReplicaRoutingDataSource(ReplicaRouting routing, DataSource primary, DataSource replica) {
+        this.routing = routing;
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        if (replica != null) {
+            targets.put(REPLICA, replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return routing.useReplica() ? REPLICA : PRIMARY;
+    }
+}
@@ -1,5 +1,6 @@
 package com.tryon.app.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -8,8 +9,8 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -23,16 +24,25 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    // BCrypt on its own CPU-sized pool so login bursts can't starve the request threads
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.bcrypt.strength:0}") int pinnedStrength,
+                                           @Value("${auth.bcrypt.target-ms:250}") long targetHashMs,
+                                           @Value("${auth.hashing.threads:0}") int threads,
+                                           @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+                                           @Value("${auth.hashing.wait-timeout-ms:5000}") long waitTimeoutMs) {
+        return new BulkheadPasswordEncoder(pinnedStrength, targetHashMs, threads, queueCapacity, waitTimeoutMs);
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder) {
+    public AuthenticationProvider authenticationProvider(UserDetailsService userDetailsService,
+                                                         UserDetailsPasswordService userDetailsPasswordService,
+                                                         PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder);
+        // Re-hash at the current strength after a successful login with an older hash
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -54,6 +64,9 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**").permitAll()
                         .requestMatchers("/api/wardrobe/health").permitAll()
                         .requestMatchers("/api/wardrobe/test-gcp").permitAll()
+                        // Health probes and the Prometheus scrape; other actuator endpoints need a token
+                        .requestMatchers("/actuator/health/**", "/actuator/prometheus").permitAll()
+                        .requestMatchers("/api/admin/**").hasRole("ADMIN")
                         // TEMPORARILY ALLOW THESE FOR TESTING - REMOVE IN PRODUCTION
                         .requestMatchers("/api/wardrobe/upload-body-image").permitAll()
                         .requestMatchers("/api/wardrobe/analysis-status/**").permitAll()
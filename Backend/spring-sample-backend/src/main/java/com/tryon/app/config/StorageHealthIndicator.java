@@ -0,0 +1,52 @@
+package com.tryon.app.config;
+
+import com.tryon.app.service.ImageProcessingService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Image storage readiness ("storage" in /actuator/health, part of the readiness group).
+ * OUT_OF_SERVICE while the GCS client is still being created, so the instance takes no
+ * traffic until uploads can go through. Once uploads fall back to local disk (GCS not
+ * configured, or unreachable while retries continue) the instance can still serve them, so
+ * it reports UP with the fallback in the details; DOWN only when there is no storage path at
+ * all, i.e. GCS isn't available and the local directory isn't writable either.
+ */
+@Component
+public class StorageHealthIndicator implements HealthIndicator {
+    private final ImageProcessingService imageProcessingService;
+
+    public StorageHealthIndicator(ImageProcessingService imageProcessingService) {
+        this.imageProcessingService = imageProcessingService;
+    }
+
+    @Override
+    public Health health() {
+        ImageProcessingService.StorageState state = imageProcessingService.getStorageState();
+        Health.Builder builder;
+        switch (state) {
+            case READY:
+                builder = Health.up();
+                break;
+            case INITIALIZING:
+                builder = Health.outOfService();
+                break;
+            default:
+                builder = imageProcessingService.isLocalStorageWritable() ? Health.up() : Health.down();
+                builder.withDetail("fallback", "local");
+                if (state == ImageProcessingService.StorageState.FALLBACK) {
+                    builder.withDetail("degraded", true);
+                }
+                break;
+        }
+        builder.withDetail("state", state.name())
+                .withDetail("attempts", imageProcessingService.getInitAttempts())
+                .withDetail("waitingUploads", imageProcessingService.getWaitingUploads());
+        String error = imageProcessingService.getLastInitError();
+        if (error != null) {
+            builder.withDetail("lastError", error);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,33 @@
+package com.tryon.app.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ends a CDS training run (the fast-start build profile) once the context is fully started,
+ * so the JVM writes its class archive with everything startup loads.
+ *
+ * Checked at runtime rather than with a condition, because conditions are frozen by AOT
+ * processing at build time.
+ */
+@Component
+public class TrainingRunExit implements ApplicationListener<ApplicationReadyEvent> {
+    private static final Logger logger = LoggerFactory.getLogger(TrainingRunExit.class);
+
+    @Value("${wardrobe.training-run:false}")
+    private boolean trainingRun;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (!trainingRun) {
+            return;
+        }
+        logger.info("Training run finished startup in {} ms, exiting", event.getTimeTaken().toMillis());
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
@@ -0,0 +1,83 @@
+package com.tryon.app.controller;
+
+import com.tryon.app.service.CatalogImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admin-only partner feed imports; feeds are read from the server's catalog import directory
+ */
+@RestController
+@RequestMapping("/api/admin/catalog/imports")
+public class AdminCatalogImportController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminCatalogImportController.class);
+
+    @Autowired
+    private CatalogImportService catalogImportService;
+
+    // Start importing a partner feed (JSONL or CSV, optionally .gz), given relative to the import directory
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startImport(@RequestBody Map<String, String> request) {
+        Map<String, Object> response = new HashMap<>();
+
+        String source = request.get("source");
+        if (source == null || source.isBlank()) {
+            response.put("error", "source is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            CatalogImportService.ImportProgress progress =
+                    catalogImportService.startImport(source, request.get("format"));
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress.toMap());
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            logger.error("Failed to start catalog import", e);
+            response.put("error", "Failed to start import: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Resume a failed or interrupted import from its last committed chunk
+    @PostMapping("/{runId}/resume")
+    public ResponseEntity<Map<String, Object>> resumeImport(@PathVariable String runId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            CatalogImportService.ImportProgress progress = catalogImportService.resumeImport(runId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(progress.toMap());
+        } catch (EmptyResultDataAccessException e) {
+            response.put("error", "Import not found: " + runId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            logger.error("Failed to resume catalog import", e);
+            response.put("error", "Failed to resume import: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Progress metrics for an import run
+    @GetMapping("/{runId}")
+    public ResponseEntity<Map<String, Object>> getImportProgress(@PathVariable String runId) {
+        try {
+            return ResponseEntity.ok(catalogImportService.getProgress(runId));
+        } catch (EmptyResultDataAccessException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Import not found: " + runId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.tryon.app.controller;
+
+import com.tryon.app.service.CollaborativeFilteringService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admin-only control of the collaborative-filtering model (trained nightly by default)
+ */
+@RestController
+@RequestMapping("/api/admin/cf")
+public class AdminCollaborativeFilteringController {
+
+    @Autowired
+    private CollaborativeFilteringService collaborativeFilteringService;
+
+    // Retrain now; the result shows up under lastRun in the status
+    @PostMapping("/train")
+    public ResponseEntity<Map<String, Object>> train() {
+        Map<String, Object> response = new HashMap<>();
+
+        if (!collaborativeFilteringService.startTraining()) {
+            response.put("error", "Training is already running");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        response.put("success", true);
+        response.put("message", "Training started");
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(collaborativeFilteringService.getStatus());
+    }
+}
@@ -0,0 +1,87 @@
+package com.tryon.app.controller;
+
+import com.tryon.app.service.FlightRecordingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Admin-only diagnostics: on-demand flight recordings (open the dumped .jfr in JDK Mission Control)
+ */
+@RestController
+@RequestMapping("/api/admin/jfr")
+public class AdminDiagnosticsController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminDiagnosticsController.class);
+
+    @Autowired
+    private FlightRecordingService flightRecordingService;
+
+    // Start a bounded recording (0 means the configured maximum)
+    @PostMapping("/start")
+    public ResponseEntity<Map<String, Object>> start(
+            @RequestParam(value = "durationSeconds", defaultValue = "300") long durationSeconds,
+            @RequestParam(value = "maxSizeMb", defaultValue = "0") long maxSizeMb) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            return ResponseEntity.ok(flightRecordingService.start(durationSeconds, maxSizeMb));
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            logger.error("Failed to start flight recording", e);
+            response.put("error", "Failed to start recording: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> status() {
+        return ResponseEntity.ok(flightRecordingService.status());
+    }
+
+    // Download what has been recorded so far
+    @PostMapping("/dump")
+    public ResponseEntity<?> dump() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            Path file = flightRecordingService.dump();
+            Resource resource = new FileSystemResource(file);
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                    .body(resource);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (Exception e) {
+            logger.error("Failed to dump flight recording", e);
+            response.put("error", "Failed to dump recording: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    @PostMapping("/stop")
+    public ResponseEntity<Map<String, Object>> stop() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            return ResponseEntity.ok(flightRecordingService.stop());
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+    }
+}
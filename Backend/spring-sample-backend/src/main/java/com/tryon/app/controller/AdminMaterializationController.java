@@ -0,0 +1,105 @@
+package com.tryon.app.controller;
+
+import com.tryon.app.service.RecommendationMaterializationService;
+import com.tryon.app.service.RecommendationRescoreService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Admin-only precomputation of recommendations: full runs over all completed analyses, and
+ * incremental re-scoring for dresses changed outside the application
+ */
+@RestController
+@RequestMapping("/api/admin/materializations")
+public class AdminMaterializationController {
+    private static final Logger logger = LoggerFactory.getLogger(AdminMaterializationController.class);
+
+    @Autowired
+    private RecommendationMaterializationService materializationService;
+
+    @Autowired
+    private RecommendationRescoreService rescoreService;
+
+    // Score every completed analysis against the current catalog
+    @PostMapping
+    public ResponseEntity<Map<String, Object>> startRun() {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(materializationService.startRun().toMap());
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            logger.error("Failed to start materialization", e);
+            response.put("error", "Failed to start materialization: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Re-score only the analyses near these dresses (e.g. after editing them in the database)
+    @PostMapping("/rescore")
+    public ResponseEntity<Map<String, Object>> rescore(@RequestBody List<Integer> dressIds) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (dressIds == null || dressIds.isEmpty()) {
+            response.put("error", "dress ids are required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        try {
+            rescoreService.rescore(dressIds);
+            response.put("success", true);
+            response.put("dresses", dressIds.size());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+    }
+
+    @GetMapping("/rescore")
+    public ResponseEntity<Map<String, Object>> rescoreStatus() {
+        return ResponseEntity.ok(rescoreService.getStatus());
+    }
+
+    // Resume a failed or interrupted run from its partition checkpoints
+    @PostMapping("/{runId}/resume")
+    public ResponseEntity<Map<String, Object>> resumeRun(@PathVariable String runId) {
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(materializationService.resumeRun(runId).toMap());
+        } catch (EmptyResultDataAccessException e) {
+            response.put("error", "Materialization not found: " + runId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        } catch (Exception e) {
+            logger.error("Failed to resume materialization", e);
+            response.put("error", "Failed to resume materialization: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Progress and throughput (analyses per second) of a run
+    @GetMapping("/{runId}")
+    public ResponseEntity<Map<String, Object>> getProgress(@PathVariable String runId) {
+        try {
+            return ResponseEntity.ok(materializationService.getProgress(runId));
+        } catch (EmptyResultDataAccessException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", "Materialization not found: " + runId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+        }
+    }
+}
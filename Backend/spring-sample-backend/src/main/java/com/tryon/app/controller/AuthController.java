@@ -1,7 +1,11 @@
 package com.tryon.app.controller;
 
+import com.tryon.app.config.PasswordHashingRejectedException;
 import com.tryon.app.service.AuthService;
 import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -11,6 +15,9 @@ import org.springframework.web.bind.annotation.*;
 public class AuthController {
     private final AuthService authService;
 
+    @Value("${auth.hashing.retry-after-seconds:2}")
+    private int retryAfterSeconds;
+
     public AuthController(AuthService authService) {
         this.authService = authService;
     }
@@ -21,6 +28,9 @@ public class AuthController {
             String token = authService.register(req.getEmail(), req.getPassword());
             return ResponseEntity.ok(new AuthResponse(token, "Registration successful"));
         } catch (Exception e) {
+            if (isHashingRejected(e)) {
+                return overloaded();
+            }
             System.out.println("Registration error: " + e.getMessage());
             return ResponseEntity.badRequest()
                     .body(new AuthResponse(null, "Registration failed: " + e.getMessage()));
@@ -33,6 +43,9 @@ public class AuthController {
             String token = authService.login(req.getEmail(), req.getPassword());
             return ResponseEntity.ok(new AuthResponse(token, "Login successful"));
         } catch (Exception e) {
+            if (isHashingRejected(e)) {
+                return overloaded();
+            }
             System.out.println("Login error: " + e.getMessage());
             return ResponseEntity.status(401)
                     .body(new AuthResponse(null, "Login failed: " + e.getMessage()));
@@ -45,6 +58,23 @@ public class AuthController {
         return ResponseEntity.ok("Auth controller is working!");
     }
 
+    // Hashing bulkhead is full: shed the request instead of queueing it on a worker thread
+    private ResponseEntity<AuthResponse> overloaded() {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new AuthResponse(null, "Too many sign-in attempts right now, please retry shortly"));
+    }
+
+    // The authentication provider may wrap the rejection, so walk the cause chain
+    private static boolean isHashingRejected(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof PasswordHashingRejectedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * DTO for authentication requests.
      */
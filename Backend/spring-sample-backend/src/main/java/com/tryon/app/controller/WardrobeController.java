@@ -1,24 +1,42 @@
 package com.tryon.app.controller;
 
+import com.tryon.app.config.AuthenticatedUser;
+import com.tryon.app.config.ReplicaRouting;
+import com.tryon.app.repository.AnalysisJobQueue;
+import com.tryon.app.service.AnalysisJobWorker;
+import com.tryon.app.service.CatalogSearchService;
+import com.tryon.app.service.CollaborativeFilteringService;
 import com.tryon.app.service.ImageAnalysisService;
 import com.tryon.app.service.ImageProcessingService;
 import com.tryon.app.service.DressRecommendationService;
+import com.tryon.app.service.InteractionEventLog;
+import com.tryon.app.service.PriorityWorkScheduler;
+import com.tryon.app.service.SimilarDressService;
+import com.tryon.app.service.UploadAdmissionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/wardrobe")
@@ -35,6 +53,35 @@ public class WardrobeController {
     @Autowired(required = false) // Make it optional in case service is not available yet
     private DressRecommendationService dressRecommendationService;
 
+    @Autowired
+    private InteractionEventLog interactionEventLog;
+
+    @Autowired
+    private CatalogSearchService catalogSearchService;
+
+    @Autowired
+    private SimilarDressService similarDressService;
+
+    @Autowired
+    private CollaborativeFilteringService collaborativeFilteringService;
+
+    @Autowired
+    private AnalysisJobWorker analysisJobWorker;
+
+    @Autowired
+    private UploadAdmissionService uploadAdmissionService;
+
+    @Autowired
+    private PriorityWorkScheduler priorityWorkScheduler;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
+    private static final int MAX_INTERACTIONS_PER_REQUEST = 500;
+
+    // Reads carry an ETag; clients may keep them but must revalidate (a 304 costs one aggregate query)
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
+
     //  ENHANCED: Upload body image for analysis with dress recommendations option
     @PostMapping("/upload-body-image")
     public ResponseEntity<Map<String, Object>> uploadBodyImage(
@@ -42,10 +89,24 @@ public class WardrobeController {
             @RequestParam("userId") Long userId,
             @RequestParam(value = "generateRecommendations", defaultValue = "false") boolean generateRecommendations,
             @RequestParam(value = "sexinessPreference", defaultValue = "high") String sexinessPreference,
-            @RequestParam(value = "recommendationLimit", defaultValue = "10") @Min(1) @Max(50) Integer recommendationLimit) {
+            @RequestParam(value = "recommendationLimit", defaultValue = "10") @Min(1) @Max(50) Integer recommendationLimit,
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            HttpServletRequest request) {
 
         Map<String, Object> response = new HashMap<>();
 
+        // Shed before anything is stored or queued. The endpoint is open, so the userId parameter
+        // is only data: rate limits key on the signed-in principal, if any, and the address.
+        UploadAdmissionService.Decision admission = uploadAdmissionService.admit(
+                principal != null ? principal.getUserId() : null,
+                uploadAdmissionService.clientAddress(request.getRemoteAddr(), request.getHeader("X-Forwarded-For")));
+        if (!admission.admitted()) {
+            response.put("error", admission.reason());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(admission.retryAfterSeconds()))
+                    .body(response);
+        }
+
         try {
             // Validate file
             if (file.isEmpty()) {
@@ -54,7 +115,7 @@ public class WardrobeController {
             }
 
             // Upload image to GCP
-            String imageUrl = imageProcessingService.uploadImage(file, "body-images/" + userId);
+            String imageUrl = imageProcessingService.uploadImage(file, "body-images/" + userId, userId);
 
             // Initiate analysis
             String analysisId = imageAnalysisService.initiateAnalysis(userId, imageUrl);
@@ -78,6 +139,12 @@ public class WardrobeController {
 
             return ResponseEntity.ok(response);
 
+        } catch (ImageProcessingService.StorageNotReadyException e) {
+            // Storage client still initializing: ask the client to come back shortly
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(response);
         } catch (Exception e) {
             logger.error("Error uploading body image", e);
             response.put("error", "Failed to upload image: " + e.getMessage());
@@ -128,7 +195,8 @@ public class WardrobeController {
     @GetMapping("/recommendations/{analysisId}")
     public ResponseEntity<Map<String, Object>> getDressRecommendations(
             @PathVariable String analysisId,
-            @RequestParam(value = "limit", defaultValue = "10") Integer limit) {
+            @RequestParam(value = "limit", defaultValue = "10") Integer limit,
+            WebRequest webRequest) {
 
         try {
             if (dressRecommendationService == null) {
@@ -137,8 +205,13 @@ public class WardrobeController {
                 return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
             }
 
+            String etag = dressRecommendationService.getRecommendationsETag(analysisId);
+            if (webRequest.checkNotModified(etag)) {
+                return notModified(etag);
+            }
+
             Map<String, Object> recommendations = dressRecommendationService.getRecommendationsByAnalysisId(analysisId);
-            return ResponseEntity.ok(recommendations);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(recommendations);
 
         } catch (Exception e) {
             logger.error("Error fetching dress recommendations", e);
@@ -151,6 +224,7 @@ public class WardrobeController {
     //  Mark dress as favorite
     @PostMapping("/recommendations/{recommendationId}/favorite")
     public ResponseEntity<Map<String, Object>> toggleFavorite(
+            @AuthenticationPrincipal AuthenticatedUser user,
             @PathVariable Long recommendationId,
             @RequestParam boolean isFavorite) {
 
@@ -161,7 +235,7 @@ public class WardrobeController {
                 return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
             }
 
-            Map<String, Object> result = dressRecommendationService.markDressAsFavorite(recommendationId, isFavorite);
+            Map<String, Object> result = dressRecommendationService.markDressAsFavorite(recommendationId, user.getUserId(), isFavorite);
             return ResponseEntity.ok(result);
 
         } catch (Exception e) {
@@ -175,6 +249,7 @@ public class WardrobeController {
     // Rate a dress recommendation
     @PostMapping("/recommendations/{recommendationId}/rate")
     public ResponseEntity<Map<String, Object>> rateDress(
+            @AuthenticationPrincipal AuthenticatedUser user,
             @PathVariable Long recommendationId,
             @RequestParam @Min(1) @Max(5) Integer rating,
             @RequestParam(required = false) String feedback) {
@@ -187,7 +262,7 @@ public class WardrobeController {
             }
 
             Map<String, Object> result = dressRecommendationService.rateDressRecommendation(
-                    recommendationId, rating, feedback
+                    recommendationId, user.getUserId(), rating, feedback
             );
             return ResponseEntity.ok(result);
 
@@ -199,11 +274,79 @@ public class WardrobeController {
         }
     }
 
+    // Record a batch of interactions (view, favorite, unfavorite, rate, purchase) in one request,
+    // all attributed to the signed-in caller; ids that aren't the caller's come back as rejected
+    @PostMapping("/interactions")
+    public ResponseEntity<Map<String, Object>> recordInteractions(@AuthenticationPrincipal AuthenticatedUser user,
+                                                                  @RequestBody List<InteractionRequest> interactions) {
+        Map<String, Object> response = new HashMap<>();
+
+        if (interactions == null || interactions.isEmpty()) {
+            response.put("error", "At least one interaction is required");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (interactions.size() > MAX_INTERACTIONS_PER_REQUEST) {
+            response.put("error", "At most " + MAX_INTERACTIONS_PER_REQUEST + " interactions per request");
+            return ResponseEntity.badRequest().body(response);
+        }
+        if (dressRecommendationService == null) {
+            response.put("error", "Dress recommendation service not available");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+
+        Set<Long> requestedIds = new HashSet<>();
+        for (InteractionRequest interaction : interactions) {
+            if (interaction.getRecommendationId() != null) {
+                requestedIds.add(interaction.getRecommendationId());
+            }
+        }
+        Set<Long> ownIds;
+        try {
+            ownIds = dressRecommendationService.findOwnRecommendationIds(user.getUserId(), requestedIds);
+        } catch (Exception e) {
+            logger.error("Error checking interaction ownership", e);
+            response.put("error", "Failed to record interactions: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+
+        List<InteractionEventLog.InteractionEvent> events = new ArrayList<>();
+        List<Map<String, Object>> rejected = new ArrayList<>();
+        for (int i = 0; i < interactions.size(); i++) {
+            InteractionRequest interaction = interactions.get(i);
+            String reason = interaction.validate();
+            if (reason == null && !ownIds.contains(interaction.getRecommendationId())) {
+                reason = "Recommendation not found";
+            }
+            if (reason != null) {
+                Map<String, Object> rejection = new HashMap<>();
+                rejection.put("index", i);
+                rejection.put("reason", reason);
+                rejected.add(rejection);
+                continue;
+            }
+            events.add(interaction.toEvent(user.getUserId()));
+        }
+
+        try {
+            interactionEventLog.recordAll(events);
+        } catch (Exception e) {
+            logger.error("Error recording interactions", e);
+            response.put("error", "Failed to record interactions: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+
+        response.put("success", true);
+        response.put("accepted", events.size());
+        response.put("rejected", rejected);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
     //  Get user's dress recommendation history
     @GetMapping("/user/{userId}/recommendations")
     public ResponseEntity<Map<String, Object>> getUserDressRecommendations(
             @PathVariable Long userId,
-            @RequestParam(value = "limit", defaultValue = "20") Integer limit) {
+            @RequestParam(value = "limit", defaultValue = "20") Integer limit,
+            WebRequest webRequest) {
 
         try {
             if (dressRecommendationService == null) {
@@ -212,8 +355,13 @@ public class WardrobeController {
                 return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(error);
             }
 
+            String etag = dressRecommendationService.getUserRecommendationsETag(userId, limit);
+            if (webRequest.checkNotModified(etag)) {
+                return notModified(etag);
+            }
+
             Map<String, Object> recommendations = dressRecommendationService.getUserDressRecommendations(userId, limit);
-            return ResponseEntity.ok(recommendations);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(recommendations);
 
         } catch (Exception e) {
             logger.error("Error fetching user recommendations", e);
@@ -223,6 +371,98 @@ public class WardrobeController {
         }
     }
 
+    // Dresses users with similar favorites, ratings and purchases liked
+    @GetMapping("/user/{userId}/collaborative-candidates")
+    public ResponseEntity<Map<String, Object>> getCollaborativeCandidates(
+            @PathVariable Long userId,
+            @RequestParam(value = "limit", defaultValue = "20") @Min(1) @Max(100) Integer limit) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            List<Map<String, Object>> candidates = collaborativeFilteringService.getCandidates(userId, limit, List.of());
+            response.put("success", true);
+            response.put("userId", userId);
+            response.put("candidates", candidates);
+            response.put("totalCount", candidates.size());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            logger.error("Error fetching collaborative candidates", e);
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Full-text dress search (name, brand, keywords, style, color, fabric, description)
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> searchDresses(
+            @RequestParam("q") String query,
+            @RequestParam(value = "limit", defaultValue = "20") @Min(1) @Max(100) Integer limit,
+            @RequestParam(value = "availableOnly", defaultValue = "true") boolean availableOnly) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            return ResponseEntity.ok(catalogSearchService.search(query, limit, availableOnly));
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(response);
+        } catch (Exception e) {
+            logger.error("Error searching dresses", e);
+            response.put("error", "Search failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
+    // Search-as-you-type completions for the last word of the prefix
+    @GetMapping("/search/autocomplete")
+    public ResponseEntity<Map<String, Object>> autocompleteSearch(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(value = "limit", defaultValue = "8") @Min(1) @Max(50) Integer limit) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            return ResponseEntity.ok(catalogSearchService.autocomplete(prefix, limit));
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(response);
+        }
+    }
+
+    // "More like this": nearest dresses by style, cut, color, tags, price and fit
+    @GetMapping("/dresses/{dressId}/similar")
+    public ResponseEntity<Map<String, Object>> getSimilarDresses(
+            @PathVariable Integer dressId,
+            @RequestParam(value = "limit", defaultValue = "10") @Min(1) @Max(50) Integer limit,
+            @RequestParam(value = "availableOnly", defaultValue = "true") boolean availableOnly) {
+
+        Map<String, Object> response = new HashMap<>();
+
+        try {
+            return ResponseEntity.ok(similarDressService.findSimilar(dressId, limit, availableOnly));
+        } catch (IllegalArgumentException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        } catch (IllegalStateException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .body(response);
+        } catch (Exception e) {
+            logger.error("Error finding similar dresses", e);
+            response.put("error", "Similar-dress lookup failed: " + e.getMessage());
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        }
+    }
+
     // Test GCP Storage configuration (EXISTING - NO CHANGES)
     @GetMapping("/test-gcp")
     public ResponseEntity<Map<String, Object>> testGCPStorage() {
@@ -230,6 +470,7 @@ public class WardrobeController {
 
         try {
             response.put("storageConfigured", imageProcessingService.isStorageConfigured());
+            response.put("storageState", imageProcessingService.getStorageState().name());
 
             // Try to create a test file
             if (imageProcessingService.isStorageConfigured()) {
@@ -279,10 +520,16 @@ public class WardrobeController {
 
     // Get user's analysis history (EXISTING - NO CHANGES)
     @GetMapping("/analysis-history/{userId}")
-    public ResponseEntity<List<Map<String, Object>>> getAnalysisHistory(@PathVariable Long userId) {
+    public ResponseEntity<List<Map<String, Object>>> getAnalysisHistory(@PathVariable Long userId,
+                                                                        WebRequest webRequest) {
         try {
+            String etag = imageAnalysisService.getAnalysisHistoryETag(userId);
+            if (webRequest.checkNotModified(etag)) {
+                return notModified(etag);
+            }
+
             List<Map<String, Object>> history = imageAnalysisService.getAnalysisHistory(userId);
-            return ResponseEntity.ok(history);
+            return ResponseEntity.ok().eTag(etag).cacheControl(REVALIDATE).body(history);
         } catch (Exception e) {
             logger.error("Error getting analysis history", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(null);
@@ -303,6 +550,13 @@ public class WardrobeController {
         } else {
             health.put("dressRecommendationServiceHealth", "Not configured");
         }
+        health.put("catalogSearch", catalogSearchService.getStatus());
+        health.put("similarDresses", similarDressService.getStatus());
+        health.put("collaborativeFiltering", collaborativeFilteringService.getStatus());
+        health.put("analysisJobs", analysisJobWorker.getStatus());
+        health.put("uploadAdmission", uploadAdmissionService.getStatus());
+        health.put("scheduler", priorityWorkScheduler.getStatus());
+        health.put("readReplica", replicaRouting.getStatus());
 
         return ResponseEntity.ok(health);
     }
@@ -318,8 +572,8 @@ public class WardrobeController {
                 testImageUrl = "https://images.unsplash.com/photo-1544005313-94ddf0286df2?w=800";
             }
 
-            // Test ML service directly
-            String analysisId = imageAnalysisService.initiateAnalysis(1L, testImageUrl);
+            // Test ML service directly; queued as batch work so it never delays real uploads
+            String analysisId = imageAnalysisService.initiateAnalysis(1L, testImageUrl, AnalysisJobQueue.PRIORITY_BATCH);
 
             response.put("success", true);
             response.put("analysisId", analysisId);
@@ -336,37 +590,85 @@ public class WardrobeController {
 
     //  Private helper method to start async recommendation generation
     private void startAsyncRecommendationGeneration(String analysisId, String sexinessPreference, Integer limit) {
-        CompletableFuture.runAsync(() -> {
-            try {
-                // Wait for analysis to complete (poll every 5 seconds, max 2 minutes)
-                int maxAttempts = 24;
-                int attempts = 0;
-
-                while (attempts < maxAttempts) {
-                    Thread.sleep(5000); // Wait 5 seconds
-
-                    Map<String, Object> status = imageAnalysisService.getAnalysisStatus(analysisId);
-                    String currentStatus = (String) status.get("status");
-
-                    if ("COMPLETED".equals(currentStatus)) {
-                        logger.info("Analysis completed, generating dress recommendations for: {}", analysisId);
-                        dressRecommendationService.generateDressRecommendationsAsync(analysisId, sexinessPreference, limit);
-                        break;
-                    } else if ("FAILED".equals(currentStatus)) {
-                        logger.error(" Analysis failed, cannot generate recommendations");
-                        break;
-                    }
-
-                    attempts++;
-                }
-
-                if (attempts >= maxAttempts) {
-                    logger.warn("Analysis took too long, recommendation generation skipped");
-                }
+        // Wait for analysis to complete (check every 5 seconds, max 2 minutes)
+        awaitAnalysisThenRecommend(analysisId, sexinessPreference, limit, 24);
+    }
 
-            } catch (Exception e) {
-                logger.error("Error in async recommendation generation: ", e);
+    // Each check is a short interactive task, so no thread sleeps while the analysis runs
+    private void awaitAnalysisThenRecommend(String analysisId, String sexinessPreference, Integer limit, int attemptsLeft) {
+        priorityWorkScheduler.schedule(PriorityWorkScheduler.WorkClass.INTERACTIVE, 5000, () -> {
+            Map<String, Object> status = imageAnalysisService.getAnalysisStatus(analysisId);
+            String currentStatus = (String) status.get("status");
+
+            if ("COMPLETED".equals(currentStatus)) {
+                logger.info("Analysis completed, generating dress recommendations for: {}", analysisId);
+                dressRecommendationService.generateDressRecommendationsAsync(analysisId, sexinessPreference, limit);
+            } else if ("FAILED".equals(currentStatus)) {
+                logger.error(" Analysis failed, cannot generate recommendations");
+            } else if (attemptsLeft > 1) {
+                awaitAnalysisThenRecommend(analysisId, sexinessPreference, limit, attemptsLeft - 1);
+            } else {
+                logger.warn("Analysis took too long, recommendation generation skipped");
             }
+            return null;
+        }).exceptionally(e -> {
+            logger.error("Error in async recommendation generation: ", e);
+            return null;
         });
     }
-}
\ No newline at end of file
+
+    // Request body for one entry of the bulk interactions endpoint
+    public static class InteractionRequest {
+        private Long recommendationId;
+        private String type;
+        private Integer rating;
+        private String feedback;
+        private LocalDateTime occurredAt;
+
+        String validate() {
+            if (recommendationId == null) {
+                return "recommendationId is required";
+            }
+            InteractionEventLog.EventType eventType = eventType();
+            if (eventType == null) {
+                return "type must be one of VIEW, FAVORITE, UNFAVORITE, RATE, PURCHASE";
+            }
+            if (eventType == InteractionEventLog.EventType.RATE && (rating == null || rating < 1 || rating > 5)) {
+                return "Rating must be between 1 and 5";
+            }
+            return null;
+        }
+
+        InteractionEventLog.InteractionEvent toEvent(Long userId) {
+            return new InteractionEventLog.InteractionEvent(
+                    recommendationId, userId, eventType(), rating, feedback, occurredAt);
+        }
+
+        private InteractionEventLog.EventType eventType() {
+            if (type == null) {
+                return null;
+            }
+            try {
+                return InteractionEventLog.EventType.valueOf(type.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        public Long getRecommendationId() { return recommendationId; }
+        public void setRecommendationId(Long recommendationId) { this.recommendationId = recommendationId; }
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public Integer getRating() { return rating; }
+        public void setRating(Integer rating) { this.rating = rating; }
+        public String getFeedback() { return feedback; }
+        public void setFeedback(String feedback) { this.feedback = feedback; }
+        public LocalDateTime getOccurredAt() { return occurredAt; }
+        public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
+    }
+
+    // Repeats the validator and caching headers, as a 304 must
+    private static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+}
@@ -1,11 +1,16 @@
 package com.tryon.app.model;
 
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
 
@@ -179,6 +184,15 @@ public class Dress {
     @Column(name = "avg_rating", precision = 3, scale = 2)
     private BigDecimal avgRating;
 
+    // Running rating totals behind avgRating (maintained by InteractionEventLog)
+    @Column(name = "rating_count")
+    @Builder.Default
+    private Integer ratingCount = 0;
+
+    @Column(name = "rating_sum")
+    @Builder.Default
+    private Long ratingSum = 0L;
+
     // Timestamps
     @CreationTimestamp
     @Column(name = "created_at", nullable = false, updatable = false)
@@ -197,6 +211,14 @@ public class Dress {
     @JoinColumn(name = "category_id", insertable = false, updatable = false)
     private DressCategory category;
 
+    // Fixed-point copy of the six range bounds, built on first use (see DressFitProfile)
+    @Transient
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private transient DressFitProfile fitProfile;
+
     // Helper methods
     public boolean isHotAndSexy() {
         return sexinessScore != null && sexinessScore >= 7;
@@ -206,9 +228,52 @@ public class Dress {
         return "available".equalsIgnoreCase(availabilityStatus);
     }
 
+    // Exact bounds; DressFitProfile rounds the ranges outward to whole tenths
     public boolean fitsSize(BigDecimal bust, BigDecimal waist, BigDecimal hips) {
         return bust.compareTo(bustMin) >= 0 && bust.compareTo(bustMax) <= 0 &&
                 waist.compareTo(waistMin) >= 0 && waist.compareTo(waistMax) <= 0 &&
                 hips.compareTo(hipMin) >= 0 && hips.compareTo(hipMax) <= 0;
     }
+
+    /**
+     * Null when the dress has no complete measurement ranges
+     */
+    @JsonIgnore
+    public DressFitProfile getFitProfile() {
+        if (fitProfile == null) {
+            fitProfile = DressFitProfile.of(this);
+        }
+        return fitProfile;
+    }
+
+    // Range setters drop the cached profile so it's rebuilt from the new bounds
+    public void setBustMin(BigDecimal bustMin) {
+        this.bustMin = bustMin;
+        this.fitProfile = null;
+    }
+
+    public void setBustMax(BigDecimal bustMax) {
+        this.bustMax = bustMax;
+        this.fitProfile = null;
+    }
+
+    public void setWaistMin(BigDecimal waistMin) {
+        this.waistMin = waistMin;
+        this.fitProfile = null;
+    }
+
+    public void setWaistMax(BigDecimal waistMax) {
+        this.waistMax = waistMax;
+        this.fitProfile = null;
+    }
+
+    public void setHipMin(BigDecimal hipMin) {
+        this.hipMin = hipMin;
+        this.fitProfile = null;
+    }
+
+    public void setHipMax(BigDecimal hipMax) {
+        this.hipMax = hipMax;
+        this.fitProfile = null;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.tryon.app.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Compact fixed-point view of a dress's bust/waist/hip ranges, in tenths of an inch.
+ *
+ * Built once per {@link Dress} from its BigDecimal columns; every check after that is plain
+ * integer arithmetic with no allocation. Ranges are widened to the enclosing tenth (min rounded
+ * down, max rounded up) so a profile never rejects a measurement the stored range would accept.
+ * Catalog-wide scans copy the bounds into one flat array ({@link #packInto}) and score from
+ * there, so the loop doesn't chase a dress and a profile object per entry.
+ */
+public final class DressFitProfile {
+
+    /** One inch in profile units */
+    public static final int UNITS_PER_INCH = 10;
+
+    /** Slots a profile takes in a packed array: bust, waist and hip min/max in that order */
+    public static final int PACKED_SIZE = 6;
+
+    private final short bustMin;
+    private final short bustMax;
+    private final short waistMin;
+    private final short waistMax;
+    private final short hipMin;
+    private final short hipMax;
+
+    public DressFitProfile(int bustMin, int bustMax, int waistMin, int waistMax, int hipMin, int hipMax) {
+        this.bustMin = (short) bustMin;
+        this.bustMax = (short) bustMax;
+        this.waistMin = (short) waistMin;
+        this.waistMax = (short) waistMax;
+        this.hipMin = (short) hipMin;
+        this.hipMax = (short) hipMax;
+    }
+
+    /**
+     * Profile for a dress, or null when any of its six range bounds is missing
+     */
+    public static DressFitProfile of(Dress dress) {
+        if (dress.getBustMin() == null || dress.getBustMax() == null ||
+                dress.getWaistMin() == null || dress.getWaistMax() == null ||
+                dress.getHipMin() == null || dress.getHipMax() == null) {
+            return null;
+        }
+        return new DressFitProfile(
+                toTenths(dress.getBustMin(), RoundingMode.FLOOR), toTenths(dress.getBustMax(), RoundingMode.CEILING),
+                toTenths(dress.getWaistMin(), RoundingMode.FLOOR), toTenths(dress.getWaistMax(), RoundingMode.CEILING),
+                toTenths(dress.getHipMin(), RoundingMode.FLOOR), toTenths(dress.getHipMax(), RoundingMode.CEILING));
+    }
+
+    public static int toTenths(BigDecimal inches, RoundingMode rounding) {
+        return inches.movePointRight(1).setScale(0, rounding).intValueExact();
+    }
+
+    public static int toTenths(double inches) {
+        return (int) Math.round(inches * UNITS_PER_INCH);
+    }
+
+    /**
+     * True when all three measurements (tenths of an inch) fall inside the ranges
+     */
+    public boolean fits(int bust, int waist, int hips) {
+        return bust >= bustMin && bust <= bustMax &&
+                waist >= waistMin && waist <= waistMax &&
+                hips >= hipMin && hips <= hipMax;
+    }
+
+    /**
+     * Total distance outside the ranges, in tenths of an inch (0 when the dress fits)
+     */
+    public int distance(int bust, int waist, int hips) {
+        return outside(bust, bustMin, bustMax) + outside(waist, waistMin, waistMax) + outside(hips, hipMin, hipMax);
+    }
+
+    /**
+     * Fit score 0..100: each dimension loses 10 points per inch (1 per tenth) outside its
+     * range, weighted chest 40%, waist 40%, hips 20%.
+     */
+    public double fitScore(int bust, int waist, int hips) {
+        int weighted = 4 * dimensionFit(bust, bustMin, bustMax)
+                + 4 * dimensionFit(waist, waistMin, waistMax)
+                + 2 * dimensionFit(hips, hipMin, hipMax);
+        return weighted / 10.0;
+    }
+
+    /**
+     * Copies the six bounds into packed[offset .. offset + PACKED_SIZE)
+     */
+    public void packInto(short[] packed, int offset) {
+        packed[offset] = bustMin;
+        packed[offset + 1] = bustMax;
+        packed[offset + 2] = waistMin;
+        packed[offset + 3] = waistMax;
+        packed[offset + 4] = hipMin;
+        packed[offset + 5] = hipMax;
+    }
+
+    /**
+     * {@link #fits} for a profile written by {@link #packInto} at offset
+     */
+    public static boolean fits(short[] packed, int offset, int bust, int waist, int hips) {
+        return bust >= packed[offset] && bust <= packed[offset + 1] &&
+                waist >= packed[offset + 2] && waist <= packed[offset + 3] &&
+                hips >= packed[offset + 4] && hips <= packed[offset + 5];
+    }
+
+    /**
+     * {@link #fitScore} for a profile written by {@link #packInto} at offset
+     */
+    public static double fitScore(short[] packed, int offset, int bust, int waist, int hips) {
+        int weighted = 4 * dimensionFit(bust, packed[offset], packed[offset + 1])
+                + 4 * dimensionFit(waist, packed[offset + 2], packed[offset + 3])
+                + 2 * dimensionFit(hips, packed[offset + 4], packed[offset + 5]);
+        return weighted / 10.0;
+    }
+
+    public int getBustMin() { return bustMin; }
+    public int getBustMax() { return bustMax; }
+    public int getWaistMin() { return waistMin; }
+    public int getWaistMax() { return waistMax; }
+    public int getHipMin() { return hipMin; }
+    public int getHipMax() { return hipMax; }
+
+    private static int outside(int value, int min, int max) {
+        if (value < min) {
+            return min - value;
+        }
+        return value > max ? value - max : 0;
+    }
+
+    private static int dimensionFit(int value, int min, int max) {
+        return Math.max(0, 100 - outside(value, min, max));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DressFitProfile)) return false;
+        DressFitProfile that = (DressFitProfile) o;
+        return bustMin == that.bustMin && bustMax == that.bustMax &&
+                waistMin == that.waistMin && waistMax == that.waistMax &&
+                hipMin == that.hipMin && hipMax == that.hipMax;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = bustMin;
+        result = 31 * result + bustMax;
+        result = 31 * result + waistMin;
+        result = 31 * result + waistMax;
+        result = 31 * result + hipMin;
+        result = 31 * result + hipMax;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "DressFitProfile{bust=" + bustMin + ".." + bustMax +
+                ", waist=" + waistMin + ".." + waistMax +
+                ", hips=" + hipMin + ".." + hipMax + " (tenths of an inch)}";
+    }
+}
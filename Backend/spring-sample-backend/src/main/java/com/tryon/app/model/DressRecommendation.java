@@ -7,6 +7,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,8 +23,17 @@ import java.time.LocalDateTime;
 @Builder
 public class DressRecommendation {
 
+    // Score thresholds for the helper methods below (shared, so the checks don't allocate)
+    public static final BigDecimal HIGHLY_RECOMMENDED_SCORE = BigDecimal.valueOf(80);
+    public static final BigDecimal PERFECT_FIT_SCORE = BigDecimal.valueOf(90);
+    public static final BigDecimal SEXY_MATCH_SCORE = BigDecimal.valueOf(85);
+
+    // Pooled sequence ids (see postgresql/Dress_recommendations_Upsert.sql) keep JDBC batching enabled
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "dress_recommendation_seq")
+    @SequenceGenerator(name = "dress_recommendation_seq",
+            sequenceName = "wardrobe.dress_recommendations_recommendation_id_seq",
+            allocationSize = 50)
     @Column(name = "recommendation_id")
     private Long recommendationId;
 
@@ -86,20 +96,25 @@ public class DressRecommendation {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    // Also bumped by a trigger for the JDBC write paths (Dress_recommendations_Updated_At.sql)
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     // Transient fields for dress details (populated from joins)
     @Transient
     private Dress dress;
 
     // Helper methods
     public boolean isHighlyRecommended() {
-        return compatibilityScore != null && compatibilityScore.compareTo(new BigDecimal("80")) >= 0;
+        return compatibilityScore != null && compatibilityScore.compareTo(HIGHLY_RECOMMENDED_SCORE) >= 0;
     }
 
     public boolean isPerfectFit() {
-        return fitScore != null && fitScore.compareTo(new BigDecimal("90")) >= 0;
+        return fitScore != null && fitScore.compareTo(PERFECT_FIT_SCORE) >= 0;
     }
 
     public boolean isSexyMatch() {
-        return sexinessMatchScore != null && sexinessMatchScore.compareTo(new BigDecimal("85")) >= 0;
+        return sexinessMatchScore != null && sexinessMatchScore.compareTo(SEXY_MATCH_SCORE) >= 0;
     }
 }
\ No newline at end of file
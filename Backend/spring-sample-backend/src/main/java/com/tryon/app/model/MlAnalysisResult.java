@@ -0,0 +1,26 @@
+package com.tryon.app.model;
+
+/**
+ * Body analysis service response, reduced to what the pipeline stores.
+ *
+ * measurementsJson is the measurements object exactly as the service sent it; it is saved to
+ * body_analysis.measurements as-is, so it is never parsed into a map and written back out.
+ * error is set (and the other fields are empty) when the call or the response failed.
+ */
+public record MlAnalysisResult(String measurementsJson,
+                               String skinTone,
+                               String bodyType,
+                               Double confidence,
+                               String processingTime,
+                               String provider,
+                               double cost,
+                               String error) {
+
+    public static MlAnalysisResult failure(String error) {
+        return new MlAnalysisResult(null, null, null, null, null, null, 0.0, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
@@ -0,0 +1,9 @@
+package com.tryon.app.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Request body for the body analysis service's /analyze-body
+ */
+public record MlAnalyzeRequest(@JsonProperty("image_url") String imageUrl) {
+}
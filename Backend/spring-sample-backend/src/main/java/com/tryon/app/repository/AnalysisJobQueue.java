@@ -0,0 +1,192 @@
+package com.tryon.app.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Durable queue of body analyses to run, shared by every backend node (wardrobe.analysis_jobs).
+ *
+ * Workers claim jobs with {@code FOR UPDATE SKIP LOCKED}, so concurrent claimers never block on
+ * or double-take a row. A claim is a lease: the owner extends it while working, and a job whose
+ * lease runs out (its node died) goes back to the queue. Completion and failure only apply
+ * while the caller still holds the lease, so a late worker can't overwrite a job another node
+ * has since taken over.
+ */
+@Repository
+public class AnalysisJobQueue {
+
+    public static final String FAILED = "FAILED";
+
+    /** Someone is waiting on the result (uploads) */
+    public static final int PRIORITY_INTERACTIVE = 10;
+    /** Backfills, adopted orphans and test runs */
+    public static final int PRIORITY_BATCH = 0;
+
+    // Priority plus one per aging interval spent due, so old low-priority jobs are not starved
+    private static final String EFFECTIVE_PRIORITY =
+            "(priority + FLOOR(EXTRACT(EPOCH FROM (CURRENT_TIMESTAMP - available_at)) / ?))";
+
+    private static final String CLAIM_SQL =
+            "UPDATE wardrobe.analysis_jobs j SET status = 'RUNNING', attempts = attempts + 1, " +
+            "leased_by = ?, lease_expires_at = CURRENT_TIMESTAMP + make_interval(secs => ?), " +
+            "updated_at = CURRENT_TIMESTAMP " +
+            "WHERE j.job_id IN (SELECT job_id FROM wardrobe.analysis_jobs " +
+            "WHERE status = 'QUEUED' AND available_at <= CURRENT_TIMESTAMP " +
+            "AND " + EFFECTIVE_PRIORITY + " BETWEEN ? AND ? " +
+            "ORDER BY " + EFFECTIVE_PRIORITY + " DESC, available_at, job_id LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING j.job_id, j.analysis_id, j.user_id, j.image_url, j.attempts, j.max_attempts";
+
+    // Expired leases go back to the queue, or fail for good once out of attempts
+    private static final String REQUEUE_EXPIRED_SQL =
+            "UPDATE wardrobe.analysis_jobs SET " +
+            "status = CASE WHEN attempts >= max_attempts THEN 'FAILED' ELSE 'QUEUED' END, " +
+            "last_error = 'Lease expired on ' || leased_by, leased_by = NULL, lease_expires_at = NULL, " +
+            "available_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP " +
+            "WHERE status = 'RUNNING' AND lease_expires_at < CURRENT_TIMESTAMP " +
+            "RETURNING analysis_id, status";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnalysisJobQueue(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Queue an analysis; a no-op when it is already queued (joins the caller's transaction)
+     */
+    public void enqueue(String analysisId, Long userId, String imageUrl, int priority, int maxAttempts) {
+        jdbcTemplate.update("INSERT INTO wardrobe.analysis_jobs " +
+                        "(analysis_id, user_id, image_url, status, priority, max_attempts) " +
+                        "VALUES (?, ?, ?, 'QUEUED', ?, ?) ON CONFLICT (analysis_id) DO NOTHING",
+                analysisId, userId, imageUrl, priority, maxAttempts);
+    }
+
+    /**
+     * Queue analyses stuck in PROCESSING that have no job, e.g. started in-process before the queue existed
+     */
+    public int enqueueOrphans(int maxAttempts) {
+        return jdbcTemplate.update("INSERT INTO wardrobe.analysis_jobs " +
+                "(analysis_id, user_id, image_url, status, priority, max_attempts) " +
+                "SELECT b.analysis_id, b.user_id, b.image_url, 'QUEUED', " + PRIORITY_BATCH + ", ? " +
+                "FROM wardrobe.body_analysis b " +
+                "WHERE b.status = 'PROCESSING' AND NOT EXISTS " +
+                "(SELECT 1 FROM wardrobe.analysis_jobs j WHERE j.analysis_id = b.analysis_id) " +
+                "ON CONFLICT (analysis_id) DO NOTHING", maxAttempts);
+    }
+
+    /**
+     * Lease up to limit due jobs whose aged priority is within [minPriority, maxPriority],
+     * highest aged priority then oldest first
+     */
+    public List<Job> claim(String workerId, int minPriority, int maxPriority, int agingSeconds,
+                           int limit, int leaseSeconds) {
+        int aging = Math.max(1, agingSeconds);
+        return jdbcTemplate.query(CLAIM_SQL,
+                (rs, rowNum) -> new Job(rs.getLong(1), rs.getString(2), rs.getObject(3, Long.class), rs.getString(4),
+                        rs.getInt(5), rs.getInt(6)),
+                workerId, leaseSeconds, aging, minPriority, maxPriority, aging, limit);
+    }
+
+    /**
+     * Push out the leases of jobs this worker is still running
+     */
+    public int extendLeases(String workerId, List<Long> jobIds, int leaseSeconds) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("UPDATE wardrobe.analysis_jobs SET " +
+                    "lease_expires_at = CURRENT_TIMESTAMP + make_interval(secs => ?), updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE job_id = ANY(?) AND leased_by = ? AND status = 'RUNNING'");
+            ps.setInt(1, leaseSeconds);
+            ps.setArray(2, con.createArrayOf("int8", jobIds.toArray()));
+            ps.setString(3, workerId);
+            return ps;
+        });
+    }
+
+    /**
+     * @return false when the lease was lost and the result must be discarded
+     */
+    public boolean complete(long jobId, String workerId) {
+        return jdbcTemplate.update("UPDATE wardrobe.analysis_jobs SET status = 'DONE', leased_by = NULL, " +
+                "lease_expires_at = NULL, last_error = NULL, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE job_id = ? AND leased_by = ? AND status = 'RUNNING'", jobId, workerId) == 1;
+    }
+
+    /**
+     * Put a failed attempt back in the queue after a delay
+     */
+    public boolean retryLater(long jobId, String workerId, String error, long delaySeconds) {
+        return jdbcTemplate.update("UPDATE wardrobe.analysis_jobs SET status = 'QUEUED', leased_by = NULL, " +
+                "lease_expires_at = NULL, last_error = ?, " +
+                "available_at = CURRENT_TIMESTAMP + make_interval(secs => ?), updated_at = CURRENT_TIMESTAMP " +
+                "WHERE job_id = ? AND leased_by = ? AND status = 'RUNNING'",
+                error, delaySeconds, jobId, workerId) == 1;
+    }
+
+    public boolean fail(long jobId, String workerId, String error) {
+        return jdbcTemplate.update("UPDATE wardrobe.analysis_jobs SET status = 'FAILED', leased_by = NULL, " +
+                "lease_expires_at = NULL, last_error = ?, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE job_id = ? AND leased_by = ? AND status = 'RUNNING'", error, jobId, workerId) == 1;
+    }
+
+    /**
+     * Hand this worker's unfinished jobs straight back (shutdown); the attempt doesn't count
+     */
+    public int release(String workerId, List<Long> jobIds) {
+        if (jobIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement("UPDATE wardrobe.analysis_jobs SET status = 'QUEUED', " +
+                    "attempts = GREATEST(attempts - 1, 0), leased_by = NULL, lease_expires_at = NULL, " +
+                    "available_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE job_id = ANY(?) AND leased_by = ? AND status = 'RUNNING'");
+            ps.setArray(1, con.createArrayOf("int8", jobIds.toArray()));
+            ps.setString(2, workerId);
+            return ps;
+        });
+    }
+
+    /**
+     * Requeue jobs whose lease ran out. Returns analysis id to new status for each job touched.
+     */
+    public Map<String, String> requeueExpired() {
+        return jdbcTemplate.query(REQUEUE_EXPIRED_SQL, rs -> {
+            Map<String, String> requeued = new HashMap<>();
+            while (rs.next()) {
+                requeued.put(rs.getString(1), rs.getString(2));
+            }
+            return requeued;
+        });
+    }
+
+    /**
+     * Queued jobs that are due, i.e. waiting for a free worker somewhere
+     */
+    public long backlog() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM wardrobe.analysis_jobs " +
+                "WHERE status = 'QUEUED' AND available_at <= CURRENT_TIMESTAMP", Long.class);
+    }
+
+    /**
+     * Job count per status, plus how many queued jobs are already due
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM wardrobe.analysis_jobs GROUP BY status",
+                (RowCallbackHandler) rs -> stats.put(rs.getString(1), rs.getLong(2)));
+        stats.put("due", backlog());
+        return stats;
+    }
+
+    public record Job(long jobId, String analysisId, Long userId, String imageUrl, int attempt, int maxAttempts) {
+    }
+}
@@ -1,6 +1,8 @@
 package com.tryon.app.repository;
 import com.tryon.app.model.BodyAnalysis;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,8 +15,25 @@ public interface BodyAnalysisRepository extends JpaRepository<BodyAnalysis, Long
 
     List<BodyAnalysis> findByUserIdOrderByCreatedAtDesc(Long userId);
 
+    @Query("SELECT b.userId FROM BodyAnalysis b WHERE b.analysisId = :analysisId")
+    Optional<Long> findUserIdByAnalysisId(@Param("analysisId") String analysisId);
+
     List<BodyAnalysis> findByStatus(String status);
 
     List<BodyAnalysis> findByUserIdAndStatus(Long userId, String status);
 
+    @Query("SELECT b.status AS status, COUNT(b) AS count FROM BodyAnalysis b GROUP BY b.status")
+    List<StatusCount> countByStatus();
+
+    // Row count and newest row version of a user's analyses (for ETags)
+    @Query("SELECT COUNT(b) AS count, MAX(COALESCE(b.updatedAt, b.createdAt)) AS lastUpdated " +
+            "FROM BodyAnalysis b WHERE b.userId = :userId")
+    VersionStamp getVersionStampByUserId(@Param("userId") Long userId);
+
+    interface StatusCount {
+        String getStatus();
+
+        long getCount();
+    }
+
 }
@@ -0,0 +1,170 @@
+package com.tryon.app.repository;
+
+import com.tryon.app.model.DressRecommendation;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk writer for generated dress recommendations.
+ *
+ * A whole batch is sent as one {@code INSERT ... SELECT FROM unnest(...)} statement with
+ * {@code ON CONFLICT (analysis_id, dress_id)}, so writing N recommendations costs a single
+ * round trip and re-running a recommendation pass is idempotent. User interaction columns
+ * (favorite, purchased, rating) are never overwritten by an upsert.
+ *
+ * Background writers use {@link #upsertOwned}, which only replaces rows they wrote themselves,
+ * so a rescoring pass never overwrites an AI-generated recommendation and its reasons.
+ */
+@Repository
+public class DressRecommendationBulkWriter {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO wardrobe.dress_recommendations (" +
+            "analysis_id, user_id, dress_id, " +
+            "compatibility_score, sexiness_match_score, fit_score, style_score, " +
+            "recommendation_reason, fit_analysis, style_tips, " +
+            "recommended_by, recommendation_confidence) " +
+            "SELECT * FROM unnest(" +
+            "?::varchar[], ?::bigint[], ?::integer[], " +
+            "?::numeric[], ?::numeric[], ?::numeric[], ?::numeric[], " +
+            "?::text[], ?::text[], ?::text[], " +
+            "?::varchar[], ?::numeric[]) " +
+            "ON CONFLICT (analysis_id, dress_id) DO UPDATE SET " +
+            "user_id = EXCLUDED.user_id, " +
+            "compatibility_score = EXCLUDED.compatibility_score, " +
+            "sexiness_match_score = EXCLUDED.sexiness_match_score, " +
+            "fit_score = EXCLUDED.fit_score, " +
+            "style_score = EXCLUDED.style_score, " +
+            "recommendation_reason = EXCLUDED.recommendation_reason, " +
+            "fit_analysis = EXCLUDED.fit_analysis, " +
+            "style_tips = EXCLUDED.style_tips, " +
+            "recommended_by = EXCLUDED.recommended_by, " +
+            "recommendation_confidence = EXCLUDED.recommendation_confidence ";
+
+    private static final String RETURNING = "RETURNING recommendation_id, analysis_id, dress_id";
+
+    private static final String UPSERT_SQL = INSERT_SQL + RETURNING;
+
+    private static final String UPSERT_OWNED_SQL =
+            INSERT_SQL + "WHERE dress_recommendations.recommended_by = ? " + RETURNING;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DressRecommendationBulkWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Insert or update a batch of recommendations in one statement.
+     * Generated ids are written back to the given entities.
+     *
+     * @return number of rows inserted or updated
+     */
+    public int upsert(List<DressRecommendation> recommendations) {
+        return upsert(recommendations, null);
+    }
+
+    /**
+     * Like {@link #upsert}, but an existing row is only updated when recommended_by is the
+     * given writer; rows from anyone else are left as they are and not counted
+     */
+    public int upsertOwned(List<DressRecommendation> recommendations, String recommendedBy) {
+        return upsert(recommendations, recommendedBy);
+    }
+
+    private int upsert(List<DressRecommendation> recommendations, String owner) {
+        if (recommendations == null || recommendations.isEmpty()) {
+            return 0;
+        }
+
+        // ON CONFLICT DO UPDATE cannot touch the same row twice in one statement, last one wins
+        Map<String, DressRecommendation> unique = new LinkedHashMap<>();
+        for (DressRecommendation rec : recommendations) {
+            unique.put(key(rec.getAnalysisId(), rec.getDressId()), rec);
+        }
+        List<DressRecommendation> batch = new ArrayList<>(unique.values());
+
+        Map<String, Long> ids = jdbcTemplate.query(
+                con -> prepareUpsert(con, batch, owner),
+                rs -> {
+                    Map<String, Long> generated = new HashMap<>();
+                    while (rs.next()) {
+                        generated.put(key(rs.getString(2), rs.getInt(3)), rs.getLong(1));
+                    }
+                    return generated;
+                });
+
+        for (DressRecommendation rec : batch) {
+            Long id = ids.get(key(rec.getAnalysisId(), rec.getDressId()));
+            if (id != null) {
+                rec.setRecommendationId(id);
+            }
+        }
+        return ids.size();
+    }
+
+    private PreparedStatement prepareUpsert(Connection con, List<DressRecommendation> batch, String owner)
+            throws SQLException {
+        int size = batch.size();
+        String[] analysisIds = new String[size];
+        Long[] userIds = new Long[size];
+        Integer[] dressIds = new Integer[size];
+        BigDecimal[] compatibility = new BigDecimal[size];
+        BigDecimal[] sexiness = new BigDecimal[size];
+        BigDecimal[] fit = new BigDecimal[size];
+        BigDecimal[] style = new BigDecimal[size];
+        String[] reasons = new String[size];
+        String[] fitAnalyses = new String[size];
+        String[] styleTips = new String[size];
+        String[] recommendedBy = new String[size];
+        BigDecimal[] confidence = new BigDecimal[size];
+
+        for (int i = 0; i < size; i++) {
+            DressRecommendation rec = batch.get(i);
+            analysisIds[i] = rec.getAnalysisId();
+            userIds[i] = rec.getUserId();
+            dressIds[i] = rec.getDressId();
+            compatibility[i] = rec.getCompatibilityScore();
+            sexiness[i] = rec.getSexinessMatchScore();
+            fit[i] = rec.getFitScore();
+            style[i] = rec.getStyleScore();
+            reasons[i] = rec.getRecommendationReason();
+            fitAnalyses[i] = rec.getFitAnalysis();
+            styleTips[i] = rec.getStyleTips();
+            recommendedBy[i] = rec.getRecommendedBy() != null ? rec.getRecommendedBy() : "ai-transformer";
+            confidence[i] = rec.getRecommendationConfidence();
+        }
+
+        PreparedStatement ps = con.prepareStatement(owner != null ? UPSERT_OWNED_SQL : UPSERT_SQL);
+        ps.setArray(1, con.createArrayOf("varchar", analysisIds));
+        ps.setArray(2, con.createArrayOf("int8", userIds));
+        ps.setArray(3, con.createArrayOf("int4", dressIds));
+        ps.setArray(4, con.createArrayOf("numeric", compatibility));
+        ps.setArray(5, con.createArrayOf("numeric", sexiness));
+        ps.setArray(6, con.createArrayOf("numeric", fit));
+        ps.setArray(7, con.createArrayOf("numeric", style));
+        ps.setArray(8, con.createArrayOf("text", reasons));
+        ps.setArray(9, con.createArrayOf("text", fitAnalyses));
+        ps.setArray(10, con.createArrayOf("text", styleTips));
+        ps.setArray(11, con.createArrayOf("varchar", recommendedBy));
+        ps.setArray(12, con.createArrayOf("numeric", confidence));
+        if (owner != null) {
+            ps.setString(13, owner);
+        }
+        return ps;
+    }
+
+    private static String key(String analysisId, Integer dressId) {
+        return analysisId + '#' + dressId;
+    }
+}
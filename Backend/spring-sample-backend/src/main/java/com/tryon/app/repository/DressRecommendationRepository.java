@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -81,6 +82,19 @@ public interface DressRecommendationRepository extends JpaRepository<DressRecomm
      */
     Optional<DressRecommendation> findByAnalysisIdAndDressId(String analysisId, Integer dressId);
 
+    /**
+     * Whether a recommendation exists and belongs to the user
+     */
+    boolean existsByRecommendationIdAndUserId(Long recommendationId, Long userId);
+
+    /**
+     * The subset of the given recommendation ids that belong to the user
+     */
+    @Query("SELECT dr.recommendationId FROM DressRecommendation dr " +
+            "WHERE dr.userId = :userId AND dr.recommendationId IN :recommendationIds")
+    List<Long> findIdsOwnedBy(@Param("userId") Long userId,
+                              @Param("recommendationIds") Collection<Long> recommendationIds);
+
     /**
      * Get average compatibility score for a user
      */
@@ -92,6 +106,20 @@ public interface DressRecommendationRepository extends JpaRepository<DressRecomm
      */
     List<DressRecommendation> findByUserIdAndUserRatingIsNotNull(Long userId);
 
+    /**
+     * Row count and newest row version of an analysis' recommendations (for ETags)
+     */
+    @Query("SELECT COUNT(dr) AS count, MAX(dr.updatedAt) AS lastUpdated FROM DressRecommendation dr " +
+            "WHERE dr.analysisId = :analysisId")
+    VersionStamp getVersionStampByAnalysisId(@Param("analysisId") String analysisId);
+
+    /**
+     * Row count and newest row version of a user's recommendations (for ETags)
+     */
+    @Query("SELECT COUNT(dr) AS count, MAX(dr.updatedAt) AS lastUpdated FROM DressRecommendation dr " +
+            "WHERE dr.userId = :userId")
+    VersionStamp getVersionStampByUserId(@Param("userId") Long userId);
+
     /**
      * Delete all recommendations for an analysis
      */
@@ -1,12 +1,16 @@
 package com.tryon.app.repository;
 
 import com.tryon.app.model.Dress;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -96,19 +100,41 @@ public interface DressRepository extends JpaRepository<Dress, Integer> {
             @Param("tagCount") long tagCount);
 
     /**
-     * Update view count
+     * Update view count (prefer DressCounterAggregator on request paths)
      */
+    @Modifying
+    @Transactional
     @Query("UPDATE Dress d SET d.viewCount = d.viewCount + 1 WHERE d.dressId = :dressId")
     void incrementViewCount(@Param("dressId") Integer dressId);
 
     /**
-     * Update recommendation count
+     * Update recommendation count (prefer DressCounterAggregator on request paths)
      */
+    @Modifying
+    @Transactional
     @Query("UPDATE Dress d SET d.recommendationCount = d.recommendationCount + 1 WHERE d.dressId = :dressId")
     void incrementRecommendationCount(@Param("dressId") Integer dressId);
 
+    /**
+     * Next page of the whole catalog after a dress id (keyset paging for full scans)
+     */
+    List<Dress> findByDressIdGreaterThanOrderByDressIdAsc(Integer afterDressId, Pageable page);
+
     /**
      * Find top rated dresses
      */
     List<Dress> findTop10ByAvailabilityStatusOrderByAvgRatingDesc(String status);
-}
\ No newline at end of file
+
+    /**
+     * Row count and newest updated_at of the whole catalog; counter and rating
+     * updates leave updated_at alone, so this moves only on catalog edits
+     */
+    @Query("SELECT COUNT(d) AS count, MAX(d.updatedAt) AS lastUpdated FROM Dress d")
+    VersionStamp getCatalogVersionStamp();
+
+    /**
+     * Ids of dresses updated at or after the given time
+     */
+    @Query("SELECT d.dressId FROM Dress d WHERE d.updatedAt >= :since ORDER BY d.dressId")
+    List<Integer> findDressIdsUpdatedSince(@Param("since") LocalDateTime since, Pageable page);
+}
@@ -0,0 +1,14 @@
+package com.tryon.app.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Count and newest updated_at over a set of rows. Any insert, update or delete in the set
+ * changes at least one of the two, so together they version a read for conditional GETs.
+ */
+public interface VersionStamp {
+
+    long getCount();
+
+    LocalDateTime getLastUpdated();
+}
@@ -0,0 +1,245 @@
+package com.tryon.app.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Trained collaborative-filtering factors with their id mappings, as loaded from the factor file.
+ * Also keeps the dresses each user interacted with (their CSR row of the training data): implicit
+ * ALS scores those highest, so candidates leave them out.
+ *
+ * File layout (big-endian): magic "WALS", version, factors, user count, dress count, trained-at
+ * epoch millis, user ids (long, ascending), dress ids (int), user factors then dress factors
+ * (float, row-major), then the seen-dress rows: user count + 1 row offsets and the dress rows
+ * (int, ascending within each user). Written to a temporary file and moved into place, so a
+ * reader never sees a partial file.
+ */
+final class AlsModel {
+
+    private static final int MAGIC = 0x57414C53; // "WALS"
+    // 2 added the seen-dress rows; older files are rejected and the next training run replaces them
+    private static final int VERSION = 2;
+
+    private final int factors;
+    private final long[] userIds;
+    private final int[] dressIds;
+    private final float[] userFactors;
+    private final float[] dressFactors;
+    private final int[] seenPtr;
+    private final int[] seenDresses;
+    private final long trainedAt;
+
+    /**
+     * @param seenPtr     start of each user's seen-dress row in seenDresses, plus the end
+     * @param seenDresses dress rows each user interacted with, ascending within a user
+     */
+    AlsModel(int factors, long[] userIds, int[] dressIds, float[] userFactors, float[] dressFactors,
+             int[] seenPtr, int[] seenDresses, long trainedAt) {
+        this.factors = factors;
+        this.userIds = userIds;
+        this.dressIds = dressIds;
+        this.userFactors = userFactors;
+        this.dressFactors = dressFactors;
+        this.seenPtr = seenPtr;
+        this.seenDresses = seenDresses;
+        this.trainedAt = trainedAt;
+    }
+
+    int factors() {
+        return factors;
+    }
+
+    int userCount() {
+        return userIds.length;
+    }
+
+    int dressCount() {
+        return dressIds.length;
+    }
+
+    long trainedAt() {
+        return trainedAt;
+    }
+
+    /**
+     * Highest-scoring dresses for a user, best first, leaving out the dresses they already
+     * interacted with; empty for users the model hasn't seen
+     */
+    List<Candidate> candidates(long userId, int limit, Set<Integer> exclude) {
+        int user = Arrays.binarySearch(userIds, userId);
+        if (user < 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        int u = user * factors;
+        // Dress rows ascend, and so does the user's seen row: walk both together
+        int seen = seenPtr[user];
+        int seenEnd = seenPtr[user + 1];
+
+        // Bounded min-heap of dress rows on parallel primitive arrays
+        int[] heapRows = new int[limit];
+        float[] heapScores = new float[limit];
+        int size = 0;
+        for (int d = 0; d < dressIds.length; d++) {
+            if (seen < seenEnd && seenDresses[seen] == d) {
+                seen++;
+                continue;
+            }
+            if (exclude.contains(dressIds[d])) {
+                continue;
+            }
+            int o = d * factors;
+            float score = 0;
+            for (int k = 0; k < factors; k++) {
+                score += userFactors[u + k] * dressFactors[o + k];
+            }
+            if (size < limit) {
+                heapRows[size] = d;
+                heapScores[size] = score;
+                siftUp(heapRows, heapScores, size++);
+            } else if (score > heapScores[0]) {
+                heapRows[0] = d;
+                heapScores[0] = score;
+                siftDown(heapRows, heapScores, size);
+            }
+        }
+
+        Candidate[] sorted = new Candidate[size];
+        while (size > 0) {
+            sorted[size - 1] = new Candidate(dressIds[heapRows[0]], heapScores[0]);
+            size--;
+            heapRows[0] = heapRows[size];
+            heapScores[0] = heapScores[size];
+            siftDown(heapRows, heapScores, size);
+        }
+        return new ArrayList<>(Arrays.asList(sorted));
+    }
+
+    void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(factors);
+                out.writeInt(userIds.length);
+                out.writeInt(dressIds.length);
+                out.writeLong(trainedAt);
+                for (long id : userIds) {
+                    out.writeLong(id);
+                }
+                for (int id : dressIds) {
+                    out.writeInt(id);
+                }
+                for (float v : userFactors) {
+                    out.writeFloat(v);
+                }
+                for (float v : dressFactors) {
+                    out.writeFloat(v);
+                }
+                for (int p : seenPtr) {
+                    out.writeInt(p);
+                }
+                for (int d : seenDresses) {
+                    out.writeInt(d);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    static AlsModel read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a factor file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported factor file version " + version + ": " + file);
+            }
+            int factors = in.readInt();
+            int users = in.readInt();
+            int dresses = in.readInt();
+            long trainedAt = in.readLong();
+            long[] userIds = new long[users];
+            for (int i = 0; i < users; i++) {
+                userIds[i] = in.readLong();
+            }
+            int[] dressIds = new int[dresses];
+            for (int i = 0; i < dresses; i++) {
+                dressIds[i] = in.readInt();
+            }
+            float[] userFactors = new float[users * factors];
+            for (int i = 0; i < userFactors.length; i++) {
+                userFactors[i] = in.readFloat();
+            }
+            float[] dressFactors = new float[dresses * factors];
+            for (int i = 0; i < dressFactors.length; i++) {
+                dressFactors[i] = in.readFloat();
+            }
+            int[] seenPtr = new int[users + 1];
+            for (int i = 0; i < seenPtr.length; i++) {
+                seenPtr[i] = in.readInt();
+            }
+            int[] seenDresses = new int[seenPtr[users]];
+            for (int i = 0; i < seenDresses.length; i++) {
+                seenDresses[i] = in.readInt();
+            }
+            return new AlsModel(factors, userIds, dressIds, userFactors, dressFactors, seenPtr, seenDresses, trainedAt);
+        }
+    }
+
+    private static void siftUp(int[] rows, float[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(rows, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] rows, float[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[i] <= scores[child]) {
+                return;
+            }
+            swap(rows, scores, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] rows, float[] scores, int a, int b) {
+        int row = rows[a];
+        rows[a] = rows[b];
+        rows[b] = row;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    record Candidate(int dressId, float score) {
+    }
+}
@@ -0,0 +1,315 @@
+package com.tryon.app.service;
+
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.repository.AnalysisJobQueue;
+import com.tryon.app.service.PriorityWorkScheduler.WorkClass;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs body analyses from the shared {@link AnalysisJobQueue}. Each node claims only as many
+ * jobs as it has free workers, keeps their leases alive while they run, and puts failed
+ * attempts back with exponential backoff until the job is out of attempts, at which point the
+ * analysis is marked FAILED.
+ *
+ * Jobs run on the {@link PriorityWorkScheduler}: uploads as interactive work, everything else
+ * as batch work within the batch cap. Claims are made per class for the room that class has,
+ * and a batch job that has waited long enough in the queue ages into an interactive claim.
+ *
+ * Uploads wake the poller as soon as their transaction commits; the fixed-delay poll picks up
+ * work queued by other nodes and retries coming due. On shutdown the node stops claiming,
+ * gives running jobs the drain timeout to finish, and releases whatever is left so another
+ * node takes it over straight away instead of waiting out the lease.
+ */
+@Service
+public class AnalysisJobWorker {
+    private static final Logger logger = LoggerFactory.getLogger(AnalysisJobWorker.class);
+
+    /** Published by {@link ImageAnalysisService#initiateAnalysis} inside its transaction */
+    public record JobQueued(String analysisId) {
+    }
+
+    private final AnalysisJobQueue queue;
+    private final ImageAnalysisService imageAnalysisService;
+    private final PriorityWorkScheduler scheduler;
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${analysis.jobs.enabled:true}")
+    private boolean enabled;
+
+    @Value("${analysis.jobs.lease-seconds:120}")
+    private int leaseSeconds;
+
+    @Value("${analysis.jobs.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${analysis.jobs.backoff-base-seconds:10}")
+    private long backoffBaseSeconds;
+
+    @Value("${analysis.jobs.backoff-max-seconds:600}")
+    private long backoffMaxSeconds;
+
+    @Value("${analysis.jobs.drain-timeout-seconds:30}")
+    private long drainTimeoutSeconds;
+
+    // One priority point per interval spent due; batch (0) reaches interactive (10) after 10 of them
+    @Value("${analysis.jobs.aging-seconds:30}")
+    private int agingSeconds;
+
+    private final String workerId;
+    private final int capacity;
+    private final Semaphore free;
+    private final ExecutorService poller;
+    private final Map<Long, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean started;
+    private volatile boolean draining;
+
+    public AnalysisJobWorker(AnalysisJobQueue queue,
+                             ImageAnalysisService imageAnalysisService,
+                             PriorityWorkScheduler scheduler,
+                             PipelineMetrics pipelineMetrics,
+                             @Value("${analysis.jobs.workers:4}") int workers) {
+        this.queue = queue;
+        this.imageAnalysisService = imageAnalysisService;
+        this.scheduler = scheduler;
+        this.pipelineMetrics = pipelineMetrics;
+        this.workerId = hostName() + ":" + ProcessHandle.current().pid() + ":" +
+                UUID.randomUUID().toString().substring(0, 8);
+        this.capacity = Math.max(1, workers);
+        this.free = new Semaphore(this.capacity);
+        this.poller = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "analysis-job-poller");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            logger.info("Analysis job worker disabled");
+            return;
+        }
+        try {
+            int adopted = queue.enqueueOrphans(maxAttempts);
+            if (adopted > 0) {
+                logger.info("Queued {} analyses left PROCESSING without a job", adopted);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not queue orphaned analyses: {}", e.getMessage());
+        }
+        started = true;
+        logger.info("Analysis job worker {} started with {} workers", workerId, capacity);
+        wakeUp();
+    }
+
+    @TransactionalEventListener
+    public void onJobQueued(JobQueued event) {
+        wakeUp();
+    }
+
+    /**
+     * Claim work now rather than at the next poll
+     */
+    public void wakeUp() {
+        if (started && !draining) {
+            poller.execute(this::poll);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.jobs.poll-interval-ms:1000}")
+    public void scheduledPoll() {
+        if (started && !draining) {
+            poll();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.jobs.heartbeat-interval-ms:30000}")
+    public void heartbeat() {
+        if (inFlight.isEmpty()) {
+            return;
+        }
+        try {
+            queue.extendLeases(workerId, new ArrayList<>(inFlight.keySet()), leaseSeconds);
+        } catch (Exception e) {
+            logger.warn("Could not extend analysis job leases: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Requeue jobs whose node stopped heartbeating; any node may do this for all of them
+     */
+    @Scheduled(fixedDelayString = "${analysis.jobs.reaper-interval-ms:30000}")
+    public void requeueExpired() {
+        if (!started) {
+            return;
+        }
+        try {
+            Map<String, String> requeued = queue.requeueExpired();
+            requeued.forEach((analysisId, status) -> {
+                if (AnalysisJobQueue.FAILED.equals(status)) {
+                    imageAnalysisService.markFailed(analysisId, "Analysis timed out after " + maxAttempts + " attempts");
+                }
+            });
+            if (!requeued.isEmpty()) {
+                logger.warn("Requeued {} analysis jobs with expired leases", requeued.size());
+            }
+        } catch (Exception e) {
+            logger.warn("Could not requeue expired analysis jobs: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void poll() {
+        if (draining) {
+            return;
+        }
+        try {
+            claim(WorkClass.INTERACTIVE, AnalysisJobQueue.PRIORITY_INTERACTIVE, Integer.MAX_VALUE);
+            claim(WorkClass.BATCH, Integer.MIN_VALUE, AnalysisJobQueue.PRIORITY_INTERACTIVE - 1);
+        } catch (Exception e) {
+            logger.warn("Could not claim analysis jobs: {}", e.getMessage());
+        }
+    }
+
+    private void claim(WorkClass workClass, int minPriority, int maxPriority) {
+        int limit = Math.min(free.availablePermits(), scheduler.room(workClass));
+        if (limit == 0) {
+            return;
+        }
+        for (AnalysisJobQueue.Job job : queue.claim(workerId, minPriority, maxPriority, agingSeconds, limit, leaseSeconds)) {
+            // Only this thread acquires, so the permits counted above are still there
+            free.acquireUninterruptibly();
+            CompletableFuture<Void> task = scheduler.submit(workClass, () -> {
+                run(job);
+                return null;
+            });
+            inFlight.put(job.jobId(), task);
+            task.whenComplete((ignored, e) -> {
+                inFlight.remove(job.jobId());
+                free.release();
+                wakeUp();
+            });
+        }
+    }
+
+    private void run(AnalysisJobQueue.Job job) {
+        Timer.Sample sample = pipelineMetrics.start();
+        String outcome = "success";
+        try {
+            imageAnalysisService.runAnalysis(job.analysisId(), job.userId(), job.imageUrl());
+            if (!queue.complete(job.jobId(), workerId)) {
+                logger.warn("Lost the lease on analysis {} before it finished", job.analysisId());
+            }
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            String error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+            outcome = finishFailed(job, error);
+        } finally {
+            pipelineMetrics.stop(sample, "wardrobe.analysis.job", "outcome", outcome);
+        }
+    }
+
+    private String finishFailed(AnalysisJobQueue.Job job, String error) {
+        try {
+            if (job.attempt() >= job.maxAttempts()) {
+                if (queue.fail(job.jobId(), workerId, error)) {
+                    imageAnalysisService.markFailed(job.analysisId(), error);
+                }
+                failed.incrementAndGet();
+                return "failed";
+            }
+            long delay = backoffSeconds(job.attempt());
+            queue.retryLater(job.jobId(), workerId, error, delay);
+            retried.incrementAndGet();
+            logger.warn("Analysis {} attempt {}/{} failed, retrying in {}s: {}",
+                    job.analysisId(), job.attempt(), job.maxAttempts(), delay, error);
+            return "retry";
+        } catch (Exception e) {
+            // The lease runs out and the reaper requeues it
+            logger.error("Could not record failure of analysis {}", job.analysisId(), e);
+            return "error";
+        }
+    }
+
+    // base * 2^(attempt-1), capped, with jitter so a burst of failures doesn't retry in lockstep
+    private long backoffSeconds(int attempt) {
+        long delay = Math.min(backoffMaxSeconds, backoffBaseSeconds << Math.min(attempt - 1, 20));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        draining = true;
+        poller.shutdownNow();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(drainTimeoutSeconds);
+        while (!inFlight.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(100);
+        }
+        List<Long> unfinished = new ArrayList<>(inFlight.keySet());
+        // Jobs still waiting for a scheduler slot never start
+        inFlight.values().forEach(task -> task.cancel(false));
+        if (!unfinished.isEmpty()) {
+            try {
+                int released = queue.release(workerId, unfinished);
+                logger.info("Released {} unfinished analysis jobs on shutdown", released);
+            } catch (Exception e) {
+                logger.warn("Could not release analysis jobs, they requeue when their lease expires: {}",
+                        e.getMessage());
+            }
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("workerId", workerId);
+        status.put("workers", capacity);
+        status.put("inFlight", inFlight.size());
+        status.put("completed", completed.get());
+        status.put("retried", retried.get());
+        status.put("failed", failed.get());
+        if (started) {
+            try {
+                status.put("queue", queue.getStats());
+            } catch (Exception e) {
+                status.put("queue", "unavailable");
+            }
+        }
+        return status;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return ManagementFactory.getRuntimeMXBean().getName();
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.tryon.app.service;
 
+import com.tryon.app.config.AuthenticatedUser;
+import com.tryon.app.config.JwtUtil;
+import com.tryon.app.config.ReplicaRouting;
 import com.tryon.app.model.User;
 import com.tryon.app.repository.UserRepository;
 import io.jsonwebtoken.Jwts;
@@ -10,6 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -32,23 +36,27 @@ import org.springframework.stereotype.Service;
 import java.util.Date;
 
 @Service
-public class AuthService implements UserDetailsService {
+public class AuthService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepo;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authManager;
+    private final JwtUtil jwtUtil;
+    private final ReplicaRouting replicaRouting;
 
-    @Value("${jwt.secret}")
-    private String jwtSecret;
     @Value("${jwt.expiration-ms}")
     private long jwtExpiryMillis;
 
     @Autowired
     public AuthService(UserRepository userRepo,
                        PasswordEncoder passwordEncoder,
-                       @Lazy AuthenticationManager authManager) {
+                       @Lazy AuthenticationManager authManager,
+                       JwtUtil jwtUtil,
+                       ReplicaRouting replicaRouting) {
         this.userRepo = userRepo;
         this.passwordEncoder = passwordEncoder;
         this.authManager = authManager;
+        this.jwtUtil = jwtUtil;
+        this.replicaRouting = replicaRouting;
     }
     @Transactional
     public String register(String email, String rawPassword) {
@@ -60,35 +68,42 @@ public class AuthService implements UserDetailsService {
         u.setPasswordHash(passwordEncoder.encode(rawPassword));
         u.setRole("USER");
         userRepo.save(u);
-        return generateToken(email);
+        return generateToken(u.getEmail(), u.getUserId(), u.getRole());
     }
 
     public String login(String email, String rawPassword) {
-        authManager.authenticate(
+        Authentication authentication = authManager.authenticate(
                 new UsernamePasswordAuthenticationToken(email, rawPassword)
         );
-        return generateToken(email);
+        AuthenticatedUser user = (AuthenticatedUser) authentication.getPrincipal();
+        return generateToken(user.getUsername(), user.getUserId(), user.getRole());
     }
 
-    private String generateToken(String email) {
-        Date now = new Date();
-        Date exp = new Date(now.getTime() + jwtExpiryMillis);
-        return Jwts.builder()
-                .setSubject(email)
-                .setIssuedAt(now)
-                .setExpiration(exp)
-                .signWith(SignatureAlgorithm.HS256, jwtSecret)
-                .compact();
+    // Role and user id travel as signed claims so requests never need a user lookup
+    private String generateToken(String email, Long userId, String role) {
+        return jwtUtil.generateToken(email, userId, role, jwtExpiryMillis);
     }
 
+    // Credentials come from the primary: a new account or password must work straight away
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User u = userRepo.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
-        return org.springframework.security.core.userdetails.User
-                .withUsername(u.getEmail())
-                .password(u.getPasswordHash())
-                .roles(u.getRole())
-                .build();
+        try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+            User u = userRepo.findByEmail(email)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
+            return new AuthenticatedUser(u.getUserId(), u.getEmail(), u.getPasswordHash(), u.getRole());
+        }
+    }
+
+    /**
+     * Store a re-hashed password after a successful login (called by the authentication provider)
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        User u = userRepo.findByEmail(user.getUsername())
+                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + user.getUsername()));
+        u.setPasswordHash(newPassword);
+        userRepo.save(u);
+        return new AuthenticatedUser(u.getUserId(), u.getEmail(), newPassword, u.getRole());
     }
 }
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tryon.app.model.DressFitProfile;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * What the batch scorers need from a completed body analysis, with measurements in tenths of
+ * an inch. Missing or unreadable measurements fall back to the {@link DressScorer} defaults,
+ * as the Python service does.
+ */
+record BodyProfile(long id, String analysisId, long userId,
+                   int chestTenths, int waistTenths, int hipsTenths,
+                   String bodyType, String skinTone) {
+
+    /** Columns {@link #from} reads, in order */
+    static final String COLUMNS = "id, analysis_id, user_id, measurements, body_type, skin_tone";
+
+    static BodyProfile from(ResultSet rs, ObjectMapper objectMapper) throws SQLException {
+        JsonNode measurements = parse(rs.getString(4), objectMapper);
+        return new BodyProfile(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                DressFitProfile.toTenths(measurement(measurements, "chest", DressScorer.DEFAULT_CHEST)),
+                DressFitProfile.toTenths(measurement(measurements, "waist", DressScorer.DEFAULT_WAIST)),
+                DressFitProfile.toTenths(measurement(measurements, "hips", DressScorer.DEFAULT_HIPS)),
+                rs.getString(5), rs.getString(6));
+    }
+
+    private static JsonNode parse(String json, ObjectMapper objectMapper) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private static double measurement(JsonNode measurements, String key, double fallback) {
+        JsonNode value = measurements != null ? measurements.get(key) : null;
+        return value != null && value.isNumber() ? value.asDouble() : fallback;
+    }
+}
@@ -0,0 +1,45 @@
+package com.tryon.app.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Published after dress content changes. An empty dressIds set means "anything may have
+ * changed" (e.g. after a bulk import); listeners then drop everything they derived from
+ * the catalog.
+ */
+public class CatalogChangedEvent {
+    private final Set<Integer> dressIds;
+    private final String source;
+
+    private CatalogChangedEvent(Set<Integer> dressIds, String source) {
+        this.dressIds = dressIds;
+        this.source = source;
+    }
+
+    public static CatalogChangedEvent all(String source) {
+        return new CatalogChangedEvent(Collections.emptySet(), source);
+    }
+
+    public static CatalogChangedEvent of(Collection<Integer> dressIds, String source) {
+        return new CatalogChangedEvent(Set.copyOf(dressIds), source);
+    }
+
+    public boolean isWholeCatalog() {
+        return dressIds.isEmpty();
+    }
+
+    public Set<Integer> getDressIds() {
+        return dressIds;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return "CatalogChangedEvent{source=" + source + ", dressIds=" + (isWholeCatalog() ? "all" : dressIds) + "}";
+    }
+}
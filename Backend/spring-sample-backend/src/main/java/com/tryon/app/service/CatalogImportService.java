@@ -0,0 +1,801 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tryon.app.model.Dress;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streaming bulk import of partner catalog feeds (JSONL or CSV) into wardrobe.dresses
+ * and its element collection tables.
+ *
+ * The feed is read in chunks. Each chunk is parsed and validated in parallel, COPY'd into
+ * session temp tables through the PostgreSQL {@link CopyManager}, and merged into the real
+ * tables with one set-based upsert keyed on (dress_name, brand_id). The chunk and the run
+ * checkpoint commit in the same transaction, so a crashed or stopped run resumes from the
+ * last committed line without duplicating rows.
+ */
+@Service
+public class CatalogImportService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogImportService.class);
+
+    public enum Format { JSONL, CSV }
+
+    // Scalar columns written by the import, in COPY order (dress_id carries the staged line number)
+    private static final String[] DRESS_COLUMNS = {
+            "dress_name", "brand_id", "category_id",
+            "bust_min", "bust_max", "waist_min", "waist_max", "hip_min", "hip_max", "length",
+            "size_chart", "dress_style", "neckline", "sleeve_type", "dress_length",
+            "primary_color", "pattern_type", "sexiness_score",
+            "price", "currency", "availability_status",
+            "primary_image_url", "gcp_bucket_path", "image_folder_path",
+            "description", "fabric_type", "care_instructions"
+    };
+
+    // Element collection tables of Dress, same names as the entity mapping
+    private static final CollectionTable[] COLLECTION_TABLES = {
+            new CollectionTable("dress_sizes", "size", "availableSizes", Dress::getAvailableSizes),
+            new CollectionTable("dress_occasions", "occasion", "occasions", Dress::getOccasions),
+            new CollectionTable("dress_secondary_colors", "color", "secondaryColors", Dress::getSecondaryColors),
+            new CollectionTable("dress_hotness_tags", "tag", "hotnessTags", Dress::getHotnessTags),
+            new CollectionTable("dress_body_type_recommendations", "body_type", "bodyTypeRecommendations", Dress::getBodyTypeRecommendations),
+            new CollectionTable("dress_skin_tone_compatibility", "skin_tone", "skinToneCompatibility", Dress::getSkinToneCompatibility),
+            new CollectionTable("dress_additional_images", "image_url", "additionalImages", Dress::getAdditionalImages),
+            new CollectionTable("dress_model_images", "model_image_url", "modelImages", Dress::getModelImages),
+            new CollectionTable("dress_keywords", "keyword", "keywords", Dress::getKeywords)
+    };
+
+    private static final BigDecimal MAX_MEASUREMENT = new BigDecimal("1000");
+    private static final BigDecimal MAX_PRICE = new BigDecimal("100000000");
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader dressReader;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ExecutorService importExecutor;
+    private final ForkJoinPool validationPool;
+    private final Map<String, ImportProgress> runs = new ConcurrentHashMap<>();
+
+    // Feeds are only read from under this directory; sources are paths relative to it
+    @Value("${catalog.import.directory:./imports}")
+    private String importDirectory;
+
+    @Value("${catalog.import.chunk-size:5000}")
+    private int chunkSize;
+
+    // Runs touching more dresses than this announce a whole-catalog change instead of the ids
+    @Value("${catalog.import.targeted-change-limit:10000}")
+    private int targetedChangeLimit;
+
+    public CatalogImportService(DataSource dataSource,
+                                JdbcTemplate jdbcTemplate,
+                                ObjectMapper objectMapper,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${catalog.import.validation-threads:0}") int validationThreads) {
+        this.dataSource = dataSource;
+        this.eventPublisher = eventPublisher;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.dressReader = objectMapper.readerFor(Dress.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.importExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "catalog-import");
+            t.setDaemon(true);
+            return t;
+        });
+        this.validationPool = new ForkJoinPool(validationThreads > 0
+                ? validationThreads : Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Start a new import run for a feed file on the server (".gz" feeds are decompressed on the fly)
+     */
+    public ImportProgress startImport(String source, String format) {
+        resolveFeed(source);
+        Format feedFormat = resolveFormat(source, format);
+        String runId = "IMPORT-" + UUID.randomUUID();
+
+        jdbcTemplate.update("INSERT INTO wardrobe.catalog_import_runs (run_id, source, format, status) " +
+                "VALUES (?, ?, ?, 'RUNNING')", runId, source, feedFormat.name());
+
+        ImportProgress progress = new ImportProgress(runId, source, feedFormat, 0);
+        runs.put(runId, progress);
+        importExecutor.submit(() -> runImport(progress));
+        return progress;
+    }
+
+    /**
+     * Resume a run from its last committed checkpoint
+     */
+    public ImportProgress resumeImport(String runId) {
+        ImportProgress active = runs.get(runId);
+        if (active != null && "RUNNING".equals(active.status)) {
+            throw new IllegalStateException("Import " + runId + " is already running");
+        }
+
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT source, format, status, lines_committed, rows_inserted, rows_updated, rows_rejected " +
+                "FROM wardrobe.catalog_import_runs WHERE run_id = ?", runId);
+        if ("COMPLETED".equals(row.get("status"))) {
+            throw new IllegalStateException("Import " + runId + " has already completed");
+        }
+        resolveFeed((String) row.get("source"));
+
+        ImportProgress progress = new ImportProgress(runId, (String) row.get("source"),
+                Format.valueOf((String) row.get("format")), ((Number) row.get("lines_committed")).longValue());
+        progress.rowsInserted.set(((Number) row.get("rows_inserted")).longValue());
+        progress.rowsUpdated.set(((Number) row.get("rows_updated")).longValue());
+        progress.rowsRejected.set(((Number) row.get("rows_rejected")).longValue());
+
+        jdbcTemplate.update("UPDATE wardrobe.catalog_import_runs SET status = 'RUNNING', last_error = NULL, " +
+                "updated_at = CURRENT_TIMESTAMP WHERE run_id = ?", runId);
+
+        runs.put(runId, progress);
+        importExecutor.submit(() -> runImport(progress));
+        return progress;
+    }
+
+    /**
+     * Live progress of a run started on this node, falling back to the stored checkpoint
+     */
+    public Map<String, Object> getProgress(String runId) {
+        ImportProgress progress = runs.get(runId);
+        if (progress != null) {
+            return progress.toMap();
+        }
+        return jdbcTemplate.queryForMap("SELECT run_id, source, format, status, lines_committed, rows_inserted, " +
+                "rows_updated, rows_rejected, last_error, started_at, updated_at " +
+                "FROM wardrobe.catalog_import_runs WHERE run_id = ?", runId);
+    }
+
+    private void runImport(ImportProgress progress) {
+        logger.info("Catalog import {} starting from line {} of {}", progress.runId, progress.resumeFrom, progress.source);
+
+        try (BufferedReader reader = openFeed(progress.source);
+             Connection con = dataSource.getConnection()) {
+
+            con.setAutoCommit(false);
+            createStagingTables(con);
+            CopyManager copyManager = con.unwrap(PGConnection.class).getCopyAPI();
+
+            String[] csvHeader = progress.format == Format.CSV ? readCsvHeader(reader) : null;
+
+            // Skip lines already committed by an earlier attempt of this run
+            long lineNo = 0;
+            while (lineNo < progress.resumeFrom && reader.readLine() != null) {
+                lineNo++;
+            }
+            progress.linesRead.set(lineNo);
+
+            List<String> chunk = new ArrayList<>(chunkSize);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException("Import interrupted");
+                }
+                chunk.add(line);
+                if (chunk.size() == chunkSize) {
+                    loadChunk(con, copyManager, progress, chunk, lineNo + 1, csvHeader);
+                    lineNo += chunk.size();
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                loadChunk(con, copyManager, progress, chunk, lineNo + 1, csvHeader);
+            }
+
+            progress.status = "COMPLETED";
+            jdbcTemplate.update("UPDATE wardrobe.catalog_import_runs SET status = 'COMPLETED', " +
+                    "updated_at = CURRENT_TIMESTAMP WHERE run_id = ?", progress.runId);
+            logger.info("Catalog import {} completed: {}", progress.runId, progress.toMap());
+
+        } catch (Exception e) {
+            logger.error("Catalog import {} failed at line {}", progress.runId, progress.linesRead.get(), e);
+            progress.status = "FAILED";
+            progress.lastError = e.getMessage();
+            jdbcTemplate.update("UPDATE wardrobe.catalog_import_runs SET status = 'FAILED', last_error = ?, " +
+                    "updated_at = CURRENT_TIMESTAMP WHERE run_id = ?", e.getMessage(), progress.runId);
+        } finally {
+            progress.finishedAt = System.nanoTime();
+            // Committed chunks are visible even when the run failed later on
+            if (progress.chunksCommitted.get() > 0) {
+                String source = "catalog-import " + progress.runId;
+                eventPublisher.publishEvent(progress.manyChanged || progress.changedDressIds.isEmpty()
+                        ? CatalogChangedEvent.all(source)
+                        : CatalogChangedEvent.of(progress.changedDressIds, source));
+            }
+        }
+    }
+
+    /**
+     * Validate one chunk in parallel, then COPY + merge + checkpoint in a single transaction
+     */
+    private void loadChunk(Connection con, CopyManager copyManager, ImportProgress progress,
+                           List<String> lines, long firstLineNo, String[] csvHeader) throws Exception {
+        ParsedRow[] rows = validationPool.submit(() -> IntStream.range(0, lines.size())
+                .parallel()
+                .mapToObj(i -> parseRow(lines.get(i), firstLineNo + i, progress.format, csvHeader))
+                .toArray(ParsedRow[]::new)).get();
+
+        // The upsert may touch each (dress_name, brand_id) once per statement, last line wins
+        Map<String, ParsedRow> accepted = new LinkedHashMap<>();
+        List<ParsedRow> rejected = new ArrayList<>();
+        for (ParsedRow row : rows) {
+            if (row == null) {
+                continue; // blank line
+            }
+            if (row.error != null) {
+                rejected.add(row);
+            } else {
+                accepted.put(row.dress.getDressName() + '\u0000' + row.dress.getBrandId(), row);
+            }
+        }
+
+        try {
+            long inserted = 0;
+            long updated = 0;
+            if (!accepted.isEmpty()) {
+                copyManager.copyIn("COPY tmp_catalog_dresses (dress_id, " + String.join(", ", DRESS_COLUMNS) + ") FROM STDIN",
+                        new StringReader(dressCopyData(accepted.values())));
+                copyManager.copyIn("COPY tmp_catalog_collections (staged_id, kind, position, value) FROM STDIN",
+                        new StringReader(collectionCopyData(accepted.values())));
+
+                try (Statement st = con.createStatement()) {
+                    st.executeUpdate(upsertSql());
+                    try (ResultSet rs = st.executeQuery("SELECT count(*) FILTER (WHERE inserted), " +
+                            "count(*) FILTER (WHERE NOT inserted) FROM tmp_catalog_ids")) {
+                        rs.next();
+                        inserted = rs.getLong(1);
+                        updated = rs.getLong(2);
+                    }
+                    if (!progress.manyChanged) {
+                        recordChangedDresses(st, progress, inserted + updated);
+                    }
+                    for (int kind = 0; kind < COLLECTION_TABLES.length; kind++) {
+                        CollectionTable table = COLLECTION_TABLES[kind];
+                        st.executeUpdate("DELETE FROM " + table.table + " t USING tmp_catalog_ids m " +
+                                "WHERE t.dress_id = m.dress_id AND NOT m.inserted");
+                        st.executeUpdate("INSERT INTO " + table.table + " (dress_id, " + table.column + ") " +
+                                "SELECT m.dress_id, c.value FROM tmp_catalog_collections c " +
+                                "JOIN tmp_catalog_ids m ON m.staged_id = c.staged_id " +
+                                "WHERE c.kind = " + kind + " ORDER BY c.staged_id, c.position");
+                    }
+                }
+            }
+
+            if (!rejected.isEmpty()) {
+                copyManager.copyIn("COPY wardrobe.catalog_import_rejects (run_id, line_number, reason) FROM STDIN",
+                        new StringReader(rejectCopyData(progress.runId, rejected)));
+            }
+
+            long linesCommitted = firstLineNo - 1 + lines.size();
+            try (PreparedStatement ps = con.prepareStatement("UPDATE wardrobe.catalog_import_runs SET " +
+                    "lines_committed = ?, rows_inserted = rows_inserted + ?, rows_updated = rows_updated + ?, " +
+                    "rows_rejected = rows_rejected + ?, updated_at = CURRENT_TIMESTAMP WHERE run_id = ?")) {
+                ps.setLong(1, linesCommitted);
+                ps.setLong(2, inserted);
+                ps.setLong(3, updated);
+                ps.setLong(4, rejected.size());
+                ps.setString(5, progress.runId);
+                ps.executeUpdate();
+            }
+
+            con.commit();
+
+            progress.linesRead.set(linesCommitted);
+            progress.rowsInserted.addAndGet(inserted);
+            progress.rowsUpdated.addAndGet(updated);
+            progress.rowsRejected.addAndGet(rejected.size());
+            progress.chunksCommitted.incrementAndGet();
+            logger.info("Catalog import {}: committed through line {} ({} rows/s)",
+                    progress.runId, linesCommitted, Math.round(progress.rowsPerSecond()));
+
+        } catch (Exception e) {
+            con.rollback();
+            throw e;
+        }
+    }
+
+    // Small runs let listeners refresh just the touched dresses
+    private void recordChangedDresses(Statement st, ImportProgress progress, long touched) throws SQLException {
+        if (progress.changedDressIds.size() + touched > targetedChangeLimit) {
+            progress.manyChanged = true;
+            progress.changedDressIds.clear();
+            return;
+        }
+        try (ResultSet rs = st.executeQuery("SELECT dress_id FROM tmp_catalog_ids")) {
+            while (rs.next()) {
+                progress.changedDressIds.add(rs.getInt(1));
+            }
+        }
+    }
+
+    private String upsertSql() {
+        String columns = String.join(", ", DRESS_COLUMNS);
+        StringBuilder updates = new StringBuilder();
+        for (String column : DRESS_COLUMNS) {
+            updates.append(column).append(" = EXCLUDED.").append(column).append(", ");
+        }
+        updates.append("updated_at = CURRENT_TIMESTAMP");
+
+        return "WITH upserted AS (" +
+                "INSERT INTO wardrobe.dresses (" + columns + ", view_count, recommendation_count, purchase_count, " +
+                "created_at, updated_at) " +
+                "SELECT " + columns + ", 0, 0, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM tmp_catalog_dresses " +
+                "ON CONFLICT (dress_name, brand_id) DO UPDATE SET " + updates + " " +
+                "RETURNING dress_id, dress_name, brand_id, (xmax = 0) AS inserted) " +
+                "INSERT INTO tmp_catalog_ids (staged_id, dress_id, inserted) " +
+                "SELECT s.dress_id, u.dress_id, u.inserted FROM upserted u " +
+                "JOIN tmp_catalog_dresses s ON s.dress_name = u.dress_name " +
+                "AND s.brand_id IS NOT DISTINCT FROM u.brand_id";
+    }
+
+    private void createStagingTables(Connection con) throws SQLException {
+        try (Statement st = con.createStatement()) {
+            // Column types only, no constraints or defaults (table may have been created by Hibernate)
+            st.execute("CREATE TEMP TABLE IF NOT EXISTS tmp_catalog_dresses ON COMMIT DELETE ROWS AS " +
+                    "SELECT dress_id, " + String.join(", ", DRESS_COLUMNS) + " FROM wardrobe.dresses WITH NO DATA");
+            st.execute("CREATE TEMP TABLE IF NOT EXISTS tmp_catalog_collections " +
+                    "(staged_id INTEGER NOT NULL, kind SMALLINT NOT NULL, position INTEGER NOT NULL, value TEXT) " +
+                    "ON COMMIT DELETE ROWS");
+            st.execute("CREATE TEMP TABLE IF NOT EXISTS tmp_catalog_ids " +
+                    "(staged_id INTEGER NOT NULL, dress_id INTEGER NOT NULL, inserted BOOLEAN NOT NULL) " +
+                    "ON COMMIT DELETE ROWS");
+        }
+        con.commit();
+    }
+
+    // ---- Parsing and validation ----
+
+    private ParsedRow parseRow(String line, long lineNo, Format format, String[] csvHeader) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            Dress dress = format == Format.CSV ? parseCsvRow(line, csvHeader) : parseJsonRow(line);
+            String error = validate(dress);
+            return error == null ? new ParsedRow(lineNo, dress, null) : new ParsedRow(lineNo, null, error);
+        } catch (Exception e) {
+            return new ParsedRow(lineNo, null, "Unparseable row: " + e.getMessage());
+        }
+    }
+
+    private Dress parseJsonRow(String line) throws IOException {
+        JsonNode node = objectMapper.readTree(line);
+        // sizeChart is stored as raw jsonb, accept it as an object or as a string
+        JsonNode sizeChart = node.get("sizeChart");
+        if (sizeChart != null && sizeChart.isContainerNode() && node instanceof ObjectNode) {
+            ((ObjectNode) node).put("sizeChart", sizeChart.toString());
+        }
+        return dressReader.readValue(node);
+    }
+
+    private Dress parseCsvRow(String line, String[] header) {
+        List<String> values = splitCsvLine(line);
+        Map<String, Object> fields = new HashMap<>();
+        for (int i = 0; i < header.length && i < values.size(); i++) {
+            String value = values.get(i);
+            if (value == null || value.isEmpty()) {
+                continue;
+            }
+            String property = header[i];
+            // Multi-valued columns use '|' between values
+            if (isCollectionProperty(property)) {
+                fields.put(property, List.of(value.split("\\|")));
+            } else {
+                fields.put(property, value);
+            }
+        }
+        return objectMapper.convertValue(fields, Dress.class);
+    }
+
+    private String validate(Dress dress) {
+        if (dress.getDressName() == null || dress.getDressName().isBlank()) return "dressName is required";
+        if (dress.getPrimaryImageUrl() == null || dress.getPrimaryImageUrl().isBlank()) return "primaryImageUrl is required";
+        if (dress.getDressName().length() > 255) return "dressName longer than 255";
+
+        String lengthError = checkLength("primaryImageUrl", dress.getPrimaryImageUrl(), 500);
+        if (lengthError == null) lengthError = checkLength("dressStyle", dress.getDressStyle(), 100);
+        if (lengthError == null) lengthError = checkLength("neckline", dress.getNeckline(), 100);
+        if (lengthError == null) lengthError = checkLength("sleeveType", dress.getSleeveType(), 100);
+        if (lengthError == null) lengthError = checkLength("dressLength", dress.getDressLength(), 50);
+        if (lengthError == null) lengthError = checkLength("primaryColor", dress.getPrimaryColor(), 50);
+        if (lengthError == null) lengthError = checkLength("patternType", dress.getPatternType(), 50);
+        if (lengthError == null) lengthError = checkLength("currency", dress.getCurrency(), 3);
+        if (lengthError == null) lengthError = checkLength("availabilityStatus", dress.getAvailabilityStatus(), 50);
+        if (lengthError == null) lengthError = checkLength("gcpBucketPath", dress.getGcpBucketPath(), 500);
+        if (lengthError == null) lengthError = checkLength("imageFolderPath", dress.getImageFolderPath(), 500);
+        if (lengthError == null) lengthError = checkLength("fabricType", dress.getFabricType(), 100);
+        if (lengthError != null) return lengthError;
+
+        if (dress.getSexinessScore() != null && (dress.getSexinessScore() < 1 || dress.getSexinessScore() > 10)) {
+            return "sexinessScore must be between 1 and 10";
+        }
+        if (dress.getPrice() != null && (dress.getPrice().signum() < 0 || dress.getPrice().compareTo(MAX_PRICE) >= 0)) {
+            return "price out of range";
+        }
+
+        String rangeError = checkRange("bust", dress.getBustMin(), dress.getBustMax());
+        if (rangeError == null) rangeError = checkRange("waist", dress.getWaistMin(), dress.getWaistMax());
+        if (rangeError == null) rangeError = checkRange("hip", dress.getHipMin(), dress.getHipMax());
+        if (rangeError == null) rangeError = checkRange("length", dress.getLength(), dress.getLength());
+        if (rangeError != null) return rangeError;
+
+        if (dress.getSizeChart() != null) {
+            try {
+                objectMapper.readTree(dress.getSizeChart());
+            } catch (Exception e) {
+                return "sizeChart is not valid JSON";
+            }
+        }
+        return null;
+    }
+
+    private static String checkLength(String field, String value, int max) {
+        return value != null && value.length() > max ? field + " longer than " + max : null;
+    }
+
+    private static String checkRange(String field, BigDecimal min, BigDecimal max) {
+        if ((min != null && (min.signum() < 0 || min.compareTo(MAX_MEASUREMENT) >= 0)) ||
+                (max != null && (max.signum() < 0 || max.compareTo(MAX_MEASUREMENT) >= 0))) {
+            return field + " measurement out of range";
+        }
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            return field + " min is greater than max";
+        }
+        return null;
+    }
+
+    // ---- COPY payloads (text format) ----
+
+    private String dressCopyData(Iterable<ParsedRow> rows) {
+        StringBuilder out = new StringBuilder(64 * 1024);
+        for (ParsedRow row : rows) {
+            Dress d = row.dress;
+            out.append(row.lineNo);
+            appendField(out, d.getDressName());
+            appendField(out, d.getBrandId());
+            appendField(out, d.getCategoryId());
+            appendField(out, d.getBustMin());
+            appendField(out, d.getBustMax());
+            appendField(out, d.getWaistMin());
+            appendField(out, d.getWaistMax());
+            appendField(out, d.getHipMin());
+            appendField(out, d.getHipMax());
+            appendField(out, d.getLength());
+            appendField(out, d.getSizeChart());
+            appendField(out, d.getDressStyle());
+            appendField(out, d.getNeckline());
+            appendField(out, d.getSleeveType());
+            appendField(out, d.getDressLength());
+            appendField(out, d.getPrimaryColor());
+            appendField(out, d.getPatternType());
+            appendField(out, d.getSexinessScore());
+            appendField(out, d.getPrice());
+            appendField(out, d.getCurrency() != null ? d.getCurrency() : "USD");
+            appendField(out, d.getAvailabilityStatus() != null ? d.getAvailabilityStatus() : "available");
+            appendField(out, d.getPrimaryImageUrl());
+            appendField(out, d.getGcpBucketPath());
+            appendField(out, d.getImageFolderPath());
+            appendField(out, d.getDescription());
+            appendField(out, d.getFabricType());
+            appendField(out, d.getCareInstructions());
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private String collectionCopyData(Iterable<ParsedRow> rows) {
+        StringBuilder out = new StringBuilder(64 * 1024);
+        for (ParsedRow row : rows) {
+            for (int kind = 0; kind < COLLECTION_TABLES.length; kind++) {
+                List<String> values = COLLECTION_TABLES[kind].getter.apply(row.dress);
+                if (values == null) {
+                    continue;
+                }
+                for (int position = 0; position < values.size(); position++) {
+                    out.append(row.lineNo).append('\t').append(kind).append('\t').append(position);
+                    appendField(out, values.get(position));
+                    out.append('\n');
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private String rejectCopyData(String runId, List<ParsedRow> rejected) {
+        StringBuilder out = new StringBuilder();
+        for (ParsedRow row : rejected) {
+            appendEscaped(out, runId);
+            out.append('\t').append(row.lineNo);
+            appendField(out, row.error);
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private static void appendField(StringBuilder out, Object value) {
+        out.append('\t');
+        if (value == null) {
+            out.append("\\N");
+        } else if (value instanceof BigDecimal) {
+            out.append(((BigDecimal) value).toPlainString());
+        } else {
+            appendEscaped(out, value.toString());
+        }
+    }
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\': out.append("\\\\"); break;
+                case '\t': out.append("\\t"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                default: out.append(c);
+            }
+        }
+    }
+
+    // ---- Feed reading ----
+
+    /**
+     * The feed file for a source path, which must stay inside the import directory
+     */
+    private Path resolveFeed(String source) {
+        Path base = Paths.get(importDirectory).toAbsolutePath().normalize();
+        Path path = base.resolve(source).normalize();
+        if (!path.startsWith(base)) {
+            throw new IllegalArgumentException("Feed must be inside the import directory: " + source);
+        }
+        if (!Files.isReadable(path)) {
+            throw new IllegalArgumentException("Feed not readable: " + source);
+        }
+        try {
+            // A symlink inside the directory must not lead out of it either
+            if (!path.toRealPath().startsWith(base.toRealPath())) {
+                throw new IllegalArgumentException("Feed must be inside the import directory: " + source);
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Feed not readable: " + source);
+        }
+        return path;
+    }
+
+    private BufferedReader openFeed(String source) throws IOException {
+        InputStream in = Files.newInputStream(resolveFeed(source));
+        if (source.endsWith(".gz")) {
+            in = new GZIPInputStream(in, 64 * 1024);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 256 * 1024);
+    }
+
+    private String[] readCsvHeader(BufferedReader reader) throws IOException {
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            throw new IOException("CSV feed is empty");
+        }
+        List<String> columns = splitCsvLine(headerLine);
+        String[] header = new String[columns.size()];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = toPropertyName(columns.get(i).trim());
+        }
+        return header;
+    }
+
+    /**
+     * Split one CSV record (RFC 4180 quoting, records must not span lines)
+     */
+    private static List<String> splitCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // Accept both entity property names (dressName) and column names (dress_name)
+    private static String toPropertyName(String column) {
+        if (column.indexOf('_') < 0) {
+            return column;
+        }
+        StringBuilder out = new StringBuilder(column.length());
+        boolean upper = false;
+        for (char c : column.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                out.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isCollectionProperty(String property) {
+        for (CollectionTable table : COLLECTION_TABLES) {
+            if (table.property.equals(property)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Format resolveFormat(String source, String format) {
+        if (format != null && !format.isBlank()) {
+            return Format.valueOf(format.trim().toUpperCase());
+        }
+        String name = source.toLowerCase().replace(".gz", "");
+        if (name.endsWith(".csv")) {
+            return Format.CSV;
+        }
+        if (name.endsWith(".jsonl") || name.endsWith(".ndjson") || name.endsWith(".json")) {
+            return Format.JSONL;
+        }
+        throw new IllegalArgumentException("Cannot infer feed format from " + source + ", pass format=JSONL|CSV");
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Interrupting rolls back the open chunk; the run resumes from its last checkpoint
+        importExecutor.shutdownNow();
+        importExecutor.awaitTermination(30, TimeUnit.SECONDS);
+        validationPool.shutdownNow();
+    }
+
+    private static final class CollectionTable {
+        final String table;
+        final String column;
+        final String property;
+        final Function<Dress, List<String>> getter;
+
+        CollectionTable(String table, String column, String property, Function<Dress, List<String>> getter) {
+            this.table = table;
+            this.column = column;
+            this.property = property;
+            this.getter = getter;
+        }
+    }
+
+    private static final class ParsedRow {
+        final long lineNo;
+        final Dress dress;
+        final String error;
+
+        ParsedRow(long lineNo, Dress dress, String error) {
+            this.lineNo = lineNo;
+            this.dress = dress;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Progress counters of one import run
+     */
+    public static final class ImportProgress {
+        private final String runId;
+        private final String source;
+        private final Format format;
+        private final long resumeFrom;
+        private final long startedAt = System.nanoTime();
+        private final LocalDateTime startedTime = LocalDateTime.now();
+        private final AtomicLong linesRead = new AtomicLong();
+        private final AtomicLong rowsInserted = new AtomicLong();
+        private final AtomicLong rowsUpdated = new AtomicLong();
+        private final AtomicLong rowsRejected = new AtomicLong();
+        private final AtomicLong chunksCommitted = new AtomicLong();
+        private final Set<Integer> changedDressIds = ConcurrentHashMap.newKeySet();
+        private volatile boolean manyChanged;
+        private volatile String status = "RUNNING";
+        private volatile String lastError;
+        private volatile long finishedAt;
+
+        ImportProgress(String runId, String source, Format format, long resumeFrom) {
+            this.runId = runId;
+            this.source = source;
+            this.format = format;
+            this.resumeFrom = resumeFrom;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        double rowsPerSecond() {
+            long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+            double seconds = (end - startedAt) / 1_000_000_000.0;
+            long rows = linesRead.get() - resumeFrom;
+            return seconds > 0 ? rows / seconds : 0.0;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("runId", runId);
+            map.put("source", source);
+            map.put("format", format.name());
+            map.put("status", status);
+            map.put("resumedFromLine", resumeFrom);
+            map.put("linesCommitted", linesRead.get());
+            map.put("rowsInserted", rowsInserted.get());
+            map.put("rowsUpdated", rowsUpdated.get());
+            map.put("rowsRejected", rowsRejected.get());
+            map.put("chunksCommitted", chunksCommitted.get());
+            map.put("rowsPerSecond", Math.round(rowsPerSecond()));
+            map.put("startedAt", startedTime);
+            if (lastError != null) {
+                map.put("lastError", lastError);
+            }
+            return map;
+        }
+    }
+}
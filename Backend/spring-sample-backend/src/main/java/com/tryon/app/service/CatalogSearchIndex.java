@@ -0,0 +1,470 @@
+package com.tryon.app.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Immutable inverted index over the dress catalog, ranked with BM25.
+ *
+ * The term dictionary is a sorted array: exact lookups are a binary search, and every term
+ * starting with a prefix is one contiguous range, which is what autocomplete walks. Postings
+ * are parallel int/short arrays per term. Updates never modify an index; they derive a new one
+ * and readers keep using whichever instance they started with.
+ *
+ * Updates are incremental: a changed dress gets a fresh ordinal at the end, its old ordinal is
+ * left without postings, and only the posting lists of the terms the change touches are
+ * rewritten; all other lists are shared with the previous index. Once unused ordinals make up
+ * a quarter of the index it is rebuilt from scratch to compact them.
+ */
+final class CatalogSearchIndex {
+
+    // Standard BM25 parameters
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    // Field weights, applied by counting a field's tokens this many times
+    static final int NAME_WEIGHT = 3;
+    static final int BRAND_WEIGHT = 2;
+    static final int KEYWORD_WEIGHT = 2;
+    static final int TEXT_WEIGHT = 1;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "is", "it",
+            "of", "on", "or", "the", "this", "to", "with");
+
+    // Ordinals whose dress was removed or replaced, past which the index is rebuilt
+    private static final double MAX_UNUSED_FRACTION = 0.25;
+
+    private final Map<Integer, Integer> ordinalsById;
+
+    // Per document ordinal; a removed or replaced dress leaves a null document and no postings
+    private final IndexedDress[] documents;
+    private final int[] dressIds;
+    private final boolean[] available;
+    private final int[] lengths;
+    private final long totalLength;
+    private final float averageLength;
+
+    // Per term ordinal, terms sorted
+    private final String[] terms;
+    private final int[][] postingDocs;
+    private final short[][] postingFreqs;
+
+    private CatalogSearchIndex(Map<Integer, Integer> ordinalsById, IndexedDress[] documents,
+                               int[] dressIds, boolean[] available, int[] lengths, long totalLength,
+                               String[] terms, int[][] postingDocs, short[][] postingFreqs) {
+        this.ordinalsById = ordinalsById;
+        this.documents = documents;
+        this.dressIds = dressIds;
+        this.available = available;
+        this.lengths = lengths;
+        this.totalLength = totalLength;
+        this.averageLength = ordinalsById.isEmpty() ? 0f : (float) totalLength / ordinalsById.size();
+        this.terms = terms;
+        this.postingDocs = postingDocs;
+        this.postingFreqs = postingFreqs;
+    }
+
+    static CatalogSearchIndex build(Collection<IndexedDress> dresses) {
+        IndexedDress[] docs = dresses.toArray(new IndexedDress[0]);
+        Arrays.sort(docs, (a, b) -> Integer.compare(a.dressId(), b.dressId()));
+
+        Map<Integer, Integer> ordinalsById = new HashMap<>(docs.length * 2);
+        int[] dressIds = new int[docs.length];
+        boolean[] available = new boolean[docs.length];
+        int[] lengths = new int[docs.length];
+        long totalLength = 0;
+        Map<String, Integer> docFreq = new HashMap<>();
+        for (int d = 0; d < docs.length; d++) {
+            IndexedDress doc = docs[d];
+            ordinalsById.put(doc.dressId(), d);
+            dressIds[d] = doc.dressId();
+            available[d] = doc.available();
+            lengths[d] = doc.length();
+            totalLength += doc.length();
+            for (String term : doc.termFreqs().keySet()) {
+                docFreq.merge(term, 1, Integer::sum);
+            }
+        }
+
+        String[] terms = docFreq.keySet().toArray(new String[0]);
+        Arrays.sort(terms);
+        Map<String, Integer> ordinals = new HashMap<>(terms.length * 2);
+        int[][] postingDocs = new int[terms.length][];
+        short[][] postingFreqs = new short[terms.length][];
+        for (int t = 0; t < terms.length; t++) {
+            ordinals.put(terms[t], t);
+            int df = docFreq.get(terms[t]);
+            postingDocs[t] = new int[df];
+            postingFreqs[t] = new short[df];
+        }
+
+        // Documents are visited in ordinal order, so every posting list comes out sorted
+        int[] fill = new int[terms.length];
+        for (int d = 0; d < docs.length; d++) {
+            for (Map.Entry<String, Integer> e : docs[d].termFreqs().entrySet()) {
+                int t = ordinals.get(e.getKey());
+                postingDocs[t][fill[t]] = d;
+                postingFreqs[t][fill[t]] = (short) Math.min(e.getValue(), Short.MAX_VALUE);
+                fill[t]++;
+            }
+        }
+
+        return new CatalogSearchIndex(ordinalsById, docs, dressIds, available, lengths, totalLength,
+                terms, postingDocs, postingFreqs);
+    }
+
+    /**
+     * New index with the given dresses added or replaced and the given ids removed
+     */
+    CatalogSearchIndex withChanges(Collection<IndexedDress> updated, Collection<Integer> removed) {
+        // Last one wins when a dress appears twice
+        Map<Integer, IndexedDress> appended = new LinkedHashMap<>();
+        for (IndexedDress doc : updated) {
+            appended.put(doc.dressId(), doc);
+        }
+        Set<Integer> retiring = new HashSet<>(removed);
+        retiring.addAll(appended.keySet());
+
+        int oldCount = dressIds.length;
+        int newCount = oldCount + appended.size();
+        Map<Integer, Integer> ordinals = new HashMap<>(ordinalsById);
+        IndexedDress[] newDocuments = Arrays.copyOf(documents, newCount);
+        int[] newDressIds = Arrays.copyOf(dressIds, newCount);
+        boolean[] newAvailable = Arrays.copyOf(available, newCount);
+        int[] newLengths = Arrays.copyOf(lengths, newCount);
+        long total = totalLength;
+
+        // Retire the old ordinals of removed and replaced dresses, noting the terms they had
+        boolean[] retired = new boolean[oldCount];
+        Set<String> touched = new HashSet<>();
+        for (Integer id : retiring) {
+            Integer d = ordinals.remove(id);
+            if (d != null) {
+                retired[d] = true;
+                touched.addAll(documents[d].termFreqs().keySet());
+                total -= lengths[d];
+                newDocuments[d] = null;
+                newAvailable[d] = false;
+                newLengths[d] = 0;
+            }
+        }
+
+        if (newCount - (ordinals.size() + appended.size()) > MAX_UNUSED_FRACTION * newCount) {
+            List<IndexedDress> live = new ArrayList<>(ordinals.size() + appended.size());
+            for (int d : ordinals.values()) {
+                live.add(documents[d]);
+            }
+            live.addAll(appended.values());
+            return build(live);
+        }
+
+        // Changed dresses go to fresh ordinals at the end, so appended postings keep lists sorted
+        Map<String, List<int[]>> added = new HashMap<>();
+        int next = oldCount;
+        for (IndexedDress doc : appended.values()) {
+            int d = next++;
+            ordinals.put(doc.dressId(), d);
+            newDocuments[d] = doc;
+            newDressIds[d] = doc.dressId();
+            newAvailable[d] = doc.available();
+            newLengths[d] = doc.length();
+            total += doc.length();
+            for (Map.Entry<String, Integer> e : doc.termFreqs().entrySet()) {
+                added.computeIfAbsent(e.getKey(), k -> new ArrayList<>()).add(new int[]{d, e.getValue()});
+                touched.add(e.getKey());
+            }
+        }
+
+        // Rewrite the touched lists; a term left without postings drops out of the dictionary
+        Map<String, Integer> rewritten = new HashMap<>();
+        List<int[]> rewrittenDocs = new ArrayList<>();
+        List<short[]> rewrittenFreqs = new ArrayList<>();
+        List<String> newTerms = new ArrayList<>();
+        for (String term : touched) {
+            int t = Arrays.binarySearch(terms, term);
+            int[] oldDocs = t >= 0 ? postingDocs[t] : new int[0];
+            short[] oldFreqs = t >= 0 ? postingFreqs[t] : new short[0];
+            List<int[]> extra = added.getOrDefault(term, Collections.emptyList());
+            int[] docsOut = new int[oldDocs.length + extra.size()];
+            short[] freqsOut = new short[docsOut.length];
+            int n = 0;
+            for (int i = 0; i < oldDocs.length; i++) {
+                if (!retired[oldDocs[i]]) {
+                    docsOut[n] = oldDocs[i];
+                    freqsOut[n++] = oldFreqs[i];
+                }
+            }
+            for (int[] posting : extra) {
+                docsOut[n] = posting[0];
+                freqsOut[n++] = (short) Math.min(posting[1], Short.MAX_VALUE);
+            }
+            rewritten.put(term, rewrittenDocs.size());
+            rewrittenDocs.add(n == docsOut.length ? docsOut : Arrays.copyOf(docsOut, n));
+            rewrittenFreqs.add(n == freqsOut.length ? freqsOut : Arrays.copyOf(freqsOut, n));
+            if (t < 0) {
+                newTerms.add(term);
+            }
+        }
+        Collections.sort(newTerms);
+
+        // Merge the sorted dictionary with the sorted new terms; untouched lists are shared
+        List<String> mergedTerms = new ArrayList<>(terms.length + newTerms.size());
+        List<int[]> mergedDocs = new ArrayList<>(terms.length + newTerms.size());
+        List<short[]> mergedFreqs = new ArrayList<>(terms.length + newTerms.size());
+        int i = 0;
+        int j = 0;
+        while (i < terms.length || j < newTerms.size()) {
+            boolean takeOld = j == newTerms.size() || (i < terms.length && terms[i].compareTo(newTerms.get(j)) < 0);
+            String term = takeOld ? terms[i] : newTerms.get(j);
+            Integer r = rewritten.get(term);
+            int[] docs = r != null ? rewrittenDocs.get(r) : postingDocs[i];
+            if (docs.length > 0) {
+                mergedTerms.add(term);
+                mergedDocs.add(docs);
+                mergedFreqs.add(r != null ? rewrittenFreqs.get(r) : postingFreqs[i]);
+            }
+            if (takeOld) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+
+        return new CatalogSearchIndex(ordinals, newDocuments, newDressIds, newAvailable, newLengths, total,
+                mergedTerms.toArray(new String[0]), mergedDocs.toArray(new int[0][]),
+                mergedFreqs.toArray(new short[0][]));
+    }
+
+    int size() {
+        return ordinalsById.size();
+    }
+
+    int termCount() {
+        return terms.length;
+    }
+
+    /**
+     * Top dresses for a free-text query; terms are OR-ed and scored with BM25
+     */
+    List<Hit> search(String query, int limit, boolean availableOnly) {
+        int n = ordinalsById.size();
+        float[] scores = new float[dressIds.length];
+        boolean matched = false;
+        for (String token : new LinkedHashSet<>(tokenize(query))) {
+            int t = Arrays.binarySearch(terms, token);
+            if (t < 0) {
+                continue;
+            }
+            matched = true;
+            int[] docs = postingDocs[t];
+            short[] freqs = postingFreqs[t];
+            float idf = (float) Math.log(1 + (n - docs.length + 0.5) / (docs.length + 0.5));
+            for (int i = 0; i < docs.length; i++) {
+                int d = docs[i];
+                float tf = freqs[i];
+                float norm = K1 * (1 - B + B * lengths[d] / averageLength);
+                scores[d] += idf * tf * (K1 + 1) / (tf + norm);
+            }
+        }
+        if (!matched) {
+            return Collections.emptyList();
+        }
+
+        // Min-heap of the best `limit` so far; ties go to the lower dress id (ordinals aren't in id order)
+        Comparator<Integer> rank = (a, b) ->
+                scores[a] != scores[b] ? Float.compare(scores[a], scores[b]) : Integer.compare(dressIds[b], dressIds[a]);
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, rank);
+        for (int d = 0; d < scores.length; d++) {
+            if (scores[d] <= 0 || (availableOnly && !available[d])) {
+                continue;
+            }
+            if (top.size() < limit) {
+                top.add(d);
+            } else if (rank.compare(d, top.peek()) > 0) {
+                top.poll();
+                top.add(d);
+            }
+        }
+
+        Hit[] hits = new Hit[top.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int d = top.poll();
+            hits[i] = new Hit(dressIds[d], scores[d]);
+        }
+        return Arrays.asList(hits);
+    }
+
+    /**
+     * Completions for what the user has typed so far. The trailing partial word is completed
+     * from the term dictionary, most frequent terms first; the words before it are kept
+     * (normalized). Input that doesn't end inside a word has nothing to complete.
+     */
+    List<Suggestion> autocomplete(String input, int limit) {
+        String folded = fold(input);
+        int split = folded.length();
+        while (split > 0 && Character.isLetterOrDigit(folded.charAt(split - 1))) {
+            split--;
+        }
+        // The partial word is matched as typed: stemming or stop-word removal would change the prefix
+        String partial = folded.substring(split);
+        if (partial.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String lead = String.join(" ", tokenize(folded.substring(0, split)));
+
+        int from = lowerBound(partial);
+        int to = lowerBound(partial + Character.MAX_VALUE);
+        if (from == to) {
+            // A complete plural ("dresses") is indexed under its stem
+            partial = stem(partial);
+            from = lowerBound(partial);
+            to = lowerBound(partial + Character.MAX_VALUE);
+        }
+
+        // Min-heap by document frequency over the prefix range
+        PriorityQueue<Integer> top = new PriorityQueue<>(limit + 1, (a, b) ->
+                postingDocs[a].length != postingDocs[b].length
+                        ? Integer.compare(postingDocs[a].length, postingDocs[b].length)
+                        : terms[b].compareTo(terms[a]));
+        for (int t = from; t < to; t++) {
+            top.add(t);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        Suggestion[] suggestions = new Suggestion[top.size()];
+        for (int i = suggestions.length - 1; i >= 0; i--) {
+            int t = top.poll();
+            String text = lead.isEmpty() ? terms[t] : lead + " " + terms[t];
+            suggestions[i] = new Suggestion(text, postingDocs[t].length);
+        }
+        return Arrays.asList(suggestions);
+    }
+
+    // First term ordinal >= key
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Lower-cased, accent-folded alphanumeric tokens with stop words removed and plurals
+     * reduced ("dresses" -> "dress"); used for both documents and queries.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean wordChar = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String token = folded.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(stem(token));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static String fold(String text) {
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "")
+                .toLowerCase(Locale.ROOT);
+    }
+
+    private static String stem(String token) {
+        if (token.length() <= 3) {
+            return token;
+        }
+        if (token.endsWith("ies")) {
+            return token.substring(0, token.length() - 3) + "y";
+        }
+        if (token.endsWith("sses")) {
+            return token.substring(0, token.length() - 2);
+        }
+        if (token.endsWith("s") && !token.endsWith("ss") && !token.endsWith("us")) {
+            return token.substring(0, token.length() - 1);
+        }
+        return token;
+    }
+
+    /**
+     * A dress as indexed: weighted term frequencies and their total (the BM25 length)
+     */
+    record IndexedDress(int dressId, boolean available, Map<String, Integer> termFreqs, int length) {
+
+        static Builder builder(int dressId, boolean available) {
+            return new Builder(dressId, available);
+        }
+
+        static final class Builder {
+            private final int dressId;
+            private final boolean available;
+            private final Map<String, Integer> termFreqs = new HashMap<>();
+            private int length;
+
+            private Builder(int dressId, boolean available) {
+                this.dressId = dressId;
+                this.available = available;
+            }
+
+            Builder field(String text, int weight) {
+                for (String token : tokenize(text)) {
+                    termFreqs.merge(token, weight, Integer::sum);
+                    length += weight;
+                }
+                return this;
+            }
+
+            Builder field(Collection<String> values, int weight) {
+                if (values != null) {
+                    for (String value : values) {
+                        field(value, weight);
+                    }
+                }
+                return this;
+            }
+
+            IndexedDress build() {
+                return new IndexedDress(dressId, available, Map.copyOf(termFreqs), length);
+            }
+        }
+    }
+
+    record Hit(int dressId, float score) {
+    }
+
+    record Suggestion(String text, int dressCount) {
+    }
+}
@@ -0,0 +1,288 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.config.ReplicaRouting;
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.DressBrand;
+import com.tryon.app.repository.DressBrandRepository;
+import com.tryon.app.repository.DressRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Catalog search and autocomplete from an in-memory index (see {@link CatalogSearchIndex}).
+ *
+ * The index is built from the catalog once the application is up and kept current from
+ * {@link CatalogChangedEvent}s, local or relayed from other instances by
+ * {@link CatalogVersionMonitor}: changed dresses are reloaded and swapped in, a whole-catalog
+ * change rebuilds. All index work runs on one background thread; queries read the current
+ * index without locking and never touch Postgres.
+ */
+@Service
+public class CatalogSearchService {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSearchService.class);
+
+    private static final String AVAILABLE = "available";
+
+    private final DressRepository dressRepository;
+    private final DressBrandRepository dressBrandRepository;
+    private final DressFragmentCache dressFragmentCache;
+    private final PipelineMetrics pipelineMetrics;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReplicaRouting replicaRouting;
+
+    @Value("${catalog.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.search.page-size:500}")
+    private int pageSize;
+
+    @Value("${catalog.search.max-results:100}")
+    private int maxResults;
+
+    private volatile CatalogSearchIndex index;
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "catalog-search-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CatalogSearchService(DressRepository dressRepository,
+                                DressBrandRepository dressBrandRepository,
+                                DressFragmentCache dressFragmentCache,
+                                PipelineMetrics pipelineMetrics,
+                                TransactionTemplate transactionTemplate,
+                                ReplicaRouting replicaRouting) {
+        this.dressRepository = dressRepository;
+        this.dressBrandRepository = dressBrandRepository;
+        this.dressFragmentCache = dressFragmentCache;
+        this.pipelineMetrics = pipelineMetrics;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.replicaRouting = replicaRouting;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            logger.info("Catalog search is disabled");
+            return;
+        }
+        indexer.execute(this::rebuild);
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isWholeCatalog()) {
+            indexer.execute(this::rebuild);
+        } else {
+            Set<Integer> dressIds = event.getDressIds();
+            indexer.execute(() -> update(dressIds));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    public boolean isReady() {
+        return index != null;
+    }
+
+    /**
+     * Ranked dresses for a free-text query, each with its public dress JSON
+     */
+    public Map<String, Object> search(String query, int limit, boolean availableOnly) {
+        CatalogSearchIndex current = requireIndex();
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Query must not be empty");
+        }
+
+        Timer.Sample sample = pipelineMetrics.start();
+        List<CatalogSearchIndex.Hit> hits = current.search(query, clamp(limit), availableOnly);
+        pipelineMetrics.stop(sample, "wardrobe.search", "type", "query");
+
+        List<Integer> dressIds = new ArrayList<>(hits.size());
+        for (CatalogSearchIndex.Hit hit : hits) {
+            dressIds.add(hit.dressId());
+        }
+        Map<Integer, SerializedString> fragments = dressFragmentCache.fragments(dressIds);
+
+        List<Map<String, Object>> results = new ArrayList<>(hits.size());
+        for (CatalogSearchIndex.Hit hit : hits) {
+            SerializedString fragment = fragments.get(hit.dressId());
+            if (fragment == null) {
+                continue; // deleted since the index was built
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("dressId", hit.dressId());
+            item.put("score", Math.round(hit.score() * 1000.0) / 1000.0);
+            item.put("dress", new RawValue(fragment));
+            results.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("query", query);
+        result.put("results", results);
+        result.put("totalCount", results.size());
+        return result;
+    }
+
+    /**
+     * Completions for a partially typed query
+     */
+    public Map<String, Object> autocomplete(String prefix, int limit) {
+        CatalogSearchIndex current = requireIndex();
+
+        Timer.Sample sample = pipelineMetrics.start();
+        List<CatalogSearchIndex.Suggestion> found = prefix == null || prefix.isEmpty()
+                ? List.of()
+                : current.autocomplete(prefix, clamp(limit));
+        pipelineMetrics.stop(sample, "wardrobe.search", "type", "autocomplete");
+
+        List<Map<String, Object>> suggestions = new ArrayList<>(found.size());
+        for (CatalogSearchIndex.Suggestion suggestion : found) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("text", suggestion.text());
+            item.put("dressCount", suggestion.dressCount());
+            suggestions.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("prefix", prefix);
+        result.put("suggestions", suggestions);
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        CatalogSearchIndex current = index;
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("ready", current != null);
+        status.put("indexedDresses", current != null ? current.size() : 0);
+        status.put("terms", current != null ? current.termCount() : 0);
+        return status;
+    }
+
+    private int clamp(int limit) {
+        return Math.max(1, Math.min(limit, maxResults));
+    }
+
+    private CatalogSearchIndex requireIndex() {
+        CatalogSearchIndex current = index;
+        if (current == null) {
+            throw new IllegalStateException("Catalog search index is not ready");
+        }
+        return current;
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            Map<Integer, String> brandNames = brandNames();
+            List<CatalogSearchIndex.IndexedDress> docs = new ArrayList<>();
+            int afterId = Integer.MIN_VALUE;
+            while (true) {
+                int from = afterId;
+                List<CatalogSearchIndex.IndexedDress> page = readOnlyTransaction.execute(status -> {
+                    List<CatalogSearchIndex.IndexedDress> indexed = new ArrayList<>();
+                    for (Dress dress : dressRepository.findByDressIdGreaterThanOrderByDressIdAsc(
+                            from, PageRequest.of(0, pageSize))) {
+                        indexed.add(toIndexed(dress, brandNames));
+                    }
+                    return indexed;
+                });
+                docs.addAll(page);
+                if (page.size() < pageSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).dressId();
+            }
+
+            index = CatalogSearchIndex.build(docs);
+            logger.info("Catalog search index built: {} dresses, {} terms in {} ms",
+                    index.size(), index.termCount(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // Keep serving the previous index; the next catalog change tries again
+            logger.error("Failed to build catalog search index", e);
+        }
+    }
+
+    private void update(Set<Integer> dressIds) {
+        if (index == null) {
+            rebuild();
+            return;
+        }
+        try {
+            // Changed dresses come from the primary; a replica may not have the change yet
+            List<CatalogSearchIndex.IndexedDress> updated;
+            try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+                Map<Integer, String> brandNames = brandNames();
+                updated = readOnlyTransaction.execute(status -> {
+                    List<CatalogSearchIndex.IndexedDress> indexed = new ArrayList<>();
+                    for (Dress dress : dressRepository.findAllById(dressIds)) {
+                        indexed.add(toIndexed(dress, brandNames));
+                    }
+                    return indexed;
+                });
+            }
+
+            Set<Integer> removed = new HashSet<>(dressIds);
+            for (CatalogSearchIndex.IndexedDress doc : updated) {
+                removed.remove(doc.dressId());
+            }
+            index = index.withChanges(updated, removed);
+            logger.debug("Catalog search index updated: {} changed, {} removed", updated.size(), removed.size());
+        } catch (Exception e) {
+            logger.error("Failed to update catalog search index for {} dresses, rebuilding", dressIds.size(), e);
+            rebuild();
+        }
+    }
+
+    private Map<Integer, String> brandNames() {
+        Map<Integer, String> names = new HashMap<>();
+        for (DressBrand brand : dressBrandRepository.findAll()) {
+            names.put(brand.getBrandId(), brand.getBrandName());
+        }
+        return names;
+    }
+
+    // Runs inside the read-only transaction: touching keywords loads the lazy collection
+    private static CatalogSearchIndex.IndexedDress toIndexed(Dress dress, Map<Integer, String> brandNames) {
+        return CatalogSearchIndex.IndexedDress.builder(dress.getDressId(), AVAILABLE.equals(dress.getAvailabilityStatus()))
+                .field(dress.getDressName(), CatalogSearchIndex.NAME_WEIGHT)
+                .field(dress.getBrandId() != null ? brandNames.get(dress.getBrandId()) : null, CatalogSearchIndex.BRAND_WEIGHT)
+                .field(dress.getKeywords(), CatalogSearchIndex.KEYWORD_WEIGHT)
+                .field(dress.getDressStyle(), CatalogSearchIndex.TEXT_WEIGHT)
+                .field(dress.getPrimaryColor(), CatalogSearchIndex.TEXT_WEIGHT)
+                .field(dress.getFabricType(), CatalogSearchIndex.TEXT_WEIGHT)
+                .field(dress.getDescription(), CatalogSearchIndex.TEXT_WEIGHT)
+                .build();
+    }
+}
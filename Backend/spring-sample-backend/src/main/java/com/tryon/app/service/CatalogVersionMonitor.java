@@ -0,0 +1,100 @@
+package com.tryon.app.service;
+
+import com.tryon.app.config.ReplicaRouting;
+import com.tryon.app.repository.DressRepository;
+import com.tryon.app.repository.VersionStamp;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Turns catalog edits made through other instances (or straight in the database) into local
+ * {@link CatalogChangedEvent}s, so every catalog-derived cache and index follows them.
+ *
+ * {@link CatalogChangedEvent} itself only reaches the instance that made the edit. This polls
+ * the catalog's {@link VersionStamp} on the primary; when it moves, the dresses updated since
+ * the previous stamp are published as changed, or the whole catalog when rows disappeared or
+ * too many changed. Counter and rating updates leave updated_at alone, so traffic doesn't
+ * trigger it. Local edits are seen here too and published again; listeners treat the repeat
+ * as an ordinary update of those dresses.
+ */
+@Service
+public class CatalogVersionMonitor {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogVersionMonitor.class);
+
+    static final String SOURCE = "catalog-version-poll";
+
+    private final DressRepository dressRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReplicaRouting replicaRouting;
+
+    @Value("${catalog.version-check.max-changed-dresses:1000}")
+    private int maxChangedDresses;
+
+    // Last stamp seen, once seen is set
+    private long lastCount;
+    private LocalDateTime lastUpdated;
+    private boolean seen;
+
+    public CatalogVersionMonitor(DressRepository dressRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 TransactionTemplate transactionTemplate,
+                                 ReplicaRouting replicaRouting) {
+        this.dressRepository = dressRepository;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.replicaRouting = replicaRouting;
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.version-check.interval-ms:10000}")
+    public synchronized void checkCatalogVersion() {
+        VersionStamp stamp;
+        List<Integer> changed = null;
+        // On the primary: a replica could report an older stamp and look like rows were deleted
+        try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+            stamp = readOnlyTransaction.execute(status -> dressRepository.getCatalogVersionStamp());
+            if (!seen || isUnchanged(stamp)) {
+                remember(stamp);
+                return;
+            }
+            if (stamp.getCount() >= lastCount && lastUpdated != null) {
+                // >= so edits sharing the previous newest timestamp aren't missed; repeats are harmless
+                LocalDateTime since = lastUpdated;
+                changed = readOnlyTransaction.execute(status -> dressRepository.findDressIdsUpdatedSince(
+                        since, PageRequest.of(0, maxChangedDresses + 1)));
+            }
+        } catch (Exception e) {
+            logger.debug("Catalog version check failed: {}", e.getMessage());
+            return;
+        }
+
+        CatalogChangedEvent event = changed != null && !changed.isEmpty() && changed.size() <= maxChangedDresses
+                ? CatalogChangedEvent.of(changed, SOURCE)
+                : CatalogChangedEvent.all(SOURCE);
+        logger.info("Catalog stamp moved ({}/{} -> {}/{}), publishing {}",
+                lastCount, lastUpdated, stamp.getCount(), stamp.getLastUpdated(), event);
+        remember(stamp);
+        eventPublisher.publishEvent(event);
+    }
+
+    private boolean isUnchanged(VersionStamp stamp) {
+        return stamp.getCount() == lastCount && Objects.equals(stamp.getLastUpdated(), lastUpdated);
+    }
+
+    private void remember(VersionStamp stamp) {
+        lastCount = stamp.getCount();
+        lastUpdated = stamp.getLastUpdated();
+        seen = true;
+    }
+}
@@ -0,0 +1,332 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.tryon.app.config.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collaborative filtering from recommendation feedback: an implicit-feedback ALS model
+ * ({@link ImplicitAls}) trained in the background and served from a factor file.
+ *
+ * Training streams per (user, dress) interaction strengths out of dress_recommendations with
+ * a server-side cursor, trains on a fork/join pool sized to the machine, and replaces the
+ * factor file. The file is loaded at startup, so a restart serves the last model right away.
+ * Candidates for a user are the dresses with the highest factor dot product that the user
+ * hasn't already interacted with.
+ */
+@Service
+public class CollaborativeFilteringService {
+    private static final Logger logger = LoggerFactory.getLogger(CollaborativeFilteringService.class);
+
+    // Strength per (user, dress): purchase 4, favorite 2, view 0.5, rating 3..5 adds 1..3.
+    // Ratings of 1-2 add nothing; implicit ALS has no way to express dislike.
+    // Ordered by user so user rows come out with ascending ids, as the factor file expects.
+    private static final String INTERACTIONS_SQL =
+            "SELECT user_id, dress_id, SUM(strength) AS strength FROM (" +
+            "SELECT user_id, dress_id, " +
+            "CASE WHEN is_purchased THEN 4 ELSE 0 END + " +
+            "CASE WHEN is_favorite THEN 2 ELSE 0 END + " +
+            "CASE WHEN is_viewed THEN 0.5 ELSE 0 END + " +
+            "CASE WHEN user_rating >= 3 THEN user_rating - 2 ELSE 0 END AS strength " +
+            "FROM wardrobe.dress_recommendations " +
+            "WHERE user_id IS NOT NULL AND dress_id IS NOT NULL) r " +
+            "GROUP BY user_id, dress_id HAVING SUM(strength) > 0 " +
+            "ORDER BY user_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final DressFragmentCache dressFragmentCache;
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${recommendations.cf.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recommendations.cf.factor-file:data/als-factors.bin}")
+    private String factorFile;
+
+    @Value("${recommendations.cf.factors:32}")
+    private int factors;
+
+    @Value("${recommendations.cf.iterations:10}")
+    private int iterations;
+
+    @Value("${recommendations.cf.regularization:0.1}")
+    private float regularization;
+
+    @Value("${recommendations.cf.alpha:10}")
+    private float alpha;
+
+    @Value("${recommendations.cf.fetch-size:10000}")
+    private int fetchSize;
+
+    // 0 = one worker per core
+    @Value("${recommendations.cf.parallelism:0}")
+    private int parallelism;
+
+    private volatile AlsModel model;
+    private volatile Map<String, Object> lastRun = Map.of();
+    private final AtomicBoolean training = new AtomicBoolean();
+    private final ExecutorService trainer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "cf-trainer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CollaborativeFilteringService(JdbcTemplate jdbcTemplate,
+                                         TransactionTemplate transactionTemplate,
+                                         DressFragmentCache dressFragmentCache,
+                                         PipelineMetrics pipelineMetrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.dressFragmentCache = dressFragmentCache;
+        this.pipelineMetrics = pipelineMetrics;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            logger.info("Collaborative filtering is disabled");
+            return;
+        }
+        trainer.execute(() -> {
+            Path file = Paths.get(factorFile);
+            if (!Files.isRegularFile(file)) {
+                logger.info("No factor file at {}; collaborative candidates start after the first training run", file);
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                model = AlsModel.read(file);
+                logger.info("Loaded factor file {}: {} users, {} dresses, {} factors in {} ms", file,
+                        model.userCount(), model.dressCount(), model.factors(), (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                logger.error("Failed to load factor file {}", file, e);
+            }
+        });
+    }
+
+    @Scheduled(cron = "${recommendations.cf.train-cron:0 30 3 * * *}")
+    public void scheduledTraining() {
+        if (enabled) {
+            startTraining();
+        }
+    }
+
+    /**
+     * Queue a training run unless one is already running. Returns false when one is.
+     */
+    public boolean startTraining() {
+        if (!training.compareAndSet(false, true)) {
+            return false;
+        }
+        Future<?> ignored = trainer.submit(() -> {
+            try {
+                train();
+            } catch (Exception e) {
+                logger.error("Collaborative filtering training failed", e);
+                Map<String, Object> failed = new HashMap<>();
+                failed.put("success", false);
+                failed.put("error", e.getMessage());
+                lastRun = failed;
+            } finally {
+                training.set(false);
+            }
+        });
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trainer.shutdownNow();
+    }
+
+    /**
+     * Up to limit dresses the model predicts the user will like, best first, each with its
+     * public dress JSON. Empty when no model is loaded or the user has no history.
+     */
+    public List<Map<String, Object>> getCandidates(Long userId, int limit, Collection<Integer> excludeDressIds) {
+        AlsModel current = model;
+        if (current == null || userId == null) {
+            return new ArrayList<>();
+        }
+        List<AlsModel.Candidate> candidates = current.candidates(userId, limit, new HashSet<>(excludeDressIds));
+
+        List<Integer> dressIds = new ArrayList<>(candidates.size());
+        for (AlsModel.Candidate candidate : candidates) {
+            dressIds.add(candidate.dressId());
+        }
+        Map<Integer, SerializedString> fragments = dressFragmentCache.fragments(dressIds);
+
+        List<Map<String, Object>> result = new ArrayList<>(candidates.size());
+        for (AlsModel.Candidate candidate : candidates) {
+            SerializedString fragment = fragments.get(candidate.dressId());
+            if (fragment == null) {
+                continue; // no longer in the catalog
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("dressId", candidate.dressId());
+            item.put("score", Math.round(candidate.score() * 1000.0) / 1000.0);
+            item.put("dress", new RawValue(fragment));
+            result.add(item);
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        AlsModel current = model;
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("training", training.get());
+        status.put("modelLoaded", current != null);
+        if (current != null) {
+            status.put("users", current.userCount());
+            status.put("dresses", current.dressCount());
+            status.put("factors", current.factors());
+            status.put("trainedAt", current.trainedAt());
+        }
+        status.put("lastRun", lastRun);
+        return status;
+    }
+
+    private void train() throws Exception {
+        Timer.Sample sample = pipelineMetrics.start();
+        long start = System.nanoTime();
+
+        Loaded loaded = loadInteractions();
+        long loadedAt = System.nanoTime();
+        if (loaded.count == 0) {
+            logger.info("No interactions to train on");
+            lastRun = Map.of("success", true, "interactions", 0);
+            pipelineMetrics.stop(sample, "wardrobe.cf.train", "outcome", "empty");
+            return;
+        }
+
+        ImplicitAls.Interactions data = ImplicitAls.Interactions.of(loaded.userIds.length, loaded.dressIds.length,
+                loaded.users, loaded.dresses, loaded.strengths, loaded.count);
+        int workers = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(workers);
+        ImplicitAls.Factors trained;
+        try {
+            trained = ImplicitAls.train(data,
+                    new ImplicitAls.Params(factors, iterations, regularization, alpha, 42L), pool);
+        } finally {
+            pool.shutdown();
+        }
+        long trainedAt = System.nanoTime();
+
+        // The training rows double as each user's seen dresses, sorted for the candidate scan
+        int[] seenDresses = data.userCols.clone();
+        for (int u = 0; u < data.users; u++) {
+            Arrays.sort(seenDresses, data.userPtr[u], data.userPtr[u + 1]);
+        }
+        AlsModel fresh = new AlsModel(factors, loaded.userIds, loaded.dressIds,
+                trained.users(), trained.items(), data.userPtr, seenDresses, System.currentTimeMillis());
+        Path file = Paths.get(factorFile);
+        fresh.write(file);
+        model = fresh;
+
+        Map<String, Object> run = new HashMap<>();
+        run.put("success", true);
+        run.put("interactions", loaded.count);
+        run.put("users", loaded.userIds.length);
+        run.put("dresses", loaded.dressIds.length);
+        run.put("workers", workers);
+        run.put("loadMs", (loadedAt - start) / 1_000_000);
+        run.put("trainMs", (trainedAt - loadedAt) / 1_000_000);
+        run.put("fileBytes", Files.size(file));
+        lastRun = run;
+        pipelineMetrics.stop(sample, "wardrobe.cf.train", "outcome", "success");
+        logger.info("Collaborative filtering model trained: {}", run);
+    }
+
+    // Streams the aggregated interactions into primitive triplets and dense id mappings
+    private Loaded loadInteractions() {
+        Loaded loaded = new Loaded();
+
+        // Postgres only streams with a cursor inside a transaction
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(INTERACTIONS_SQL);
+            ps.setFetchSize(fetchSize);
+            return ps;
+        }, (RowCallbackHandler) rs -> loaded.add(rs.getLong(1), rs.getInt(2), rs.getFloat(3))));
+
+        loaded.userIds = Arrays.copyOf(loaded.userIds, loaded.userCount);
+        loaded.dressIds = Arrays.copyOf(loaded.dressIds, loaded.dressIndex.size());
+        return loaded;
+    }
+
+    // Growable primitive triplet buffers; users and dresses get dense row numbers in arrival order
+    private static final class Loaded {
+        int[] users = new int[4096];
+        int[] dresses = new int[4096];
+        float[] strengths = new float[4096];
+        int count;
+
+        long[] userIds = new long[1024];
+        int userCount;
+        int[] dressIds = new int[1024];
+        final Map<Integer, Integer> dressIndex = new HashMap<>();
+
+        void add(long userId, int dressId, float strength) {
+            if (userCount == 0 || userIds[userCount - 1] != userId) {
+                if (userCount > 0 && userId < userIds[userCount - 1]) {
+                    throw new IllegalStateException("Interactions are not ordered by user");
+                }
+                if (userCount == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, userCount * 2);
+                }
+                userIds[userCount++] = userId;
+            }
+            Integer dress = dressIndex.get(dressId);
+            if (dress == null) {
+                dress = dressIndex.size();
+                if (dress == dressIds.length) {
+                    dressIds = Arrays.copyOf(dressIds, dress * 2);
+                }
+                dressIds[dress] = dressId;
+                dressIndex.put(dressId, dress);
+            }
+
+            if (count == users.length) {
+                users = Arrays.copyOf(users, count * 2);
+                dresses = Arrays.copyOf(dresses, count * 2);
+                strengths = Arrays.copyOf(strengths, count * 2);
+            }
+            users[count] = userCount - 1;
+            dresses[count] = dress;
+            strengths[count] = strength;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.tryon.app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind aggregator for the dress analytics counters (view, recommendation, purchase).
+ *
+ * Increments land in per-dress striped {@link LongAdder} cells, so recording an event is a
+ * lock-free in-memory add even on the hottest dresses. A scheduled flush drains the deltas
+ * and applies them to wardrobe.dresses with a single set-based UPDATE; the final flush runs
+ * on shutdown. If a flush fails the drained deltas are added back and retried next time.
+ */
+@Service
+public class DressCounterAggregator {
+    private static final Logger logger = LoggerFactory.getLogger(DressCounterAggregator.class);
+
+    private static final String FLUSH_SQL =
+            "UPDATE wardrobe.dresses d SET " +
+            "view_count = COALESCE(d.view_count, 0) + v.views, " +
+            "recommendation_count = COALESCE(d.recommendation_count, 0) + v.recommendations, " +
+            "purchase_count = COALESCE(d.purchase_count, 0) + v.purchases " +
+            "FROM unnest(?::integer[], ?::bigint[], ?::bigint[], ?::bigint[]) " +
+            "AS v(dress_id, views, recommendations, purchases) " +
+            "WHERE d.dress_id = v.dress_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<Integer, Cells> cells = new ConcurrentHashMap<>();
+
+    public DressCounterAggregator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void recordViews(Integer dressId, long count) {
+        if (dressId != null && count > 0) {
+            cellsFor(dressId).views.add(count);
+        }
+    }
+
+    public void recordRecommendation(Integer dressId) {
+        if (dressId != null) {
+            cellsFor(dressId).recommendations.increment();
+        }
+    }
+
+    public void recordRecommendations(Collection<Integer> dressIds) {
+        for (Integer dressId : dressIds) {
+            recordRecommendation(dressId);
+        }
+    }
+
+    public void recordPurchase(Integer dressId) {
+        if (dressId != null) {
+            cellsFor(dressId).purchases.increment();
+        }
+    }
+
+    /**
+     * Apply all pending deltas in one UPDATE. Returns the number of dresses flushed.
+     */
+    @Scheduled(fixedDelayString = "${dress.counters.flush-interval-ms:5000}")
+    public synchronized int flush() {
+        List<Integer> dressIds = new ArrayList<>();
+        List<Long> views = new ArrayList<>();
+        List<Long> recommendations = new ArrayList<>();
+        List<Long> purchases = new ArrayList<>();
+
+        // sumThenReset never loses a concurrent increment, it just lands in the next flush
+        for (Map.Entry<Integer, Cells> entry : cells.entrySet()) {
+            Cells c = entry.getValue();
+            long v = c.views.sumThenReset();
+            long r = c.recommendations.sumThenReset();
+            long p = c.purchases.sumThenReset();
+            if (v != 0 || r != 0 || p != 0) {
+                dressIds.add(entry.getKey());
+                views.add(v);
+                recommendations.add(r);
+                purchases.add(p);
+            }
+        }
+
+        if (dressIds.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            jdbcTemplate.update(con -> {
+                PreparedStatement ps = con.prepareStatement(FLUSH_SQL);
+                ps.setArray(1, con.createArrayOf("int4", dressIds.toArray()));
+                ps.setArray(2, con.createArrayOf("int8", views.toArray()));
+                ps.setArray(3, con.createArrayOf("int8", recommendations.toArray()));
+                ps.setArray(4, con.createArrayOf("int8", purchases.toArray()));
+                return ps;
+            });
+            logger.debug("Flushed counters for {} dresses", dressIds.size());
+            return dressIds.size();
+        } catch (Exception e) {
+            logger.warn("Counter flush failed, keeping {} deltas for the next attempt: {}", dressIds.size(), e.getMessage());
+            for (int i = 0; i < dressIds.size(); i++) {
+                Cells c = cellsFor(dressIds.get(i));
+                c.views.add(views.get(i));
+                c.recommendations.add(recommendations.get(i));
+                c.purchases.add(purchases.get(i));
+            }
+            return 0;
+        }
+    }
+
+    @PreDestroy
+    public void drain() {
+        int flushed = flush();
+        logger.info("Drained dress counters on shutdown ({} dresses)", flushed);
+    }
+
+    private Cells cellsFor(Integer dressId) {
+        return cells.computeIfAbsent(dressId, id -> new Cells());
+    }
+
+    private static final class Cells {
+        final LongAdder views = new LongAdder();
+        final LongAdder recommendations = new LongAdder();
+        final LongAdder purchases = new LongAdder();
+    }
+}
@@ -0,0 +1,139 @@
+package com.tryon.app.service;
+
+import com.tryon.app.model.Dress;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * Encodes a dress as a fixed-length, unit-length float vector for similarity search, so that
+ * cosine similarity between two vectors reads as "how alike are these dresses".
+ *
+ * Categorical attributes are feature-hashed into small per-attribute blocks, so new styles,
+ * colors or tags need no vocabulary changes (a collision only makes two values look alike).
+ * Each block is scaled to its weight; fit ranges, price and sexiness add a few numeric slots.
+ */
+@Component
+public class DressFeatureEncoder {
+
+    private static final Block STYLE = new Block(0, 8, 1.0f);
+    private static final Block NECKLINE = new Block(8, 8, 0.7f);
+    private static final Block SLEEVE = new Block(16, 4, 0.5f);
+    private static final Block LENGTH = new Block(20, 4, 0.6f);
+    private static final Block COLOR = new Block(24, 8, 0.9f);
+    private static final Block PATTERN = new Block(32, 4, 0.5f);
+    private static final Block HOTNESS_TAGS = new Block(36, 12, 0.8f);
+    private static final Block OCCASIONS = new Block(48, 6, 0.6f);
+    private static final Block BODY_TYPES = new Block(54, 4, 0.6f);
+    private static final int NUMERIC = 58;
+
+    public static final int DIMENSION = 64;
+
+    private static final float SECONDARY_COLOR_WEIGHT = 0.5f;
+    private static final float NUMERIC_WEIGHT = 0.8f;
+
+    public float[] encode(Dress dress) {
+        float[] v = new float[DIMENSION];
+
+        hash(v, STYLE, dress.getDressStyle(), 1f);
+        STYLE.normalize(v);
+        hash(v, NECKLINE, dress.getNeckline(), 1f);
+        NECKLINE.normalize(v);
+        hash(v, SLEEVE, dress.getSleeveType(), 1f);
+        SLEEVE.normalize(v);
+        hash(v, LENGTH, dress.getDressLength(), 1f);
+        LENGTH.normalize(v);
+        hash(v, COLOR, dress.getPrimaryColor(), 1f);
+        hashAll(v, COLOR, dress.getSecondaryColors(), SECONDARY_COLOR_WEIGHT);
+        COLOR.normalize(v);
+        hash(v, PATTERN, dress.getPatternType(), 1f);
+        PATTERN.normalize(v);
+        hashAll(v, HOTNESS_TAGS, dress.getHotnessTags(), 1f);
+        HOTNESS_TAGS.normalize(v);
+        hashAll(v, OCCASIONS, dress.getOccasions(), 1f);
+        OCCASIONS.normalize(v);
+        hashAll(v, BODY_TYPES, dress.getBodyTypeRecommendations(), 1f);
+        BODY_TYPES.normalize(v);
+
+        // Roughly 0..1 each: range centers over typical spans, log price, sexiness 1..10
+        v[NUMERIC] = scaled(center(dress.getBustMin(), dress.getBustMax()), 28, 48);
+        v[NUMERIC + 1] = scaled(center(dress.getWaistMin(), dress.getWaistMax()), 22, 42);
+        v[NUMERIC + 2] = scaled(center(dress.getHipMin(), dress.getHipMax()), 32, 52);
+        v[NUMERIC + 3] = scaled(span(dress), 0, 8);
+        v[NUMERIC + 4] = dress.getPrice() == null ? 0f
+                : (float) Math.min(1.0, Math.log1p(dress.getPrice().doubleValue()) / Math.log1p(2000));
+        v[NUMERIC + 5] = dress.getSexinessScore() == null ? 0f : dress.getSexinessScore() / 10f;
+        for (int i = NUMERIC; i < DIMENSION; i++) {
+            v[i] *= NUMERIC_WEIGHT / (float) Math.sqrt(DIMENSION - NUMERIC);
+        }
+
+        normalize(v, 0, DIMENSION, 1f);
+        return v;
+    }
+
+    private static void hash(float[] v, Block block, String value, float weight) {
+        if (value == null || value.isBlank()) {
+            return;
+        }
+        int h = value.trim().toLowerCase(Locale.ROOT).hashCode();
+        h ^= h >>> 16;
+        h *= 0x45d9f3b;
+        h ^= h >>> 16;
+        v[block.offset + Math.floorMod(h, block.size)] += weight;
+    }
+
+    private static void hashAll(float[] v, Block block, Collection<String> values, float weight) {
+        if (values != null) {
+            for (String value : values) {
+                hash(v, block, value, weight);
+            }
+        }
+    }
+
+    private static Double center(BigDecimal min, BigDecimal max) {
+        if (min == null || max == null) {
+            return null;
+        }
+        return (min.doubleValue() + max.doubleValue()) / 2;
+    }
+
+    // Average width of the three fit ranges: how forgiving the dress is
+    private static Double span(Dress dress) {
+        if (dress.getBustMin() == null || dress.getBustMax() == null || dress.getWaistMin() == null
+                || dress.getWaistMax() == null || dress.getHipMin() == null || dress.getHipMax() == null) {
+            return null;
+        }
+        return (dress.getBustMax().subtract(dress.getBustMin())
+                .add(dress.getWaistMax().subtract(dress.getWaistMin()))
+                .add(dress.getHipMax().subtract(dress.getHipMin()))).doubleValue() / 3;
+    }
+
+    private static float scaled(Double value, double low, double high) {
+        if (value == null) {
+            return 0f;
+        }
+        return (float) Math.max(0, Math.min(1, (value - low) / (high - low)));
+    }
+
+    private static void normalize(float[] v, int from, int to, float length) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += v[i] * v[i];
+        }
+        if (sum == 0) {
+            return;
+        }
+        float scale = (float) (length / Math.sqrt(sum));
+        for (int i = from; i < to; i++) {
+            v[i] *= scale;
+        }
+    }
+
+    private record Block(int offset, int size, float weight) {
+        void normalize(float[] v) {
+            DressFeatureEncoder.normalize(v, offset, offset + size, weight);
+        }
+    }
+}
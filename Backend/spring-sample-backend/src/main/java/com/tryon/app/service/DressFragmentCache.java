@@ -0,0 +1,248 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.DressRecommendation;
+import com.tryon.app.repository.DressRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Public JSON of each dress, rendered once per catalog version and kept as pre-encoded UTF-8.
+ *
+ * Recommendation responses splice these fragments in as raw values, so per request only the
+ * per-user recommendation fields are serialized. Internal fields (storage paths, counters,
+ * rating sums) and the lazy brand/category associations are not part of the fragment.
+ * Entries are dropped on {@link CatalogChangedEvent}, including the ones
+ * {@link CatalogVersionMonitor} publishes for edits made through other instances.
+ */
+@Service
+public class DressFragmentCache {
+    private static final Logger logger = LoggerFactory.getLogger(DressFragmentCache.class);
+
+    private final DressRepository dressRepository;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Map<Integer, SerializedString> fragments = new ConcurrentHashMap<>();
+    private final AtomicLong catalogVersion = new AtomicLong();
+    // The version counter is per process; the epoch keeps tags from matching across instances or restarts
+    private final long epoch = ThreadLocalRandom.current().nextLong();
+
+    @Value("${catalog.fragment-cache.max-entries:50000}")
+    private int maxEntries;
+
+    public DressFragmentCache(DressRepository dressRepository,
+                              ObjectMapper objectMapper,
+                              TransactionTemplate transactionTemplate) {
+        this.dressRepository = dressRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Recommendations as response items carrying their dress fragment (null for unknown dresses)
+     */
+    public List<RecommendationView> render(List<DressRecommendation> recommendations) {
+        Set<Integer> dressIds = new HashSet<>();
+        for (DressRecommendation rec : recommendations) {
+            if (rec.getDressId() != null) {
+                dressIds.add(rec.getDressId());
+            }
+        }
+        Map<Integer, SerializedString> byId = fragments(dressIds);
+
+        List<RecommendationView> views = new ArrayList<>(recommendations.size());
+        for (DressRecommendation rec : recommendations) {
+            views.add(new RecommendationView(rec, rec.getDressId() != null ? byId.get(rec.getDressId()) : null));
+        }
+        return views;
+    }
+
+    /**
+     * Fragments for the given dresses, loading and rendering the ones not cached yet
+     */
+    public Map<Integer, SerializedString> fragments(Collection<Integer> dressIds) {
+        Map<Integer, SerializedString> result = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : dressIds) {
+            SerializedString fragment = fragments.get(id);
+            if (fragment != null) {
+                result.put(id, fragment);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        long versionAtLoad = catalogVersion.get();
+        Map<Integer, SerializedString> loaded = readOnlyTransaction.execute(status -> {
+            Map<Integer, SerializedString> rendered = new HashMap<>();
+            for (Dress dress : dressRepository.findAllById(missing)) {
+                rendered.put(dress.getDressId(), render(dress));
+            }
+            return rendered;
+        });
+        result.putAll(loaded);
+
+        // Don't cache what was read while the catalog changed underneath
+        if (catalogVersion.get() == versionAtLoad && loaded.size() <= maxEntries) {
+            makeRoom(loaded.size());
+            fragments.putAll(loaded);
+        }
+        return result;
+    }
+
+    /**
+     * Evicts in arbitrary (hash) order until the incoming entries fit, plus a tenth of the bound so a
+     * full cache doesn't evict on every miss. Not LRU: reads stay a plain lookup with no access
+     * bookkeeping, and a popular dress that gets evicted is simply rendered again on its next miss.
+     */
+    private void makeRoom(int incoming) {
+        int excess = fragments.size() + incoming - maxEntries;
+        if (excess <= 0) {
+            return;
+        }
+        int toEvict = excess + maxEntries / 10;
+        Iterator<Integer> ids = fragments.keySet().iterator();
+        while (toEvict-- > 0 && ids.hasNext()) {
+            ids.next();
+            ids.remove();
+        }
+    }
+
+    /**
+     * Changes on every catalog update; part of response ETags
+     */
+    public long getCatalogVersion() {
+        return catalogVersion.get();
+    }
+
+    /**
+     * Epoch and version together, for validators that outlive this process
+     */
+    public String getCatalogTag() {
+        return Long.toHexString(epoch) + "." + catalogVersion.get();
+    }
+
+    public int size() {
+        return fragments.size();
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        catalogVersion.incrementAndGet();
+        if (event.isWholeCatalog()) {
+            fragments.clear();
+        } else {
+            fragments.keySet().removeAll(event.getDressIds());
+        }
+        logger.info("Dress fragments invalidated: {}", event);
+    }
+
+    SerializedString render(Dress dress) {
+        ByteArrayBuilder buffer = new ByteArrayBuilder(1024);
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(buffer)) {
+            gen.setCodec(objectMapper);
+            gen.writeStartObject();
+            gen.writeNumberField("dressId", dress.getDressId());
+            gen.writeStringField("dressName", dress.getDressName());
+            numberField(gen, "brandId", dress.getBrandId());
+            numberField(gen, "categoryId", dress.getCategoryId());
+            decimalField(gen, "bustMin", dress.getBustMin());
+            decimalField(gen, "bustMax", dress.getBustMax());
+            decimalField(gen, "waistMin", dress.getWaistMin());
+            decimalField(gen, "waistMax", dress.getWaistMax());
+            decimalField(gen, "hipMin", dress.getHipMin());
+            decimalField(gen, "hipMax", dress.getHipMax());
+            decimalField(gen, "length", dress.getLength());
+            listField(gen, "availableSizes", dress.getAvailableSizes());
+            gen.writeStringField("sizeChart", dress.getSizeChart());
+            gen.writeStringField("dressStyle", dress.getDressStyle());
+            gen.writeStringField("neckline", dress.getNeckline());
+            gen.writeStringField("sleeveType", dress.getSleeveType());
+            gen.writeStringField("dressLength", dress.getDressLength());
+            listField(gen, "occasions", dress.getOccasions());
+            gen.writeStringField("primaryColor", dress.getPrimaryColor());
+            listField(gen, "secondaryColors", dress.getSecondaryColors());
+            gen.writeStringField("patternType", dress.getPatternType());
+            numberField(gen, "sexinessScore", dress.getSexinessScore());
+            listField(gen, "hotnessTags", dress.getHotnessTags());
+            listField(gen, "bodyTypeRecommendations", dress.getBodyTypeRecommendations());
+            listField(gen, "skinToneCompatibility", dress.getSkinToneCompatibility());
+            decimalField(gen, "price", dress.getPrice());
+            gen.writeStringField("currency", dress.getCurrency());
+            gen.writeStringField("availabilityStatus", dress.getAvailabilityStatus());
+            gen.writeStringField("primaryImageUrl", dress.getPrimaryImageUrl());
+            listField(gen, "additionalImages", dress.getAdditionalImages());
+            listField(gen, "modelImages", dress.getModelImages());
+            gen.writeStringField("description", dress.getDescription());
+            gen.writeStringField("fabricType", dress.getFabricType());
+            gen.writeStringField("careInstructions", dress.getCareInstructions());
+            gen.writeObjectField("updatedAt", dress.getUpdatedAt());
+            gen.writeEndObject();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to render dress " + dress.getDressId(), e);
+        }
+
+        SerializedString fragment = new SerializedString(new String(buffer.toByteArray(), StandardCharsets.UTF_8));
+        fragment.asUnquotedUTF8(); // encode once now, so writes copy bytes
+        return fragment;
+    }
+
+    private static void numberField(JsonGenerator gen, String name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeNumber(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    private static void decimalField(JsonGenerator gen, String name, BigDecimal value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeNumber(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    // Touching the list also initializes the lazy collection inside the read-only transaction
+    private static void listField(JsonGenerator gen, String name, List<String> values) throws IOException {
+        gen.writeFieldName(name);
+        if (values == null) {
+            gen.writeNull();
+            return;
+        }
+        gen.writeStartArray();
+        for (String value : values) {
+            gen.writeString(value);
+        }
+        gen.writeEndArray();
+    }
+}
@@ -2,19 +2,31 @@ package com.tryon.app.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tryon.app.config.PipelineEvents;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.config.ReplicaRouting;
+import com.tryon.app.model.BodyAnalysis;
 import com.tryon.app.model.DressRecommendation;
+import com.tryon.app.repository.BodyAnalysisRepository;
+import com.tryon.app.repository.DressRecommendationBulkWriter;
 import com.tryon.app.repository.DressRecommendationRepository;
+import com.tryon.app.repository.VersionStamp;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.http.*;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 @Service
@@ -23,6 +35,15 @@ public class DressRecommendationService {
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
     private final DressRecommendationRepository dressRecommendationRepository;
+    private final DressRecommendationBulkWriter dressRecommendationBulkWriter;
+    private final BodyAnalysisRepository bodyAnalysisRepository;
+    private final DressCounterAggregator dressCounterAggregator;
+    private final InteractionEventLog interactionEventLog;
+    private final PipelineMetrics pipelineMetrics;
+    private final DressFragmentCache dressFragmentCache;
+    private final CollaborativeFilteringService collaborativeFilteringService;
+    private final PriorityWorkScheduler priorityWorkScheduler;
+    private final ReplicaRouting replicaRouting;
 
     @Value("${ai.recommendation.service.url:http://localhost:5001}")
     private String aiRecommendationServiceUrl;
@@ -33,23 +54,47 @@ public class DressRecommendationService {
     @Value("${ai.recommendation.service.enabled:true}")
     private boolean serviceEnabled;
 
+    // Collaborative-filtering candidates returned next to the AI results (0 = none)
+    @Value("${recommendations.cf.blend-count:5}")
+    private int blendCount;
+
 
     public DressRecommendationService(RestTemplate restTemplate,
                                       ObjectMapper objectMapper,
-                                      DressRecommendationRepository dressRecommendationRepository) {
+                                      DressRecommendationRepository dressRecommendationRepository,
+                                      DressRecommendationBulkWriter dressRecommendationBulkWriter,
+                                      BodyAnalysisRepository bodyAnalysisRepository,
+                                      DressCounterAggregator dressCounterAggregator,
+                                      InteractionEventLog interactionEventLog,
+                                      PipelineMetrics pipelineMetrics,
+                                      DressFragmentCache dressFragmentCache,
+                                      CollaborativeFilteringService collaborativeFilteringService,
+                                      PriorityWorkScheduler priorityWorkScheduler,
+                                      ReplicaRouting replicaRouting) {
         this.restTemplate = restTemplate;
         this.objectMapper = objectMapper;
         this.dressRecommendationRepository = dressRecommendationRepository;
+        this.dressRecommendationBulkWriter = dressRecommendationBulkWriter;
+        this.bodyAnalysisRepository = bodyAnalysisRepository;
+        this.dressCounterAggregator = dressCounterAggregator;
+        this.interactionEventLog = interactionEventLog;
+        this.pipelineMetrics = pipelineMetrics;
+        this.dressFragmentCache = dressFragmentCache;
+        this.collaborativeFilteringService = collaborativeFilteringService;
+        this.priorityWorkScheduler = priorityWorkScheduler;
+        this.replicaRouting = replicaRouting;
     }
 
 
-    @Async("imageProcessingExecutor")
+    /**
+     * Generate on the scheduler as interactive work: the caller is waiting on their upload
+     */
     public CompletableFuture<Map<String, Object>> generateDressRecommendationsAsync(
             String analysisId,
             String sexinessPreference,
             int limit) {
 
-        return CompletableFuture.supplyAsync(() -> {
+        return priorityWorkScheduler.submit(PriorityWorkScheduler.WorkClass.INTERACTIVE, () -> {
             try {
                 if (!serviceEnabled) {
                     throw new RuntimeException("AI Dress Recommendation service is disabled");
@@ -66,6 +111,28 @@ public class DressRecommendationService {
      * Call the AI recommendation service
      */
     public Map<String, Object> generateDressRecommendations(String analysisId, String sexinessPreference, int limit) throws Exception {
+        Timer.Sample sample = pipelineMetrics.start();
+        pipelineMetrics.enter(PipelineMetrics.STAGE_RECOMMEND);
+        String outcome = "error";
+
+        PipelineEvents.RecommendationEvent event = new PipelineEvents.RecommendationEvent();
+        event.analysisId = analysisId;
+        event.limit = limit;
+        event.begin();
+        try {
+            Map<String, Object> result = requestRecommendations(analysisId, sexinessPreference, limit, event);
+            outcome = "success";
+            event.success = true;
+            return result;
+        } finally {
+            event.commit();
+            pipelineMetrics.exit(PipelineMetrics.STAGE_RECOMMEND);
+            pipelineMetrics.stop(sample, "wardrobe.recommendations.generate", "outcome", outcome);
+        }
+    }
+
+    private Map<String, Object> requestRecommendations(String analysisId, String sexinessPreference, int limit,
+                                                       PipelineEvents.RecommendationEvent event) throws Exception {
         System.out.println("Calling AI Dress Recommendation service for analysis: " + analysisId);
         System.out.println("Sexiness preference: " + sexinessPreference);
         System.out.println("Limit: " + limit);
@@ -103,8 +170,34 @@ public class DressRecommendationService {
                     System.out.println("AI recommendation completed successfully");
                     System.out.println("Generated " + recommendationCount + " hot & sexy dress recommendations");
 
-                    // Log top recommendations
+                    // Persist the batch in one round trip (idempotent per analysis + dress)
                     JsonNode recommendations = responseNode.get("recommendations");
+                    event.candidateCount = recommendations != null ? recommendations.size() : 0;
+                    try {
+                        List<DressRecommendation> rows = toRecommendations(analysisId, recommendations);
+                        event.prunedCount = event.candidateCount - rows.size();
+                        if (!rows.isEmpty()) {
+                            event.userId = rows.get(0).getUserId();
+                        }
+                        int saved = saveRecommendations(rows);
+                        System.out.println("Saved " + saved + " recommendations for analysis: " + analysisId);
+                    } catch (Exception e) {
+                        System.err.println("Error saving dress recommendations: " + e.getMessage());
+                    }
+
+                    // What similar users liked, minus what the AI service already picked
+                    if (blendCount > 0 && event.userId != 0 && recommendations != null) {
+                        List<Integer> aiDressIds = new ArrayList<>();
+                        for (JsonNode item : recommendations) {
+                            if (item.hasNonNull("dress_id")) {
+                                aiDressIds.add(item.get("dress_id").asInt());
+                            }
+                        }
+                        result.put("collaborativeCandidates",
+                                collaborativeFilteringService.getCandidates(event.userId, blendCount, aiDressIds));
+                    }
+
+                    // Log top recommendations
                     if (recommendations.isArray() && recommendations.size() > 0) {
                         for (int i = 0; i < Math.min(3, recommendations.size()); i++) {
                             JsonNode dress = recommendations.get(i);
@@ -134,11 +227,92 @@ public class DressRecommendationService {
         }
     }
 
+    /**
+     * Bulk upsert generated recommendations (one statement per batch)
+     */
+    public int saveRecommendations(List<DressRecommendation> recommendations) {
+        int saved = dressRecommendationBulkWriter.upsert(recommendations);
+        List<Integer> dressIds = new ArrayList<>(recommendations.size());
+        Set<Long> userIds = new HashSet<>();
+        for (DressRecommendation rec : recommendations) {
+            dressIds.add(rec.getDressId());
+            userIds.add(rec.getUserId());
+        }
+        dressCounterAggregator.recordRecommendations(dressIds);
+        userIds.forEach(replicaRouting::recordWrite);
+        return saved;
+    }
+
+    /**
+     * Map the AI service response items to recommendation rows for the analysis owner
+     */
+    private List<DressRecommendation> toRecommendations(String analysisId, JsonNode items) {
+        List<DressRecommendation> result = new ArrayList<>();
+        if (items == null || !items.isArray() || items.size() == 0) {
+            return result;
+        }
+
+        Long userId = bodyAnalysisRepository.findByAnalysisId(analysisId)
+                .map(BodyAnalysis::getUserId)
+                .orElseThrow(() -> new RuntimeException("Analysis not found: " + analysisId));
+
+        for (JsonNode item : items) {
+            if (!item.hasNonNull("dress_id")) {
+                continue;
+            }
+            BigDecimal compatibility = decimal(item, "compatibility_score");
+            DressRecommendation rec = new DressRecommendation();
+            rec.setAnalysisId(analysisId);
+            rec.setUserId(userId);
+            rec.setDressId(item.get("dress_id").asInt());
+            rec.setCompatibilityScore(compatibility);
+            rec.setSexinessMatchScore(decimal(item, "sexiness_match_score"));
+            rec.setFitScore(decimal(item, "fit_score"));
+            rec.setStyleScore(decimal(item, "style_score"));
+            rec.setRecommendationReason(item.path("recommendation_reason").asText(null));
+            rec.setStyleTips(item.path("styling_tips").asText(null));
+            rec.setRecommendedBy("ai-transformer");
+            rec.setRecommendationConfidence(compatibility);
+            result.add(rec);
+        }
+        return result;
+    }
+
+    private static BigDecimal decimal(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value != null && value.isNumber() ? value.decimalValue() : null;
+    }
+
+    /**
+     * Validator for getUserDressRecommendations. Interactions still buffered in the event log
+     * are not in the response either, so the tag moves when they are flushed.
+     */
+    public String getUserRecommendationsETag(Long userId, int limit) {
+        VersionStamp stamp;
+        try (ReplicaRouting.Scope ignored = replicaRouting.readingFor(userId)) {
+            stamp = dressRecommendationRepository.getVersionStampByUserId(userId);
+        }
+        return ETags.weak("user-recommendations", userId, limit, stamp.getCount(), stamp.getLastUpdated(),
+                dressFragmentCache.getCatalogTag());
+    }
+
+    /**
+     * Validator for getRecommendationsByAnalysisId
+     */
+    public String getRecommendationsETag(String analysisId) {
+        VersionStamp stamp;
+        try (ReplicaRouting.Scope ignored = readingForOwnerOf(analysisId)) {
+            stamp = dressRecommendationRepository.getVersionStampByAnalysisId(analysisId);
+        }
+        return ETags.weak("recommendations", analysisId, stamp.getCount(), stamp.getLastUpdated(),
+                dressFragmentCache.getCatalogTag());
+    }
+
     /**
      * Get saved dress recommendations for a user
      */
     public Map<String, Object> getUserDressRecommendations(Long userId, int limit) {
-        try {
+        try (ReplicaRouting.Scope ignored = replicaRouting.readingFor(userId)) {
             List<DressRecommendation> recommendations = dressRecommendationRepository
                     .findByUserIdOrderByCreatedAtDesc(userId);
 
@@ -150,7 +324,7 @@ public class DressRecommendationService {
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("userId", userId);
-            result.put("recommendations", recommendations);
+            result.put("recommendations", dressFragmentCache.render(recommendations));
             result.put("totalCount", recommendations.size());
 
             // Calculate statistics
@@ -185,14 +359,14 @@ public class DressRecommendationService {
      * Get dress recommendations by analysis ID
      */
     public Map<String, Object> getRecommendationsByAnalysisId(String analysisId) {
-        try {
+        try (ReplicaRouting.Scope ignored = readingForOwnerOf(analysisId)) {
             List<DressRecommendation> recommendations = dressRecommendationRepository
                     .findByAnalysisIdOrderByCompatibilityScoreDesc(analysisId);
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
             result.put("analysisId", analysisId);
-            result.put("recommendations", recommendations);
+            result.put("recommendations", dressFragmentCache.render(recommendations));
             result.put("totalCount", recommendations.size());
 
             return result;
@@ -203,17 +377,25 @@ public class DressRecommendationService {
         }
     }
 
+    // Reads by analysis id must see its owner's latest recommendations, which saveRecommendations
+    // recorded as the owner's write; an analysis the replica doesn't have yet is read from the primary
+    private ReplicaRouting.Scope readingForOwnerOf(String analysisId) {
+        if (!replicaRouting.hasReplica()) {
+            return replicaRouting.readingFor(null);
+        }
+        return bodyAnalysisRepository.findUserIdByAnalysisId(analysisId)
+                .map(replicaRouting::readingFor)
+                .orElseGet(replicaRouting::onPrimary);
+    }
+
     /**
-     * Mark dress as favorite
+     * Mark dress as favorite (recorded through the interaction log, applied on the next flush)
      */
-    public Map<String, Object> markDressAsFavorite(Long recommendationId, boolean isFavorite) {
+    public Map<String, Object> markDressAsFavorite(Long recommendationId, Long userId, boolean isFavorite) {
         try {
-            DressRecommendation recommendation = dressRecommendationRepository
-                    .findById(recommendationId)
-                    .orElseThrow(() -> new RuntimeException("Recommendation not found"));
-
-            recommendation.setIsFavorite(isFavorite);
-            dressRecommendationRepository.save(recommendation);
+            requireOwnRecommendation(recommendationId, userId);
+            interactionEventLog.record(InteractionEventLog.InteractionEvent.of(recommendationId, userId,
+                    isFavorite ? InteractionEventLog.EventType.FAVORITE : InteractionEventLog.EventType.UNFAVORITE));
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -232,14 +414,11 @@ public class DressRecommendationService {
     /**
      * Mark dress as purchased
      */
-    public Map<String, Object> markDressAsPurchased(Long recommendationId) {
+    public Map<String, Object> markDressAsPurchased(Long recommendationId, Long userId) {
         try {
-            DressRecommendation recommendation = dressRecommendationRepository
-                    .findById(recommendationId)
-                    .orElseThrow(() -> new RuntimeException("Recommendation not found"));
-
-            recommendation.setIsPurchased(true);
-            dressRecommendationRepository.save(recommendation);
+            requireOwnRecommendation(recommendationId, userId);
+            interactionEventLog.record(InteractionEventLog.InteractionEvent.of(
+                    recommendationId, userId, InteractionEventLog.EventType.PURCHASE));
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -257,21 +436,15 @@ public class DressRecommendationService {
     /**
      * Rate a dress recommendation
      */
-    public Map<String, Object> rateDressRecommendation(Long recommendationId, int rating, String feedback) {
+    public Map<String, Object> rateDressRecommendation(Long recommendationId, Long userId, int rating, String feedback) {
         try {
             if (rating < 1 || rating > 5) {
                 throw new IllegalArgumentException("Rating must be between 1 and 5");
             }
 
-            DressRecommendation recommendation = dressRecommendationRepository
-                    .findById(recommendationId)
-                    .orElseThrow(() -> new RuntimeException("Recommendation not found"));
-
-            recommendation.setUserRating(rating);
-            if (feedback != null && !feedback.trim().isEmpty()) {
-                recommendation.setUserFeedback(feedback);
-            }
-            dressRecommendationRepository.save(recommendation);
+            requireOwnRecommendation(recommendationId, userId);
+            interactionEventLog.record(new InteractionEventLog.InteractionEvent(
+                    recommendationId, userId, InteractionEventLog.EventType.RATE, rating, feedback, null));
 
             Map<String, Object> result = new HashMap<>();
             result.put("success", true);
@@ -287,6 +460,30 @@ public class DressRecommendationService {
         }
     }
 
+    /**
+     * Recommendation ids among the given ones that belong to the user
+     */
+    public Set<Long> findOwnRecommendationIds(Long userId, Collection<Long> recommendationIds) {
+        if (recommendationIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        // On the primary: the user may be acting on recommendations generated a moment ago
+        try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+            return new HashSet<>(dressRecommendationRepository.findIdsOwnedBy(userId, recommendationIds));
+        }
+    }
+
+    // Other users' recommendations are reported as missing, not as forbidden
+    private void requireOwnRecommendation(Long recommendationId, Long userId) {
+        boolean owned;
+        try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+            owned = userId != null && dressRecommendationRepository.existsByRecommendationIdAndUserId(recommendationId, userId);
+        }
+        if (!owned) {
+            throw new RuntimeException("Recommendation not found");
+        }
+    }
+
     /**
      * Get service health status
      */
@@ -0,0 +1,199 @@
+package com.tryon.app.service;
+
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.DressFitProfile;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Java port of the rule-based scoring in the Python recommendation service
+ * (ML/transformers/dress_recommendation_service.py): fit, style and sexiness-match
+ * scores in 0..100, combined 40/35/25 into the compatibility score.
+ *
+ * Keep the tables and weights in sync with the Python service so both sides rank alike.
+ */
+@Component
+public class DressScorer {
+
+    public static final double DEFAULT_CHEST = 36.0;
+    public static final double DEFAULT_WAIST = 30.0;
+    public static final double DEFAULT_HIPS = 38.0;
+
+    /** Minimum compatibility for a dress to be recommended */
+    public static final double RECOMMENDATION_THRESHOLD = 60.0;
+
+    // Fallback the Python service returns when a dress is missing the data a score needs
+    private static final double FALLBACK_SCORE = 50.0;
+
+    private static final Map<String, BodyTypeRules> BODY_TYPES = Map.of(
+            "hourglass", new BodyTypeRules(
+                    Set.of("bodycon", "wrap", "fit-and-flare"),
+                    Set.of("curve-hugging", "waist-emphasizing", "form-fitting"),
+                    Set.of("V-neck", "sweetheart", "scoop")),
+            "pear", new BodyTypeRules(
+                    Set.of("A-line", "fit-and-flare", "empire"),
+                    Set.of("off-shoulder", "statement-sleeves", "embellished-top"),
+                    Set.of("boat-neck", "off-shoulder", "halter")),
+            "apple", new BodyTypeRules(
+                    Set.of("empire", "A-line", "wrap"),
+                    Set.of("plunging-neckline", "leg-emphasis", "flowing-silhouette"),
+                    Set.of("V-neck", "scoop", "cowl")),
+            "rectangle", new BodyTypeRules(
+                    Set.of("bodycon", "sheath", "wrap"),
+                    Set.of("curve-creating", "cut-outs", "side-slits"),
+                    Set.of("sweetheart", "strapless", "halter")),
+            "inverted_triangle", new BodyTypeRules(
+                    Set.of("A-line", "mermaid", "straight"),
+                    Set.of("hip-emphasis", "flowing-bottom", "dramatic-hemline"),
+                    Set.of("scoop", "square", "high-neck"))
+    );
+
+    private static final Map<String, Set<String>> SKIN_TONE_COLORS = Map.of(
+            "fair_cool", Set.of("navy", "emerald", "royal-blue", "black", "white", "silver"),
+            "fair_warm", Set.of("coral", "peach", "gold", "cream", "warm-brown", "orange"),
+            "fair_neutral", Set.of("pink", "lavender", "mint", "gray", "beige", "rose-gold"),
+            "medium_cool", Set.of("jewel-tones", "magenta", "purple", "black", "white", "gray"),
+            "medium_warm", Set.of("red", "orange", "yellow", "brown", "gold", "bronze"),
+            "medium_neutral", Set.of("teal", "burgundy", "forest-green", "navy", "camel"),
+            "deep_cool", Set.of("bright-white", "black", "royal-colors", "ice-colors", "silver"),
+            "deep_warm", Set.of("gold", "copper", "warm-reds", "orange", "yellow", "bronze"),
+            "deep_neutral", Set.of("earth-tones", "jewel-tones", "black", "white", "metallics")
+    );
+
+    private static final Set<String> HIGH_SEXINESS_FEATURES =
+            Set.of("backless", "low-cut", "thigh-high-slit", "see-through", "cut-outs");
+    private static final Set<String> MEDIUM_SEXINESS_FEATURES =
+            Set.of("side-slit", "off-shoulder", "lace-details", "form-fitting");
+
+    /**
+     * How well the dress ranges cover the user's chest, waist and hips (in inches).
+     * Each dimension loses 10 points per inch outside the range; weighted 40/40/20.
+     */
+    public double fitScore(double chest, double waist, double hips, Dress dress) {
+        return fitScore(DressFitProfile.toTenths(chest), DressFitProfile.toTenths(waist),
+                DressFitProfile.toTenths(hips), dress);
+    }
+
+    /**
+     * Allocation-free variant for catalog scans; measurements in tenths of an inch
+     */
+    public double fitScore(int chestTenths, int waistTenths, int hipsTenths, Dress dress) {
+        DressFitProfile profile = dress.getFitProfile();
+        if (profile == null) {
+            return FALLBACK_SCORE;
+        }
+        return profile.fitScore(chestTenths, waistTenths, hipsTenths);
+    }
+
+    /**
+     * Body type style/neckline match, flattering features, skin tone color match and a sexiness bonus
+     */
+    public double styleScore(String bodyType, String skinTone, Dress dress) {
+        if (dress.getSexinessScore() == null) {
+            return FALLBACK_SCORE;
+        }
+
+        // Without a body type or skin tone the Python scorer applies none of those rules; so do we
+        double score = 0;
+        BodyTypeRules rules = bodyType != null ? BODY_TYPES.get(bodyType) : null;
+        if (rules != null) {
+            if (dress.getDressStyle() != null && rules.recommendedStyles.contains(dress.getDressStyle())) {
+                score += 30;
+            }
+            if (dress.getNeckline() != null && rules.necklines.contains(dress.getNeckline())) {
+                score += 20;
+            }
+            score += matchingTags(dress.getHotnessTags(), rules.sexyFeatures) * 10;
+        }
+
+        Set<String> colors = skinTone != null ? SKIN_TONE_COLORS.get(skinTone) : null;
+        if (colors != null && dress.getPrimaryColor() != null && colors.contains(dress.getPrimaryColor())) {
+            score += 25;
+        }
+
+        if (dress.getSexinessScore() >= 8) {
+            score += 15;
+        }
+
+        return round2(clamp(score));
+    }
+
+    /**
+     * Match against the requested sexiness level ("high", anything else is treated as medium)
+     */
+    public double sexinessMatchScore(String preference, Dress dress) {
+        if (dress.getSexinessScore() == null) {
+            return FALLBACK_SCORE;
+        }
+
+        int sexiness = dress.getSexinessScore();
+        double total;
+        if ("high".equals(preference)) {
+            total = sexiness / 10.0 * 70 + matchingTags(dress.getHotnessTags(), HIGH_SEXINESS_FEATURES) * 10;
+        } else {
+            double base = Math.max(0, 100 - Math.abs(sexiness - 6) * 15);
+            total = base + matchingTags(dress.getHotnessTags(), MEDIUM_SEXINESS_FEATURES) * 5;
+        }
+        return round2(clamp(total));
+    }
+
+    public double compatibilityScore(double fitScore, double styleScore, double sexinessMatchScore) {
+        return round2(fitScore * 0.4 + styleScore * 0.35 + sexinessMatchScore * 0.25);
+    }
+
+    /**
+     * Full compatibility for one dress; measurements may omit any dimension
+     */
+    public double compatibilityScore(Map<String, ? extends Number> measurements, String bodyType,
+                                     String skinTone, String sexinessPreference, Dress dress) {
+        double fit = fitScore(
+                measurement(measurements, "chest", DEFAULT_CHEST),
+                measurement(measurements, "waist", DEFAULT_WAIST),
+                measurement(measurements, "hips", DEFAULT_HIPS),
+                dress);
+        return compatibilityScore(fit, styleScore(bodyType, skinTone, dress), sexinessMatchScore(sexinessPreference, dress));
+    }
+
+    // Distinct tags that appear in the feature set (set intersection size, as in the Python service)
+    private static int matchingTags(List<String> tags, Set<String> features) {
+        if (tags == null) {
+            return 0;
+        }
+        int matches = 0;
+        for (int i = 0; i < tags.size(); i++) {
+            String tag = tags.get(i);
+            if (tag != null && features.contains(tag) && tags.indexOf(tag) == i) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static double measurement(Map<String, ? extends Number> measurements, String key, double fallback) {
+        Number value = measurements != null ? measurements.get(key) : null;
+        return value != null ? value.doubleValue() : fallback;
+    }
+
+    private static double clamp(double score) {
+        return Math.min(100.0, Math.max(0.0, score));
+    }
+
+    private static double round2(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private static final class BodyTypeRules {
+        final Set<String> recommendedStyles;
+        final Set<String> sexyFeatures;
+        final Set<String> necklines;
+
+        BodyTypeRules(Set<String> recommendedStyles, Set<String> sexyFeatures, Set<String> necklines) {
+            this.recommendedStyles = recommendedStyles;
+            this.sexyFeatures = sexyFeatures;
+            this.necklines = necklines;
+        }
+    }
+}
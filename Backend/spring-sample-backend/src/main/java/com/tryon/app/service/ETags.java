@@ -0,0 +1,34 @@
+package com.tryon.app.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Weak entity tags derived from whatever versions a response (not its bytes), so a
+ * conditional GET can be answered with 304 before the body is built or compressed.
+ */
+public final class ETags {
+
+    // Bump when a response shape changes, so clients don't keep bodies of the old shape
+    private static final String FORMAT = "v1";
+
+    private ETags() {
+    }
+
+    public static String weak(Object... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        for (Object part : parts) {
+            digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+        String hash = HexFormat.of().formatHex(digest.digest(), 0, 8);
+        return "W/\"" + FORMAT + "-" + hash + "\"";
+    }
+}
@@ -0,0 +1,138 @@
+package com.tryon.app.service;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * On-demand Java Flight Recorder recordings, driven from the admin endpoints.
+ *
+ * At most one recording runs at a time. Every recording is bounded: it stops itself after
+ * its duration, and its on-disk buffer is capped by size. The JVM's "default" settings are
+ * used (the low-overhead profile meant for production) plus the pipeline events.
+ * Only the most recent dump is kept on disk.
+ */
+@Service
+public class FlightRecordingService {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecordingService.class);
+
+    private static final String PIPELINE_EVENTS = "com.tryon.app.";
+
+    @Value("${jfr.settings:default}")
+    private String settings;
+
+    @Value("${jfr.max-duration-seconds:900}")
+    private long maxDurationSeconds;
+
+    @Value("${jfr.max-size-mb:200}")
+    private long maxSizeMb;
+
+    @Value("${jfr.dump-dir:${java.io.tmpdir}}")
+    private String dumpDir;
+
+    private Recording recording;
+    private Path lastDump;
+
+    /**
+     * Start a recording; duration and size are clamped to the configured maximums
+     */
+    public synchronized Map<String, Object> start(long durationSeconds, long sizeMb) throws IOException, ParseException {
+        if (recording != null && recording.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("A recording is already running (id " + recording.getId() + ")");
+        }
+        closeRecording();
+
+        Recording r = new Recording(Configuration.getConfiguration(settings));
+        r.setName("wardrobe-on-demand");
+        r.setDuration(Duration.ofSeconds(clamp(durationSeconds, maxDurationSeconds)));
+        r.setMaxSize(clamp(sizeMb, maxSizeMb) * 1024 * 1024);
+        r.setToDisk(true);
+        r.enable(PIPELINE_EVENTS + "ImageUpload");
+        r.enable(PIPELINE_EVENTS + "MlAnalyzeCall");
+        r.enable(PIPELINE_EVENTS + "StandardizeAnalysis");
+        r.enable(PIPELINE_EVENTS + "PersistAnalysis");
+        r.enable(PIPELINE_EVENTS + "GenerateRecommendations");
+        r.start();
+        recording = r;
+
+        logger.info("Started flight recording {} for {}", r.getId(), r.getDuration());
+        return status();
+    }
+
+    /**
+     * Write what has been recorded so far to a file; the recording keeps running
+     */
+    public synchronized Path dump() throws IOException {
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            throw new IllegalStateException("No recording to dump");
+        }
+        Path file = Paths.get(dumpDir).resolve("wardrobe-" + recording.getId() + "-" + Instant.now().toEpochMilli() + ".jfr");
+        recording.dump(file);
+
+        if (lastDump != null && !lastDump.equals(file)) {
+            Files.deleteIfExists(lastDump);
+        }
+        lastDump = file;
+        logger.info("Dumped flight recording {} to {} ({} bytes)", recording.getId(), file, Files.size(file));
+        return file;
+    }
+
+    public synchronized Map<String, Object> stop() {
+        if (recording == null) {
+            throw new IllegalStateException("No recording to stop");
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+        }
+        return status();
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new HashMap<>();
+        if (recording == null) {
+            status.put("state", "NONE");
+            return status;
+        }
+        status.put("id", recording.getId());
+        status.put("state", recording.getState().name());
+        status.put("startTime", recording.getStartTime());
+        status.put("durationSeconds", recording.getDuration() != null ? recording.getDuration().getSeconds() : null);
+        status.put("maxSizeBytes", recording.getMaxSize());
+        status.put("recordedBytes", recording.getSize());
+        return status;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() throws IOException {
+        closeRecording();
+        if (lastDump != null) {
+            Files.deleteIfExists(lastDump);
+        }
+    }
+
+    private void closeRecording() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+
+    private static long clamp(long requested, long max) {
+        return requested <= 0 ? max : Math.min(requested, max);
+    }
+}
@@ -0,0 +1,470 @@
+package com.tryon.app.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * Hierarchical navigable small world graph (Malkov &amp; Yashunin) for approximate k-NN over
+ * unit-length float vectors, with cosine distance (1 - dot product).
+ *
+ * Vectors live in one flat float[] and adjacency in count-prefixed int[] per node and layer,
+ * so a search touches no boxed values. Removal is a tombstone: the node keeps routing
+ * searches but is never returned; callers rebuild once tombstones pile up. Replacing an id
+ * tombstones the old node and inserts a new one.
+ *
+ * Not thread-safe for writes. Concurrent searches are fine as long as no write runs at the
+ * same time; {@link SimilarDressService} guards this with a read/write lock.
+ */
+final class HnswIndex {
+
+    private final int dimension;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random;
+
+    private float[] vectors;
+    private int[] ids;
+    private int[][][] links; // node -> layer -> [count, neighbours...]
+    private boolean[] deleted;
+    private int size;
+    private int deletedCount;
+    private final Map<Integer, Integer> nodeById = new HashMap<>();
+
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    // Per-thread visited marks; a new generation per search avoids clearing the array
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    HnswIndex(int dimension, int m, int efConstruction, long seed) {
+        this.dimension = dimension;
+        this.m = m;
+        this.maxM0 = 2 * m;
+        this.efConstruction = Math.max(efConstruction, m);
+        this.levelMultiplier = 1 / Math.log(m);
+        this.random = new Random(seed);
+        int capacity = 1024;
+        this.vectors = new float[capacity * dimension];
+        this.ids = new int[capacity];
+        this.links = new int[capacity][][];
+        this.deleted = new boolean[capacity];
+    }
+
+    int size() {
+        return size - deletedCount;
+    }
+
+    int deletedCount() {
+        return deletedCount;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    boolean contains(int id) {
+        return nodeById.containsKey(id);
+    }
+
+    /**
+     * Copy of the vector stored for an id, or null
+     */
+    float[] vector(int id) {
+        Integer node = nodeById.get(id);
+        if (node == null) {
+            return null;
+        }
+        return Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+    }
+
+    void add(int id, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + vector.length);
+        }
+        remove(id);
+
+        int node = size;
+        ensureCapacity(node + 1);
+        System.arraycopy(vector, 0, vectors, node * dimension, dimension);
+        ids[node] = id;
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelMultiplier);
+        links[node] = new int[level + 1][];
+        for (int layer = 0; layer <= level; layer++) {
+            links[node][layer] = new int[maxNeighbours(layer) + 1];
+        }
+        size++;
+        nodeById.put(id, node);
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > level; layer--) {
+            current = greedyClosest(vector, current, layer);
+        }
+        NodeHeap entries = new NodeHeap(1, false);
+        entries.push(current, distance(vector, current));
+        for (int layer = Math.min(level, maxLevel); layer >= 0; layer--) {
+            NodeHeap found = searchLayer(vector, entries, efConstruction, layer);
+            int[] selected = selectNeighbours(found, m);
+            int[] own = links[node][layer];
+            for (int neighbour : selected) {
+                own[++own[0]] = neighbour;
+                connect(neighbour, node, layer);
+            }
+            entries = found;
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    void remove(int id) {
+        Integer node = nodeById.remove(id);
+        if (node != null && !deleted[node]) {
+            deleted[node] = true;
+            deletedCount++;
+        }
+    }
+
+    /**
+     * Up to k nearest live vectors accepted by the filter, closest first. ef (at least k) is
+     * the candidate list size: larger means better recall and slower queries.
+     */
+    List<Neighbour> search(float[] query, int k, int ef, IntPredicate accept) {
+        if (entryPoint < 0 || k <= 0) {
+            return new ArrayList<>();
+        }
+        int current = entryPoint;
+        for (int layer = maxLevel; layer > 0; layer--) {
+            current = greedyClosest(query, current, layer);
+        }
+        NodeHeap entries = new NodeHeap(1, false);
+        entries.push(current, distance(query, current));
+        NodeHeap found = searchLayer(query, entries, Math.max(ef, k), 0);
+
+        List<Neighbour> result = new ArrayList<>(k);
+        for (int i : found.sortedIndices()) {
+            int node = found.nodeAt(i);
+            if (deleted[node] || !accept.test(ids[node])) {
+                continue;
+            }
+            result.add(new Neighbour(ids[node], 1 - found.distanceAt(i)));
+            if (result.size() == k) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Exact k-NN by full scan; the reference for recall measurements
+     */
+    List<Neighbour> exactSearch(float[] query, int k, IntPredicate accept) {
+        NodeHeap best = new NodeHeap(k + 1, true);
+        for (int node = 0; node < size; node++) {
+            if (deleted[node] || !accept.test(ids[node])) {
+                continue;
+            }
+            float d = distance(query, node);
+            if (best.size() < k) {
+                best.push(node, d);
+            } else if (d < best.topDistance()) {
+                best.pop();
+                best.push(node, d);
+            }
+        }
+        List<Neighbour> result = new ArrayList<>(k);
+        for (int i : best.sortedIndices()) {
+            result.add(new Neighbour(ids[best.nodeAt(i)], 1 - best.distanceAt(i)));
+        }
+        return result;
+    }
+
+    private int greedyClosest(float[] query, int start, int layer) {
+        int current = start;
+        float currentDistance = distance(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float d = distance(query, neighbours[i]);
+                if (d < currentDistance) {
+                    currentDistance = d;
+                    current = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Beam search in one layer; returns up to ef closest nodes as a max-heap
+    private NodeHeap searchLayer(float[] query, NodeHeap entries, int ef, int layer) {
+        Visited seen = visited.get().next(size);
+        NodeHeap candidates = new NodeHeap(ef * 2, false);
+        NodeHeap results = new NodeHeap(ef + 1, true);
+        for (int i = 0; i < entries.size(); i++) {
+            int node = entries.nodeAt(i);
+            float d = entries.distanceAt(i);
+            seen.mark(node);
+            candidates.push(node, d);
+            results.push(node, d);
+        }
+        while (results.size() > ef) {
+            results.pop();
+        }
+
+        while (candidates.size() > 0) {
+            float closest = candidates.topDistance();
+            int node = candidates.pop();
+            if (closest > results.topDistance() && results.size() >= ef) {
+                break;
+            }
+            int[] neighbours = links[node][layer];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int next = neighbours[i];
+                if (!seen.mark(next)) {
+                    continue;
+                }
+                float d = distance(query, next);
+                if (results.size() < ef || d < results.topDistance()) {
+                    candidates.push(next, d);
+                    results.push(next, d);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Neighbour selection heuristic: take candidates closest first, skipping any that is closer
+     * to an already selected neighbour than to the base point, so links spread in different
+     * directions. Skipped candidates are dropped rather than used to fill up the list: lists
+     * then usually have room, and connect() rarely has to re-select.
+     */
+    private int[] selectNeighbours(NodeHeap candidates, int max) {
+        int[] order = candidates.sortedIndices();
+        int[] selected = new int[Math.min(max, order.length)];
+        if (order.length <= max) {
+            for (int i = 0; i < order.length; i++) {
+                selected[i] = candidates.nodeAt(order[i]);
+            }
+            return selected;
+        }
+        int count = 0;
+        for (int index : order) {
+            if (count == max) {
+                break;
+            }
+            int candidate = candidates.nodeAt(index);
+            float toBase = candidates.distanceAt(index);
+            boolean diverse = true;
+            for (int i = 0; i < count; i++) {
+                if (distanceBetween(candidate, selected[i]) < toBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = candidate;
+            }
+        }
+        return count == max ? selected : Arrays.copyOf(selected, count);
+    }
+
+    // Adds a link from `from` to `to`, re-selecting from's neighbours when the layer is full
+    private void connect(int from, int to, int layer) {
+        int[] neighbours = links[from][layer];
+        int max = maxNeighbours(layer);
+        if (neighbours[0] < max) {
+            neighbours[++neighbours[0]] = to;
+            return;
+        }
+        NodeHeap candidates = new NodeHeap(max + 1, true);
+        for (int i = 1; i <= neighbours[0]; i++) {
+            candidates.push(neighbours[i], distanceBetween(from, neighbours[i]));
+        }
+        candidates.push(to, distanceBetween(from, to));
+        int[] selected = selectNeighbours(candidates, max);
+        neighbours[0] = selected.length;
+        System.arraycopy(selected, 0, neighbours, 1, selected.length);
+    }
+
+    private int maxNeighbours(int layer) {
+        return layer == 0 ? maxM0 : m;
+    }
+
+    private float distance(float[] query, int node) {
+        int offset = node * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += query[i] * vectors[offset + i];
+        }
+        return 1 - dot;
+    }
+
+    private float distanceBetween(int a, int b) {
+        int offsetA = a * dimension;
+        int offsetB = b * dimension;
+        float dot = 0;
+        for (int i = 0; i < dimension; i++) {
+            dot += vectors[offsetA + i] * vectors[offsetB + i];
+        }
+        return 1 - dot;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length + (ids.length >> 1));
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        ids = Arrays.copyOf(ids, capacity);
+        links = Arrays.copyOf(links, capacity);
+        deleted = Arrays.copyOf(deleted, capacity);
+    }
+
+    record Neighbour(int id, float similarity) {
+    }
+
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int generation;
+
+        Visited next(int size) {
+            if (marks.length < size) {
+                marks = new int[Math.max(size, marks.length * 2)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+            return this;
+        }
+
+        // True the first time a node is seen in this generation
+        boolean mark(int node) {
+            if (marks[node] == generation) {
+                return false;
+            }
+            marks[node] = generation;
+            return true;
+        }
+    }
+
+    /**
+     * Binary heap of (node, distance) on primitive arrays; min- or max-ordered by distance
+     */
+    private static final class NodeHeap {
+        private int[] nodes;
+        private float[] distances;
+        private int size;
+        private final boolean max;
+
+        NodeHeap(int capacity, boolean max) {
+            this.nodes = new int[Math.max(capacity, 2)];
+            this.distances = new float[nodes.length];
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int nodeAt(int i) {
+            return nodes[i];
+        }
+
+        float distanceAt(int i) {
+            return distances[i];
+        }
+
+        float topDistance() {
+            return distances[0];
+        }
+
+        void push(int node, float distance) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                distances = Arrays.copyOf(distances, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(distance, distances[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                distances[i] = distances[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                float distance = distances[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && before(distances[child + 1], distances[child])) {
+                        child++;
+                    }
+                    if (!before(distances[child], distance)) {
+                        break;
+                    }
+                    nodes[i] = nodes[child];
+                    distances[i] = distances[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                distances[i] = distance;
+            }
+            return top;
+        }
+
+        // Heap slots ordered closest first (does not modify the heap). Sorts (distance, slot)
+        // packed into longs: the bits of a non-negative float order like the float itself.
+        int[] sortedIndices() {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) Float.floatToIntBits(Math.max(distances[i], 0f)) << 32) | i;
+            }
+            Arrays.sort(keys);
+            int[] sorted = new int[size];
+            for (int i = 0; i < size; i++) {
+                sorted[i] = (int) keys[i];
+            }
+            return sorted;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
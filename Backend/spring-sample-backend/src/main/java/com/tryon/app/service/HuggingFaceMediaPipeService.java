@@ -1,19 +1,32 @@
 package com.tryon.app.service;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.tryon.app.config.PipelineEvents;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.model.MlAnalysisResult;
+import com.tryon.app.model.MlAnalyzeRequest;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 
 @Service
 public class HuggingFaceMediaPipeService {
     private static final Logger logger = LoggerFactory.getLogger(HuggingFaceMediaPipeService.class);
 
+    // Thread-safe and stateless; parsers are created per response
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     @Value("${ml.service.huggingface.url}")
     private String mlServiceUrl;
 
@@ -21,50 +34,99 @@ public class HuggingFaceMediaPipeService {
     private boolean mlServiceEnabled;
 
     private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
 
     public HuggingFaceMediaPipeService() {
         this.restTemplate = new RestTemplate();
-        this.objectMapper = new ObjectMapper();
     }
 
-    public Map<String, Object> analyzeBodyImage(String imageUrl) {
+    public MlAnalysisResult analyzeBodyImage(String imageUrl) {
+        return analyzeBodyImage(imageUrl, null, null);
+    }
+
+    /**
+     * Analyze on behalf of an analysis; the ids only tag the flight recorder events
+     */
+    public MlAnalysisResult analyzeBodyImage(String imageUrl, String analysisId, Long userId) {
+        Timer.Sample sample = pipelineMetrics.start();
+        pipelineMetrics.enter(PipelineMetrics.STAGE_ANALYSIS);
+
+        PipelineEvents.MlCallEvent event = new PipelineEvents.MlCallEvent();
+        event.analysisId = analysisId;
+        event.userId = userId != null ? userId : 0L;
+        event.endpoint = mlServiceUrl + "/analyze-body";
+        event.begin();
+
+        byte[] body = null;
+        String error = null;
+        try {
+            body = callAnalyzeBody(imageUrl, event);
+        } catch (MlCallException e) {
+            error = e.getMessage();
+        } finally {
+            event.success = error == null;
+            event.commit();
+            pipelineMetrics.exit(PipelineMetrics.STAGE_ANALYSIS);
+            long nanos = pipelineMetrics.stop(sample, PipelineMetrics.ML_ANALYZE,
+                    "outcome", error == null ? "success" : "error");
+            // Failures count too: a timing-out ML service is exactly what admission control watches for
+            pipelineMetrics.recent(PipelineMetrics.ML_ANALYZE).record(nanos);
+        }
+        if (error != null) {
+            return MlAnalysisResult.failure(error);
+        }
+
+        PipelineEvents.StandardizeEvent standardizeEvent = new PipelineEvents.StandardizeEvent();
+        standardizeEvent.analysisId = analysisId;
+        standardizeEvent.userId = event.userId;
+        standardizeEvent.begin();
+        MlAnalysisResult result = standardizeAnalysisResult(body);
+        standardizeEvent.success = result.isSuccess();
+        standardizeEvent.commit();
+        return result;
+    }
+
+    // Raw response body on 200, otherwise MlCallException with the reason
+    private byte[] callAnalyzeBody(String imageUrl, PipelineEvents.MlCallEvent event) throws MlCallException {
         if (!mlServiceEnabled) {
             logger.warn("ML service is disabled");
-            return createErrorResponse("ML service is disabled");
+            throw new MlCallException("ML service is disabled");
         }
 
         try {
             // Prepare request
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, String> requestBody = new HashMap<>();
-            requestBody.put("image_url", imageUrl);
-
-            HttpEntity<Map<String, String>> request = new HttpEntity<>(requestBody, headers);
+            HttpEntity<MlAnalyzeRequest> request = new HttpEntity<>(new MlAnalyzeRequest(imageUrl), headers);
 
             // Call ML service
             logger.info("Calling ML service at: {}", mlServiceUrl + "/analyze-body");
-            ResponseEntity<Map> response = restTemplate.exchange(
+            ResponseEntity<byte[]> response = restTemplate.exchange(
                     mlServiceUrl + "/analyze-body",
                     HttpMethod.POST,
                     request,
-                    Map.class
+                    byte[].class
             );
+            event.httpStatus = response.getStatusCode().value();
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                logger.info("ML service response received successfully");
-                logger.debug("Raw ML response: {}", response.getBody());
+                logger.info("ML service response received successfully ({} bytes)", response.getBody().length);
                 return response.getBody();
             } else {
                 logger.error("ML service returned non-OK status: {}", response.getStatusCode());
-                return createErrorResponse("ML service returned error status: " + response.getStatusCode());
+                throw new MlCallException("ML service returned error status: " + response.getStatusCode());
             }
 
+        } catch (MlCallException e) {
+            throw e;
         } catch (Exception e) {
+            if (e instanceof HttpStatusCodeException) {
+                event.httpStatus = ((HttpStatusCodeException) e).getStatusCode().value();
+            }
             logger.error("Error calling ML service", e);
-            return createErrorResponse("Failed to analyze image: " + e.getMessage());
+            throw new MlCallException("Failed to analyze image: " + e.getMessage());
         }
     }
 
@@ -81,68 +143,129 @@ public class HuggingFaceMediaPipeService {
         }
     }
 
-    private Map<String, Object> createErrorResponse(String errorMessage) {
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("error", errorMessage);
-        errorResponse.put("status", "FAILED");
-        return errorResponse;
-    }
-
-    // Convert ML service response to standardized format
-    public Map<String, Object> standardizeAnalysisResult(Map<String, Object> mlResponse) {
-        Map<String, Object> standardized = new HashMap<>();
-
-        try {
-            logger.info("Standardizing ML response...");
-
-            // The ML service returns: { "success": true, "data": {...}, "cost": 0.0, "provider": "..." }
-            // We need to extract the actual data from the "data" field
-
-            Map<String, Object> dataToProcess = mlResponse;
-
-            // Check if response has a "data" field (which it should based on the Python service)
-            if (mlResponse.containsKey("data") && mlResponse.get("data") instanceof Map) {
-                dataToProcess = (Map<String, Object>) mlResponse.get("data");
-                logger.info("Extracted nested data object");
+    /**
+     * Convert the ML service response to the stored result in one streaming pass.
+     *
+     * The service returns { "success": true, "data": {...}, "cost": 0.0, "provider": "..." };
+     * older versions put the data fields at the top level, so both are accepted. The
+     * measurements object is sliced out of the body as raw JSON instead of being parsed.
+     */
+    public MlAnalysisResult standardizeAnalysisResult(byte[] body) {
+        Timer.Sample sample = pipelineMetrics.start();
+        MlAnalysisResult result;
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object");
             }
-
-            // Extract measurements
-            if (dataToProcess.containsKey("measurements")) {
-                standardized.put("measurements", dataToProcess.get("measurements"));
-                logger.info("Found measurements: {}", dataToProcess.get("measurements"));
+            ResponseFields fields = new ResponseFields();
+            readFields(parser, body, fields, true);
+            result = fields.toResult();
+            if (result.isSuccess()) {
+                logger.info("Standardized ML result: bodyType={}, skinTone={}, confidence={}",
+                        result.bodyType(), result.skinTone(), result.confidence());
             } else {
-                logger.warn("No measurements found in ML response data!");
-            }
-
-            // Extract skin tone
-            if (dataToProcess.containsKey("skinTone")) {
-                standardized.put("skinTone", dataToProcess.get("skinTone"));
-                logger.info("Found skinTone: {}", dataToProcess.get("skinTone"));
+                logger.warn("ML response not usable: {}", result.error());
             }
+        } catch (IOException e) {
+            logger.error("Error standardizing ML response", e);
+            result = MlAnalysisResult.failure("Failed to parse ML response: " + e.getMessage());
+        }
 
-            // Extract body type
-            if (dataToProcess.containsKey("bodyType")) {
-                standardized.put("bodyType", dataToProcess.get("bodyType"));
-                logger.info("Found bodyType: {}", dataToProcess.get("bodyType"));
-            }
+        pipelineMetrics.stop(sample, "wardrobe.ml.standardize",
+                "outcome", result.isSuccess() ? "success" : "error");
+        return result;
+    }
 
-            // Extract confidence
-            if (dataToProcess.containsKey("confidence")) {
-                standardized.put("confidence", dataToProcess.get("confidence"));
+    // Reads the fields of the current object; the parser is left on its END_OBJECT
+    private static void readFields(JsonParser parser, byte[] body, ResponseFields fields, boolean topLevel)
+            throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (name) {
+                case "measurements":
+                    if (value == JsonToken.START_OBJECT) {
+                        int start = (int) parser.getTokenLocation().getByteOffset();
+                        parser.skipChildren();
+                        int end = (int) parser.getCurrentLocation().getByteOffset();
+                        fields.measurementsJson = new String(body, start, end - start, StandardCharsets.UTF_8);
+                    }
+                    break;
+                case "skinTone":
+                    fields.skinTone = textOrNull(parser, value);
+                    break;
+                case "bodyType":
+                    fields.bodyType = textOrNull(parser, value);
+                    break;
+                case "confidence":
+                    fields.confidence = value.isNumeric() ? parser.getDoubleValue() : null;
+                    break;
+                case "processingTime":
+                    fields.processingTime = value.isScalarValue() ? parser.getValueAsString() : null;
+                    break;
+                case "data":
+                    if (topLevel && value == JsonToken.START_OBJECT) {
+                        readFields(parser, body, fields, false);
+                    } else {
+                        parser.skipChildren();
+                    }
+                    break;
+                case "success":
+                    if (topLevel && value == JsonToken.VALUE_FALSE) {
+                        fields.reportedFailure = true;
+                    }
+                    break;
+                case "error":
+                    if (topLevel) {
+                        fields.error = textOrNull(parser, value);
+                    }
+                    break;
+                case "provider":
+                    if (topLevel) {
+                        fields.provider = textOrNull(parser, value);
+                    }
+                    break;
+                case "cost":
+                    if (topLevel && value.isNumeric()) {
+                        fields.cost = parser.getDoubleValue();
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
             }
+        }
+    }
 
-            // Add metadata
-            standardized.put("provider", mlResponse.getOrDefault("provider", "huggingface-mediapipe"));
-            standardized.put("cost", mlResponse.getOrDefault("cost", 0.0));
-            standardized.put("processingTime", dataToProcess.getOrDefault("processingTime", "unknown"));
+    private static String textOrNull(JsonParser parser, JsonToken value) throws IOException {
+        return value == JsonToken.VALUE_STRING ? parser.getText() : null;
+    }
 
-            logger.info("Standardized result: {}", standardized);
+    private static final class ResponseFields {
+        String measurementsJson;
+        String skinTone;
+        String bodyType;
+        Double confidence;
+        String processingTime = "unknown";
+        String provider = "huggingface-mediapipe";
+        double cost;
+        String error;
+        boolean reportedFailure;
 
-        } catch (Exception e) {
-            logger.error("Error standardizing ML response", e);
-            standardized.put("error", "Failed to parse ML response: " + e.getMessage());
+        MlAnalysisResult toResult() {
+            if (error != null || reportedFailure) {
+                return MlAnalysisResult.failure(error != null ? error : "ML service reported failure");
+            }
+            if (measurementsJson == null) {
+                logger.warn("No measurements found in ML response data!");
+            }
+            return new MlAnalysisResult(measurementsJson, skinTone, bodyType, confidence,
+                    processingTime, provider, cost, null);
         }
+    }
 
-        return standardized;
+    private static final class MlCallException extends Exception {
+        MlCallException(String message) {
+            super(message);
+        }
     }
-}
\ No newline at end of file
+}
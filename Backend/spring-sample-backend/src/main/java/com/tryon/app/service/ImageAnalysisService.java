@@ -1,17 +1,28 @@
 package com.tryon.app.service;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.tryon.app.config.PipelineEvents;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.config.ReplicaRouting;
 import com.tryon.app.model.BodyAnalysis;
+import com.tryon.app.model.MlAnalysisResult;
+import com.tryon.app.repository.AnalysisJobQueue;
 import com.tryon.app.repository.BodyAnalysisRepository;
+import com.tryon.app.repository.VersionStamp;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 
 @Service
 public class ImageAnalysisService {
@@ -26,11 +37,36 @@ public class ImageAnalysisService {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    private volatile ObjectReader measurementsReader;
+
+    @Autowired
+    private AnalysisJobQueue analysisJobQueue;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ReplicaRouting replicaRouting;
+
     @Value("${ml.service.provider}")
     private String mlProvider;
 
+    @Value("${analysis.jobs.max-attempts:5}")
+    private int maxAttempts;
+
     @Transactional
     public String initiateAnalysis(Long userId, String imageUrl) {
+        return initiateAnalysis(userId, imageUrl, AnalysisJobQueue.PRIORITY_INTERACTIVE);
+    }
+
+    /**
+     * Record a PROCESSING analysis and queue its job at the given {@link AnalysisJobQueue} priority
+     */
+    @Transactional
+    public String initiateAnalysis(Long userId, String imageUrl, int priority) {
         try {
             // Generate unique analysis ID
             String analysisId = "ANALYSIS-" + UUID.randomUUID().toString();
@@ -46,8 +82,10 @@ public class ImageAnalysisService {
 
             bodyAnalysisRepository.save(analysis);
 
-            // Process asynchronously
-            CompletableFuture.runAsync(() -> processAnalysis(analysisId, imageUrl));
+            // Queued in the same transaction; any node's AnalysisJobWorker picks it up
+            analysisJobQueue.enqueue(analysisId, userId, imageUrl, priority, maxAttempts);
+            eventPublisher.publishEvent(new AnalysisJobWorker.JobQueued(analysisId));
+            replicaRouting.recordWrite(userId);
 
             return analysisId;
 
@@ -57,59 +95,66 @@ public class ImageAnalysisService {
         }
     }
 
-    private void processAnalysis(String analysisId, String imageUrl) {
-        try {
-            logger.info("Starting analysis for ID: {}", analysisId);
+    /**
+     * One attempt at an analysis job. Throws when the ML call fails, so the worker can retry;
+     * the analysis stays PROCESSING until it succeeds or the job runs out of attempts.
+     */
+    void runAnalysis(String analysisId, Long userId, String imageUrl) {
+        logger.info("Starting analysis for ID: {}", analysisId);
 
-            // Call ML service
-            Map<String, Object> mlResponse = mlService.analyzeBodyImage(imageUrl);
-
-            if (mlResponse.containsKey("error")) {
-                updateAnalysisWithError(analysisId, mlResponse.get("error").toString());
-                return;
-            }
+        // Call ML service (the response is standardized while it is parsed)
+        MlAnalysisResult result = mlService.analyzeBodyImage(imageUrl, analysisId, userId);
 
-            // Standardize response
-            Map<String, Object> standardized = mlService.standardizeAnalysisResult(mlResponse);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.error());
+        }
 
-            // Update database with results
-            updateAnalysisWithResults(analysisId, standardized);
+        // Update database with results; read-modify-write, so the read must see the latest row
+        try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+            updateAnalysisWithResults(analysisId, userId, result);
+        }
+        replicaRouting.recordWrite(userId);
+    }
 
-        } catch (Exception e) {
-            logger.error("Error processing analysis", e);
-            updateAnalysisWithError(analysisId, e.getMessage());
+    /**
+     * Final failure of an analysis job
+     */
+    void markFailed(String analysisId, String errorMessage) {
+        try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+            updateAnalysisWithError(analysisId, errorMessage);
         }
     }
 
     @Transactional
-    private void updateAnalysisWithResults(String analysisId, Map<String, Object> results) {
+    private void updateAnalysisWithResults(String analysisId, Long userId, MlAnalysisResult results) {
+        Timer.Sample sample = pipelineMetrics.start();
+        pipelineMetrics.enter(PipelineMetrics.STAGE_PERSIST);
+        String outcome = "error";
+
+        PipelineEvents.PersistEvent event = new PipelineEvents.PersistEvent();
+        event.analysisId = analysisId;
+        event.userId = userId != null ? userId : 0L;
+        event.begin();
         try {
             BodyAnalysis analysis = bodyAnalysisRepository.findByAnalysisId(analysisId)
                     .orElseThrow(() -> new RuntimeException("Analysis not found"));
 
             logger.info("Updating analysis {} with results", analysisId);
 
-            // Convert measurements to JSON string
-            if (results.containsKey("measurements") && results.get("measurements") != null) {
-                Object measurementsObj = results.get("measurements");
-                String measurementsJson = objectMapper.writeValueAsString(measurementsObj);
-                analysis.setMeasurements(measurementsJson);
-                logger.info("Saved measurements: {}", measurementsJson);
+            // Measurements are already the JSON text the service sent
+            if (results.measurementsJson() != null) {
+                analysis.setMeasurements(results.measurementsJson());
             } else {
                 logger.warn("No measurements found in results!");
-                // Log the entire results object to debug
-                logger.debug("Full results object: {}", results);
             }
 
             // Set other fields
-            if (results.containsKey("skinTone") && results.get("skinTone") != null) {
-                analysis.setSkinTone((String) results.get("skinTone"));
-                logger.info("Saved skinTone: {}", results.get("skinTone"));
+            if (results.skinTone() != null) {
+                analysis.setSkinTone(results.skinTone());
             }
 
-            if (results.containsKey("bodyType") && results.get("bodyType") != null) {
-                analysis.setBodyType((String) results.get("bodyType"));
-                logger.info("Saved bodyType: {}", results.get("bodyType"));
+            if (results.bodyType() != null) {
+                analysis.setBodyType(results.bodyType());
             }
 
             analysis.setStatus("COMPLETED");
@@ -117,10 +162,16 @@ public class ImageAnalysisService {
 
             bodyAnalysisRepository.save(analysis);
             logger.info("Analysis {} completed and saved successfully", analysisId);
+            outcome = "success";
+            event.success = true;
 
         } catch (Exception e) {
             logger.error("Failed to update analysis results", e);
             updateAnalysisWithError(analysisId, "Failed to save results: " + e.getMessage());
+        } finally {
+            event.commit();
+            pipelineMetrics.exit(PipelineMetrics.STAGE_PERSIST);
+            pipelineMetrics.stop(sample, "wardrobe.analysis.persist", "outcome", outcome);
         }
     }
 
@@ -135,6 +186,7 @@ public class ImageAnalysisService {
             analysis.setUpdatedAt(LocalDateTime.now());
 
             bodyAnalysisRepository.save(analysis);
+            replicaRouting.recordWrite(analysis.getUserId());
             logger.error("Analysis {} failed: {}", analysisId, errorMessage);
 
         } catch (Exception e) {
@@ -144,7 +196,7 @@ public class ImageAnalysisService {
 
     public Map<String, Object> getAnalysisStatus(String analysisId) {
         try {
-            BodyAnalysis analysis = bodyAnalysisRepository.findByAnalysisId(analysisId)
+            BodyAnalysis analysis = findAnalysis(analysisId)
                     .orElseThrow(() -> new RuntimeException("Analysis not found"));
 
             Map<String, Object> status = new HashMap<>();
@@ -157,10 +209,7 @@ public class ImageAnalysisService {
                 // Parse measurements from JSON string
                 if (analysis.getMeasurements() != null) {
                     try {
-                        Map<String, Object> measurements = objectMapper.readValue(
-                                analysis.getMeasurements(),
-                                Map.class
-                        );
+                        Map<String, Object> measurements = readMeasurements(analysis.getMeasurements());
                         status.put("measurements", measurements);
                     } catch (Exception e) {
                         logger.error("Failed to parse measurements JSON", e);
@@ -184,8 +233,46 @@ public class ImageAnalysisService {
         }
     }
 
+    // A replica may not have an analysis created moments ago, or its latest status, possibly written on
+    // another node: read it again on the primary when it's missing or its owner has an unreplayed write
+    private Optional<BodyAnalysis> findAnalysis(String analysisId) {
+        Optional<BodyAnalysis> analysis = bodyAnalysisRepository.findByAnalysisId(analysisId);
+        if (analysis.isPresent() && replicaRouting.isCurrentFor(analysis.get().getUserId())) {
+            return analysis;
+        }
+        try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+            return bodyAnalysisRepository.findByAnalysisId(analysisId);
+        }
+    }
+
+    // Measurements are stored as a JSON string in body_analysis.measurements
+    Map<String, Object> readMeasurements(String measurementsJson) throws JsonProcessingException {
+        return measurementsReader().readValue(measurementsJson);
+    }
+
+    // Built once from the shared mapper; ObjectReader is immutable and thread-safe
+    private ObjectReader measurementsReader() {
+        ObjectReader reader = measurementsReader;
+        if (reader == null) {
+            reader = objectMapper.readerFor(new TypeReference<Map<String, Object>>() {});
+            measurementsReader = reader;
+        }
+        return reader;
+    }
+
+    /**
+     * Validator for getAnalysisHistory: one aggregate query instead of loading the history
+     */
+    public String getAnalysisHistoryETag(Long userId) {
+        VersionStamp stamp;
+        try (ReplicaRouting.Scope ignored = replicaRouting.readingFor(userId)) {
+            stamp = bodyAnalysisRepository.getVersionStampByUserId(userId);
+        }
+        return ETags.weak("analysis-history", userId, stamp.getCount(), stamp.getLastUpdated());
+    }
+
     public List<Map<String, Object>> getAnalysisHistory(Long userId) {
-        try {
+        try (ReplicaRouting.Scope ignored = replicaRouting.readingFor(userId)) {
             List<BodyAnalysis> analyses = bodyAnalysisRepository.findByUserIdOrderByCreatedAtDesc(userId);
             List<Map<String, Object>> history = new ArrayList<>();
 
@@ -202,11 +289,7 @@ public class ImageAnalysisService {
                     // Optionally include measurements in history
                     if (analysis.getMeasurements() != null) {
                         try {
-                            Map<String, Object> measurements = objectMapper.readValue(
-                                    analysis.getMeasurements(),
-                                    Map.class
-                            );
-                            item.put("measurements", measurements);
+                            item.put("measurements", readMeasurements(analysis.getMeasurements()));
                         } catch (Exception e) {
                             logger.error("Failed to parse measurements for history", e);
                         }
@@ -224,6 +307,24 @@ public class ImageAnalysisService {
         }
     }
 
+    /**
+     * Feed the per-status analysis gauges; PROCESSING counts analyses in flight on every node
+     */
+    @Scheduled(fixedDelayString = "${metrics.analysis-status-interval-ms:15000}")
+    public void refreshStatusGauges() {
+        try {
+            Map<String, Long> counts = new HashMap<>();
+            for (BodyAnalysisRepository.StatusCount row : bodyAnalysisRepository.countByStatus()) {
+                if (row.getStatus() != null) {
+                    counts.put(row.getStatus(), row.getCount());
+                }
+            }
+            pipelineMetrics.setAnalysesByStatus(counts);
+        } catch (Exception e) {
+            logger.debug("Could not count analyses by status: {}", e.getMessage());
+        }
+    }
+
     public boolean checkMLServiceHealth() {
         return mlService.checkHealth();
     }
@@ -2,14 +2,20 @@ package com.tryon.app.service;
 
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.storage.*;
+import com.tryon.app.config.PipelineEvents;
+import com.tryon.app.config.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
@@ -17,7 +23,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class ImageProcessingService {
@@ -33,67 +45,161 @@ public class ImageProcessingService {
     @Value("${gcp.credentials.path:}")
     private String credentialsPath;
 
-    private Storage storage;
+    private volatile Storage storage;
 
-    @PostConstruct
-    public void init() {
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    /**
+     * Storage client lifecycle. Uploads wait while INITIALIZING, use GCS when READY and the
+     * local fallback when LOCAL (not configured) or FALLBACK (GCS still unreachable after
+     * max-attempts; retries carry on in the background and switch to READY on success).
+     */
+    public enum StorageState { INITIALIZING, READY, LOCAL, FALLBACK }
+
+    private static final String LOCAL_UPLOAD_DIR = "./uploads";
+
+    @Value("${gcp.init.max-attempts:8}")
+    private int maxInitAttempts;
+
+    @Value("${gcp.init.initial-backoff-ms:1000}")
+    private long initialBackoffMs;
+
+    @Value("${gcp.init.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    @Value("${gcp.init.upload-wait-ms:10000}")
+    private long uploadWaitMs;
+
+    @Value("${gcp.init.upload-queue-capacity:32}")
+    private int uploadQueueCapacity;
+
+    private volatile StorageState state = StorageState.INITIALIZING;
+    private volatile String lastInitError;
+    private final AtomicInteger initAttempts = new AtomicInteger();
+    private final CountDownLatch initialized = new CountDownLatch(1);
+    private Semaphore waitingUploads;
+    private ScheduledExecutorService initExecutor;
+
+    /**
+     * Create the storage client off the startup path: the credentials load and bucket check
+     * are network round trips, so they run after the context is up, retried with backoff.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInitialization() {
+        waitingUploads = new Semaphore(uploadQueueCapacity);
+        if (projectId.isEmpty() || bucketName.isEmpty()) {
+            logger.warn("GCP configuration not found. Using local storage mode.");
+            finishInitialization(StorageState.LOCAL);
+            return;
+        }
+
+        initExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "gcs-init");
+            t.setDaemon(true);
+            return t;
+        });
+        initExecutor.execute(this::attemptInitialization);
+    }
+
+    private void attemptInitialization() {
+        int attempt = initAttempts.incrementAndGet();
         try {
-            logger.info("=== GCP Storage Initialization ===");
+            logger.info("=== GCP Storage Initialization (attempt {}{}) ===", attempt,
+                    attempt <= maxInitAttempts ? "/" + maxInitAttempts : ", retrying in the background");
             logger.info("Project ID: {}", projectId);
             logger.info("Bucket Name: {}", bucketName);
             logger.info("Credentials Path: {}", credentialsPath);
 
-            // Skip GCP initialization if not configured
-            if (projectId.isEmpty() || bucketName.isEmpty()) {
-                logger.warn("GCP configuration not found. Using local storage mode.");
-                return;
-            }
-
-            // Initialize GCP Storage with credentials
-            StorageOptions.Builder optionsBuilder = StorageOptions.newBuilder()
-                    .setProjectId(projectId);
-
-            // Load credentials if path is specified
-            if (!credentialsPath.isEmpty()) {
-                try {
-                    ClassPathResource resource = new ClassPathResource(credentialsPath.replace("classpath:", ""));
-                    try (InputStream credentialsStream = resource.getInputStream()) {
-                        GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream);
-                        optionsBuilder.setCredentials(credentials);
-                        logger.info("GCP credentials loaded successfully from: {}", credentialsPath);
-                    }
-                } catch (Exception e) {
-                    logger.error("Failed to load GCP credentials from path: {}", credentialsPath, e);
-                    throw e;
-                }
-            } else {
-                logger.info("Using default GCP credentials");
-            }
-
-            storage = optionsBuilder.build().getService();
+            Storage client = createStorage();
 
             // Verify bucket exists
-            try {
-                Bucket bucket = storage.get(bucketName);
-                if (bucket == null) {
-                    logger.error("GCP bucket {} does not exist!", bucketName);
-                    storage = null;
-                    return;
-                } else {
-                    logger.info("GCP bucket {} found successfully", bucketName);
-                    logger.info("Bucket location: {}", bucket.getLocation());
-                    logger.info("Bucket storage class: {}", bucket.getStorageClass());
-                }
-            } catch (Exception e) {
-                logger.error("Could not verify bucket existence: {}", e.getMessage(), e);
-                storage = null;
-                return;
+            Bucket bucket = client.get(bucketName);
+            if (bucket == null) {
+                throw new IllegalStateException("GCP bucket " + bucketName + " does not exist");
             }
+            logger.info("GCP bucket {} found successfully", bucketName);
+            logger.info("Bucket location: {}", bucket.getLocation());
+            logger.info("Bucket storage class: {}", bucket.getStorageClass());
 
+            storage = client;
+            lastInitError = null;
+            finishInitialization(StorageState.READY);
             logger.info("=== GCP Storage initialized successfully ===");
         } catch (Exception e) {
-            logger.error("Failed to initialize GCP Storage", e);
-            storage = null;
+            lastInitError = e.getMessage();
+            if (attempt == maxInitAttempts) {
+                // Stop holding uploads, but keep trying: the outage may be over in a minute
+                logger.error("Failed to initialize GCP Storage after {} attempts, using local storage " +
+                        "and retrying in the background", attempt, e);
+                state = StorageState.FALLBACK;
+                initialized.countDown();
+            }
+            long backoff = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+            backoff += ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+            logger.warn("GCP Storage initialization attempt {} failed ({}), retrying in {} ms",
+                    attempt, e.getMessage(), backoff);
+            if (!initExecutor.isShutdown()) {
+                initExecutor.schedule(this::attemptInitialization, backoff, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private Storage createStorage() throws IOException {
+        StorageOptions.Builder optionsBuilder = StorageOptions.newBuilder()
+                .setProjectId(projectId);
+
+        // Load credentials if path is specified
+        if (!credentialsPath.isEmpty()) {
+            ClassPathResource resource = new ClassPathResource(credentialsPath.replace("classpath:", ""));
+            try (InputStream credentialsStream = resource.getInputStream()) {
+                GoogleCredentials credentials = GoogleCredentials.fromStream(credentialsStream);
+                optionsBuilder.setCredentials(credentials);
+                logger.info("GCP credentials loaded successfully from: {}", credentialsPath);
+            }
+        } else {
+            logger.info("Using default GCP credentials");
+        }
+        return optionsBuilder.build().getService();
+    }
+
+    // Terminal states only; FALLBACK keeps the retry executor running
+    private void finishInitialization(StorageState finalState) {
+        state = finalState;
+        initialized.countDown();
+        if (initExecutor != null) {
+            initExecutor.shutdown();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (initExecutor != null) {
+            initExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Hold an upload until initialization finishes; at most upload-queue-capacity uploads wait,
+     * each for at most upload-wait-ms
+     */
+    private void awaitStorage() throws IOException {
+        if (state != StorageState.INITIALIZING) {
+            return;
+        }
+        Semaphore queue = waitingUploads;
+        if (queue == null || !queue.tryAcquire()) {
+            throw new StorageNotReadyException("Storage is starting up and the upload queue is full");
+        }
+        try {
+            if (!initialized.await(uploadWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new StorageNotReadyException("Storage is still starting up");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StorageNotReadyException("Interrupted while waiting for storage");
+        } finally {
+            queue.release();
         }
     }
 
@@ -101,6 +207,39 @@ public class ImageProcessingService {
      * Upload image to GCP Cloud Storage
      */
     public String uploadImage(MultipartFile file, String folder) throws IOException {
+        return uploadImage(file, folder, null);
+    }
+
+    /**
+     * Upload on behalf of a user; the user id only tags the flight recorder event
+     */
+    public String uploadImage(MultipartFile file, String folder, Long userId) throws IOException {
+        Timer.Sample sample = pipelineMetrics.start();
+        pipelineMetrics.enter(PipelineMetrics.STAGE_UPLOAD);
+        String backend = "pending";
+        String outcome = "error";
+
+        PipelineEvents.UploadEvent event = new PipelineEvents.UploadEvent();
+        event.userId = userId != null ? userId : 0L;
+        event.folder = folder;
+        event.bytes = file.getSize();
+        event.begin();
+        try {
+            awaitStorage();
+            backend = storage == null ? "local" : "gcs";
+            event.backend = backend;
+            String url = storeImage(file, folder);
+            outcome = "success";
+            event.success = true;
+            return url;
+        } finally {
+            event.commit();
+            pipelineMetrics.exit(PipelineMetrics.STAGE_UPLOAD);
+            pipelineMetrics.stop(sample, "wardrobe.upload", "backend", backend, "outcome", outcome);
+        }
+    }
+
+    private String storeImage(MultipartFile file, String folder) throws IOException {
         logger.info("=== Starting Image Upload ===");
         logger.info("File name: {}", file.getOriginalFilename());
         logger.info("File size: {} bytes", file.getSize());
@@ -165,7 +304,7 @@ public class ImageProcessingService {
         try {
             logger.info("Saving file locally...");
             // Create local upload directory if it doesn't exist
-            Path uploadPath = Paths.get("./uploads", folder);
+            Path uploadPath = Paths.get(LOCAL_UPLOAD_DIR, folder);
             Files.createDirectories(uploadPath);
 
             // Save file
@@ -185,7 +324,7 @@ public class ImageProcessingService {
     /**
      * Validate uploaded file
      */
-    private void validateFile(MultipartFile file) throws IOException {
+    void validateFile(MultipartFile file) throws IOException {
         if (file == null || file.isEmpty()) {
             throw new IOException("File is empty");
         }
@@ -214,7 +353,7 @@ public class ImageProcessingService {
     /**
      * Generate unique file name
      */
-    private String generateFileName(String originalFilename) {
+    String generateFileName(String originalFilename) {
         String extension = getFileExtension(originalFilename);
         String timestamp = String.valueOf(System.currentTimeMillis());
         String uuid = UUID.randomUUID().toString().substring(0, 8);
@@ -256,4 +395,42 @@ public class ImageProcessingService {
     public boolean isStorageConfigured() {
         return storage != null;
     }
+
+    public StorageState getStorageState() {
+        return state;
+    }
+
+    /**
+     * Whether the local fallback directory can take uploads
+     */
+    public boolean isLocalStorageWritable() {
+        try {
+            Path uploadPath = Files.createDirectories(Paths.get(LOCAL_UPLOAD_DIR));
+            return Files.isWritable(uploadPath);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public int getInitAttempts() {
+        return initAttempts.get();
+    }
+
+    public String getLastInitError() {
+        return lastInitError;
+    }
+
+    public int getWaitingUploads() {
+        Semaphore queue = waitingUploads;
+        return queue != null ? uploadQueueCapacity - queue.availablePermits() : 0;
+    }
+
+    /**
+     * Upload rejected because storage initialization has not finished
+     */
+    public static class StorageNotReadyException extends IOException {
+        public StorageNotReadyException(String message) {
+            super(message);
+        }
+    }
 }
\ No newline at end of file
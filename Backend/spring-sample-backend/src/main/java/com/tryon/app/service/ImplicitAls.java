@@ -0,0 +1,287 @@
+package com.tryon.app.service;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Alternating least squares for implicit feedback (Hu, Koren &amp; Volinsky 2008).
+ *
+ * Every observed (user, dress, strength) becomes preference 1 with confidence
+ * 1 + alpha * strength; everything unobserved is preference 0 with confidence 1. Each half
+ * sweep solves one f x f system per row,
+ *   (YtY + Yt (Cu - I) Y + lambda I) xu = Yt Cu p(u),
+ * where YtY is shared by all rows, so a row costs O(nnz(u) f^2 + f^3). Rows are solved in
+ * parallel on a fork/join pool. Data is CSR on primitive arrays; factors are row-major float[].
+ */
+final class ImplicitAls {
+
+    // Rows per fork/join leaf
+    private static final int ROWS_PER_TASK = 128;
+
+    private ImplicitAls() {
+    }
+
+    record Params(int factors, int iterations, float regularization, float alpha, long seed) {
+    }
+
+    /**
+     * Trained factors: row r of users/items starts at r * factors
+     */
+    record Factors(int factors, float[] users, float[] items) {
+    }
+
+    /**
+     * Interaction strengths in compressed sparse rows, by user and by item
+     */
+    static final class Interactions {
+        final int users;
+        final int items;
+        final int[] userPtr;
+        final int[] userCols;
+        final float[] userValues;
+        final int[] itemPtr;
+        final int[] itemCols;
+        final float[] itemValues;
+
+        private Interactions(int users, int items, int[] userPtr, int[] userCols, float[] userValues,
+                             int[] itemPtr, int[] itemCols, float[] itemValues) {
+            this.users = users;
+            this.items = items;
+            this.userPtr = userPtr;
+            this.userCols = userCols;
+            this.userValues = userValues;
+            this.itemPtr = itemPtr;
+            this.itemCols = itemCols;
+            this.itemValues = itemValues;
+        }
+
+        /**
+         * From the first n (user, item, strength) triplets; each pair must appear at most once
+         */
+        static Interactions of(int users, int items, int[] u, int[] i, float[] strength, int n) {
+            int[] userPtr = new int[users + 1];
+            int[] userCols = new int[n];
+            float[] userValues = new float[n];
+            int[] itemPtr = new int[items + 1];
+            int[] itemCols = new int[n];
+            float[] itemValues = new float[n];
+            scatter(u, i, strength, n, userPtr, userCols, userValues);
+            scatter(i, u, strength, n, itemPtr, itemCols, itemValues);
+            return new Interactions(users, items, userPtr, userCols, userValues, itemPtr, itemCols, itemValues);
+        }
+
+        int size() {
+            return userCols.length;
+        }
+
+        // Counting sort of the triplets by row into CSR
+        private static void scatter(int[] rows, int[] cols, float[] values, int n,
+                                    int[] ptr, int[] outCols, float[] outValues) {
+            for (int k = 0; k < n; k++) {
+                ptr[rows[k] + 1]++;
+            }
+            for (int r = 0; r + 1 < ptr.length; r++) {
+                ptr[r + 1] += ptr[r];
+            }
+            int[] fill = new int[ptr.length - 1];
+            for (int k = 0; k < n; k++) {
+                int at = ptr[rows[k]] + fill[rows[k]]++;
+                outCols[at] = cols[k];
+                outValues[at] = values[k];
+            }
+        }
+    }
+
+    static Factors train(Interactions data, Params params, ForkJoinPool pool) {
+        int f = params.factors();
+        float[] users = new float[data.users * f];
+        float[] items = new float[data.items * f];
+        Random random = new Random(params.seed());
+        for (int k = 0; k < items.length; k++) {
+            items[k] = (float) (random.nextGaussian() * 0.01);
+        }
+
+        for (int iteration = 0; iteration < params.iterations(); iteration++) {
+            solve(users, items, data.users, data.items, data.userPtr, data.userCols, data.userValues, params, pool);
+            solve(items, users, data.items, data.users, data.itemPtr, data.itemCols, data.itemValues, params, pool);
+        }
+        return new Factors(f, users, items);
+    }
+
+    // Recompute every row of target with fixed held constant
+    private static void solve(float[] target, float[] fixed, int targetRows, int fixedRows,
+                              int[] ptr, int[] cols, float[] values, Params params, ForkJoinPool pool) {
+        int f = params.factors();
+        double[] gram = pool.invoke(new GramTask(fixed, f, 0, fixedRows));
+        pool.invoke(new SolveTask(target, fixed, gram, ptr, cols, values, params, 0, targetRows));
+    }
+
+    /**
+     * YtY as a row-major f x f matrix, summed over row ranges in parallel
+     */
+    private static final class GramTask extends RecursiveTask<double[]> {
+        private final float[] m;
+        private final int f;
+        private final int from;
+        private final int to;
+
+        GramTask(float[] m, int f, int from, int to) {
+            this.m = m;
+            this.f = f;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from > ROWS_PER_TASK * 8) {
+                int mid = (from + to) >>> 1;
+                GramTask left = new GramTask(m, f, from, mid);
+                left.fork();
+                double[] right = new GramTask(m, f, mid, to).compute();
+                double[] sum = left.join();
+                for (int k = 0; k < sum.length; k++) {
+                    sum[k] += right[k];
+                }
+                return sum;
+            }
+            double[] gram = new double[f * f];
+            for (int r = from; r < to; r++) {
+                int o = r * f;
+                for (int a = 0; a < f; a++) {
+                    double va = m[o + a];
+                    if (va == 0) {
+                        continue;
+                    }
+                    int ga = a * f;
+                    for (int b = a; b < f; b++) {
+                        gram[ga + b] += va * m[o + b];
+                    }
+                }
+            }
+            // Only the upper triangle was accumulated
+            for (int a = 0; a < f; a++) {
+                for (int b = 0; b < a; b++) {
+                    gram[a * f + b] = gram[b * f + a];
+                }
+            }
+            return gram;
+        }
+    }
+
+    private static final class SolveTask extends RecursiveAction {
+        private final float[] target;
+        private final float[] fixed;
+        private final double[] gram;
+        private final int[] ptr;
+        private final int[] cols;
+        private final float[] values;
+        private final Params params;
+        private final int from;
+        private final int to;
+
+        SolveTask(float[] target, float[] fixed, double[] gram, int[] ptr, int[] cols, float[] values,
+                  Params params, int from, int to) {
+            this.target = target;
+            this.fixed = fixed;
+            this.gram = gram;
+            this.ptr = ptr;
+            this.cols = cols;
+            this.values = values;
+            this.params = params;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SolveTask(target, fixed, gram, ptr, cols, values, params, from, mid),
+                        new SolveTask(target, fixed, gram, ptr, cols, values, params, mid, to));
+                return;
+            }
+
+            int f = params.factors();
+            double alpha = params.alpha();
+            double lambda = params.regularization();
+            double[] a = new double[f * f];
+            double[] b = new double[f];
+            for (int row = from; row < to; row++) {
+                int o = row * f;
+                if (ptr[row] == ptr[row + 1]) {
+                    // No interactions: the regularized solution is zero
+                    for (int k = 0; k < f; k++) {
+                        target[o + k] = 0f;
+                    }
+                    continue;
+                }
+
+                System.arraycopy(gram, 0, a, 0, a.length);
+                for (int k = 0; k < f; k++) {
+                    a[k * f + k] += lambda;
+                    b[k] = 0;
+                }
+                for (int p = ptr[row]; p < ptr[row + 1]; p++) {
+                    int y = cols[p] * f;
+                    double confidence = 1 + alpha * values[p];
+                    double extra = confidence - 1;
+                    for (int i = 0; i < f; i++) {
+                        double yi = fixed[y + i];
+                        b[i] += confidence * yi;
+                        double s = extra * yi;
+                        int ai = i * f;
+                        for (int j = i; j < f; j++) {
+                            a[ai + j] += s * fixed[y + j];
+                        }
+                    }
+                }
+                choleskySolve(a, b, f);
+                for (int k = 0; k < f; k++) {
+                    target[o + k] = (float) b[k];
+                }
+            }
+        }
+    }
+
+    /**
+     * Solves A x = b in place (x returned in b) for symmetric positive definite A, of which
+     * only the upper triangle is read. A is overwritten with its factor.
+     */
+    static void choleskySolve(double[] a, double[] b, int n) {
+        // A = Lt L with L lower triangular, stored in the lower triangle of a
+        for (int j = 0; j < n; j++) {
+            double d = a[j * n + j];
+            for (int k = 0; k < j; k++) {
+                d -= a[j * n + k] * a[j * n + k];
+            }
+            d = Math.sqrt(Math.max(d, 1e-12));
+            a[j * n + j] = d;
+            for (int i = j + 1; i < n; i++) {
+                double s = a[j * n + i]; // upper triangle holds A[j][i] = A[i][j]
+                for (int k = 0; k < j; k++) {
+                    s -= a[i * n + k] * a[j * n + k];
+                }
+                a[i * n + j] = s / d;
+            }
+        }
+        // Forward: L z = b
+        for (int i = 0; i < n; i++) {
+            double s = b[i];
+            for (int k = 0; k < i; k++) {
+                s -= a[i * n + k] * b[k];
+            }
+            b[i] = s / a[i * n + i];
+        }
+        // Back: Lt x = z
+        for (int i = n - 1; i >= 0; i--) {
+            double s = b[i];
+            for (int k = i + 1; k < n; k++) {
+                s -= a[k * n + i] * b[k];
+            }
+            b[i] = s / a[i * n + i];
+        }
+    }
+}
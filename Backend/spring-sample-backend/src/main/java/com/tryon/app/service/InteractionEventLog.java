@@ -0,0 +1,380 @@
+package com.tryon.app.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Buffered, append-only log of user interactions with recommendations.
+ *
+ * Clicks (view, favorite, rate, purchase) are appended to a bounded in-memory ring buffer
+ * and written in batches: the raw events go to wardrobe.dress_interaction_events, the
+ * collapsed per-recommendation state is applied to dress_recommendations in one UPDATE, and
+ * Dress.avgRating is maintained incrementally from running rating totals. A batch costs a
+ * handful of statements no matter how many clicks it holds.
+ */
+@Service
+public class InteractionEventLog {
+    private static final Logger logger = LoggerFactory.getLogger(InteractionEventLog.class);
+
+    public enum EventType { VIEW, FAVORITE, UNFAVORITE, RATE, PURCHASE }
+
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private static final String INSERT_EVENTS_SQL =
+            "INSERT INTO wardrobe.dress_interaction_events " +
+            "(recommendation_id, user_id, event_type, rating, feedback, occurred_at) " +
+            "SELECT * FROM unnest(?::bigint[], ?::bigint[], ?::varchar[], ?::integer[], ?::text[], ?::timestamp[])";
+
+    // The locked subquery reads the pre-update row, so RETURNING carries old and new values.
+    // Rows only change for the user who owns them; events for anyone else's ids match nothing.
+    private static final String APPLY_STATE_SQL =
+            "UPDATE wardrobe.dress_recommendations dr SET " +
+            "is_favorite = COALESCE(x.favorite, dr.is_favorite), " +
+            "is_viewed = COALESCE(dr.is_viewed, false) OR x.views > 0, " +
+            "is_purchased = COALESCE(dr.is_purchased, false) OR x.purchased, " +
+            "user_rating = COALESCE(x.rating, dr.user_rating), " +
+            "user_feedback = COALESCE(x.feedback, dr.user_feedback) " +
+            "FROM (SELECT v.*, old.user_rating AS old_rating, COALESCE(old.is_purchased, false) AS old_purchased " +
+            "FROM unnest(?::bigint[], ?::bigint[], ?::boolean[], ?::integer[], ?::boolean[], ?::integer[], ?::text[]) " +
+            "AS v(recommendation_id, user_id, favorite, views, purchased, rating, feedback) " +
+            "JOIN wardrobe.dress_recommendations old " +
+            "ON old.recommendation_id = v.recommendation_id AND old.user_id = v.user_id " +
+            "FOR UPDATE OF old) x " +
+            "WHERE dr.recommendation_id = x.recommendation_id AND dr.user_id = x.user_id " +
+            "RETURNING dr.dress_id, x.views, x.old_purchased, dr.is_purchased, x.old_rating, dr.user_rating";
+
+    private static final String APPLY_RATINGS_SQL =
+            "UPDATE wardrobe.dresses d SET " +
+            "rating_sum = COALESCE(d.rating_sum, 0) + v.sum_delta, " +
+            "rating_count = COALESCE(d.rating_count, 0) + v.count_delta, " +
+            "avg_rating = CASE WHEN COALESCE(d.rating_count, 0) + v.count_delta > 0 " +
+            "THEN ROUND((COALESCE(d.rating_sum, 0) + v.sum_delta)::numeric / (COALESCE(d.rating_count, 0) + v.count_delta), 2) " +
+            "END " +
+            "FROM unnest(?::integer[], ?::bigint[], ?::integer[]) AS v(dress_id, sum_delta, count_delta) " +
+            "WHERE d.dress_id = v.dress_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DressCounterAggregator dressCounterAggregator;
+    private final BlockingQueue<InteractionEvent> buffer;
+
+    private List<InteractionEvent> failedBatch = new ArrayList<>();
+    private int failedAttempts;
+
+    @Value("${interactions.flush-batch-size:2000}")
+    private int batchSize;
+
+    public InteractionEventLog(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               DressCounterAggregator dressCounterAggregator,
+                               @Value("${interactions.buffer-capacity:65536}") int bufferCapacity) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.dressCounterAggregator = dressCounterAggregator;
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+    }
+
+    /**
+     * Append an event. When the buffer is full the caller flushes it first (backpressure).
+     */
+    public void record(InteractionEvent event) {
+        validate(event);
+        while (!buffer.offer(event)) {
+            flush();
+        }
+    }
+
+    public void recordAll(List<InteractionEvent> events) {
+        for (InteractionEvent event : events) {
+            validate(event);
+        }
+        for (InteractionEvent event : events) {
+            while (!buffer.offer(event)) {
+                flush();
+            }
+        }
+    }
+
+    public int pendingEvents() {
+        return buffer.size() + failedBatch.size();
+    }
+
+    /**
+     * Drain the buffer in batches. Returns the number of events written.
+     */
+    @Scheduled(fixedDelayString = "${interactions.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        int written = 0;
+
+        if (!failedBatch.isEmpty()) {
+            if (!writeBatch(failedBatch)) {
+                return 0;
+            }
+            written += failedBatch.size();
+            failedBatch = new ArrayList<>();
+        }
+
+        List<InteractionEvent> batch = new ArrayList<>(batchSize);
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            if (!writeBatch(batch)) {
+                failedBatch = batch;
+                break;
+            }
+            written += batch.size();
+            batch = new ArrayList<>(batchSize);
+        }
+        return written;
+    }
+
+    @PreDestroy
+    public void drain() {
+        int written = flush();
+        logger.info("Drained interaction log on shutdown ({} events, {} left)", written, pendingEvents());
+    }
+
+    private boolean writeBatch(List<InteractionEvent> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                insertEvents(batch);
+                List<Object[]> dressEffects = applyState(batch);
+                applyRatings(dressEffects);
+                // The counters aren't transactional: feed them only once the batch can't be retried
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        recordCounters(dressEffects);
+                    }
+                });
+            });
+            failedAttempts = 0;
+            return true;
+        } catch (Exception e) {
+            failedAttempts++;
+            if (failedAttempts >= MAX_FLUSH_ATTEMPTS) {
+                logger.error("Dropping {} interaction events after {} failed flushes", batch.size(), failedAttempts, e);
+                failedAttempts = 0;
+                return true;
+            }
+            logger.warn("Interaction flush failed (attempt {}), will retry: {}", failedAttempts, e.getMessage());
+            return false;
+        }
+    }
+
+    private void insertEvents(List<InteractionEvent> batch) {
+        int size = batch.size();
+        Long[] recommendationIds = new Long[size];
+        Long[] userIds = new Long[size];
+        String[] types = new String[size];
+        Integer[] ratings = new Integer[size];
+        String[] feedback = new String[size];
+        Timestamp[] occurredAt = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            InteractionEvent e = batch.get(i);
+            recommendationIds[i] = e.getRecommendationId();
+            userIds[i] = e.getUserId();
+            types[i] = e.getType().name();
+            ratings[i] = e.getRating();
+            feedback[i] = e.getFeedback();
+            occurredAt[i] = Timestamp.valueOf(e.getOccurredAt());
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_EVENTS_SQL);
+            ps.setArray(1, con.createArrayOf("int8", recommendationIds));
+            ps.setArray(2, con.createArrayOf("int8", userIds));
+            ps.setArray(3, con.createArrayOf("varchar", types));
+            ps.setArray(4, con.createArrayOf("int4", ratings));
+            ps.setArray(5, con.createArrayOf("text", feedback));
+            ps.setArray(6, con.createArrayOf("timestamp", occurredAt));
+            return ps;
+        });
+    }
+
+    /**
+     * Collapse events per recommendation (in event order) and apply them in one UPDATE.
+     * Returns rows of {dressId, views, oldPurchased, newPurchased, oldRating, newRating}.
+     */
+    private List<Object[]> applyState(List<InteractionEvent> batch) {
+        Map<StateKey, CollapsedState> states = new LinkedHashMap<>();
+        for (InteractionEvent e : batch) {
+            CollapsedState state = states.computeIfAbsent(
+                    new StateKey(e.getRecommendationId(), e.getUserId()), key -> new CollapsedState());
+            switch (e.getType()) {
+                case VIEW: state.views++; break;
+                case FAVORITE: state.favorite = Boolean.TRUE; break;
+                case UNFAVORITE: state.favorite = Boolean.FALSE; break;
+                case PURCHASE: state.purchased = true; break;
+                case RATE:
+                    state.rating = e.getRating();
+                    if (e.getFeedback() != null && !e.getFeedback().trim().isEmpty()) {
+                        state.feedback = e.getFeedback();
+                    }
+                    break;
+            }
+        }
+
+        int size = states.size();
+        Long[] ids = new Long[size];
+        Long[] userIds = new Long[size];
+        Boolean[] favorites = new Boolean[size];
+        Integer[] views = new Integer[size];
+        Boolean[] purchased = new Boolean[size];
+        Integer[] ratings = new Integer[size];
+        String[] feedback = new String[size];
+        int i = 0;
+        for (Map.Entry<StateKey, CollapsedState> entry : states.entrySet()) {
+            CollapsedState state = entry.getValue();
+            ids[i] = entry.getKey().recommendationId();
+            userIds[i] = entry.getKey().userId();
+            favorites[i] = state.favorite;
+            views[i] = state.views;
+            purchased[i] = state.purchased;
+            ratings[i] = state.rating;
+            feedback[i] = state.feedback;
+            i++;
+        }
+
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(APPLY_STATE_SQL);
+            ps.setArray(1, con.createArrayOf("int8", ids));
+            ps.setArray(2, con.createArrayOf("int8", userIds));
+            ps.setArray(3, con.createArrayOf("bool", favorites));
+            ps.setArray(4, con.createArrayOf("int4", views));
+            ps.setArray(5, con.createArrayOf("bool", purchased));
+            ps.setArray(6, con.createArrayOf("int4", ratings));
+            ps.setArray(7, con.createArrayOf("text", feedback));
+            return ps;
+        }, (rs, rowNum) -> new Object[]{
+                rs.getInt(1),
+                rs.getInt(2),
+                rs.getBoolean(3),
+                rs.getBoolean(4),
+                (Integer) rs.getObject(5),
+                (Integer) rs.getObject(6)
+        });
+    }
+
+    /**
+     * Hand the views and first purchases of a committed batch to the dress counters
+     */
+    private void recordCounters(List<Object[]> rows) {
+        for (Object[] row : rows) {
+            Integer dressId = (Integer) row[0];
+            dressCounterAggregator.recordViews(dressId, (Integer) row[1]);
+            if (!(Boolean) row[2] && (Boolean) row[3]) {
+                dressCounterAggregator.recordPurchase(dressId);
+            }
+        }
+    }
+
+    /**
+     * Fold the rating changes into the dress aggregates, in the batch's transaction
+     */
+    private void applyRatings(List<Object[]> rows) {
+        Map<Integer, long[]> ratingDeltas = new HashMap<>();
+        for (Object[] row : rows) {
+            Integer dressId = (Integer) row[0];
+            Integer oldRating = (Integer) row[4];
+            Integer newRating = (Integer) row[5];
+            if (newRating != null && !newRating.equals(oldRating)) {
+                long[] delta = ratingDeltas.computeIfAbsent(dressId, id -> new long[2]);
+                delta[0] += newRating - (oldRating != null ? oldRating : 0);
+                delta[1] += oldRating == null ? 1 : 0;
+            }
+        }
+
+        if (ratingDeltas.isEmpty()) {
+            return;
+        }
+
+        Integer[] dressIds = ratingDeltas.keySet().toArray(new Integer[0]);
+        Long[] sumDeltas = new Long[dressIds.length];
+        Integer[] countDeltas = new Integer[dressIds.length];
+        for (int i = 0; i < dressIds.length; i++) {
+            long[] delta = ratingDeltas.get(dressIds[i]);
+            sumDeltas[i] = delta[0];
+            countDeltas[i] = (int) delta[1];
+        }
+
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(APPLY_RATINGS_SQL);
+            ps.setArray(1, con.createArrayOf("int4", dressIds));
+            ps.setArray(2, con.createArrayOf("int8", sumDeltas));
+            ps.setArray(3, con.createArrayOf("int4", countDeltas));
+            return ps;
+        });
+    }
+
+    private static void validate(InteractionEvent event) {
+        if (event.getRecommendationId() == null || event.getUserId() == null || event.getType() == null) {
+            throw new IllegalArgumentException("recommendationId, userId and type are required");
+        }
+        if (event.getType() == EventType.RATE &&
+                (event.getRating() == null || event.getRating() < 1 || event.getRating() > 5)) {
+            throw new IllegalArgumentException("Rating must be between 1 and 5");
+        }
+    }
+
+    private record StateKey(Long recommendationId, Long userId) {
+    }
+
+    private static final class CollapsedState {
+        Boolean favorite;
+        int views;
+        boolean purchased;
+        Integer rating;
+        String feedback;
+    }
+
+    /**
+     * One user interaction with a recommendation
+     */
+    public static final class InteractionEvent {
+        private final Long recommendationId;
+        private final Long userId;
+        private final EventType type;
+        private final Integer rating;
+        private final String feedback;
+        private final LocalDateTime occurredAt;
+
+        public InteractionEvent(Long recommendationId, Long userId, EventType type,
+                                Integer rating, String feedback, LocalDateTime occurredAt) {
+            this.recommendationId = recommendationId;
+            this.userId = userId;
+            this.type = type;
+            this.rating = rating;
+            this.feedback = feedback;
+            this.occurredAt = occurredAt != null ? occurredAt : LocalDateTime.now();
+        }
+
+        public static InteractionEvent of(Long recommendationId, Long userId, EventType type) {
+            return new InteractionEvent(recommendationId, userId, type, null, null, null);
+        }
+
+        public Long getRecommendationId() { return recommendationId; }
+        public Long getUserId() { return userId; }
+        public EventType getType() { return type; }
+        public Integer getRating() { return rating; }
+        public String getFeedback() { return feedback; }
+        public LocalDateTime getOccurredAt() { return occurredAt; }
+    }
+}
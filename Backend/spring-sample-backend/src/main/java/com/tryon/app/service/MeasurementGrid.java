@@ -0,0 +1,140 @@
+package com.tryon.app.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over (chest, waist, hips) of completed body analyses, for finding everyone
+ * whose measurements fall inside a box, such as a dress's fit ranges widened by a margin.
+ *
+ * Measurements are in tenths of an inch. Each cell holds the positions of its profiles as a
+ * count-prefixed int[]; a box query visits only the cells the box overlaps and checks the
+ * exact bounds on primitive arrays. Re-adding an analysis moves it. Not thread-safe.
+ */
+final class MeasurementGrid {
+
+    private static final int COORD_BITS = 21;
+    private static final int COORD_MASK = (1 << COORD_BITS) - 1;
+
+    private final int cellSize;
+    private final Map<Long, int[]> cells = new HashMap<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private BodyProfile[] profiles = new BodyProfile[1024];
+    private short[] chest = new short[1024];
+    private short[] waist = new short[1024];
+    private short[] hips = new short[1024];
+    private int next;
+
+    MeasurementGrid(int cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    int size() {
+        return positions.size();
+    }
+
+    BodyProfile get(String analysisId) {
+        Integer position = positions.get(analysisId);
+        return position != null ? profiles[position] : null;
+    }
+
+    void put(BodyProfile profile) {
+        Integer previous = positions.get(profile.analysisId());
+        int position;
+        if (previous != null) {
+            position = previous;
+            removeFromCell(cellKey(chest[position], waist[position], hips[position]), position);
+        } else {
+            if (next == profiles.length) {
+                int capacity = next * 2;
+                profiles = Arrays.copyOf(profiles, capacity);
+                chest = Arrays.copyOf(chest, capacity);
+                waist = Arrays.copyOf(waist, capacity);
+                hips = Arrays.copyOf(hips, capacity);
+            }
+            position = next++;
+            positions.put(profile.analysisId(), position);
+        }
+        profiles[position] = profile;
+        chest[position] = clamp(profile.chestTenths());
+        waist[position] = clamp(profile.waistTenths());
+        hips[position] = clamp(profile.hipsTenths());
+        addToCell(cellKey(chest[position], waist[position], hips[position]), position);
+    }
+
+    /**
+     * Profiles with every measurement inside its inclusive [min, max] bound
+     */
+    List<BodyProfile> query(int chestMin, int chestMax, int waistMin, int waistMax, int hipsMin, int hipsMax) {
+        List<BodyProfile> result = new ArrayList<>();
+        int c0 = cell(clamp(chestMin)), c1 = cell(clamp(chestMax));
+        int w0 = cell(clamp(waistMin)), w1 = cell(clamp(waistMax));
+        int h0 = cell(clamp(hipsMin)), h1 = cell(clamp(hipsMax));
+        for (int c = c0; c <= c1; c++) {
+            for (int w = w0; w <= w1; w++) {
+                for (int h = h0; h <= h1; h++) {
+                    int[] members = cells.get(pack(c, w, h));
+                    if (members == null) {
+                        continue;
+                    }
+                    for (int i = 1; i <= members[0]; i++) {
+                        int p = members[i];
+                        if (chest[p] >= chestMin && chest[p] <= chestMax &&
+                                waist[p] >= waistMin && waist[p] <= waistMax &&
+                                hips[p] >= hipsMin && hips[p] <= hipsMax) {
+                            result.add(profiles[p]);
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private void addToCell(long key, int position) {
+        int[] members = cells.get(key);
+        if (members == null) {
+            members = new int[5];
+        } else if (members[0] + 1 == members.length) {
+            members = Arrays.copyOf(members, members.length * 2);
+        }
+        members[++members[0]] = position;
+        cells.put(key, members);
+    }
+
+    private void removeFromCell(long key, int position) {
+        int[] members = cells.get(key);
+        if (members == null) {
+            return;
+        }
+        for (int i = 1; i <= members[0]; i++) {
+            if (members[i] == position) {
+                members[i] = members[members[0]--];
+                break;
+            }
+        }
+        if (members[0] == 0) {
+            cells.remove(key);
+        }
+    }
+
+    private long cellKey(int chestTenths, int waistTenths, int hipsTenths) {
+        return pack(cell(chestTenths), cell(waistTenths), cell(hipsTenths));
+    }
+
+    private int cell(int tenths) {
+        return tenths / cellSize;
+    }
+
+    private static long pack(int c, int w, int h) {
+        return ((long) (c & COORD_MASK) << (2 * COORD_BITS)) | ((long) (w & COORD_MASK) << COORD_BITS) | (h & COORD_MASK);
+    }
+
+    // Nobody measures outside 0..3276.7 inches; keeps the shorts and cell indices non-negative
+    private static short clamp(int tenths) {
+        return (short) Math.max(0, Math.min(Short.MAX_VALUE, tenths));
+    }
+}
@@ -0,0 +1,300 @@
+package com.tryon.app.service;
+
+import com.tryon.app.config.PipelineMetrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared worker pool for the analysis and recommendation stages that runs work by class
+ * instead of first come, first served.
+ *
+ * Each class has its own FIFO and a cap on how many of its tasks run at once. When a worker
+ * frees up it takes the head of the class with the highest rank plus age, where age adds one
+ * rank per aging interval the head has waited: a user waiting on an upload goes ahead of a
+ * backfill page, but a backfill page that has waited long enough still gets its turn. Background
+ * caps below the thread count keep workers free for interactive work, and background classes
+ * use whatever interactive work leaves idle. Queue waits are timed per class as
+ * {@code wardrobe.scheduler.wait}.
+ *
+ * Tasks should be short (one ML call, one page); a long task holds its slot until it finishes.
+ */
+@Service
+public class PriorityWorkScheduler {
+    private static final Logger logger = LoggerFactory.getLogger(PriorityWorkScheduler.class);
+
+    /** In rank order, highest first */
+    public enum WorkClass {
+        INTERACTIVE(2), RESCORE(1), BATCH(0);
+
+        private final int rank;
+
+        WorkClass(int rank) {
+            this.rank = rank;
+        }
+    }
+
+    private final PipelineMetrics pipelineMetrics;
+    private final int threads;
+    private final long agingNanos;
+    private final Map<WorkClass, ArrayDeque<Task<?>>> queues = new EnumMap<>(WorkClass.class);
+    private final Map<WorkClass, Integer> caps = new EnumMap<>(WorkClass.class);
+    private final int[] running = new int[WorkClass.values().length];
+    private final long[] completed = new long[WorkClass.values().length];
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Thread[] workers;
+    private final ScheduledExecutorService timer;
+    private volatile boolean shutdown;
+
+    public PriorityWorkScheduler(PipelineMetrics pipelineMetrics,
+                                 @Value("${pipeline.scheduler.threads:8}") int threads,
+                                 @Value("${pipeline.scheduler.aging-ms:5000}") long agingMs,
+                                 @Value("${pipeline.scheduler.rescore-max-concurrency:0}") int rescoreCap,
+                                 @Value("${pipeline.scheduler.batch-max-concurrency:0}") int batchCap) {
+        this.pipelineMetrics = pipelineMetrics;
+        this.threads = Math.max(1, threads);
+        this.agingNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, agingMs));
+        for (WorkClass workClass : WorkClass.values()) {
+            queues.put(workClass, new ArrayDeque<>());
+        }
+        caps.put(WorkClass.INTERACTIVE, this.threads);
+        caps.put(WorkClass.RESCORE, cap(rescoreCap, this.threads / 4));
+        caps.put(WorkClass.BATCH, cap(batchCap, this.threads / 2));
+
+        this.workers = new Thread[this.threads];
+        for (int i = 0; i < this.threads; i++) {
+            workers[i] = new Thread(this::workLoop, "pipeline-worker-" + (i + 1));
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pipeline-scheduler-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        logger.info("Pipeline scheduler: {} threads, caps {}, aging {}ms", this.threads, caps, agingMs);
+    }
+
+    public <T> CompletableFuture<T> submit(WorkClass workClass, Callable<T> work) {
+        Task<T> task = new Task<>(workClass, work);
+        enqueue(task);
+        return task.future;
+    }
+
+    /**
+     * Queue the work after a delay; it then competes like any other task of its class
+     */
+    public <T> CompletableFuture<T> schedule(WorkClass workClass, long delayMs, Callable<T> work) {
+        Task<T> task = new Task<>(workClass, work);
+        try {
+            timer.schedule(() -> enqueue(task), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            task.future.completeExceptionally(e);
+        }
+        return task.future;
+    }
+
+    /**
+     * Run the work in a slot of its class and wait for it, rethrowing what it threw.
+     * Interrupting the caller withdraws the task if it hasn't started.
+     */
+    public <T> T call(WorkClass workClass, Callable<T> work) throws Exception {
+        Task<T> task = new Task<>(workClass, work);
+        enqueue(task);
+        try {
+            return task.future.get();
+        } catch (InterruptedException e) {
+            withdraw(task);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception exception) {
+                throw exception;
+            }
+            throw (Error) cause;
+        }
+    }
+
+    /**
+     * How many more tasks of this class could start right now without queueing behind its cap
+     */
+    public int room(WorkClass workClass) {
+        lock.lock();
+        try {
+            int active = running[workClass.ordinal()] + queues.get(workClass).size();
+            return Math.max(0, caps.get(workClass) - active);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        timer.shutdownNow();
+        lock.lock();
+        try {
+            for (ArrayDeque<Task<?>> queue : queues.values()) {
+                queue.forEach(task -> task.future.cancel(false));
+                queue.clear();
+            }
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("threads", threads);
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            for (WorkClass workClass : WorkClass.values()) {
+                ArrayDeque<Task<?>> queue = queues.get(workClass);
+                Map<String, Object> stats = new HashMap<>();
+                stats.put("cap", caps.get(workClass));
+                stats.put("running", running[workClass.ordinal()]);
+                stats.put("queued", queue.size());
+                stats.put("completed", completed[workClass.ordinal()]);
+                stats.put("oldestWaitMs", queue.isEmpty() ? 0
+                        : TimeUnit.NANOSECONDS.toMillis(now - queue.peekFirst().enqueuedAt));
+                status.put(workClass.name().toLowerCase(), stats);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return status;
+    }
+
+    private void enqueue(Task<?> task) {
+        lock.lock();
+        try {
+            if (shutdown) {
+                task.future.completeExceptionally(new RejectedExecutionException("Pipeline scheduler is shut down"));
+                return;
+            }
+            task.enqueuedAt = System.nanoTime();
+            task.waitSample = pipelineMetrics.start();
+            queues.get(task.workClass).addLast(task);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void withdraw(Task<?> task) {
+        lock.lock();
+        try {
+            queues.get(task.workClass).remove(task);
+        } finally {
+            lock.unlock();
+        }
+        task.future.cancel(false);
+    }
+
+    private void workLoop() {
+        while (true) {
+            Task<?> task;
+            lock.lock();
+            try {
+                while ((task = next()) == null) {
+                    if (shutdown) {
+                        return;
+                    }
+                    workAvailable.await();
+                }
+                running[task.workClass.ordinal()]++;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            pipelineMetrics.stop(task.waitSample, "wardrobe.scheduler.wait", "class", task.workClass.name());
+            try {
+                task.run();
+            } finally {
+                lock.lock();
+                try {
+                    running[task.workClass.ordinal()]--;
+                    completed[task.workClass.ordinal()]++;
+                    // A freed cap slot may unblock a queued task another worker skipped
+                    workAvailable.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                // Work must not leak an interrupt into the next task
+                Thread.interrupted();
+            }
+        }
+    }
+
+    // Holding the lock: head of the runnable class with the best rank plus age, ties to the higher rank
+    private Task<?> next() {
+        long now = System.nanoTime();
+        WorkClass best = null;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        for (WorkClass workClass : WorkClass.values()) {
+            Task<?> head = queues.get(workClass).peekFirst();
+            if (head == null || running[workClass.ordinal()] >= caps.get(workClass)) {
+                continue;
+            }
+            double score = workClass.rank + (double) (now - head.enqueuedAt) / agingNanos;
+            if (score > bestScore) {
+                best = workClass;
+                bestScore = score;
+            }
+        }
+        return best != null ? queues.get(best).pollFirst() : null;
+    }
+
+    private int cap(int configured, int fallback) {
+        return Math.min(threads, Math.max(1, configured > 0 ? configured : fallback));
+    }
+
+    private static final class Task<T> {
+        final WorkClass workClass;
+        final Callable<T> work;
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        long enqueuedAt;
+        Timer.Sample waitSample;
+
+        Task(WorkClass workClass, Callable<T> work) {
+            this.workClass = workClass;
+            this.work = work;
+        }
+
+        void run() {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(work.call());
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+}
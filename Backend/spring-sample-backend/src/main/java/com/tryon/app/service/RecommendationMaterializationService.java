@@ -0,0 +1,467 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.DressRecommendation;
+import com.tryon.app.repository.DressRecommendationBulkWriter;
+import com.tryon.app.repository.DressRepository;
+import com.tryon.app.service.PriorityWorkScheduler.WorkClass;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Precomputes recommendations for every completed body analysis, so the read endpoints
+ * serve stored rows instead of waiting on the scoring service.
+ *
+ * A run snapshots the available catalog once ({@link ScoringSnapshot}), splits the completed
+ * analyses into contiguous id ranges and scores the ranges in parallel. Each page of analyses
+ * is written with the bulk upsert, and its partition checkpoint is committed in the same
+ * transaction, so a crashed or stopped run resumes where each partition left off.
+ * Materialized rows that fall out of an analysis's top N are removed unless the user has
+ * interacted with them.
+ */
+@Service
+public class RecommendationMaterializationService {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationMaterializationService.class);
+
+    public static final String RECOMMENDED_BY = "materializer";
+
+    private static final String AVAILABLE = "available";
+
+    private static final String ANALYSES_PAGE_SQL =
+            "SELECT " + BodyProfile.COLUMNS + " FROM wardrobe.body_analysis " +
+            "WHERE status = 'COMPLETED' AND id > ? AND id <= ? ORDER BY id LIMIT ?";
+
+    // Materialized rows (alias r) the user never viewed, favorited, bought or rated; safe to drop
+    static final String DISPOSABLE_ROW =
+            "r.recommended_by = '" + RECOMMENDED_BY + "' " +
+            "AND NOT COALESCE(r.is_favorite, false) AND NOT COALESCE(r.is_purchased, false) " +
+            "AND NOT COALESCE(r.is_viewed, false) AND r.user_rating IS NULL";
+
+    // Disposable rows of this page that are no longer in the new top N
+    private static final String DELETE_STALE_SQL =
+            "DELETE FROM wardrobe.dress_recommendations r " +
+            "WHERE r.analysis_id = ANY(?::varchar[]) AND " + DISPOSABLE_ROW + " " +
+            "AND (r.analysis_id, r.dress_id) NOT IN (SELECT * FROM unnest(?::varchar[], ?::integer[]))";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final DressRepository dressRepository;
+    private final DressRecommendationBulkWriter bulkWriter;
+    private final DressScorer scorer;
+    private final ObjectMapper objectMapper;
+    private final PriorityWorkScheduler scheduler;
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${recommendations.materialize.top-n:10}")
+    private int topN;
+
+    @Value("${recommendations.materialize.sexiness-preference:high}")
+    private String sexinessPreference;
+
+    @Value("${recommendations.materialize.page-size:200}")
+    private int pageSize;
+
+    // Start a run after whole-catalog changes (bulk imports)
+    @Value("${recommendations.materialize.on-catalog-change:false}")
+    private boolean onCatalogChange;
+
+    @Value("${catalog.search.page-size:500}")
+    private int catalogPageSize;
+
+    private final int partitions;
+    private final ExecutorService coordinator;
+    private final ExecutorService workers;
+    private final Map<String, MaterializationProgress> runs = new ConcurrentHashMap<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicBoolean rerunRequested = new AtomicBoolean();
+
+    public RecommendationMaterializationService(JdbcTemplate jdbcTemplate,
+                                                TransactionTemplate transactionTemplate,
+                                                DressRepository dressRepository,
+                                                DressRecommendationBulkWriter bulkWriter,
+                                                DressScorer scorer,
+                                                ObjectMapper objectMapper,
+                                                PriorityWorkScheduler scheduler,
+                                                PipelineMetrics pipelineMetrics,
+                                                @Value("${recommendations.materialize.partitions:0}") int partitions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.dressRepository = dressRepository;
+        this.bulkWriter = bulkWriter;
+        this.scorer = scorer;
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.pipelineMetrics = pipelineMetrics;
+        this.partitions = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors();
+        this.coordinator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "materializer");
+            t.setDaemon(true);
+            return t;
+        });
+        this.workers = Executors.newFixedThreadPool(this.partitions, r -> {
+            Thread t = new Thread(r, "materializer-partition");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!onCatalogChange || !event.isWholeCatalog()) {
+            return;
+        }
+        try {
+            startRun();
+        } catch (IllegalStateException e) {
+            // Picked up again when the current run finishes
+            rerunRequested.set(true);
+        }
+    }
+
+    /**
+     * Start materializing every completed analysis; only one run at a time
+     */
+    public MaterializationProgress startRun() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A materialization run is already running");
+        }
+        try {
+            String runId = "MATERIALIZE-" + UUID.randomUUID();
+            Map<String, Object> bounds = jdbcTemplate.queryForMap("SELECT MIN(id) AS lo, MAX(id) AS hi " +
+                    "FROM wardrobe.body_analysis WHERE status = 'COMPLETED'");
+            long lo = bounds.get("lo") != null ? ((Number) bounds.get("lo")).longValue() - 1 : 0;
+            long hi = bounds.get("hi") != null ? ((Number) bounds.get("hi")).longValue() : 0;
+
+            // Equal id ranges, (rangeStart, rangeEnd]
+            List<Partition> plan = new ArrayList<>(partitions);
+            long span = Math.max(1, (hi - lo + partitions - 1) / partitions);
+            for (int p = 0; p < partitions && lo + p * span < hi; p++) {
+                long start = lo + p * span;
+                plan.add(new Partition(p, start, Math.min(hi, start + span), start));
+            }
+
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.update("INSERT INTO wardrobe.materialization_runs (run_id, status, top_n, sexiness_preference) " +
+                        "VALUES (?, 'RUNNING', ?, ?)", runId, topN, sexinessPreference);
+                for (Partition partition : plan) {
+                    jdbcTemplate.update("INSERT INTO wardrobe.materialization_partitions " +
+                                    "(run_id, partition_no, range_start, range_end, last_analysis_id) VALUES (?, ?, ?, ?, ?)",
+                            runId, partition.number(), partition.rangeStart(), partition.rangeEnd(), partition.lastAnalysisId());
+                }
+            });
+
+            MaterializationProgress progress = new MaterializationProgress(runId, plan.size(), 0);
+            runs.put(runId, progress);
+            coordinator.submit(() -> run(progress, plan));
+            return progress;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Resume a run from its partition checkpoints
+     */
+    public MaterializationProgress resumeRun(String runId) {
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT status, analyses_scored FROM wardrobe.materialization_runs WHERE run_id = ?", runId);
+        if ("COMPLETED".equals(row.get("status"))) {
+            throw new IllegalStateException("Materialization " + runId + " has already completed");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A materialization run is already running");
+        }
+        try {
+            List<Partition> plan = jdbcTemplate.query("SELECT partition_no, range_start, range_end, last_analysis_id " +
+                            "FROM wardrobe.materialization_partitions " +
+                            "WHERE run_id = ? AND last_analysis_id < range_end ORDER BY partition_no",
+                    (rs, rowNum) -> new Partition(rs.getInt(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)),
+                    runId);
+            jdbcTemplate.update("UPDATE wardrobe.materialization_runs SET status = 'RUNNING', last_error = NULL, " +
+                    "updated_at = CURRENT_TIMESTAMP WHERE run_id = ?", runId);
+
+            MaterializationProgress progress = new MaterializationProgress(runId, plan.size(),
+                    ((Number) row.get("analyses_scored")).longValue());
+            runs.put(runId, progress);
+            coordinator.submit(() -> run(progress, plan));
+            return progress;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    /**
+     * Live progress of a run started on this node, falling back to the stored checkpoint
+     */
+    public Map<String, Object> getProgress(String runId) {
+        MaterializationProgress progress = runs.get(runId);
+        if (progress != null) {
+            return progress.toMap();
+        }
+        return jdbcTemplate.queryForMap("SELECT run_id, status, top_n, sexiness_preference, analyses_scored, " +
+                "recommendations_written, last_error, started_at, updated_at " +
+                "FROM wardrobe.materialization_runs WHERE run_id = ?", runId);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Interrupted pages roll back; the run resumes from each partition's last checkpoint
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+        workers.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    private void run(MaterializationProgress progress, List<Partition> plan) {
+        logger.info("Materialization {} starting: {} partitions, top {} per analysis",
+                progress.runId, plan.size(), topN);
+        Timer.Sample sample = pipelineMetrics.start();
+        String outcome = "error";
+        try {
+            ScoringSnapshot snapshot = loadCatalog();
+            progress.catalogDresses = snapshot.size();
+
+            List<Future<?>> futures = new ArrayList<>(plan.size());
+            for (Partition partition : plan) {
+                futures.add(workers.submit(() -> {
+                    materialize(progress, partition, snapshot);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+
+            progress.status = "COMPLETED";
+            jdbcTemplate.update("UPDATE wardrobe.materialization_runs SET status = 'COMPLETED', " +
+                    "updated_at = CURRENT_TIMESTAMP WHERE run_id = ?", progress.runId);
+            outcome = "success";
+            logger.info("Materialization {} completed: {}", progress.runId, progress.toMap());
+        } catch (Exception e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            progress.status = "FAILED";
+            progress.lastError = cause.getMessage();
+            logger.error("Materialization {} failed", progress.runId, cause);
+            jdbcTemplate.update("UPDATE wardrobe.materialization_runs SET status = 'FAILED', last_error = ?, " +
+                    "updated_at = CURRENT_TIMESTAMP WHERE run_id = ?", cause.getMessage(), progress.runId);
+        } finally {
+            progress.finishedAt = System.nanoTime();
+            pipelineMetrics.stop(sample, "wardrobe.materialize.run", "outcome", outcome);
+            running.set(false);
+            if (rerunRequested.getAndSet(false) && !coordinator.isShutdown()) {
+                try {
+                    startRun();
+                } catch (Exception e) {
+                    logger.error("Failed to start the materialization requested by a catalog change", e);
+                }
+            }
+        }
+    }
+
+    // Available dresses with everything the scorer reads loaded, paged by id
+    private ScoringSnapshot loadCatalog() {
+        List<Dress> catalog = new ArrayList<>();
+        int afterId = Integer.MIN_VALUE;
+        while (true) {
+            int from = afterId;
+            List<Dress> page = readOnlyTransaction.execute(status -> {
+                List<Dress> dresses = dressRepository.findByDressIdGreaterThanOrderByDressIdAsc(from,
+                        PageRequest.of(0, catalogPageSize));
+                for (Dress dress : dresses) {
+                    Hibernate.initialize(dress.getHotnessTags());
+                }
+                return dresses;
+            });
+            for (Dress dress : page) {
+                if (AVAILABLE.equals(dress.getAvailabilityStatus())) {
+                    catalog.add(dress);
+                }
+            }
+            if (page.size() < catalogPageSize) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getDressId();
+        }
+        return new ScoringSnapshot(scorer, catalog, sexinessPreference);
+    }
+
+    // Each page runs as batch work on the scheduler, so uploads overtake a run between pages
+    private void materialize(MaterializationProgress progress, Partition partition, ScoringSnapshot snapshot)
+            throws Exception {
+        long lastId = partition.lastAnalysisId();
+        while (lastId < partition.rangeEnd()) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new IllegalStateException("Materialization interrupted");
+            }
+            long from = lastId;
+            lastId = scheduler.call(WorkClass.BATCH, () -> materializePage(progress, partition, snapshot, from));
+        }
+        progress.partitionsDone.incrementAndGet();
+    }
+
+    // Returns the page's checkpoint
+    private long materializePage(MaterializationProgress progress, Partition partition, ScoringSnapshot snapshot,
+                                 long lastId) {
+        List<BodyProfile> page = jdbcTemplate.query(ANALYSES_PAGE_SQL,
+                (rs, rowNum) -> BodyProfile.from(rs, objectMapper),
+                lastId, partition.rangeEnd(), pageSize);
+        // An exhausted range checkpoints at its end so a resume skips it
+        long checkpoint = page.size() < pageSize ? partition.rangeEnd() : page.get(page.size() - 1).id();
+
+        List<DressRecommendation> rows = new ArrayList<>(page.size() * topN);
+        for (BodyProfile analysis : page) {
+            rows.addAll(score(analysis, snapshot));
+        }
+        int written = writePage(progress.runId, partition.number(), page, rows, checkpoint);
+
+        progress.analysesScored.addAndGet(page.size());
+        progress.recommendationsWritten.addAndGet(written);
+        return checkpoint;
+    }
+
+    private List<DressRecommendation> score(BodyProfile analysis, ScoringSnapshot snapshot) {
+        List<ScoringSnapshot.Scored> top = snapshot.topN(
+                analysis.chestTenths(), analysis.waistTenths(), analysis.hipsTenths(),
+                analysis.bodyType(), analysis.skinTone(), topN, DressScorer.RECOMMENDATION_THRESHOLD);
+
+        List<DressRecommendation> rows = new ArrayList<>(top.size());
+        for (ScoringSnapshot.Scored scored : top) {
+            BigDecimal compatibility = BigDecimal.valueOf(scored.compatibility());
+            DressRecommendation rec = new DressRecommendation();
+            rec.setAnalysisId(analysis.analysisId());
+            rec.setUserId(analysis.userId());
+            rec.setDressId(scored.dressId());
+            rec.setCompatibilityScore(compatibility);
+            rec.setFitScore(BigDecimal.valueOf(scored.fit()));
+            rec.setStyleScore(BigDecimal.valueOf(scored.style()));
+            rec.setSexinessMatchScore(BigDecimal.valueOf(scored.sexinessMatch()));
+            rec.setRecommendedBy(RECOMMENDED_BY);
+            rec.setRecommendationConfidence(compatibility);
+            rows.add(rec);
+        }
+        return rows;
+    }
+
+    // Upsert, stale-row cleanup and the partition checkpoint commit together
+    private int writePage(String runId, int partition, List<BodyProfile> page,
+                          List<DressRecommendation> rows, long checkpoint) {
+        Integer written = transactionTemplate.execute(status -> {
+            // AI-generated rows for the same dress keep their reasons and stay out of DISPOSABLE_ROW
+            int upserted = bulkWriter.upsertOwned(rows, RECOMMENDED_BY);
+            if (!page.isEmpty()) {
+                deleteStale(page, rows);
+            }
+            jdbcTemplate.update("UPDATE wardrobe.materialization_partitions SET last_analysis_id = ?, " +
+                    "analyses_scored = analyses_scored + ?, updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE run_id = ? AND partition_no = ?", checkpoint, page.size(), runId, partition);
+            jdbcTemplate.update("UPDATE wardrobe.materialization_runs SET analyses_scored = analyses_scored + ?, " +
+                    "recommendations_written = recommendations_written + ?, updated_at = CURRENT_TIMESTAMP " +
+                    "WHERE run_id = ?", page.size(), upserted, runId);
+            return upserted;
+        });
+        return written != null ? written : 0;
+    }
+
+    private void deleteStale(List<BodyProfile> page, List<DressRecommendation> rows) {
+        String[] analysisIds = new String[page.size()];
+        for (int i = 0; i < page.size(); i++) {
+            analysisIds[i] = page.get(i).analysisId();
+        }
+        String[] keptAnalysisIds = new String[rows.size()];
+        Integer[] keptDressIds = new Integer[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            keptAnalysisIds[i] = rows.get(i).getAnalysisId();
+            keptDressIds[i] = rows.get(i).getDressId();
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(DELETE_STALE_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", analysisIds));
+            ps.setArray(2, con.createArrayOf("varchar", keptAnalysisIds));
+            ps.setArray(3, con.createArrayOf("int4", keptDressIds));
+            return ps;
+        });
+    }
+
+    private record Partition(int number, long rangeStart, long rangeEnd, long lastAnalysisId) {
+    }
+
+    public static final class MaterializationProgress {
+        private final String runId;
+        private final int partitions;
+        private final long resumedFrom;
+        private final long startedAt = System.nanoTime();
+        private final LocalDateTime startedTime = LocalDateTime.now();
+        private final AtomicLong analysesScored = new AtomicLong();
+        private final AtomicLong recommendationsWritten = new AtomicLong();
+        private final AtomicLong partitionsDone = new AtomicLong();
+        private volatile int catalogDresses;
+        private volatile String status = "RUNNING";
+        private volatile String lastError;
+        private volatile long finishedAt;
+
+        MaterializationProgress(String runId, int partitions, long resumedFrom) {
+            this.runId = runId;
+            this.partitions = partitions;
+            this.resumedFrom = resumedFrom;
+        }
+
+        public String getRunId() {
+            return runId;
+        }
+
+        double analysesPerSecond() {
+            long end = finishedAt != 0 ? finishedAt : System.nanoTime();
+            double seconds = (end - startedAt) / 1_000_000_000.0;
+            return seconds > 0 ? analysesScored.get() / seconds : 0.0;
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("runId", runId);
+            map.put("status", status);
+            map.put("catalogDresses", catalogDresses);
+            map.put("partitions", partitions);
+            map.put("partitionsDone", partitionsDone.get());
+            map.put("resumedFromAnalyses", resumedFrom);
+            map.put("analysesScored", resumedFrom + analysesScored.get());
+            map.put("recommendationsWritten", recommendationsWritten.get());
+            map.put("analysesPerSecond", Math.round(analysesPerSecond()));
+            map.put("startedAt", startedTime);
+            if (lastError != null) {
+                map.put("lastError", lastError);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.config.ReplicaRouting;
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.DressFitProfile;
+import com.tryon.app.model.DressRecommendation;
+import com.tryon.app.repository.DressRecommendationBulkWriter;
+import com.tryon.app.repository.DressRepository;
+import com.tryon.app.service.PriorityWorkScheduler.WorkClass;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps stored recommendations current when individual dresses change, touching only the
+ * analyses near the changed dress instead of re-scoring everyone.
+ *
+ * Completed analyses live in a {@link MeasurementGrid}. For a changed dress, the affected
+ * analyses are the ones whose measurements fall within a margin of its fit ranges, plus any
+ * that already have a row for it. Existing rows get fresh scores (AI rows keep their stored
+ * sexiness match, since the preference they were generated for isn't recorded); materialized
+ * rows that drop below the threshold are removed; and the dress enters a materialized
+ * analysis's top N when it beats the weakest disposable row there, evicting that row.
+ * Whole-catalog changes are left to a materialization run.
+ *
+ * Work is queued on one rescorer thread, but each step (index catch-up, one dress) runs in a
+ * re-scoring slot of the {@link PriorityWorkScheduler}, so it yields to interactive work.
+ */
+@Service
+public class RecommendationRescoreService {
+    private static final Logger logger = LoggerFactory.getLogger(RecommendationRescoreService.class);
+
+    private static final String AVAILABLE = "available";
+    private static final String MATERIALIZED = RecommendationMaterializationService.RECOMMENDED_BY;
+
+    private static final String PROFILES_SQL =
+            "SELECT " + BodyProfile.COLUMNS + " FROM wardrobe.body_analysis " +
+            "WHERE status = 'COMPLETED' AND COALESCE(updated_at, created_at) >= ? ORDER BY id";
+
+    private static final String EXISTING_ROWS_SQL =
+            "SELECT r.analysis_id, r.sexiness_match_score, r.recommended_by = '" + MATERIALIZED + "', " +
+            "(" + RecommendationMaterializationService.DISPOSABLE_ROW + ") " +
+            "FROM wardrobe.dress_recommendations r WHERE r.dress_id = ?";
+
+    // Size of each analysis's materialized top N and the score of the row EVICT_SQL would remove
+    private static final String MATERIALIZED_STATS_SQL =
+            "SELECT r.analysis_id, COUNT(*), MIN(r.compatibility_score) FILTER (WHERE " +
+            RecommendationMaterializationService.DISPOSABLE_ROW + ") " +
+            "FROM wardrobe.dress_recommendations r " +
+            "WHERE r.analysis_id = ANY(?::varchar[]) AND r.recommended_by = '" + MATERIALIZED + "' " +
+            "GROUP BY r.analysis_id";
+
+    private static final String UPDATE_SCORES_SQL =
+            "UPDATE wardrobe.dress_recommendations r SET fit_score = u.fit, style_score = u.style, " +
+            "sexiness_match_score = u.sexiness, compatibility_score = u.compatibility, " +
+            "recommendation_confidence = u.compatibility " +
+            "FROM unnest(?::varchar[], ?::numeric[], ?::numeric[], ?::numeric[], ?::numeric[]) " +
+            "AS u(analysis_id, fit, style, sexiness, compatibility) " +
+            "WHERE r.dress_id = ? AND r.analysis_id = u.analysis_id";
+
+    private static final String DELETE_ROWS_SQL =
+            "DELETE FROM wardrobe.dress_recommendations r WHERE r.dress_id = ? " +
+            "AND r.analysis_id = ANY(?::varchar[]) AND " + RecommendationMaterializationService.DISPOSABLE_ROW;
+
+    // The weakest disposable row of each analysis the dress is entering
+    private static final String EVICT_SQL =
+            "DELETE FROM wardrobe.dress_recommendations WHERE recommendation_id IN (" +
+            "SELECT DISTINCT ON (r.analysis_id) r.recommendation_id FROM wardrobe.dress_recommendations r " +
+            "WHERE r.analysis_id = ANY(?::varchar[]) AND r.dress_id <> ? AND " +
+            RecommendationMaterializationService.DISPOSABLE_ROW + " " +
+            "ORDER BY r.analysis_id, r.compatibility_score, r.recommendation_id)";
+
+    private static final String DELETE_DISPOSABLE_FOR_DRESS_SQL =
+            "DELETE FROM wardrobe.dress_recommendations r WHERE r.dress_id = ? AND " +
+            RecommendationMaterializationService.DISPOSABLE_ROW;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReplicaRouting replicaRouting;
+    private final DressRepository dressRepository;
+    private final DressRecommendationBulkWriter bulkWriter;
+    private final DressScorer scorer;
+    private final ObjectMapper objectMapper;
+    private final PriorityWorkScheduler scheduler;
+    private final PipelineMetrics pipelineMetrics;
+
+    @Value("${recommendations.rescore.enabled:true}")
+    private boolean enabled;
+
+    // How far outside a dress's ranges (per dimension) a user still counts as a neighbour
+    @Value("${recommendations.rescore.margin-inches:5}")
+    private double marginInches;
+
+    @Value("${recommendations.rescore.cell-inches:2}")
+    private double cellInches;
+
+    @Value("${recommendations.materialize.top-n:10}")
+    private int topN;
+
+    @Value("${recommendations.materialize.sexiness-preference:high}")
+    private String sexinessPreference;
+
+    // Touched only by rescorer steps, which the rescorer thread runs one at a time
+    private MeasurementGrid grid;
+    private Timestamp indexedThrough;
+    private volatile int indexedAnalyses;
+    private volatile Map<String, Object> lastRescore = Map.of();
+    private final ExecutorService rescorer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "recommendation-rescorer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public RecommendationRescoreService(JdbcTemplate jdbcTemplate,
+                                        TransactionTemplate transactionTemplate,
+                                        DressRepository dressRepository,
+                                        DressRecommendationBulkWriter bulkWriter,
+                                        DressScorer scorer,
+                                        ObjectMapper objectMapper,
+                                        PriorityWorkScheduler scheduler,
+                                        PipelineMetrics pipelineMetrics,
+                                        ReplicaRouting replicaRouting) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.dressRepository = dressRepository;
+        this.bulkWriter = bulkWriter;
+        this.scorer = scorer;
+        this.objectMapper = objectMapper;
+        this.scheduler = scheduler;
+        this.pipelineMetrics = pipelineMetrics;
+        this.replicaRouting = replicaRouting;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexOnStartup() {
+        if (!enabled) {
+            logger.info("Incremental recommendation re-scoring is disabled");
+            return;
+        }
+        rescorer.execute(() -> {
+            try {
+                inRescoreSlot(this::catchUp);
+            } catch (Exception e) {
+                // Retried before the next re-score
+                logger.error("Failed to build the measurement index", e);
+            }
+        });
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!enabled || event.isWholeCatalog()) {
+            return;
+        }
+        rescore(event.getDressIds());
+    }
+
+    /**
+     * Queue re-scoring for dresses changed outside the application (e.g. edited in the database)
+     */
+    public void rescore(Collection<Integer> dressIds) {
+        if (!enabled) {
+            throw new IllegalStateException("Incremental recommendation re-scoring is disabled");
+        }
+        Set<Integer> ids = Set.copyOf(dressIds);
+        rescorer.execute(() -> rescoreNow(ids));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rescorer.shutdownNow();
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("indexedAnalyses", indexedAnalyses);
+        status.put("lastRescore", lastRescore);
+        return status;
+    }
+
+    private void rescoreNow(Set<Integer> dressIds) {
+        Timer.Sample sample = pipelineMetrics.start();
+        long start = System.nanoTime();
+        try {
+            inRescoreSlot(this::catchUp);
+            // The change just committed on the primary; a replica may not have it yet
+            List<Dress> dresses;
+            try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+                dresses = readOnlyTransaction.execute(status -> {
+                    List<Dress> found = dressRepository.findAllById(dressIds);
+                    for (Dress dress : found) {
+                        Hibernate.initialize(dress.getHotnessTags());
+                    }
+                    return found;
+                });
+            }
+
+            Outcome total = new Outcome();
+            Set<Integer> missing = new HashSet<>(dressIds);
+            for (Dress dress : dresses) {
+                missing.remove(dress.getDressId());
+                total.add(scheduler.call(WorkClass.RESCORE, () -> rescoreDress(dress)));
+            }
+            for (Integer dressId : missing) {
+                total.deleted += jdbcTemplate.update(DELETE_DISPOSABLE_FOR_DRESS_SQL, dressId);
+            }
+
+            Map<String, Object> run = total.toMap();
+            run.put("dresses", dressIds.size());
+            run.put("durationMs", (System.nanoTime() - start) / 1_000_000);
+            lastRescore = run;
+            pipelineMetrics.stop(sample, "wardrobe.rescore", "outcome", "success");
+            logger.info("Re-scored recommendations for {} changed dresses: {}", dressIds.size(), run);
+        } catch (Exception e) {
+            pipelineMetrics.stop(sample, "wardrobe.rescore", "outcome", "error");
+            logger.error("Failed to re-score recommendations for {} changed dresses", dressIds.size(), e);
+        }
+    }
+
+    private void inRescoreSlot(Runnable step) throws Exception {
+        scheduler.call(WorkClass.RESCORE, () -> {
+            step.run();
+            return null;
+        });
+    }
+
+    private Outcome rescoreDress(Dress dress) {
+        Outcome outcome = new Outcome();
+        int dressId = dress.getDressId();
+        if (!AVAILABLE.equals(dress.getAvailabilityStatus())) {
+            outcome.deleted = jdbcTemplate.update(DELETE_DISPOSABLE_FOR_DRESS_SQL, dressId);
+            return outcome;
+        }
+
+        // Everyone who already has the dress, then the fit neighbourhood of its new ranges
+        Map<String, ExistingRow> existing = new HashMap<>();
+        jdbcTemplate.query(EXISTING_ROWS_SQL, (RowCallbackHandler) rs -> existing.put(rs.getString(1),
+                new ExistingRow(rs.getBigDecimal(2), rs.getBoolean(3), rs.getBoolean(4))), dressId);
+
+        Map<String, BodyProfile> affected = new LinkedHashMap<>();
+        for (String analysisId : existing.keySet()) {
+            BodyProfile profile = grid.get(analysisId);
+            if (profile != null) {
+                affected.put(analysisId, profile);
+            }
+        }
+        DressFitProfile ranges = dress.getFitProfile();
+        List<BodyProfile> neighbours = new ArrayList<>();
+        if (ranges != null) {
+            // Without ranges every fit score is the same fallback, so nobody is a closer neighbour
+            int margin = DressFitProfile.toTenths(marginInches);
+            neighbours = grid.query(
+                    ranges.getBustMin() - margin, ranges.getBustMax() + margin,
+                    ranges.getWaistMin() - margin, ranges.getWaistMax() + margin,
+                    ranges.getHipMin() - margin, ranges.getHipMax() + margin);
+        }
+        for (BodyProfile profile : neighbours) {
+            affected.putIfAbsent(profile.analysisId(), profile);
+        }
+        outcome.analyses = affected.size();
+        if (affected.isEmpty()) {
+            return outcome;
+        }
+
+        Map<String, MaterializedStats> stats = materializedStats(neighbours, existing);
+        double sexiness = scorer.sexinessMatchScore(sexinessPreference, dress);
+
+        List<String> updateIds = new ArrayList<>();
+        List<BigDecimal[]> updateScores = new ArrayList<>();
+        List<String> deleteIds = new ArrayList<>();
+        List<DressRecommendation> inserts = new ArrayList<>();
+        List<String> evictFrom = new ArrayList<>();
+        for (BodyProfile profile : affected.values()) {
+            double fit = scorer.fitScore(profile.chestTenths(), profile.waistTenths(), profile.hipsTenths(), dress);
+            double style = scorer.styleScore(profile.bodyType(), profile.skinTone(), dress);
+            ExistingRow row = existing.get(profile.analysisId());
+
+            if (row != null) {
+                double rowSexiness = !row.materialized() && row.sexinessMatch() != null
+                        ? row.sexinessMatch().doubleValue() : sexiness;
+                double compatibility = scorer.compatibilityScore(fit, style, rowSexiness);
+                if (compatibility < DressScorer.RECOMMENDATION_THRESHOLD && row.disposable()) {
+                    deleteIds.add(profile.analysisId());
+                } else {
+                    updateIds.add(profile.analysisId());
+                    updateScores.add(new BigDecimal[]{BigDecimal.valueOf(fit), BigDecimal.valueOf(style),
+                            BigDecimal.valueOf(rowSexiness), BigDecimal.valueOf(compatibility)});
+                }
+                continue;
+            }
+
+            // Only analyses that have a materialized top N can gain a row
+            MaterializedStats current = stats.get(profile.analysisId());
+            double compatibility = scorer.compatibilityScore(fit, style, sexiness);
+            if (current == null || compatibility < DressScorer.RECOMMENDATION_THRESHOLD) {
+                continue;
+            }
+            boolean full = current.count() >= topN;
+            if (full && compatibility <= current.weakest()) {
+                continue;
+            }
+            inserts.add(materializedRow(profile, dressId, fit, style, sexiness, compatibility));
+            if (full) {
+                evictFrom.add(profile.analysisId());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!updateIds.isEmpty()) {
+                outcome.updated = updateScores(dressId, updateIds, updateScores);
+            }
+            if (!deleteIds.isEmpty()) {
+                outcome.deleted = jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(DELETE_ROWS_SQL);
+                    ps.setInt(1, dressId);
+                    ps.setArray(2, con.createArrayOf("varchar", deleteIds.toArray()));
+                    return ps;
+                });
+            }
+            if (!evictFrom.isEmpty()) {
+                outcome.evicted = jdbcTemplate.update(con -> {
+                    PreparedStatement ps = con.prepareStatement(EVICT_SQL);
+                    ps.setArray(1, con.createArrayOf("varchar", evictFrom.toArray()));
+                    ps.setInt(2, dressId);
+                    return ps;
+                });
+            }
+            outcome.inserted = bulkWriter.upsertOwned(inserts, MATERIALIZED);
+        });
+        return outcome;
+    }
+
+    // Materialized top-N sizes and weakest disposable scores for neighbours that don't have the dress yet
+    private Map<String, MaterializedStats> materializedStats(List<BodyProfile> neighbours,
+                                                             Map<String, ExistingRow> existing) {
+        List<String> ids = new ArrayList<>(neighbours.size());
+        for (BodyProfile profile : neighbours) {
+            if (!existing.containsKey(profile.analysisId())) {
+                ids.add(profile.analysisId());
+            }
+        }
+        Map<String, MaterializedStats> stats = new HashMap<>();
+        if (ids.isEmpty()) {
+            return stats;
+        }
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(MATERIALIZED_STATS_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", ids.toArray()));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            // With no disposable row nothing can be evicted, so a full top N admits nothing
+            double weakest = rs.getDouble(3);
+            stats.put(rs.getString(1),
+                    new MaterializedStats(rs.getInt(2), rs.wasNull() ? Double.POSITIVE_INFINITY : weakest));
+        });
+        return stats;
+    }
+
+    private int updateScores(int dressId, List<String> analysisIds, List<BigDecimal[]> scores) {
+        int size = analysisIds.size();
+        BigDecimal[][] columns = new BigDecimal[4][size];
+        for (int i = 0; i < size; i++) {
+            for (int c = 0; c < 4; c++) {
+                columns[c][i] = scores.get(i)[c];
+            }
+        }
+        return jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(UPDATE_SCORES_SQL);
+            ps.setArray(1, con.createArrayOf("varchar", analysisIds.toArray()));
+            for (int c = 0; c < 4; c++) {
+                ps.setArray(2 + c, con.createArrayOf("numeric", columns[c]));
+            }
+            ps.setInt(6, dressId);
+            return ps;
+        });
+    }
+
+    private DressRecommendation materializedRow(BodyProfile profile, int dressId, double fit, double style,
+                                                double sexiness, double compatibility) {
+        BigDecimal score = BigDecimal.valueOf(compatibility);
+        DressRecommendation rec = new DressRecommendation();
+        rec.setAnalysisId(profile.analysisId());
+        rec.setUserId(profile.userId());
+        rec.setDressId(dressId);
+        rec.setCompatibilityScore(score);
+        rec.setFitScore(BigDecimal.valueOf(fit));
+        rec.setStyleScore(BigDecimal.valueOf(style));
+        rec.setSexinessMatchScore(BigDecimal.valueOf(sexiness));
+        rec.setRecommendedBy(MATERIALIZED);
+        rec.setRecommendationConfidence(score);
+        return rec;
+    }
+
+    // Index analyses completed (or re-run) since the last catch-up; the first call loads them all
+    private void catchUp() {
+        if (grid == null) {
+            grid = new MeasurementGrid(Math.max(1, DressFitProfile.toTenths(cellInches)));
+            indexedThrough = new Timestamp(0);
+        }
+        Timestamp since = indexedThrough;
+        Timestamp now = jdbcTemplate.queryForObject("SELECT CURRENT_TIMESTAMP::timestamp", Timestamp.class);
+        long start = System.nanoTime();
+        int before = grid.size();
+        // Postgres only streams with a cursor inside a transaction
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(PROFILES_SQL);
+            ps.setTimestamp(1, since);
+            ps.setFetchSize(5000);
+            return ps;
+        }, (RowCallbackHandler) rs -> grid.put(BodyProfile.from(rs, objectMapper))));
+        // updated_at comes from the application clocks; the overlap absorbs skew, re-adding is harmless
+        indexedThrough = new Timestamp(now.getTime() - 60_000);
+        indexedAnalyses = grid.size();
+        if (since.getTime() == 0) {
+            logger.info("Measurement index built: {} analyses in {} ms",
+                    grid.size(), (System.nanoTime() - start) / 1_000_000);
+        } else if (grid.size() > before) {
+            logger.debug("Measurement index caught up: {} new analyses", grid.size() - before);
+        }
+    }
+
+    private record ExistingRow(BigDecimal sexinessMatch, boolean materialized, boolean disposable) {
+    }
+
+    private record MaterializedStats(int count, double weakest) {
+    }
+
+    private static final class Outcome {
+        int analyses;
+        int updated;
+        int inserted;
+        int deleted;
+        int evicted;
+
+        void add(Outcome other) {
+            analyses += other.analyses;
+            updated += other.updated;
+            inserted += other.inserted;
+            deleted += other.deleted;
+            evicted += other.evicted;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("affectedAnalyses", analyses);
+            map.put("rowsUpdated", updated);
+            map.put("rowsInserted", inserted);
+            map.put("rowsDeleted", deleted);
+            map.put("rowsEvicted", evicted);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import com.tryon.app.model.DressRecommendation;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * One recommendation in a response: the per-user fields are written directly, the dress is
+ * spliced in from {@link DressFragmentCache} as a raw, pre-encoded value. Field names match
+ * what the DressRecommendation entity serialized to before.
+ */
+public class RecommendationView implements JsonSerializable {
+    // Field names encoded once; writing them is then a byte copy
+    private static final SerializedString RECOMMENDATION_ID = new SerializedString("recommendationId");
+    private static final SerializedString ANALYSIS_ID = new SerializedString("analysisId");
+    private static final SerializedString USER_ID = new SerializedString("userId");
+    private static final SerializedString DRESS_ID = new SerializedString("dressId");
+    private static final SerializedString COMPATIBILITY_SCORE = new SerializedString("compatibilityScore");
+    private static final SerializedString SEXINESS_MATCH_SCORE = new SerializedString("sexinessMatchScore");
+    private static final SerializedString FIT_SCORE = new SerializedString("fitScore");
+    private static final SerializedString STYLE_SCORE = new SerializedString("styleScore");
+    private static final SerializedString RECOMMENDATION_REASON = new SerializedString("recommendationReason");
+    private static final SerializedString FIT_ANALYSIS = new SerializedString("fitAnalysis");
+    private static final SerializedString STYLE_TIPS = new SerializedString("styleTips");
+    private static final SerializedString IS_FAVORITE = new SerializedString("isFavorite");
+    private static final SerializedString IS_VIEWED = new SerializedString("isViewed");
+    private static final SerializedString IS_PURCHASED = new SerializedString("isPurchased");
+    private static final SerializedString USER_RATING = new SerializedString("userRating");
+    private static final SerializedString USER_FEEDBACK = new SerializedString("userFeedback");
+    private static final SerializedString RECOMMENDED_BY = new SerializedString("recommendedBy");
+    private static final SerializedString RECOMMENDATION_CONFIDENCE = new SerializedString("recommendationConfidence");
+    private static final SerializedString CREATED_AT = new SerializedString("createdAt");
+    private static final SerializedString UPDATED_AT = new SerializedString("updatedAt");
+    private static final SerializedString HIGHLY_RECOMMENDED = new SerializedString("highlyRecommended");
+    private static final SerializedString PERFECT_FIT = new SerializedString("perfectFit");
+    private static final SerializedString SEXY_MATCH = new SerializedString("sexyMatch");
+    private static final SerializedString DRESS = new SerializedString("dress");
+
+    private final DressRecommendation rec;
+    private final SerializedString dressFragment;
+
+    public RecommendationView(DressRecommendation rec, SerializedString dressFragment) {
+        this.rec = rec;
+        this.dressFragment = dressFragment;
+    }
+
+    public DressRecommendation getRecommendation() {
+        return rec;
+    }
+
+    @Override
+    public void serialize(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeStartObject();
+        writeFields(gen, provider);
+        gen.writeEndObject();
+    }
+
+    @Override
+    public void serializeWithType(JsonGenerator gen, SerializerProvider provider, TypeSerializer typeSer) throws IOException {
+        WritableTypeId typeId = typeSer.writeTypePrefix(gen, typeSer.typeId(this, JsonToken.START_OBJECT));
+        writeFields(gen, provider);
+        typeSer.writeTypeSuffix(gen, typeId);
+    }
+
+    private void writeFields(JsonGenerator gen, SerializerProvider provider) throws IOException {
+        longField(gen, RECOMMENDATION_ID, rec.getRecommendationId());
+        stringField(gen, ANALYSIS_ID, rec.getAnalysisId());
+        longField(gen, USER_ID, rec.getUserId());
+        intField(gen, DRESS_ID, rec.getDressId());
+        decimalField(gen, COMPATIBILITY_SCORE, rec.getCompatibilityScore());
+        decimalField(gen, SEXINESS_MATCH_SCORE, rec.getSexinessMatchScore());
+        decimalField(gen, FIT_SCORE, rec.getFitScore());
+        decimalField(gen, STYLE_SCORE, rec.getStyleScore());
+        stringField(gen, RECOMMENDATION_REASON, rec.getRecommendationReason());
+        stringField(gen, FIT_ANALYSIS, rec.getFitAnalysis());
+        stringField(gen, STYLE_TIPS, rec.getStyleTips());
+        booleanField(gen, IS_FAVORITE, rec.getIsFavorite());
+        booleanField(gen, IS_VIEWED, rec.getIsViewed());
+        booleanField(gen, IS_PURCHASED, rec.getIsPurchased());
+        intField(gen, USER_RATING, rec.getUserRating());
+        stringField(gen, USER_FEEDBACK, rec.getUserFeedback());
+        stringField(gen, RECOMMENDED_BY, rec.getRecommendedBy());
+        decimalField(gen, RECOMMENDATION_CONFIDENCE, rec.getRecommendationConfidence());
+        gen.writeFieldName(CREATED_AT);
+        provider.defaultSerializeValue(rec.getCreatedAt(), gen);
+        gen.writeFieldName(UPDATED_AT);
+        provider.defaultSerializeValue(rec.getUpdatedAt(), gen);
+        gen.writeFieldName(HIGHLY_RECOMMENDED);
+        gen.writeBoolean(rec.isHighlyRecommended());
+        gen.writeFieldName(PERFECT_FIT);
+        gen.writeBoolean(rec.isPerfectFit());
+        gen.writeFieldName(SEXY_MATCH);
+        gen.writeBoolean(rec.isSexyMatch());
+
+        gen.writeFieldName(DRESS);
+        if (dressFragment != null) {
+            gen.writeRawValue(dressFragment);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    private static void stringField(JsonGenerator gen, SerializableString name, String value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeString(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    private static void longField(JsonGenerator gen, SerializableString name, Long value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeNumber(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    private static void intField(JsonGenerator gen, SerializableString name, Integer value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeNumber(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    private static void decimalField(JsonGenerator gen, SerializableString name, BigDecimal value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeNumber(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+
+    private static void booleanField(JsonGenerator gen, SerializableString name, Boolean value) throws IOException {
+        gen.writeFieldName(name);
+        if (value != null) {
+            gen.writeBoolean(value);
+        } else {
+            gen.writeNull();
+        }
+    }
+}
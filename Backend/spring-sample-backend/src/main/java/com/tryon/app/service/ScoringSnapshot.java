@@ -0,0 +1,145 @@
+package com.tryon.app.service;
+
+import com.tryon.app.model.Dress;
+import com.tryon.app.model.DressFitProfile;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The catalog prepared for scoring many analyses in a row with {@link DressScorer}.
+ *
+ * Only the fit score depends on an analysis's measurements. Sexiness match depends on the
+ * preference alone and is computed once per dress; style depends on (body type, skin tone),
+ * of which there are a few dozen, and is computed once per pair on first use. Scoring an
+ * analysis is then one fixed-point fit check per dress, read from a flat array of fit bounds
+ * rather than through each dress's profile object, and a bounded heap. Safe to share
+ * between threads once built; the dresses must have their tag collections loaded.
+ */
+final class ScoringSnapshot {
+
+    private final DressScorer scorer;
+    private final Dress[] dresses;
+    private final double[] sexinessMatch;
+    // DressFitProfile.PACKED_SIZE bounds per dress; hasRanges[d] is false where the profile is null
+    private final short[] fitRanges;
+    private final boolean[] hasRanges;
+    private final Map<String, double[]> styleScores = new ConcurrentHashMap<>();
+
+    ScoringSnapshot(DressScorer scorer, List<Dress> dresses, String sexinessPreference) {
+        this.scorer = scorer;
+        this.dresses = dresses.toArray(new Dress[0]);
+        this.sexinessMatch = new double[this.dresses.length];
+        this.fitRanges = new short[this.dresses.length * DressFitProfile.PACKED_SIZE];
+        this.hasRanges = new boolean[this.dresses.length];
+        for (int d = 0; d < this.dresses.length; d++) {
+            sexinessMatch[d] = scorer.sexinessMatchScore(sexinessPreference, this.dresses[d]);
+            DressFitProfile profile = this.dresses[d].getFitProfile();
+            if (profile != null) {
+                profile.packInto(fitRanges, d * DressFitProfile.PACKED_SIZE);
+                hasRanges[d] = true;
+            }
+        }
+    }
+
+    int size() {
+        return dresses.length;
+    }
+
+    /**
+     * Up to limit dresses at or above minCompatibility, best first. Measurements are in tenths of an inch.
+     */
+    List<Scored> topN(int chestTenths, int waistTenths, int hipsTenths, String bodyType, String skinTone,
+                      int limit, double minCompatibility) {
+        double[] style = styleScores.computeIfAbsent(bodyType + '|' + skinTone, key -> {
+            double[] scores = new double[dresses.length];
+            for (int d = 0; d < dresses.length; d++) {
+                scores[d] = scorer.styleScore(bodyType, skinTone, dresses[d]);
+            }
+            return scores;
+        });
+
+        // Bounded min-heap of dress positions, weakest at the root
+        int[] heap = new int[limit];
+        double[] heapScores = new double[limit];
+        int size = 0;
+        for (int d = 0; d < dresses.length; d++) {
+            double fit = fitScore(d, chestTenths, waistTenths, hipsTenths);
+            double compatibility = scorer.compatibilityScore(fit, style[d], sexinessMatch[d]);
+            if (compatibility < minCompatibility) {
+                continue;
+            }
+            if (size < limit) {
+                heap[size] = d;
+                heapScores[size] = compatibility;
+                siftUp(heap, heapScores, size++);
+            } else if (compatibility > heapScores[0]) {
+                heap[0] = d;
+                heapScores[0] = compatibility;
+                siftDown(heap, heapScores, size);
+            }
+        }
+
+        Scored[] sorted = new Scored[size];
+        while (size > 0) {
+            int d = heap[0];
+            double fit = fitScore(d, chestTenths, waistTenths, hipsTenths);
+            sorted[size - 1] = new Scored(dresses[d].getDressId(), heapScores[0], fit, style[d], sexinessMatch[d]);
+            size--;
+            heap[0] = heap[size];
+            heapScores[0] = heapScores[size];
+            siftDown(heap, heapScores, size);
+        }
+        return Arrays.asList(sorted);
+    }
+
+    private double fitScore(int d, int chestTenths, int waistTenths, int hipsTenths) {
+        if (!hasRanges[d]) {
+            return scorer.fitScore(chestTenths, waistTenths, hipsTenths, dresses[d]); // the fallback score
+        }
+        return DressFitProfile.fitScore(fitRanges, d * DressFitProfile.PACKED_SIZE, chestTenths, waistTenths, hipsTenths);
+    }
+
+    private static void siftUp(int[] heap, double[] scores, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                break;
+            }
+            swap(heap, scores, i, parent);
+            i = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, double[] scores, int size) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && scores[child + 1] < scores[child]) {
+                child++;
+            }
+            if (scores[i] <= scores[child]) {
+                return;
+            }
+            swap(heap, scores, i, child);
+            i = child;
+        }
+    }
+
+    private static void swap(int[] heap, double[] scores, int a, int b) {
+        int d = heap[a];
+        heap[a] = heap[b];
+        heap[b] = d;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+
+    record Scored(int dressId, double compatibility, double fit, double style, double sexinessMatch) {
+    }
+}
@@ -0,0 +1,277 @@
+package com.tryon.app.service;
+
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.util.RawValue;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.config.ReplicaRouting;
+import com.tryon.app.model.Dress;
+import com.tryon.app.repository.DressRepository;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "More like this": nearest neighbours of a dress in feature space, from an in-memory HNSW
+ * graph over {@link DressFeatureEncoder} vectors.
+ *
+ * Built once the application is up and kept current from {@link CatalogChangedEvent}s (local,
+ * or relayed from other instances by {@link CatalogVersionMonitor}) on one background thread. Changed dresses are re-inserted in place; a whole-catalog change, or
+ * tombstones passing a quarter of the graph, rebuilds it off to the side and swaps it in.
+ */
+@Service
+public class SimilarDressService {
+    private static final Logger logger = LoggerFactory.getLogger(SimilarDressService.class);
+
+    private static final String AVAILABLE = "available";
+    private static final long LEVEL_SEED = 42L;
+
+    private final DressRepository dressRepository;
+    private final DressFeatureEncoder encoder;
+    private final DressFragmentCache dressFragmentCache;
+    private final PipelineMetrics pipelineMetrics;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ReplicaRouting replicaRouting;
+
+    @Value("${catalog.similar.enabled:true}")
+    private boolean enabled;
+
+    @Value("${catalog.similar.m:16}")
+    private int m;
+
+    @Value("${catalog.similar.ef-construction:100}")
+    private int efConstruction;
+
+    @Value("${catalog.similar.ef-search:64}")
+    private int efSearch;
+
+    @Value("${catalog.search.page-size:500}")
+    private int pageSize;
+
+    // Graph reads share the lock; re-inserts take it exclusively
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private HnswIndex index;
+    private final Set<Integer> unavailable = ConcurrentHashMap.newKeySet();
+    private final ExecutorService indexer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "similar-dress-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SimilarDressService(DressRepository dressRepository,
+                               DressFeatureEncoder encoder,
+                               DressFragmentCache dressFragmentCache,
+                               PipelineMetrics pipelineMetrics,
+                               TransactionTemplate transactionTemplate,
+                               ReplicaRouting replicaRouting) {
+        this.dressRepository = dressRepository;
+        this.encoder = encoder;
+        this.dressFragmentCache = dressFragmentCache;
+        this.pipelineMetrics = pipelineMetrics;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransaction.setReadOnly(true);
+        this.replicaRouting = replicaRouting;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            logger.info("Similar-dress index is disabled");
+            return;
+        }
+        indexer.execute(this::rebuild);
+    }
+
+    @EventListener
+    public void onCatalogChanged(CatalogChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.isWholeCatalog()) {
+            indexer.execute(this::rebuild);
+        } else {
+            Set<Integer> dressIds = event.getDressIds();
+            indexer.execute(() -> update(dressIds));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdownNow();
+    }
+
+    /**
+     * Dresses most similar to the given one, closest first, each with its public dress JSON
+     */
+    public Map<String, Object> findSimilar(Integer dressId, int limit, boolean availableOnly) {
+        Timer.Sample sample = pipelineMetrics.start();
+        List<HnswIndex.Neighbour> neighbours;
+        lock.readLock().lock();
+        try {
+            if (index == null) {
+                throw new IllegalStateException("Similar-dress index is not ready");
+            }
+            float[] query = index.vector(dressId);
+            if (query == null) {
+                throw new IllegalArgumentException("Dress not found: " + dressId);
+            }
+            neighbours = index.search(query, limit, Math.max(efSearch, limit), id ->
+                    id != dressId && (!availableOnly || !unavailable.contains(id)));
+        } finally {
+            lock.readLock().unlock();
+        }
+        pipelineMetrics.stop(sample, "wardrobe.similar");
+
+        List<Integer> ids = new ArrayList<>(neighbours.size());
+        for (HnswIndex.Neighbour neighbour : neighbours) {
+            ids.add(neighbour.id());
+        }
+        Map<Integer, SerializedString> fragments = dressFragmentCache.fragments(ids);
+
+        List<Map<String, Object>> results = new ArrayList<>(neighbours.size());
+        for (HnswIndex.Neighbour neighbour : neighbours) {
+            SerializedString fragment = fragments.get(neighbour.id());
+            if (fragment == null) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("dressId", neighbour.id());
+            item.put("similarity", Math.round(neighbour.similarity() * 1000.0) / 1000.0);
+            item.put("dress", new RawValue(fragment));
+            results.add(item);
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("success", true);
+        result.put("dressId", dressId);
+        result.put("results", results);
+        result.put("totalCount", results.size());
+        return result;
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        lock.readLock().lock();
+        try {
+            status.put("ready", index != null);
+            status.put("indexedDresses", index != null ? index.size() : 0);
+            status.put("tombstones", index != null ? index.deletedCount() : 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return status;
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        try {
+            HnswIndex fresh = new HnswIndex(DressFeatureEncoder.DIMENSION, m, efConstruction, LEVEL_SEED);
+            Set<Integer> freshUnavailable = new HashSet<>();
+            int afterId = Integer.MIN_VALUE;
+            while (true) {
+                int from = afterId;
+                List<Encoded> page = readOnlyTransaction.execute(status -> encode(
+                        dressRepository.findByDressIdGreaterThanOrderByDressIdAsc(from, PageRequest.of(0, pageSize))));
+                for (Encoded dress : page) {
+                    fresh.add(dress.dressId(), dress.vector());
+                    if (!dress.available()) {
+                        freshUnavailable.add(dress.dressId());
+                    }
+                }
+                if (page.size() < pageSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).dressId();
+            }
+
+            lock.writeLock().lock();
+            try {
+                index = fresh;
+                unavailable.clear();
+                unavailable.addAll(freshUnavailable);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.info("Similar-dress index built: {} dresses in {} ms",
+                    fresh.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // Keep serving the previous graph; the next catalog change tries again
+            logger.error("Failed to build similar-dress index", e);
+        }
+    }
+
+    private void update(Set<Integer> dressIds) {
+        if (index == null) {
+            rebuild();
+            return;
+        }
+        try {
+            // Changed dresses come from the primary; a replica may not have the change yet
+            List<Encoded> changed;
+            try (ReplicaRouting.Scope ignored = replicaRouting.onPrimary()) {
+                changed = readOnlyTransaction.execute(status -> encode(dressRepository.findAllById(dressIds)));
+            }
+            Set<Integer> removed = new HashSet<>(dressIds);
+
+            lock.writeLock().lock();
+            try {
+                for (Encoded dress : changed) {
+                    removed.remove(dress.dressId());
+                    index.add(dress.dressId(), dress.vector());
+                    if (dress.available()) {
+                        unavailable.remove(dress.dressId());
+                    } else {
+                        unavailable.add(dress.dressId());
+                    }
+                }
+                for (Integer dressId : removed) {
+                    index.remove(dressId);
+                    unavailable.remove(dressId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            if (index.deletedCount() > index.size() / 4) {
+                logger.info("Similar-dress index has {} tombstones for {} dresses, rebuilding",
+                        index.deletedCount(), index.size());
+                rebuild();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to update similar-dress index for {} dresses, rebuilding", dressIds.size(), e);
+            rebuild();
+        }
+    }
+
+    // Runs inside the read-only transaction: the encoder reads the lazy tag collections
+    private List<Encoded> encode(Iterable<Dress> dresses) {
+        List<Encoded> encoded = new ArrayList<>();
+        for (Dress dress : dresses) {
+            encoded.add(new Encoded(dress.getDressId(), encoder.encode(dress),
+                    AVAILABLE.equals(dress.getAvailabilityStatus())));
+        }
+        return encoded;
+    }
+
+    private record Encoded(int dressId, float[] vector, boolean available) {
+    }
+}
@@ -0,0 +1,239 @@
+package com.tryon.app.service;
+
+import com.tryon.app.config.LatencyWindow;
+import com.tryon.app.config.PipelineMetrics;
+import com.tryon.app.repository.AnalysisJobQueue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control for body image uploads, each of which costs an ML analysis.
+ *
+ * Two layers, checked before anything is stored:
+ * - global: while the shared analysis backlog or this node's p95 ML latency is over its
+ *   threshold, every upload is shed, so the pipeline catches up instead of queueing work
+ *   whose results would arrive too late to matter;
+ * - per client: a token bucket per client IP, plus one per signed-in user, so one caller can
+ *   burst a little but not monopolise the pipeline. The user bucket is keyed on the
+ *   authenticated principal only, never on a user id the client sent, so ids can't be rotated
+ *   around the limit or used to drain someone else's bucket; anonymous uploads are limited by
+ *   address alone.
+ *
+ * Rejections carry a retry delay for the Retry-After header. The global state is refreshed on
+ * a timer rather than per request; if the backlog can't be read, the last value stands.
+ * ML latency samples expire after a minute: shedding on latency stops uploads reaching the
+ * ML service, so without fresh samples the window empties and uploads are admitted again
+ * rather than being shed on stale evidence forever.
+ */
+@Service
+public class UploadAdmissionService {
+    private static final Logger logger = LoggerFactory.getLogger(UploadAdmissionService.class);
+
+    private final AnalysisJobQueue analysisJobQueue;
+    private final LatencyWindow mlLatency;
+
+    @Value("${uploads.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${uploads.admission.max-backlog:500}")
+    private long maxBacklog;
+
+    @Value("${uploads.admission.max-ml-p95-ms:15000}")
+    private long maxMlP95Ms;
+
+    // Too few samples after a restart say nothing about the p95
+    @Value("${uploads.admission.min-ml-samples:20}")
+    private int minMlSamples;
+
+    @Value("${uploads.admission.retry-after-seconds:30}")
+    private long overloadRetryAfterSeconds;
+
+    @Value("${uploads.rate-limit.user.burst:5}")
+    private int userBurst;
+
+    @Value("${uploads.rate-limit.user.per-minute:10}")
+    private double userPerMinute;
+
+    @Value("${uploads.rate-limit.ip.burst:20}")
+    private int ipBurst;
+
+    @Value("${uploads.rate-limit.ip.per-minute:60}")
+    private double ipPerMinute;
+
+    // Only behind a proxy that sets the header; otherwise clients could pick their own address
+    @Value("${uploads.rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    private final Map<Long, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> ipBuckets = new ConcurrentHashMap<>();
+    private volatile long backlog;
+    private volatile long mlP95Ms;
+    private volatile String overloadReason;
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shedOverload = new AtomicLong();
+    private final AtomicLong shedUserLimit = new AtomicLong();
+    private final AtomicLong shedIpLimit = new AtomicLong();
+
+    public UploadAdmissionService(AnalysisJobQueue analysisJobQueue, PipelineMetrics pipelineMetrics) {
+        this.analysisJobQueue = analysisJobQueue;
+        this.mlLatency = pipelineMetrics.recent(PipelineMetrics.ML_ANALYZE);
+    }
+
+    /**
+     * Take an upload slot for this caller, or say why not and when to come back
+     *
+     * @param authenticatedUserId the signed-in caller's id, or null for anonymous uploads
+     */
+    public Decision admit(Long authenticatedUserId, String clientIp) {
+        if (!enabled) {
+            return Decision.ADMITTED;
+        }
+        String overload = overloadReason;
+        if (overload != null) {
+            shedOverload.incrementAndGet();
+            return Decision.rejected(overload, overloadRetryAfterSeconds);
+        }
+
+        TokenBucket ip = ipBuckets.computeIfAbsent(clientIp, k -> new TokenBucket(ipBurst, ipPerMinute));
+        long ipWait = ip.tryTake();
+        if (ipWait > 0) {
+            shedIpLimit.incrementAndGet();
+            return Decision.rejected("Too many uploads from this address, please slow down", ipWait);
+        }
+        if (authenticatedUserId != null) {
+            TokenBucket user = userBuckets.computeIfAbsent(authenticatedUserId, k -> new TokenBucket(userBurst, userPerMinute));
+            long userWait = user.tryTake();
+            if (userWait > 0) {
+                // This upload isn't happening, so it shouldn't count against the address either
+                ip.giveBack();
+                shedUserLimit.incrementAndGet();
+                return Decision.rejected("Upload limit reached for this user, please slow down", userWait);
+            }
+        }
+        admitted.incrementAndGet();
+        return Decision.ADMITTED;
+    }
+
+    /**
+     * The address to rate limit: the first X-Forwarded-For hop when configured to trust it
+     */
+    public String clientAddress(String remoteAddr, String forwardedFor) {
+        if (trustForwardedFor && forwardedFor != null && !forwardedFor.isBlank()) {
+            return forwardedFor.split(",")[0].trim();
+        }
+        return remoteAddr;
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.admission.refresh-interval-ms:2000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            backlog = analysisJobQueue.backlog();
+        } catch (Exception e) {
+            logger.debug("Could not read the analysis backlog: {}", e.getMessage());
+        }
+        mlP95Ms = mlLatency.size() >= minMlSamples ? mlLatency.percentileMillis(0.95) : 0;
+
+        String reason = null;
+        if (backlog > maxBacklog) {
+            reason = "Analysis pipeline is busy (" + backlog + " uploads waiting), please retry later";
+        } else if (mlP95Ms > maxMlP95Ms) {
+            reason = "Analysis pipeline is slow right now, please retry later";
+        }
+        if ((reason == null) != (overloadReason == null)) {
+            if (reason != null) {
+                logger.warn("Shedding uploads: backlog {} (max {}), ML p95 {}ms (max {}ms)",
+                        backlog, maxBacklog, mlP95Ms, maxMlP95Ms);
+            } else {
+                logger.info("Admitting uploads again: backlog {}, ML p95 {}ms", backlog, mlP95Ms);
+            }
+        }
+        overloadReason = reason;
+    }
+
+    /**
+     * Drop buckets that have refilled completely; they'd start out full again anyway
+     */
+    @Scheduled(fixedDelayString = "${uploads.rate-limit.eviction-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        userBuckets.values().removeIf(TokenBucket::isFull);
+        ipBuckets.values().removeIf(TokenBucket::isFull);
+    }
+
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new HashMap<>();
+        status.put("enabled", enabled);
+        status.put("shedding", overloadReason != null);
+        status.put("backlog", backlog);
+        status.put("mlP95Ms", mlP95Ms);
+        status.put("admitted", admitted.get());
+        status.put("shedOverload", shedOverload.get());
+        status.put("shedUserLimit", shedUserLimit.get());
+        status.put("shedIpLimit", shedIpLimit.get());
+        status.put("trackedUsers", userBuckets.size());
+        status.put("trackedAddresses", ipBuckets.size());
+        return status;
+    }
+
+    public record Decision(boolean admitted, String reason, long retryAfterSeconds) {
+        static final Decision ADMITTED = new Decision(true, null, 0);
+
+        static Decision rejected(String reason, long retryAfterSeconds) {
+            return new Decision(false, reason, Math.max(1, retryAfterSeconds));
+        }
+    }
+
+    /**
+     * Holds up to capacity tokens and refills continuously at the configured rate
+     */
+    static final class TokenBucket {
+        private final double capacity;
+        private final double perNano;
+        private double tokens;
+        private long refilledAt;
+
+        TokenBucket(int capacity, double perMinute) {
+            this.capacity = Math.max(1, capacity);
+            this.perNano = perMinute / 60_000_000_000.0;
+            this.tokens = this.capacity;
+            this.refilledAt = System.nanoTime();
+        }
+
+        /**
+         * @return 0 when a token was taken, otherwise seconds until one is available
+         */
+        synchronized long tryTake() {
+            refill();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / perNano / 1_000_000_000.0);
+        }
+
+        synchronized void giveBack() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+
+        synchronized boolean isFull() {
+            refill();
+            return tokens >= capacity;
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * perNano);
+            refilledAt = now;
+        }
+    }
+}
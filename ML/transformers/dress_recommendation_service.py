@@ -478,7 +478,8 @@ class SexyDressRecommendationEngine:
         return " • ".join(tips) if tips else "Style with confidence!"
     
     def save_recommendations_to_db(self, analysis_id: str, recommendations: List[Dict[str, Any]]):
-        """Save recommendations to database"""
+        """Save recommendations to database, upserting on (analysis_id, dress_id) like the backend's
+        bulk writer so re-runs refresh scores; favorite/purchased/rating are left untouched"""
         try:
             with self.get_database_connection() as conn:
                 with conn.cursor() as cursor:
@@ -493,6 +494,15 @@ class SexyDressRecommendationEngine:
                                 recommendation_reason, recommendation_confidence,
                                 recommended_by
                             ) VALUES (%s, %s, %s, %s, %s, %s, %s, %s, %s, %s)
+                            ON CONFLICT (analysis_id, dress_id) DO UPDATE SET
+                                user_id = COALESCE(EXCLUDED.user_id, dress_recommendations.user_id),
+                                compatibility_score = EXCLUDED.compatibility_score,
+                                sexiness_match_score = EXCLUDED.sexiness_match_score,
+                                fit_score = EXCLUDED.fit_score,
+                                style_score = EXCLUDED.style_score,
+                                recommendation_reason = EXCLUDED.recommendation_reason,
+                                recommendation_confidence = EXCLUDED.recommendation_confidence,
+                                recommended_by = EXCLUDED.recommended_by
                         """, (
                             analysis_id,
                             dress.get('user_id'),  # This should come from user_data
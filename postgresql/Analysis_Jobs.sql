@@ -0,0 +1,32 @@
+-- ============================================
+-- Durable body analysis job queue
+-- Used by AnalysisJobQueue / AnalysisJobWorker
+-- ============================================
+
+-- One job per analysis; claimed with FOR UPDATE SKIP LOCKED and held under a lease
+CREATE TABLE IF NOT EXISTS wardrobe.analysis_jobs (
+    job_id BIGSERIAL PRIMARY KEY,
+    analysis_id VARCHAR(255) NOT NULL UNIQUE,
+    user_id BIGINT,
+    image_url VARCHAR(500) NOT NULL,
+    status VARCHAR(20) NOT NULL,              -- 'QUEUED' | 'RUNNING' | 'DONE' | 'FAILED'
+    priority INTEGER NOT NULL DEFAULT 0,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    max_attempts INTEGER NOT NULL,
+    available_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,  -- retry backoff
+    leased_by VARCHAR(255),
+    lease_expires_at TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Claim order; only queued jobs are indexed, so finished ones cost nothing
+CREATE INDEX IF NOT EXISTS idx_analysis_jobs_claim
+    ON wardrobe.analysis_jobs (priority DESC, available_at, job_id)
+    WHERE status = 'QUEUED';
+
+-- Lease reaper
+CREATE INDEX IF NOT EXISTS idx_analysis_jobs_lease
+    ON wardrobe.analysis_jobs (lease_expires_at)
+    WHERE status = 'RUNNING';
@@ -0,0 +1,27 @@
+-- ============================================
+-- Bulk catalog import bookkeeping
+-- Used by CatalogImportService (COPY based partner feed ingestion)
+-- ============================================
+
+-- One row per import run; lines_committed is the resume checkpoint
+CREATE TABLE IF NOT EXISTS wardrobe.catalog_import_runs (
+    run_id VARCHAR(64) PRIMARY KEY,
+    source VARCHAR(1000) NOT NULL,
+    format VARCHAR(10) NOT NULL,              -- 'JSONL' | 'CSV'
+    status VARCHAR(20) NOT NULL,              -- 'RUNNING' | 'COMPLETED' | 'FAILED'
+    lines_committed BIGINT NOT NULL DEFAULT 0,
+    rows_inserted BIGINT NOT NULL DEFAULT 0,
+    rows_updated BIGINT NOT NULL DEFAULT 0,
+    rows_rejected BIGINT NOT NULL DEFAULT 0,
+    last_error TEXT,
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Rows that failed validation, for the partner to fix
+CREATE TABLE IF NOT EXISTS wardrobe.catalog_import_rejects (
+    run_id VARCHAR(64) NOT NULL REFERENCES wardrobe.catalog_import_runs(run_id) ON DELETE CASCADE,
+    line_number BIGINT NOT NULL,
+    reason TEXT NOT NULL,
+    PRIMARY KEY (run_id, line_number)
+);
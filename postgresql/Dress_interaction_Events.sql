@@ -0,0 +1,35 @@
+-- ============================================
+-- Append-only interaction log + incremental rating aggregates
+-- Written in batches by InteractionEventLog
+-- ============================================
+
+CREATE TABLE IF NOT EXISTS wardrobe.dress_interaction_events (
+    event_id BIGSERIAL PRIMARY KEY,
+    recommendation_id BIGINT NOT NULL,
+    user_id BIGINT,
+    event_type VARCHAR(20) NOT NULL,          -- 'VIEW' | 'FAVORITE' | 'UNFAVORITE' | 'RATE' | 'PURCHASE'
+    rating INTEGER CHECK (rating >= 1 AND rating <= 5),
+    feedback TEXT,
+    occurred_at TIMESTAMP NOT NULL,
+    recorded_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_interaction_events_recommendation
+    ON wardrobe.dress_interaction_events(recommendation_id, occurred_at);
+
+-- Running rating totals so avg_rating can be maintained without re-aggregating
+ALTER TABLE wardrobe.dresses ADD COLUMN IF NOT EXISTS rating_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE wardrobe.dresses ADD COLUMN IF NOT EXISTS rating_sum BIGINT NOT NULL DEFAULT 0;
+
+-- Backfill from ratings recorded so far
+UPDATE wardrobe.dresses d SET
+    rating_count = r.rating_count,
+    rating_sum = r.rating_sum,
+    avg_rating = ROUND(r.rating_sum::numeric / r.rating_count, 2)
+FROM (
+    SELECT dress_id, COUNT(*) AS rating_count, SUM(user_rating) AS rating_sum
+    FROM wardrobe.dress_recommendations
+    WHERE user_rating IS NOT NULL
+    GROUP BY dress_id
+) r
+WHERE d.dress_id = r.dress_id;
@@ -0,0 +1,25 @@
+-- ============================================
+-- Row versions for wardrobe.dress_recommendations
+-- updated_at feeds the ETags of the recommendation read endpoints
+-- Run once after Dress_recommendations_Upsert.sql
+-- ============================================
+
+ALTER TABLE wardrobe.dress_recommendations ADD COLUMN IF NOT EXISTS updated_at TIMESTAMP;
+UPDATE wardrobe.dress_recommendations SET updated_at = created_at WHERE updated_at IS NULL;
+ALTER TABLE wardrobe.dress_recommendations
+    ALTER COLUMN updated_at SET DEFAULT CURRENT_TIMESTAMP,
+    ALTER COLUMN updated_at SET NOT NULL;
+
+-- Every write path (bulk upsert, interaction flush, JPA) bumps the row version,
+-- including the JDBC ones that don't list the column
+CREATE OR REPLACE FUNCTION wardrobe.touch_updated_at() RETURNS trigger AS $$
+BEGIN
+    NEW.updated_at := clock_timestamp();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_recommendations_touch ON wardrobe.dress_recommendations;
+CREATE TRIGGER trg_recommendations_touch
+    BEFORE UPDATE ON wardrobe.dress_recommendations
+    FOR EACH ROW EXECUTE FUNCTION wardrobe.touch_updated_at();
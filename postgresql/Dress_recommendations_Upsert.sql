@@ -0,0 +1,20 @@
+-- ============================================
+-- Bulk upsert support for wardrobe.dress_recommendations
+-- Run once after Dress_brands_Models.sql
+-- ============================================
+
+-- 1. Remove duplicate (analysis_id, dress_id) rows, keeping the oldest one
+DELETE FROM wardrobe.dress_recommendations dr
+USING wardrobe.dress_recommendations older
+WHERE dr.analysis_id = older.analysis_id
+  AND dr.dress_id = older.dress_id
+  AND dr.recommendation_id > older.recommendation_id;
+
+-- 2. Unique key used by INSERT ... ON CONFLICT (analysis_id, dress_id)
+ALTER TABLE wardrobe.dress_recommendations
+    ADD CONSTRAINT uq_recommendations_analysis_dress UNIQUE (analysis_id, dress_id);
+
+-- 3. Pooled sequence ids: Hibernate reserves 50 ids per nextval, so inserts can be batched
+--    (rows inserted through the column default simply skip ahead by 50)
+ALTER TABLE wardrobe.dress_recommendations ALTER COLUMN recommendation_id TYPE BIGINT;
+ALTER SEQUENCE wardrobe.dress_recommendations_recommendation_id_seq AS BIGINT INCREMENT BY 50;
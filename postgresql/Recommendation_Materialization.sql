@@ -0,0 +1,34 @@
+-- ============================================
+-- Precomputed recommendation runs
+-- Used by RecommendationMaterializationService
+-- ============================================
+
+-- One row per run; totals across all partitions
+CREATE TABLE IF NOT EXISTS wardrobe.materialization_runs (
+    run_id VARCHAR(64) PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,              -- 'RUNNING' | 'COMPLETED' | 'FAILED'
+    top_n INTEGER NOT NULL,
+    sexiness_preference VARCHAR(20) NOT NULL,
+    analyses_scored BIGINT NOT NULL DEFAULT 0,
+    recommendations_written BIGINT NOT NULL DEFAULT 0,
+    last_error TEXT,
+    started_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Body analysis id range (range_start, range_end] per partition;
+-- last_analysis_id is the resume checkpoint
+CREATE TABLE IF NOT EXISTS wardrobe.materialization_partitions (
+    run_id VARCHAR(64) NOT NULL REFERENCES wardrobe.materialization_runs(run_id) ON DELETE CASCADE,
+    partition_no INTEGER NOT NULL,
+    range_start BIGINT NOT NULL,
+    range_end BIGINT NOT NULL,
+    last_analysis_id BIGINT NOT NULL,
+    analyses_scored BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (run_id, partition_no)
+);
+
+-- Keyset paging over completed analyses
+CREATE INDEX IF NOT EXISTS idx_body_analysis_completed_id
+    ON wardrobe.body_analysis (id) WHERE status = 'COMPLETED';
@@ -0,0 +1,12 @@
+-- ============================================
+-- Read-your-writes across nodes
+-- Used by ReplicaRouting when a read replica is configured
+-- ============================================
+
+-- Primary WAL position just after each user's latest write; a node routes that user's reads
+-- to the replica only once the replica has replayed past it
+CREATE TABLE IF NOT EXISTS wardrobe.user_write_positions (
+    user_id BIGINT PRIMARY KEY,
+    wal_lsn PG_LSN NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);